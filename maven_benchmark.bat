@@ -0,0 +1,7 @@
+@REM JMH-Benchmarks ausfuehren; optional regulaerer Ausdruck fuer Auswahl der Benchmarks als Argument
+
+@if "%1"=="" (
+    mvnw -Pbenchmark test -DskipTests
+) else (
+    mvnw -Pbenchmark test -DskipTests -Dbenchmark.filter=%1
+)
@@ -0,0 +1,6 @@
+#!/bin/bash
+
+# JMH-Benchmarks ausfuehren; optional regulaerer Ausdruck fuer Auswahl der Benchmarks als Argument,
+# z.B. "./maven_benchmark.sh KryptoBenchmark"; Ergebnis in target/benchmark-ergebnis.json
+
+./mvnw -Pbenchmark test -DskipTests -Dbenchmark.filter=${1:-.*Benchmark.*}
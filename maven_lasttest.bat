@@ -0,0 +1,8 @@
+@REM Lasttest REST-Endpunkt mit Plattform-Threads und mit virtuellen Threads;
+@REM optional Anzahl Clients und Dauer pro Modus in Sekunden als Argumente, z.B. "maven_lasttest.bat 2000 30"
+
+@if "%1"=="" (
+    mvnw -Plasttest -DskipTests test
+) else (
+    mvnw -Plasttest -DskipTests -Dlasttest.clients=%1 -Dlasttest.sekunden=%2 test
+)
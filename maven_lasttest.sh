@@ -0,0 +1,6 @@
+#!/bin/bash
+
+# Lasttest REST-Endpunkt mit Plattform-Threads und mit virtuellen Threads;
+# optional Anzahl Clients und Dauer pro Modus in Sekunden als Argumente, z.B. "./maven_lasttest.sh 2000 30"
+
+./mvnw -Plasttest -DskipTests -Dlasttest.clients=${1:-2000} -Dlasttest.sekunden=${2:-20} test
@@ -0,0 +1,4 @@
+@REM JAR mit Spring AOT bauen, entpacken und AppCDS-Archiv mit Trainingslauf erzeugen
+@REM (Ergebnis in target/schnellstart); Start danach mit "schnellstart.bat"
+
+mvnw clean package -Pschnellstart -DskipTests
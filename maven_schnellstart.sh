@@ -0,0 +1,6 @@
+#!/bin/bash
+
+# JAR mit Spring AOT bauen, entpacken und AppCDS-Archiv mit Trainingslauf erzeugen
+# (Ergebnis in target/schnellstart); Start danach mit "./schnellstart.sh"
+
+./mvnw clean package -Pschnellstart -DskipTests
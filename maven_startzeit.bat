@@ -0,0 +1,8 @@
+@REM Startzeit bis zur ersten erfolgreichen Abfrage messen: Fat-JAR, entpacktes JAR, mit Spring AOT
+@REM und mit AOT + AppCDS; optional Anzahl Starts pro Variante als Argument, z.B. "maven_startzeit.bat 10"
+
+@if "%1"=="" (
+    mvnw clean verify -Pschnellstart,startzeit -DskipTests
+) else (
+    mvnw clean verify -Pschnellstart,startzeit -DskipTests -Dstartzeit.durchlaeufe=%1
+)
@@ -0,0 +1,6 @@
+#!/bin/bash
+
+# Startzeit bis zur ersten erfolgreichen Abfrage messen: Fat-JAR, entpacktes JAR, mit Spring AOT
+# und mit AOT + AppCDS; optional Anzahl Starts pro Variante als Argument, z.B. "./maven_startzeit.sh 10"
+
+./mvnw clean verify -Pschnellstart,startzeit -DskipTests -Dstartzeit.durchlaeufe=${1:-5}
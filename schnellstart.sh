@@ -0,0 +1,7 @@
+#!/bin/bash
+
+# Anwendung mit Spring AOT und AppCDS-Archiv starten, vorher mit "./maven_schnellstart.sh" bauen;
+# Argumente werden an die Anwendung weitergegeben, z.B. "./schnellstart.sh --server.port=8081"
+
+java -XX:SharedArchiveFile=target/schnellstart/kfzkennzeichen.jsa -Xlog:cds=off -Xlog:cds+dynamic=off \
+     -Dspring.aot.enabled=true -jar target/schnellstart/kfzkennzeichen-0.0.1-SNAPSHOT.jar "$@"
@@ -0,0 +1,46 @@
+package de.eldecker.dhbw.spring.db;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.krypto.BlindIndexHelfer;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+
+/**
+ * JPA-Entity-Listener, der vor jedem Einfügen und Ändern eines Fahrzeughalters die
+ * Blind Indizes für die verschlüsselten Attribute berechnet, so dass sie bei jedem
+ * Schreibzugriff (Repositories, Import, {@code EntityManager}) aktuell sind.
+ * <br><br>
+ *
+ * Wie bei {@link DatenAenderungListener} wird die Instanz von Hibernate über den
+ * Spring-Container erzeugt, deshalb funktioniert {@code Autowired} am Konstruktor.
+ */
+public class BlindIndexListener {
+
+    /** Bean für Berechnung der Blind Indizes. */
+    private final BlindIndexHelfer _blindIndexHelfer;
+
+
+    /**
+     * Konstruktor für Dependency Injection.
+     *
+     * @param blindIndexHelfer Bean für Berechnung der Blind Indizes
+     */
+    @Autowired
+    public BlindIndexListener( BlindIndexHelfer blindIndexHelfer ) {
+
+        _blindIndexHelfer = blindIndexHelfer;
+    }
+
+
+    @PrePersist
+    @PreUpdate
+    public void vorSpeichern( FahrzeugHalterEntity fahrzeugHalter ) {
+
+        fahrzeugHalter.blindIndizesBerechnen( _blindIndexHelfer );
+    }
+
+}
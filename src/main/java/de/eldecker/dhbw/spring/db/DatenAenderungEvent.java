@@ -0,0 +1,40 @@
+package de.eldecker.dhbw.spring.db;
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * Event, das nach dem Commit einer Transaktion mit Schreibzugriffen auf die Entity-Klassen
+ * veröffentlicht wird, und zwar genau einmal pro Transaktion (siehe
+ * {@link DatenAenderungListener}). Beans, die aus der Datenbank gelesene Daten im Speicher
+ * halten (z.B. Caches), können damit die Einträge für die betroffenen KFZ-Kennzeichen
+ * verwerfen.
+ *
+ * @param neueKennzeichen KFZ-Kennzeichen, die es erst seit der Transaktion gibt (neue
+ *                        {@code KfzKennzeichenEntity} oder geändertes KFZ-Kennzeichen),
+ *                        z.B. "KA X 123". Wird für Strukturen benötigt, die nur wissen
+ *                        müssen, welche KFZ-Kennzeichen es gibt (z.B. der Bloom-Filter).
+ *
+ * @param geaenderteKennzeichen KFZ-Kennzeichen, deren Daten geändert oder gelöscht wurden;
+ *                              enthält auch die KFZ-Kennzeichen aller Fahrzeuge eines
+ *                              geänderten Halters bzw. geänderter Fahrzeugdaten und bei
+ *                              einem geänderten KFZ-Kennzeichen den bisherigen Wert.
+ */
+public record DatenAenderungEvent( Set<String> neueKennzeichen, Set<String> geaenderteKennzeichen ) {
+
+    /**
+     * Alle betroffenen KFZ-Kennzeichen, z.B. für die Invalidierung von Caches (auch
+     * "nicht gefunden" für ein neues KFZ-Kennzeichen kann gecacht sein).
+     *
+     * @return Vereinigung von {@link #neueKennzeichen()} und {@link #geaenderteKennzeichen()}
+     */
+    public Set<String> alleKennzeichen() {
+
+        final Set<String> alleSet = new HashSet<>( neueKennzeichen );
+        alleSet.addAll( geaenderteKennzeichen );
+
+        return alleSet;
+    }
+
+}
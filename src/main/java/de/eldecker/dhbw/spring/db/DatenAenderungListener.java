@@ -0,0 +1,291 @@
+package de.eldecker.dhbw.spring.db;
+
+import static org.springframework.transaction.TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+
+/**
+ * JPA-Entity-Listener, der die Schreibzugriffe auf die Entities einer Transaktion sammelt
+ * und nach dem Commit genau ein {@link DatenAenderungEvent} mit den betroffenen
+ * KFZ-Kennzeichen veröffentlicht. Der Listener ist mit der Annotation
+ * {@code EntityListeners} an allen Entity-Klassen registriert, so dass jeder
+ * Schreibzugriff über die Repositories erfasst wird.
+ * <br><br>
+ *
+ * Welche KFZ-Kennzeichen betroffen sind:
+ * <ul>
+ * <li>Neue {@link KfzKennzeichenEntity}: das neue KFZ-Kennzeichen. Für neue Halter und
+ *     Fahrzeugdaten wird nichts aufgezeichnet, sie sind erst über das neue
+ *     KFZ-Kennzeichen sichtbar.</li>
+ * <li>Geänderte oder gelöschte {@link KfzKennzeichenEntity}: das KFZ-Kennzeichen, bei
+ *     einer Änderung des KFZ-Kennzeichens auch der bisherige Wert.</li>
+ * <li>Geänderte oder gelöschte Halter und Fahrzeugdaten: Es werden nur die
+ *     Primärschlüssel gesammelt; die zugehörigen KFZ-Kennzeichen werden nach dem Commit
+ *     mit einer Abfrage pro Entity-Klasse für die ganze Transaktion ermittelt.</li>
+ * </ul>
+ * Die Änderungen werden als Ressource an die laufende Transaktion gebunden (siehe
+ * {@link TransactionSynchronizationManager}); nach einem Rollback wird nichts
+ * veröffentlicht. Ohne Spring-Transaktion wird sofort veröffentlicht.
+ * <br><br>
+ *
+ * Wie beim {@code KryptoStringAttributeConverter} wird die Instanz von Hibernate
+ * über den Spring-Container erzeugt, deshalb funktioniert {@code Autowired} (am
+ * Konstruktor, siehe dort). Das Repo und der Transaktionsmanager werden über einen
+ * {@code ObjectProvider} erst nach dem Commit geholt, weil beide wiederum von der
+ * {@code EntityManagerFactory} abhängen, die diesen Listener erzeugt. Aus demselben
+ * Grund werden die Caches nicht direkt injiziert, sondern über das Event informiert.
+ * <br><br>
+ *
+ * Achtung: Massenoperationen mit JPQL (z.B. {@code deleteAllInBatch()}) umgehen
+ * die Entity-Callbacks und werden deshalb nicht erfasst.
+ */
+public class DatenAenderungListener {
+
+    /** Schlüssel, unter dem die Änderungen an die Transaktion gebunden werden. */
+    private static final Object RESSOURCE_SCHLUESSEL = DatenAenderungListener.class;
+
+    /** Bean zum Veröffentlichen der Events. */
+    private final ApplicationEventPublisher _eventPublisher;
+
+    /** Repo, um die KFZ-Kennzeichen zu geänderten Haltern und Fahrzeugdaten zu ermitteln. */
+    private final ObjectProvider<KfzKennzeichenRepo> _kfzKennzeichenRepo;
+
+    /** Transaktionsmanager für diese Abfragen nach dem Commit. */
+    private final ObjectProvider<PlatformTransactionManager> _transactionManager;
+
+
+    /**
+     * Konstruktor für Dependency Injection.
+     *
+     * @param eventPublisher Bean zum Veröffentlichen der Events
+     *
+     * @param kfzKennzeichenRepo Repo für KFZ-Kennzeichen, wird erst bei Bedarf geholt
+     *
+     * @param transactionManager Transaktionsmanager, wird erst bei Bedarf geholt
+     */
+    @Autowired
+    public DatenAenderungListener( ApplicationEventPublisher                  eventPublisher,
+                                   ObjectProvider<KfzKennzeichenRepo>         kfzKennzeichenRepo,
+                                   ObjectProvider<PlatformTransactionManager> transactionManager ) {
+
+        _eventPublisher     = eventPublisher;
+        _kfzKennzeichenRepo = kfzKennzeichenRepo;
+        _transactionManager = transactionManager;
+    }
+
+
+    @PostPersist
+    public void nachEinfuegen( Object entity ) {
+
+        if ( entity instanceof KfzKennzeichenEntity kfzKennzeichen ) {
+
+            final Aenderungen aenderungen = aenderungenHolen();
+            aenderungen.neueKennzeichen.add( kfzKennzeichen.getKennzeichen() );
+            veroeffentlichenOhneTransaktion( aenderungen );
+        }
+    }
+
+    @PostUpdate
+    public void nachAendern( Object entity ) {
+
+        final Aenderungen aenderungen = aenderungenHolen();
+        if ( entity instanceof KfzKennzeichenEntity kfzKennzeichen ) {
+
+            final String kennzeichenAlt = kfzKennzeichen.getKennzeichenGespeichert();
+            final String kennzeichenNeu = kfzKennzeichen.getKennzeichen();
+            aenderungen.geaenderteKennzeichen.add( kennzeichenNeu );
+            if ( kennzeichenAlt != null && !kennzeichenAlt.equals( kennzeichenNeu ) ) {
+
+                aenderungen.geaenderteKennzeichen.add( kennzeichenAlt );
+                aenderungen.neueKennzeichen.add( kennzeichenNeu );
+            }
+
+        } else {
+
+            idAufzeichnen( aenderungen, entity );
+        }
+        veroeffentlichenOhneTransaktion( aenderungen );
+    }
+
+    @PostRemove
+    public void nachLoeschen( Object entity ) {
+
+        final Aenderungen aenderungen = aenderungenHolen();
+        if ( entity instanceof KfzKennzeichenEntity kfzKennzeichen ) {
+
+            final String kennzeichenAlt = kfzKennzeichen.getKennzeichenGespeichert();
+            aenderungen.geaenderteKennzeichen.add( kennzeichenAlt != null ? kennzeichenAlt
+                                                                         : kfzKennzeichen.getKennzeichen() );
+        } else {
+
+            idAufzeichnen( aenderungen, entity );
+        }
+        veroeffentlichenOhneTransaktion( aenderungen );
+    }
+
+
+    /**
+     * Primärschlüssel eines geänderten oder gelöschten Halters bzw. geänderter oder
+     * gelöschter Fahrzeugdaten aufzeichnen.
+     *
+     * @param aenderungen Änderungen der laufenden Transaktion
+     *
+     * @param entity Geänderte Entity
+     */
+    private static void idAufzeichnen( Aenderungen aenderungen, Object entity ) {
+
+        if ( entity instanceof FahrzeugHalterEntity halter ) {
+
+            aenderungen.halterIds.add( halter.getId() );
+
+        } else if ( entity instanceof FahrzeugDatenEntity fahrzeugDaten ) {
+
+            aenderungen.fahrzeugDatenIds.add( fahrzeugDaten.getId() );
+        }
+    }
+
+
+    /**
+     * Änderungen der laufenden Transaktion holen; beim ersten Schreibzugriff in der
+     * Transaktion werden sie angelegt und an die Transaktion gebunden.
+     *
+     * @return Änderungen der laufenden Transaktion; ohne Spring-Transaktion ein neues
+     *         Objekt, das nicht gebunden ist
+     */
+    private Aenderungen aenderungenHolen() {
+
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() ) {
+
+            return new Aenderungen( false );
+        }
+
+        Aenderungen aenderungen = (Aenderungen) TransactionSynchronizationManager.getResource( RESSOURCE_SCHLUESSEL );
+        if ( aenderungen == null ) {
+
+            aenderungen = new Aenderungen( true );
+            TransactionSynchronizationManager.bindResource( RESSOURCE_SCHLUESSEL, aenderungen );
+            TransactionSynchronizationManager.registerSynchronization( aenderungen );
+        }
+
+        return aenderungen;
+    }
+
+
+    /**
+     * Sofort veröffentlichen, wenn die Änderungen nicht an eine Transaktion gebunden sind.
+     *
+     * @param aenderungen Änderungen, die gerade aufgezeichnet wurden
+     */
+    private void veroeffentlichenOhneTransaktion( Aenderungen aenderungen ) {
+
+        if ( !aenderungen.gebunden ) {
+
+            veroeffentlichen( aenderungen );
+        }
+    }
+
+
+    /**
+     * Event für die gesammelten Änderungen veröffentlichen; KFZ-Kennzeichen zu Haltern und
+     * Fahrzeugdaten werden dafür in einer eigenen, lesenden Transaktion ermittelt.
+     *
+     * @param aenderungen Gesammelte Änderungen
+     */
+    private void veroeffentlichen( Aenderungen aenderungen ) {
+
+        if ( !aenderungen.halterIds.isEmpty() || !aenderungen.fahrzeugDatenIds.isEmpty() ) {
+
+            final TransactionTemplate transactionTemplate = new TransactionTemplate( _transactionManager.getObject() );
+            transactionTemplate.setPropagationBehavior( PROPAGATION_REQUIRES_NEW ); // die bisherige ist schon committet
+            transactionTemplate.setReadOnly( true );
+            transactionTemplate.executeWithoutResult( status -> {
+
+                final KfzKennzeichenRepo repo = _kfzKennzeichenRepo.getObject();
+                if ( !aenderungen.halterIds.isEmpty() ) {
+
+                    aenderungen.geaenderteKennzeichen.addAll( repo.kennzeichenZuHaltern( aenderungen.halterIds ) );
+                }
+                if ( !aenderungen.fahrzeugDatenIds.isEmpty() ) {
+
+                    aenderungen.geaenderteKennzeichen.addAll( repo.kennzeichenZuFahrzeugDaten( aenderungen.fahrzeugDatenIds ) );
+                }
+            });
+        }
+
+        if ( aenderungen.neueKennzeichen.isEmpty() && aenderungen.geaenderteKennzeichen.isEmpty() ) {
+
+            return;
+        }
+
+        _eventPublisher.publishEvent( new DatenAenderungEvent( Set.copyOf( aenderungen.neueKennzeichen       ),
+                                                               Set.copyOf( aenderungen.geaenderteKennzeichen ) ) );
+    }
+
+
+    /**
+     * Änderungen einer Transaktion; wird als Synchronisation registriert, damit nach dem
+     * Commit veröffentlicht und nach Ende der Transaktion die Bindung aufgehoben wird.
+     * Wird die Transaktion für eine innere Transaktion ({@code REQUIRES_NEW}) suspendiert,
+     * dann wird auch die Bindung aufgehoben, damit die innere Transaktion ihre eigenen
+     * Änderungen sammelt.
+     */
+    private final class Aenderungen implements TransactionSynchronization {
+
+        /** An eine Transaktion gebunden? */
+        final boolean gebunden;
+
+        final Set<String> neueKennzeichen       = new HashSet<>();
+        final Set<String> geaenderteKennzeichen = new HashSet<>();
+        final Set<Long>   halterIds             = new HashSet<>();
+        final Set<Long>   fahrzeugDatenIds      = new HashSet<>();
+
+        Aenderungen( boolean gebunden ) {
+
+            this.gebunden = gebunden;
+        }
+
+        @Override
+        public void suspend() {
+
+            TransactionSynchronizationManager.unbindResourceIfPossible( RESSOURCE_SCHLUESSEL );
+        }
+
+        @Override
+        public void resume() {
+
+            TransactionSynchronizationManager.bindResource( RESSOURCE_SCHLUESSEL, this );
+        }
+
+        @Override
+        public void afterCommit() {
+
+            TransactionSynchronizationManager.unbindResourceIfPossible( RESSOURCE_SCHLUESSEL );
+            veroeffentlichen( this );
+        }
+
+        @Override
+        public void afterCompletion( int status ) {
+
+            TransactionSynchronizationManager.unbindResourceIfPossible( RESSOURCE_SCHLUESSEL );
+        }
+    }
+
+}
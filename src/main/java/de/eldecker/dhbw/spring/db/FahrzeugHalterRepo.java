@@ -0,0 +1,51 @@
+package de.eldecker.dhbw.spring.db;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+
+/**
+ * Repository für {@link FahrzeugHalterEntity}, wird von <i>Spring Data JPA</i>
+ * automatisch implementiert und instanziiert.
+ *
+ * @param <FahrzeugHalterEntity> Entity-Klasse, für die dieses Repo zuständig ist
+ *
+ * @param <Long> Typ von Primärschlüssel
+ */
+public interface FahrzeugHalterRepo extends JpaRepository<FahrzeugHalterEntity, Long> {
+
+    /**
+     * Seite von Fahrzeughaltern ohne Blind Index für den Nachnamen suchen, z.B. weil sie
+     * vor Einführung der Blind Indizes angelegt wurden (Keyset-Paging).
+     *
+     * @param nachId Nur Datensätze mit größerer {@code id} (0 für erste Seite)
+     *
+     * @param limit Seitengröße
+     *
+     * @return Liste der Datensätze, bei denen die Spalte {@code nachname_bi} leer ist,
+     *         sortiert nach {@code id}
+     */
+    public List<FahrzeugHalterEntity> findByNachnameBlindIndexIsNullAndIdGreaterThanOrderById( long  nachId,
+                                                                                               Limit limit );
+
+    /**
+     * Kandidaten für schon vorhandene Fahrzeughalter suchen (über den Index
+     * {@code index_halter_nachname_plz}); ob ein Kandidat wirklich derselbe Halter ist,
+     * muss danach noch mit {@code FahrzeugHalterEntity.identitaet()} geprüft werden.
+     *
+     * @param nachnamen Blind Indizes der Nachnamen
+     *
+     * @param plzListe Postleitzahlen
+     *
+     * @return Halter, deren Nachname und PLZ in den Listen enthalten sind (nicht
+     *         unbedingt als Paar), sortiert nach {@code id}
+     */
+    public List<FahrzeugHalterEntity> findByNachnameBlindIndexInAndPlzInOrderById( Collection<String>  nachnamen,
+                                                                                   Collection<Integer> plzListe );
+
+}
@@ -1,10 +1,23 @@
 package de.eldecker.dhbw.spring.db;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
 
 
 /**
@@ -14,11 +27,18 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * @param <KfzKennzeichenEntity> Entity-Klasse, für die dieses Repo zuständig ist
  * 
  * @param <Long> Typ von Primärschlüssel
+ * <br><br>
+ *
+ * Die Abfrage-Methoden sind mit {@code EntityGraph} annotiert, damit das KFZ-Kennzeichen
+ * zusammen mit den Fahrzeugdaten und dem Fahrzeughalter mit genau einer SQL-Abfrage
+ * (Join) geladen wird. Ohne diese Annotation würde Hibernate die beiden mit {@code EAGER}
+ * gemappten Beziehungen jeweils mit einer weiteren SQL-Abfrage nachladen.
  */
 public interface KfzKennzeichenRepo extends JpaRepository<KfzKennzeichenEntity, Long> {
 
     /**
-     * KFZ-Kennzeichen auflösen.
+     * KFZ-Kennzeichen über die {@code VARCHAR}-Spalte auflösen; für Abfragen sollte
+     * stattdessen {@link #findByKennzeichenCode(long)} verwendet werden.
      *  
      * @param KfzKennzeichen Kennzeichen, das gesucht werden, soll, mit Leerzeichen
      *                       und normiert auf Großbuchstaben, kein "H" am Ende.
@@ -26,6 +46,192 @@ public interface KfzKennzeichenRepo extends JpaRepository<KfzKennzeichenEntity,
      *                       
      * @return Optional enthält Datensatz wenn gefunden
      */
+    @EntityGraph( attributePaths = { "fahrzeugDaten", "fahrzeugHalter" } )
     public Optional<KfzKennzeichenEntity> findByKennzeichen( String KfzKennzeichen ); 
+
+    /**
+     * Mehrere KFZ-Kennzeichen mit einer einzigen Abfrage (SQL-Operator {@code IN})
+     * auflösen.
+     *
+     * @param kennzeichenListe KFZ-Kennzeichen, die gesucht werden sollen, normiert wie
+     *                         bei {@link #findByKennzeichen(String)}
+     *
+     * @return Liste der gefundenen Datensätze, in beliebiger Reihenfolge; für nicht
+     *         gefundene KFZ-Kennzeichen ist kein Element enthalten.
+     */
+    @EntityGraph( attributePaths = { "fahrzeugDaten", "fahrzeugHalter" } )
+    public List<KfzKennzeichenEntity> findByKennzeichenIn( Collection<String> kennzeichenListe );
+
+    /**
+     * KFZ-Kennzeichen über die Zahlenspalte mit dem kodierten KFZ-Kennzeichen auflösen.
+     *
+     * @param kennzeichenCode Mit {@code KennzeichenKodierer.kodieren()} kodiertes
+     *                        KFZ-Kennzeichen
+     *
+     * @return Optional enthält Datensatz wenn gefunden
+     */
+    @EntityGraph( attributePaths = { "fahrzeugDaten", "fahrzeugHalter" } )
+    public Optional<KfzKennzeichenEntity> findByKennzeichenCode( long kennzeichenCode );
+
+    /**
+     * Mehrere KFZ-Kennzeichen über die Zahlenspalte mit einer einzigen Abfrage auflösen.
+     *
+     * @param kennzeichenCodes Kodierte KFZ-Kennzeichen
+     *
+     * @return Liste der gefundenen Datensätze, in beliebiger Reihenfolge
+     */
+    @EntityGraph( attributePaths = { "fahrzeugDaten", "fahrzeugHalter" } )
+    public List<KfzKennzeichenEntity> findByKennzeichenCodeIn( Collection<Long> kennzeichenCodes );
+
+    /**
+     * Prüfen, welche der kodierten KFZ-Kennzeichen es schon gibt, ohne die Entities (mit
+     * Fahrzeugdaten und Halter) zu laden, z.B. vor dem Anlegen neuer KFZ-Kennzeichen.
+     *
+     * @param kennzeichenCodes Kodierte KFZ-Kennzeichen
+     *
+     * @return Teilmenge von {@code kennzeichenCodes}, für die es schon einen Datensatz
+     *         gibt, in beliebiger Reihenfolge
+     */
+    @Query( "SELECT k.kennzeichenCode FROM KfzKennzeichenEntity k WHERE k.kennzeichenCode IN :kennzeichenCodes" )
+    public List<Long> vorhandeneKennzeichenCodes( @Param( "kennzeichenCodes" ) Collection<Long> kennzeichenCodes );
+
+    /**
+     * Kodierte KFZ-Kennzeichen suchen, für die es mehr als einen Datensatz gibt; solche
+     * Duplikate verhindern das Anlegen des Unique Constraints für die Spalte
+     * {@code kennzeichen_code} in einer vorhandenen Datenbank.
+     *
+     * @return Mehrfach vorhandene Werte der Spalte {@code kennzeichen_code}, leer wenn
+     *         keine Duplikate
+     */
+    @Query( "SELECT k.kennzeichenCode FROM KfzKennzeichenEntity k WHERE k.kennzeichenCode IS NOT NULL " +
+            "GROUP BY k.kennzeichenCode HAVING COUNT(k) > 1" )
+    public List<Long> doppelteKennzeichenCodes();
+
+    /**
+     * Seite von Datensätzen ohne kodiertes KFZ-Kennzeichen suchen, z.B. weil sie vor
+     * Einführung der Spalte angelegt wurden (Keyset-Paging).
+     *
+     * @param nachId Nur Datensätze mit größerer {@code id} (0 für erste Seite)
+     *
+     * @param limit Seitengröße
+     *
+     * @return Liste der Datensätze, bei denen die Spalte {@code kennzeichen_code} leer ist,
+     *         sortiert nach {@code id}
+     */
+    public List<KfzKennzeichenEntity> findByKennzeichenCodeIsNullAndIdGreaterThanOrderById( long  nachId,
+                                                                                           Limit limit );
+
+    /**
+     * Alle kodierten KFZ-Kennzeichen lesen, ohne die Entities zu laden (z.B. für den
+     * Aufbau des Bloom-Filters). Muss innerhalb einer Transaktion aufgerufen werden,
+     * der Stream muss nach der Verwendung geschlossen werden.
+     *
+     * @return Stream mit Werten der Spalte {@code kennzeichen_code} (ohne {@code null})
+     */
+    @Query( "SELECT k.kennzeichenCode FROM KfzKennzeichenEntity k WHERE k.kennzeichenCode IS NOT NULL" )
+    public Stream<Long> streamKennzeichenCodes();
+
+    /**
+     * Alle KFZ-Kennzeichen mit Fahrzeugdaten und Halter über einen Datenbank-Cursor lesen
+     * (z.B. für den Export), statt wie {@code findAll()} alle Entities auf einmal zu laden.
+     * Über die Fetch Size holt der JDBC-Treiber jeweils 1000 Zeilen pro Roundtrip; die
+     * Entities werden als "read only" geladen (kein Snapshot für Dirty Checking).
+     * <br><br>
+     *
+     * Muss innerhalb einer Transaktion aufgerufen werden, der Stream muss nach der
+     * Verwendung geschlossen werden. Der Aufrufer sollte den Persistence Context
+     * regelmäßig leeren.
+     *
+     * @return Stream mit allen KFZ-Kennzeichen, sortiert nach {@code id}
+     */
+    @QueryHints( { @QueryHint( name = HINT_FETCH_SIZE, value = "1000" ),
+                   @QueryHint( name = HINT_READ_ONLY , value = "true" ) } )
+    @Query( "SELECT k FROM KfzKennzeichenEntity k JOIN FETCH k.fahrzeugDaten JOIN FETCH k.fahrzeugHalter ORDER BY k.id" )
+    public Stream<KfzKennzeichenEntity> streamAlle();
+
+    /**
+     * KFZ-Kennzeichen aller Fahrzeuge bestimmter Halter lesen, ohne die Entities zu laden
+     * (z.B. um nach einer Änderung der Halter die Caches zu invalidieren).
+     *
+     * @param halterIds Primärschlüssel der Halter
+     *
+     * @return KFZ-Kennzeichen, in beliebiger Reihenfolge
+     */
+    @Query( "SELECT k.kennzeichen FROM KfzKennzeichenEntity k WHERE k.fahrzeugHalter.id IN :halterIds" )
+    public List<String> kennzeichenZuHaltern( @Param( "halterIds" ) Collection<Long> halterIds );
+
+    /**
+     * KFZ-Kennzeichen zu Fahrzeugdaten lesen, ohne die Entities zu laden.
+     *
+     * @param fahrzeugDatenIds Primärschlüssel der Fahrzeugdaten
+     *
+     * @return KFZ-Kennzeichen, in beliebiger Reihenfolge; Fahrzeuge ohne KFZ-Kennzeichen
+     *         fehlen
+     */
+    @Query( "SELECT k.kennzeichen FROM KfzKennzeichenEntity k WHERE k.fahrzeugDaten.id IN :fahrzeugDatenIds" )
+    public List<String> kennzeichenZuFahrzeugDaten( @Param( "fahrzeugDatenIds" ) Collection<Long> fahrzeugDatenIds );
+
+    /**
+     * Eine Seite der KFZ-Kennzeichen eines Halters lesen (Keyset-Pagination): Statt
+     * {@code OFFSET} wird nach der {@code id} des letzten Datensatzes der vorherigen Seite
+     * gesucht, so dass auch bei Haltern mit sehr vielen Fahrzeugen jede Seite direkt über
+     * den Index {@code index_kennzeichen_halter} gefunden wird.
+     * <br><br>
+     *
+     * Ohne {@code EntityGraph}: Der Halter ist für alle Datensätze derselbe und die
+     * Fahrzeugdaten werden in Batches nachgeladen (siehe {@code FahrzeugDatenEntity}).
+     *
+     * @param halterId Primärschlüssel des Halters
+     *
+     * @param nachId Nur Datensätze mit größerer {@code id} (0 für erste Seite)
+     *
+     * @param limit Seitengröße
+     *
+     * @return Liste der Datensätze, sortiert nach {@code id}
+     */
+    public List<KfzKennzeichenEntity> findByFahrzeugHalterIdAndIdGreaterThanOrderById( long halterId,
+                                                                                      long nachId,
+                                                                                      Limit limit );
+
+    /**
+     * Anzahl der KFZ-Kennzeichen eines Halters zählen (über den Index
+     * {@code index_kennzeichen_halter}).
+     *
+     * @param halterId Primärschlüssel des Halters
+     *
+     * @return Anzahl der KFZ-Kennzeichen, die dem Halter zugeordnet sind
+     */
+    public long countByFahrzeugHalterId( long halterId );
+
+    /**
+     * KFZ-Kennzeichen über die Blind Indizes der verschlüsselten Attribute des Halters
+     * suchen (Suche nach Gleichheit, siehe {@code BlindIndexHelfer}). Der Index über
+     * Nachname und PLZ wird für den Nachnamen (und ggf. die PLZ) verwendet, die optionalen
+     * Bedingungen werden auf den so gefundenen Datensätzen geprüft.
+     *
+     * @param nachname Blind Index des Nachnamens
+     *
+     * @param plz Postleitzahl, oder {@code null} für alle Postleitzahlen
+     *
+     * @param vorname Blind Index des Vornamens, oder {@code null}
+     *
+     * @param anschrift Blind Index von Straße und Hausnummer, oder {@code null}
+     *
+     * @param limit Maximale Anzahl Ergebnisse
+     *
+     * @return Liste der gefundenen Datensätze, sortiert nach KFZ-Kennzeichen
+     */
+    @EntityGraph( attributePaths = { "fahrzeugDaten", "fahrzeugHalter" } )
+    @Query( "SELECT k FROM KfzKennzeichenEntity k JOIN k.fahrzeugHalter h "                   +
+            "WHERE h.nachnameBlindIndex = :nachname "                                         +
+            "AND ( :plz       IS NULL OR h.plz               = :plz       ) "                 +
+            "AND ( :vorname   IS NULL OR h.vornameBlindIndex = :vorname   ) "                 +
+            "AND ( :anschrift IS NULL OR h.strasseBlindIndex = :anschrift ) "                 +
+            "ORDER BY k.kennzeichen" )
+    public List<KfzKennzeichenEntity> sucheNachHalter( @Param( "nachname"  ) String  nachname,
+                                                       @Param( "plz"       ) Integer plz,
+                                                       @Param( "vorname"   ) String  vorname,
+                                                       @Param( "anschrift" ) String  anschrift,
+                                                       Limit limit );
     
 }
@@ -0,0 +1,18 @@
+package de.eldecker.dhbw.spring.db;
+
+import de.eldecker.dhbw.spring.db.entities.NeuverschluesselungEntity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+
+/**
+ * Repository für {@link NeuverschluesselungEntity}, wird von <i>Spring Data JPA</i>
+ * automatisch implementiert und instanziiert.
+ *
+ * @param <NeuverschluesselungEntity> Entity-Klasse, für die dieses Repo zuständig ist
+ *
+ * @param <String> Typ von Primärschlüssel (Ziel-Format, z.B. "k2")
+ */
+public interface NeuverschluesselungRepo extends JpaRepository<NeuverschluesselungEntity, String> {
+
+}
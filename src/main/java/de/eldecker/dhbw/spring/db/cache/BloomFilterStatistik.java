@@ -0,0 +1,49 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+
+/**
+ * Momentaufnahme von Größe und Zählern von {@link KennzeichenBloomFilter}, wird über den
+ * REST-Endpunkt {@code /api/v1/admin/bloomfilter} als JSON ausgeliefert.
+ *
+ * @param bereit {@code false} solange der Bloom-Filter beim Hochfahren noch aufgebaut
+ *               wird; bis dahin werden alle Abfragen an Cache bzw. Datenbank durchgereicht
+ *
+ * @param erwarteteEintraege Konfigurierte Anzahl KFZ-Kennzeichen, für die der Bloom-Filter
+ *                           dimensioniert ist
+ *
+ * @param fehlerrate Konfigurierte Rate falsch-positiver Antworten (0.0 bis 1.0) bei
+ *                   {@code erwarteteEintraege} KFZ-Kennzeichen
+ *
+ * @param anzahlBits Größe des Bit-Felds
+ *
+ * @param anzahlHashfunktionen Anzahl der Bits, die pro KFZ-Kennzeichen gesetzt werden
+ *
+ * @param speicherBytes Speicherbedarf des Bit-Felds in Bytes
+ *
+ * @param eingefuegt Anzahl eingefügter KFZ-Kennzeichen; ein KFZ-Kennzeichen, das nach
+ *                   der Befüllung erneut eingefügt wird (z.B. geändert und wieder
+ *                   zurückgeändert), wird mehrfach gezählt
+ *
+ * @param fuellgrad Anteil gesetzter Bits (0.0 bis 1.0)
+ *
+ * @param geschaetzteFehlerrate Aus dem Füllgrad geschätzte aktuelle Rate falsch-positiver
+ *                              Antworten; ist größer als {@code fehlerrate}, wenn mehr als
+ *                              {@code erwarteteEintraege} KFZ-Kennzeichen eingefügt wurden
+ *
+ * @param negativ Anzahl Abfragen, die ohne Cache und Datenbank als "nicht gefunden"
+ *                beantwortet wurden
+ *
+ * @param vielleicht Anzahl Abfragen, die an Cache bzw. Datenbank weitergereicht wurden
+ */
+public record BloomFilterStatistik( boolean bereit,
+                                    long    erwarteteEintraege,
+                                    double  fehlerrate,
+                                    long    anzahlBits,
+                                    int     anzahlHashfunktionen,
+                                    long    speicherBytes,
+                                    long    eingefuegt,
+                                    double  fuellgrad,
+                                    double  geschaetzteFehlerrate,
+                                    long    negativ,
+                                    long    vielleicht ) {
+}
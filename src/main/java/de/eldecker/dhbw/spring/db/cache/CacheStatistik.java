@@ -0,0 +1,36 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+
+/**
+ * Momentaufnahme der Zähler von {@link KfzKennzeichenCache}, wird über den
+ * REST-Endpunkt {@code /api/v1/admin/cache} als JSON ausgeliefert, damit die
+ * Cache-Größe anhand des Produktions-Traffics festgelegt werden kann; ebenso für den
+ * Cache der kodierten Antworten ({@code /api/v1/admin/antwort-cache}).
+ *
+ * @param anzahlEintraege Aktuelle Anzahl Einträge im Cache
+ *
+ * @param maxEintraege Konfigurierte maximale Anzahl Einträge
+ *
+ * @param treffer Anzahl Abfragen, die aus dem Cache beantwortet wurden
+ *
+ * @param fehlschlaege Anzahl Abfragen, für die auf die Datenbank zugegriffen (bzw. die
+ *                     Antwort neu erzeugt) wurde
+ *
+ * @param verdraengtGroesse Anzahl Einträge, die wegen Erreichen der maximalen Größe
+ *                          entfernt wurden (der am längsten nicht verwendete Eintrag)
+ *
+ * @param verdraengtTtl Anzahl Einträge, die wegen Ablauf der TTL entfernt wurden
+ *
+ * @param invalidierungen Anzahl Invalidierungen wegen Schreibzugriffen
+ *
+ * @param trefferQuote Anteil Treffer an allen Abfragen (0.0 bis 1.0)
+ */
+public record CacheStatistik( int    anzahlEintraege,
+                              int    maxEintraege,
+                              long   treffer,
+                              long   fehlschlaege,
+                              long   verdraengtGroesse,
+                              long   verdraengtTtl,
+                              long   invalidierungen,
+                              double trefferQuote ) {
+}
@@ -0,0 +1,371 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import de.eldecker.dhbw.spring.db.DatenAenderungEvent;
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+
+/**
+ * Bloom-Filter über alle KFZ-Kennzeichen in der Datenbank, damit Abfragen für nicht
+ * vorhandene KFZ-Kennzeichen (Tippfehler, ausländische KFZ-Kennzeichen, Lesefehler
+ * bei Kennzeichenerkennung) ohne Datenbankzugriff beantwortet werden können.
+ * <br><br>
+ *
+ * Ein Bloom-Filter kann nur sicher sagen, dass ein KFZ-Kennzeichen <i>nicht</i> vorhanden
+ * ist; die Antwort "vielleicht vorhanden" ist mit der konfigurierten Fehlerrate falsch,
+ * dann wird eben wie bisher auf Cache bzw. Datenbank zugegriffen.
+ * <br><br>
+ *
+ * Eigenschaften:
+ * <ul>
+ * <li>Eingefügt wird das kodierte KFZ-Kennzeichen (siehe {@link KennzeichenKodierer}),
+ *     die Bits liegen in einem {@link AtomicLongArray}, so dass Einfügen und Abfragen
+ *     ohne Sperre möglich sind.</li>
+ * <li>Anzahl Bits und Hashfunktionen werden aus erwarteter Anzahl KFZ-Kennzeichen und
+ *     gewünschter Fehlerrate berechnet. Pro Abfrage werden die Bit-Positionen mit
+ *     "Double Hashing" aus zwei 64-Bit-Hashwerten abgeleitet.</li>
+ * <li>Der Bloom-Filter wird nach dem Hochfahren (also nach Migration und Import) mit
+ *     allen KFZ-Kennzeichen aus der Datenbank befüllt; bis dahin antwortet er immer
+ *     mit "vielleicht vorhanden".</li>
+ * <li>Neue und geänderte KFZ-Kennzeichen werden nach dem Commit eingefügt, siehe
+ *     {@link #beiDatenAenderung(DatenAenderungEvent)}. Vor der Befüllung werden die
+ *     Bits zwar gesetzt, aber nicht gezählt, weil diese KFZ-Kennzeichen (z.B. aus dem
+ *     Import beim Start) bei der Befüllung noch einmal gelesen werden.
+ *     Gelöschte KFZ-Kennzeichen bleiben im Bloom-Filter; das kostet nur eine unnötige
+ *     Datenbankabfrage.</li>
+ * </ul>
+ * Die Zähler sind auch als Metriken {@code kfz.bloomfilter.*} verfügbar.
+ */
+@Component
+public class KennzeichenBloomFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger( KennzeichenBloomFilter.class );
+
+    /** Multiplikator für zweiten Hashwert ("golden ratio", siehe SplitMix64). */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    /** Registry für Metriken. */
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    /** Anzahl KFZ-Kennzeichen, für die der Bloom-Filter dimensioniert wird. */
+    @Value( "${de.eldecker.kfz-kennzeichen.bloomfilter.erwartete-eintraege:1000000}" )
+    private long _erwarteteEintraege;
+
+    /** Gewünschte Rate falsch-positiver Antworten bei {@code _erwarteteEintraege}. */
+    @Value( "${de.eldecker.kfz-kennzeichen.bloomfilter.fehlerrate:0.01}" )
+    private double _fehlerrate;
+
+    /** Bit-Feld, jedes Element enthält 64 Bits. */
+    private AtomicLongArray _bits;
+
+    /** Anzahl Bits in {@link #_bits}. */
+    private long _anzahlBits;
+
+    /** Anzahl Bits, die pro KFZ-Kennzeichen gesetzt werden. */
+    private int _anzahlHashfunktionen;
+
+    /** Erst nach Befüllung mit allen KFZ-Kennzeichen aus der Datenbank {@code true}. */
+    private volatile boolean _bereit = false;
+
+    /** Anzahl eingefügter KFZ-Kennzeichen, ohne die vor der Befüllung über Events eingefügten. */
+    private final LongAdder _eingefuegt = new LongAdder();
+    private final LongAdder _negativ    = new LongAdder();
+    private final LongAdder _vielleicht = new LongAdder();
+
+
+    /**
+     * Bit-Feld anlegen, nachdem die Konfigurationswerte gesetzt wurden. Die Formeln
+     * für die optimale Anzahl Bits {@code m} und Hashfunktionen {@code k} bei {@code n}
+     * Einträgen und Fehlerrate {@code p} lauten:
+     * <pre>
+     * m = -n * ln(p) / ln(2)^2
+     * k = m / n * ln(2)
+     * </pre>
+     */
+    @PostConstruct
+    public void initialisierung() {
+
+        if ( _erwarteteEintraege < 1 || _fehlerrate <= 0.0 || _fehlerrate >= 1.0 ) {
+
+            throw new IllegalArgumentException( "Ungültige Konfiguration für Bloom-Filter: " +
+                                                _erwarteteEintraege + " Einträge, Fehlerrate " + _fehlerrate );
+        }
+
+        final double ln2 = Math.log( 2 );
+
+        final long anzahlBits = (long) Math.ceil( -_erwarteteEintraege * Math.log( _fehlerrate ) / ( ln2 * ln2 ) );
+
+        _bits                 = new AtomicLongArray( (int) ( ( anzahlBits + 63 ) / 64 ) );
+        _anzahlBits           = _bits.length() * 64L;
+        _anzahlHashfunktionen = Math.max( 1, (int) Math.round( (double) _anzahlBits / _erwarteteEintraege * ln2 ) );
+
+        metrikenRegistrieren();
+
+        LOG.info( "Bloom-Filter für KFZ-Kennzeichen: {} Bits ({} KiB), {} Hashfunktionen, für {} Einträge mit Fehlerrate {}.",
+                  _anzahlBits, getSpeicherBytes() / 1024, _anzahlHashfunktionen, _erwarteteEintraege, _fehlerrate );
+    }
+
+
+    /**
+     * Zähler und Speicherbedarf als Metriken registrieren.
+     */
+    private void metrikenRegistrieren() {
+
+        FunctionCounter.builder( "kfz.bloomfilter.abfragen", _negativ, LongAdder::sum )
+                       .description( "Abfragen an Bloom-Filter für KFZ-Kennzeichen" )
+                       .tag( "ergebnis", "negativ" )
+                       .register( _meterRegistry );
+        FunctionCounter.builder( "kfz.bloomfilter.abfragen", _vielleicht, LongAdder::sum )
+                       .description( "Abfragen an Bloom-Filter für KFZ-Kennzeichen" )
+                       .tag( "ergebnis", "vielleicht" )
+                       .register( _meterRegistry );
+        Gauge.builder( "kfz.bloomfilter.speicher", this, KennzeichenBloomFilter::getSpeicherBytes )
+             .description( "Speicherbedarf des Bloom-Filters für KFZ-Kennzeichen" )
+             .baseUnit( "bytes" )
+             .register( _meterRegistry );
+    }
+
+
+    /**
+     * Bloom-Filter mit allen KFZ-Kennzeichen aus der Datenbank befüllen, sobald die
+     * Anwendung hochgefahren ist (also nach allen {@code ApplicationRunner}-Beans, die
+     * Daten migrieren oder importieren).
+     */
+    @EventListener( ApplicationReadyEvent.class )
+    @Transactional( readOnly = true )
+    public void befuellen() {
+
+        final long startZeit = System.nanoTime();
+
+        try ( Stream<Long> codeStream = _kfzKennzeichenRepo.streamKennzeichenCodes() ) {
+
+            codeStream.forEach( this::hinzufuegen );
+        }
+        _bereit = true;
+
+        final long dauerMs = ( System.nanoTime() - startZeit ) / 1_000_000;
+        final long anzahl  = _eingefuegt.sum();
+        LOG.info( "Bloom-Filter mit {} KFZ-Kennzeichen befüllt in {} ms.", anzahl, dauerMs );
+
+        if ( anzahl > _erwarteteEintraege ) {
+
+            LOG.warn( "Bloom-Filter enthält mehr KFZ-Kennzeichen als erwartet ({} > {}), die Fehlerrate " +
+                      "ist deshalb höher als konfiguriert: {}",
+                      anzahl, _erwarteteEintraege, geschaetzteFehlerrate( anzahlGesetzterBits() ) );
+        }
+    }
+
+
+    /**
+     * Event-Handler für Schreibzugriffe auf die Datenbank: Neue KFZ-Kennzeichen werden
+     * eingefügt. Das Event kommt erst nach dem Commit; eine Abfrage, die gleichzeitig mit
+     * dem Commit läuft, kann das neue KFZ-Kennzeichen also noch als "nicht gefunden"
+     * beantworten, genau wie ohne Bloom-Filter eine Abfrage kurz vor dem Commit.
+     * <br><br>
+     *
+     * Vor der Befüllung werden nur die Bits gesetzt: Die KFZ-Kennzeichen sind dann schon
+     * committet und werden bei der Befüllung noch einmal gelesen und dort gezählt. Die
+     * Bits müssen trotzdem gesetzt werden, weil ein Commit während der Befüllung nicht
+     * mehr im Ergebnis der Datenbankabfrage enthalten sein kann.
+     *
+     * @param event Event mit den KFZ-Kennzeichen einer Transaktion
+     */
+    @EventListener
+    public void beiDatenAenderung( DatenAenderungEvent event ) {
+
+        for ( String kennzeichen : event.neueKennzeichen() ) {
+
+            try {
+
+                final long kennzeichenCode = KennzeichenKodierer.kodieren( kennzeichen );
+                if ( _bereit ) {
+
+                    hinzufuegen( kennzeichenCode );
+
+                } else {
+
+                    bitsSetzen( kennzeichenCode );
+                }
+            }
+            catch ( IllegalArgumentException ex ) {
+
+                // ungültiges KFZ-Kennzeichen, wird von Bean Validation abgelehnt
+            }
+        }
+    }
+
+
+    /**
+     * Kodiertes KFZ-Kennzeichen einfügen.
+     *
+     * @param kennzeichenCode Mit {@link KennzeichenKodierer#kodieren(String)} kodiertes
+     *                        KFZ-Kennzeichen
+     */
+    public void hinzufuegen( long kennzeichenCode ) {
+
+        bitsSetzen( kennzeichenCode );
+        _eingefuegt.increment();
+    }
+
+
+    /**
+     * Bits für ein kodiertes KFZ-Kennzeichen setzen, ohne es zu zählen.
+     *
+     * @param kennzeichenCode Kodiertes KFZ-Kennzeichen
+     */
+    private void bitsSetzen( long kennzeichenCode ) {
+
+        final long hash1 = mischen( kennzeichenCode );
+        final long hash2 = mischen( kennzeichenCode + GOLDEN_GAMMA );
+
+        for ( int i = 0; i < _anzahlHashfunktionen; i++ ) {
+
+            final long bitIndex = bitIndex( hash1, hash2, i );
+            final int  index    = (int) ( bitIndex >>> 6 );
+            final long maske    = 1L << bitIndex; // Shift verwendet nur die unteren 6 Bits
+
+            if ( ( _bits.get( index ) & maske ) == 0 ) {
+
+                _bits.getAndAccumulate( index, maske, ( alt, m ) -> alt | m );
+            }
+        }
+    }
+
+
+    /**
+     * Abfrage, ob ein KFZ-Kennzeichen in der Datenbank vorhanden sein kann.
+     *
+     * @param kennzeichenCode Kodiertes KFZ-Kennzeichen
+     *
+     * @return {@code false} wenn das KFZ-Kennzeichen sicher nicht vorhanden ist;
+     *         {@code true} wenn es vorhanden sein kann oder der Bloom-Filter noch nicht
+     *         befüllt ist
+     */
+    public boolean vielleichtEnthalten( long kennzeichenCode ) {
+
+        if ( !_bereit ) {
+
+            return true;
+        }
+
+        final long hash1 = mischen( kennzeichenCode );
+        final long hash2 = mischen( kennzeichenCode + GOLDEN_GAMMA );
+
+        for ( int i = 0; i < _anzahlHashfunktionen; i++ ) {
+
+            final long bitIndex = bitIndex( hash1, hash2, i );
+            if ( ( _bits.get( (int) ( bitIndex >>> 6 ) ) & ( 1L << bitIndex ) ) == 0 ) {
+
+                _negativ.increment();
+                return false;
+            }
+        }
+
+        _vielleicht.increment();
+        return true;
+    }
+
+
+    /**
+     * Position des {@code i}-ten Bits für ein KFZ-Kennzeichen ("Double Hashing").
+     */
+    private long bitIndex( long hash1, long hash2, int i ) {
+
+        return Long.remainderUnsigned( hash1 + i * hash2, _anzahlBits );
+    }
+
+
+    /**
+     * Bits eines 64-Bit-Werts gleichmäßig verteilen (Finalizer von MurmurHash3); ohne
+     * diesen Schritt würden ähnliche KFZ-Kennzeichen ähnliche Bit-Positionen belegen.
+     */
+    private static long mischen( long wert ) {
+
+        wert ^= wert >>> 33;
+        wert *= 0xFF51AFD7ED558CCDL;
+        wert ^= wert >>> 33;
+        wert *= 0xC4CEB9FE1A85EC53L;
+        wert ^= wert >>> 33;
+        return wert;
+    }
+
+
+    /**
+     * Speicherbedarf des Bit-Felds.
+     *
+     * @return Anzahl Bytes
+     */
+    public long getSpeicherBytes() {
+
+        return _anzahlBits / 8;
+    }
+
+
+    /**
+     * Zähler und Dimensionierung des Bloom-Filters abfragen; für den Füllgrad wird das
+     * ganze Bit-Feld gelesen.
+     *
+     * @return Momentaufnahme
+     */
+    public BloomFilterStatistik getStatistik() {
+
+        final long gesetzteBits = anzahlGesetzterBits();
+
+        return new BloomFilterStatistik( _bereit,
+                                         _erwarteteEintraege,
+                                         _fehlerrate,
+                                         _anzahlBits,
+                                         _anzahlHashfunktionen,
+                                         getSpeicherBytes(),
+                                         _eingefuegt.sum(),
+                                         (double) gesetzteBits / _anzahlBits,
+                                         geschaetzteFehlerrate( gesetzteBits ),
+                                         _negativ.sum(),
+                                         _vielleicht.sum() );
+    }
+
+
+    private long anzahlGesetzterBits() {
+
+        long anzahl = 0;
+        for ( int i = 0; i < _bits.length(); i++ ) {
+
+            anzahl += Long.bitCount( _bits.get( i ) );
+        }
+        return anzahl;
+    }
+
+
+    /**
+     * Eine falsch-positive Antwort gibt es, wenn zufällig alle {@code k} Bits gesetzt
+     * sind, also mit Wahrscheinlichkeit {@code fuellgrad^k}.
+     */
+    private double geschaetzteFehlerrate( long gesetzteBits ) {
+
+        return Math.pow( (double) gesetzteBits / _anzahlBits, _anzahlHashfunktionen );
+    }
+
+}
@@ -0,0 +1,390 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import de.eldecker.dhbw.spring.db.DatenAenderungEvent;
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+
+
+/**
+ * Sortierter Index über alle KFZ-Kennzeichen im Speicher, für Vorschläge (Autovervollständigung)
+ * zu einem Präfix wie "KA X" ohne {@code LIKE}-Abfrage auf der Datenbank.
+ * <br><br>
+ *
+ * Jedes KFZ-Kennzeichen wird als Sortierschlüssel vom Typ {@code long} gespeichert (siehe
+ * {@link #sortierschluessel(CharSequence)}), dessen numerische Reihenfolge der
+ * alphabetischen Reihenfolge der KFZ-Kennzeichen als String entspricht. Alle KFZ-Kennzeichen
+ * mit einem bestimmten Präfix liegen deshalb in einem zusammenhängenden Bereich, der mit
+ * binärer Suche gefunden wird.
+ * <br><br>
+ *
+ * Aufbau:
+ * <ul>
+ * <li>Sortiertes Array mit allen KFZ-Kennzeichen beim letzten Zusammenführen
+ *     (8 Bytes pro KFZ-Kennzeichen), wird nach dem Hochfahren aus der Datenbank aufgebaut
+ *     und danach nie verändert, sondern nur durch ein neues Array ersetzt.</li>
+ * <li>Neue und geänderte KFZ-Kennzeichen kommen zunächst in ein {@link ConcurrentSkipListSet};
+ *     sobald es {@value #MAX_NEUE} Einträge enthält, wird es mit dem Array zu einem neuen
+ *     Array zusammengeführt.</li>
+ * </ul>
+ * Gelöschte KFZ-Kennzeichen und der alte Wert von geänderten KFZ-Kennzeichen bleiben im
+ * Index (aus dem sortierten Array wird nie entfernt); ein solcher Vorschlag ergibt bei der
+ * Abfrage nur "nicht gefunden".
+ */
+@Component
+public class KennzeichenPraefixIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger( KennzeichenPraefixIndex.class );
+
+    /** Maximale Länge eines KFZ-Kennzeichens mit Leerzeichen, z.B. "ABC DE 1234". */
+    private static final int MAX_LAENGE = 11;
+
+    /**
+     * Basis für Sortierschlüssel: 0 für "Ende", 1 für Leerzeichen, 2-11 für Ziffern und
+     * 12-37 für Buchstaben (gleiche Reihenfolge wie im ASCII-Code).
+     */
+    private static final int BASIS = 38;
+
+    /** Anzahl neuer KFZ-Kennzeichen, ab der mit dem Array zusammengeführt wird. */
+    private static final int MAX_NEUE = 10_000;
+
+    /** Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    /** Sortierte Sortierschlüssel, ohne Duplikate; wird nur als Ganzes ersetzt. */
+    private volatile long[] _sortiert = new long[ 0 ];
+
+    /** Sortierschlüssel, die noch nicht in {@link #_sortiert} enthalten sind. */
+    private final NavigableSet<Long> _neue = new ConcurrentSkipListSet<>();
+
+    /** Anzahl Einträge in {@link #_neue} ({@code size()} müsste alle Einträge zählen). */
+    private final AtomicInteger _anzahlNeue = new AtomicInteger( 0 );
+
+    /** Sperre, damit nicht zwei Threads gleichzeitig ein neues Array erzeugen. */
+    private final ReentrantLock _lock = new ReentrantLock();
+
+
+    /**
+     * Index mit allen KFZ-Kennzeichen aus der Datenbank aufbauen, sobald die Anwendung
+     * hochgefahren ist (also nach allen {@code ApplicationRunner}-Beans, die Daten
+     * migrieren oder importieren).
+     */
+    @EventListener( ApplicationReadyEvent.class )
+    @Transactional( readOnly = true )
+    public void aufbauen() {
+
+        final long startZeit = System.nanoTime();
+
+        final long[] schluessel;
+        try ( Stream<Long> codeStream = _kfzKennzeichenRepo.streamKennzeichenCodes() ) {
+
+            schluessel = codeStream.mapToLong( code -> sortierschluessel( KennzeichenKodierer.dekodieren( code ) ) )
+                                   .toArray();
+        }
+        Arrays.sort( schluessel );
+
+        _lock.lock();
+        try {
+
+            // bisheriges Array enthält evtl. schon zusammengeführte neue KFZ-Kennzeichen
+            _sortiert = zusammenfuehren( zusammenfuehren( schluessel, _sortiert ), alsArray( _neue ) );
+        }
+        finally {
+
+            _lock.unlock();
+        }
+
+        final long dauerMs = ( System.nanoTime() - startZeit ) / 1_000_000;
+        LOG.info( "Präfix-Index mit {} KFZ-Kennzeichen aufgebaut in {} ms ({} KiB).",
+                  _sortiert.length, dauerMs, _sortiert.length * 8L / 1024 );
+    }
+
+
+    /**
+     * Event-Handler für Schreibzugriffe auf die Datenbank; neue und geänderte
+     * KFZ-Kennzeichen werden nach dem Commit aufgenommen.
+     *
+     * @param event Event mit den KFZ-Kennzeichen einer Transaktion
+     */
+    @EventListener
+    public void beiDatenAenderung( DatenAenderungEvent event ) {
+
+        for ( String kennzeichen : event.neueKennzeichen() ) {
+
+            aufnehmen( kennzeichen );
+        }
+    }
+
+
+    /**
+     * Neues KFZ-Kennzeichen in die Menge der neuen Sortierschlüssel aufnehmen; ab
+     * {@link #MAX_NEUE} Einträgen wird die Menge in das sortierte Array übernommen.
+     *
+     * @param kennzeichen Normiertes KFZ-Kennzeichen
+     */
+    private void aufnehmen( String kennzeichen ) {
+
+        if ( kennzeichen == null || !istGueltig( kennzeichen ) ) {
+
+            return;
+        }
+
+        final long schluessel = sortierschluessel( kennzeichen );
+        if ( Arrays.binarySearch( _sortiert, schluessel ) >= 0 || !_neue.add( schluessel ) ) {
+
+            return; // schon im Index
+        }
+
+        if ( _anzahlNeue.incrementAndGet() >= MAX_NEUE && _lock.tryLock() ) {
+
+            try {
+
+                final long[] neueArray = alsArray( _neue );
+                _sortiert = zusammenfuehren( _sortiert, neueArray );
+                for ( long schluesselNeu : neueArray ) {
+
+                    _neue.remove( schluesselNeu );
+                }
+                _anzahlNeue.addAndGet( -neueArray.length );
+            }
+            finally {
+
+                _lock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * KFZ-Kennzeichen mit einem bestimmten Präfix suchen.
+     *
+     * @param praefix Anfang des KFZ-Kennzeichens, z.B. "KA X" oder "ka x 1"; wird wie
+     *                ein KFZ-Kennzeichen normiert, ein Leerzeichen am Ende bleibt aber
+     *                erhalten ("KA " findet nicht "KAR A 1")
+     *
+     * @param max Maximale Anzahl Ergebnisse
+     *
+     * @return Alphabetisch sortierte Liste mit höchstens {@code max} KFZ-Kennzeichen;
+     *         leer, wenn {@code praefix} Zeichen enthält, die in KFZ-Kennzeichen nicht
+     *         vorkommen, oder zu lang ist
+     */
+    public List<String> suchen( String praefix, int max ) {
+
+        final String praefixNormiert = praefix.stripLeading()
+                                              .replaceAll( "\\s+", " " )
+                                              .toUpperCase( Locale.GERMAN );
+
+        if ( praefixNormiert.length() > MAX_LAENGE || !istGueltig( praefixNormiert ) ) {
+
+            return List.of();
+        }
+
+        final long von = sortierschluessel( praefixNormiert );
+        final long bis = von + bereichsgroesse( praefixNormiert.length() ); // exklusiv
+
+        final long[] sortiert = _sortiert; // Referenz nur einmal lesen
+        int index = Arrays.binarySearch( sortiert, von );
+        if ( index < 0 ) {
+
+            index = -index - 1; // Einfügeposition
+        }
+
+        final Iterator<Long> neueIterator = _neue.subSet( von, bis ).iterator();
+        long naechsterNeuer = neueIterator.hasNext() ? neueIterator.next() : bis;
+
+        final List<String> ergebnisListe = new ArrayList<>( Math.min( max, 64 ) );
+        while ( ergebnisListe.size() < max ) {
+
+            final long naechsterSortiert = index < sortiert.length && sortiert[ index ] < bis
+                                           ? sortiert[ index ]
+                                           : bis;
+            final long naechster = Math.min( naechsterSortiert, naechsterNeuer );
+            if ( naechster >= bis ) {
+
+                break;
+            }
+
+            ergebnisListe.add( kennzeichenAusSchluessel( naechster ) );
+
+            if ( naechsterSortiert == naechster ) {
+
+                index++;
+            }
+            if ( naechsterNeuer == naechster ) { // auch bei Duplikat in beiden Teilen
+
+                naechsterNeuer = neueIterator.hasNext() ? neueIterator.next() : bis;
+            }
+        }
+
+        return ergebnisListe;
+    }
+
+
+    /**
+     * Anzahl KFZ-Kennzeichen im Index.
+     *
+     * @return Anzahl, kann Duplikate zwischen Array und neuen Einträgen enthalten
+     */
+    public int getAnzahl() {
+
+        return _sortiert.length + _anzahlNeue.get();
+    }
+
+
+    /**
+     * Zwei sortierte Arrays zu neuem sortierten Array ohne Duplikate zusammenführen
+     * (Mischen wie bei Mergesort, also ohne erneutes Sortieren).
+     */
+    private static long[] zusammenfuehren( long[] a, long[] b ) {
+
+        final long[] ergebnis = new long[ a.length + b.length ];
+        int i = 0, j = 0, anzahl = 0;
+        while ( i < a.length || j < b.length ) {
+
+            final long wert;
+            if ( j == b.length || ( i < a.length && a[ i ] <= b[ j ] ) ) {
+
+                wert = a[ i++ ];
+
+            } else {
+
+                wert = b[ j++ ];
+            }
+
+            if ( anzahl == 0 || ergebnis[ anzahl - 1 ] != wert ) { // Duplikate liegen hintereinander
+
+                ergebnis[ anzahl++ ] = wert;
+            }
+        }
+
+        return anzahl == ergebnis.length ? ergebnis : Arrays.copyOf( ergebnis, anzahl );
+    }
+
+
+    /**
+     * Elemente der Menge als Array; da die Menge sortiert ist, ist auch das Array sortiert.
+     */
+    private static long[] alsArray( NavigableSet<Long> menge ) {
+
+        return menge.stream().mapToLong( Long::longValue ).toArray();
+    }
+
+
+    /**
+     * Prüft, ob {@code text} nur Zeichen enthält, die in KFZ-Kennzeichen vorkommen.
+     */
+    private static boolean istGueltig( String text ) {
+
+        if ( text.isEmpty() || text.length() > MAX_LAENGE ) {
+
+            return false;
+        }
+
+        for ( int i = 0; i < text.length(); i++ ) {
+
+            final char zeichen = text.charAt( i );
+            if ( zeichen != ' ' && ( zeichen < '0' || zeichen > '9' ) && ( zeichen < 'A' || zeichen > 'Z' ) ) {
+
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Sortierschlüssel berechnen: Jedes Zeichen ist eine Stelle zur Basis {@value #BASIS},
+     * fehlende Stellen am Ende sind 0. Da die Zeichen in derselben Reihenfolge wie im
+     * ASCII-Code auf Werte abgebildet werden und 0 kleiner als jedes Zeichen ist, gilt
+     * {@code a.compareTo(b) < 0} genau dann, wenn {@code sortierschluessel(a) < sortierschluessel(b)}.
+     * Es gilt 38^11 &lt; 2^63, der Schlüssel ist also nie negativ.
+     *
+     * @param text KFZ-Kennzeichen oder Präfix davon, nur gültige Zeichen
+     *
+     * @return Sortierschlüssel
+     */
+    static long sortierschluessel( CharSequence text ) {
+
+        long ergebnis = 0;
+        for ( int i = 0; i < MAX_LAENGE; i++ ) {
+
+            ergebnis *= BASIS;
+            if ( i < text.length() ) {
+
+                ergebnis += zeichenWert( text.charAt( i ) );
+            }
+        }
+        return ergebnis;
+    }
+
+
+    private static int zeichenWert( char zeichen ) {
+
+        if ( zeichen == ' ' ) {
+
+            return 1;
+        }
+        if ( zeichen <= '9' ) {
+
+            return zeichen - '0' + 2;
+        }
+        return zeichen - 'A' + 12;
+    }
+
+
+    /**
+     * Anzahl der Sortierschlüssel, die mit einem Präfix der Länge {@code laenge} beginnen.
+     */
+    private static long bereichsgroesse( int laenge ) {
+
+        long ergebnis = 1;
+        for ( int i = laenge; i < MAX_LAENGE; i++ ) {
+
+            ergebnis *= BASIS;
+        }
+        return ergebnis;
+    }
+
+
+    /**
+     * Umkehrung von {@link #sortierschluessel(CharSequence)}.
+     */
+    private static String kennzeichenAusSchluessel( long schluessel ) {
+
+        final char[] zeichen = new char[ MAX_LAENGE ];
+        int laenge = 0;
+        for ( int i = MAX_LAENGE - 1; i >= 0; i-- ) {
+
+            final int wert = (int) ( schluessel % BASIS );
+            schluessel /= BASIS;
+
+            if ( wert == 0 ) {
+
+                continue; // Ende; kann nur hinter dem letzten Zeichen stehen
+            }
+            zeichen[ i ] = wert == 1 ? ' ' : wert <= 11 ? (char) ( '0' + wert - 2 ) : (char) ( 'A' + wert - 12 );
+            laenge++;
+        }
+        return new String( zeichen, 0, laenge );
+    }
+
+}
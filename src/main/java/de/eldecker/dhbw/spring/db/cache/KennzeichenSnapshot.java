@@ -0,0 +1,499 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.springframework.transaction.TransactionDefinition.ISOLATION_REPEATABLE_READ;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.db.DatenAenderungEvent;
+import de.eldecker.dhbw.spring.db.cache.SnapshotDatei.Datenstand;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+
+/**
+ * Schreibgeschützter Snapshot aller KFZ-Kennzeichen mit Fahrzeugdaten und Halter in einer
+ * Datei, die mit Memory Mapping gelesen wird (Format siehe {@link SnapshotDatei}). Bei
+ * einem Fehlschlag im {@link KfzKennzeichenCache} wird zuerst hier nachgeschlagen; erst
+ * wenn das KFZ-Kennzeichen nicht enthalten ist oder der Snapshot veraltet ist, wird die
+ * Datenbank abgefragt. Für Abfragen fallen dann weder SQL noch O/R-Mapping an, und die
+ * Datei bleibt über einen Neustart der JVM im Page Cache des Betriebssystems.
+ * <br><br>
+ *
+ * Aktualität:
+ * <ul>
+ * <li>Neue Datensätze ändern keine vorhandenen Einträge: Neue KFZ-Kennzeichen sind nicht
+ *     im Snapshot enthalten und werden deshalb aus der Datenbank geladen.</li>
+ * <li>Nach einer Änderung oder Löschung (siehe {@link DatenAenderungEvent}) sind die
+ *     betroffenen KFZ-Kennzeichen im Snapshot veraltet, bis er nach einer konfigurierbaren
+ *     Verzögerung neu aufgebaut ist; so lange wird für diese KFZ-Kennzeichen die
+ *     Datenbank abgefragt.</li>
+ * <li>Der Neuaufbau liest alle Datensätze mit einer einzigen SQL-Abfrage in eine temporäre
+ *     Datei, die dann mit {@code ATOMIC_MOVE} an die Stelle der bisherigen Datei verschoben
+ *     wird; danach wird die Referenz auf den neuen Snapshot atomar ausgetauscht. Laufende
+ *     Abfragen lesen den alten Puffer zu Ende, er bleibt gültig, bis er nicht mehr
+ *     referenziert ist. (Unter Windows kann eine gemappte Datei nicht ersetzt werden, der
+ *     Neuaufbau schlägt dann fehl und der alte Snapshot bleibt veraltet.)</li>
+ * <li>Beim Hochfahren wird eine vorhandene Datei nur übernommen, wenn der Datenstand
+ *     (Anzahl und Prüfsumme der Zeilen jeder Tabelle) mit der Datenbank übereinstimmt und
+ *     alle Schlüssel für die enthaltenen Chiffren noch konfiguriert sind. Änderungen, die
+ *     während der Laufzeit nicht über JPA erfolgen (z.B. über die H2-Konsole), werden erst
+ *     beim nächsten Hochfahren erkannt; dann über {@code POST /api/v1/admin/snapshot}
+ *     neu aufbauen.</li>
+ * </ul>
+ * Zähler und Status sind unter {@code /api/v1/admin/snapshot} und als Metriken
+ * {@code kfz.snapshot.*} verfügbar.
+ */
+@Component
+public class KennzeichenSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger( KennzeichenSnapshot.class );
+
+    /** Soll der Snapshot verwendet werden? */
+    @Value( "${de.eldecker.kfz-kennzeichen.snapshot.aktiv:false}" )
+    private boolean _aktiv;
+
+    /** Pfad der Snapshot-Datei; die temporäre Datei wird im selben Verzeichnis angelegt. */
+    @Value( "${de.eldecker.kfz-kennzeichen.snapshot.datei:./db/kfzkennzeichen.snapshot}" )
+    private Path _datei;
+
+    /** Verzögerung zwischen erster Änderung und Neuaufbau in Sekunden. */
+    @Value( "${de.eldecker.kfz-kennzeichen.snapshot.neuaufbau-verzoegerung-sekunden:30}" )
+    private long _verzoegerungSekunden;
+
+    /** Bean für Entschlüsselung der Attribute des Halters (beim Zugriff auf Getter). */
+    @Autowired
+    private AesHelfer _aesHelfer;
+
+    /** Entity Manager für SQL-Abfragen beim Aufbau. */
+    @PersistenceContext
+    private EntityManager _entityManager;
+
+    /** Transaktionsmanager, der Cursor muss innerhalb einer Transaktion gelesen werden. */
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    /** Registry für Metriken. */
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    /** Aktueller Snapshot; {@code null}, solange noch keiner aufgebaut wurde. */
+    private final AtomicReference<Abbild> _abbild = new AtomicReference<>();
+
+    /**
+     * Zähler für Transaktionen mit Änderungen oder Löschungen; ein Snapshot ist nur für
+     * die KFZ-Kennzeichen gültig, die seit Beginn seines Aufbaus (Zählerwert in
+     * {@link Abbild#aenderungen()}) nicht geändert wurden.
+     */
+    private final AtomicLong _aenderungen = new AtomicLong( 0 );
+
+    /**
+     * Geänderte oder gelöschte KFZ-Kennzeichen (kodiert) mit dem Wert von
+     * {@link #_aenderungen} nach der Änderung; Einträge, die älter als der aktuelle
+     * Snapshot sind, werden nach dem Aufbau entfernt.
+     */
+    private final ConcurrentHashMap<Long, Long> _geaenderteCodes = new ConcurrentHashMap<>();
+
+    /** Ist schon ein Neuaufbau geplant? */
+    private final AtomicBoolean _neuaufbauGeplant = new AtomicBoolean( false );
+
+    /** Thread für Aufbau, damit Abfragen währenddessen mit der Datenbank weiterlaufen. */
+    private ScheduledExecutorService _executor;
+
+    private final LongAdder _treffer      = new LongAdder();
+    private final LongAdder _fallback     = new LongAdder();
+    private final LongAdder _neuaufbauten = new LongAdder();
+
+
+    /**
+     * Ein gemappter Snapshot.
+     *
+     * @param datei Gemappte Datei
+     *
+     * @param aenderungen Wert von {@link KennzeichenSnapshot#_aenderungen} vor Beginn des
+     *                    Aufbaus bzw. vor Prüfung des Datenstands
+     *
+     * @param erstellt Zeitpunkt, zu dem der Snapshot verwendet wurde
+     *
+     * @param aufbauDauerMs Dauer des Aufbaus, 0 für übernommene Datei
+     */
+    private record Abbild( SnapshotDatei datei, long aenderungen, Instant erstellt, long aufbauDauerMs ) {}
+
+
+    /**
+     * Thread für Aufbau anlegen und Metriken registrieren.
+     */
+    @PostConstruct
+    public void initialisierung() {
+
+        if ( !_aktiv ) {
+
+            return;
+        }
+
+        _executor = Executors.newSingleThreadScheduledExecutor( runnable -> Thread.ofPlatform()
+                                                                                 .name( "kennzeichen-snapshot" )
+                                                                                 .daemon( true )
+                                                                                 .unstarted( runnable ) );
+
+        FunctionCounter.builder( "kfz.snapshot.abfragen", _treffer, LongAdder::sum )
+                       .description( "Abfragen im Snapshot der KFZ-Kennzeichen" )
+                       .tag( "ergebnis", "treffer" )
+                       .register( _meterRegistry );
+        FunctionCounter.builder( "kfz.snapshot.abfragen", _fallback, LongAdder::sum )
+                       .description( "Abfragen im Snapshot der KFZ-Kennzeichen" )
+                       .tag( "ergebnis", "datenbank" )
+                       .register( _meterRegistry );
+        FunctionCounter.builder( "kfz.snapshot.neuaufbauten", _neuaufbauten, LongAdder::sum )
+                       .description( "Neuaufbauten des Snapshots der KFZ-Kennzeichen" )
+                       .register( _meterRegistry );
+        Gauge.builder( "kfz.snapshot.eintraege", this, snapshot -> snapshot.getStatistik().anzahlEintraege() )
+             .description( "Anzahl KFZ-Kennzeichen im Snapshot" )
+             .register( _meterRegistry );
+    }
+
+
+    /**
+     * Thread für Aufbau beim Herunterfahren beenden.
+     */
+    @PreDestroy
+    public void beenden() {
+
+        if ( _executor != null ) {
+
+            _executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Vorhandene Snapshot-Datei übernehmen oder neuen Snapshot aufbauen, sobald die
+     * Anwendung hochgefahren ist (also nach Migration und Import).
+     */
+    @EventListener( ApplicationReadyEvent.class )
+    public void starten() {
+
+        if ( !_aktiv ) {
+
+            LOG.info( "Snapshot der KFZ-Kennzeichen ist ausgeschaltet." );
+            return;
+        }
+
+        _executor.execute( () -> {
+
+            if ( !dateiUebernehmen() ) {
+
+                aufbauen();
+            }
+        });
+    }
+
+
+    /**
+     * KFZ-Kennzeichen im Snapshot nachschlagen.
+     *
+     * @param kennzeichenCode Kodiertes KFZ-Kennzeichen
+     *
+     * @return Optional mit nicht verwaltetem Entity (nur lesen, nicht speichern), wenn
+     *         gefunden; {@code null}, wenn die Datenbank abgefragt werden muss (kein
+     *         Snapshot, KFZ-Kennzeichen seit dem Aufbau geändert, oder nicht enthalten,
+     *         evtl. weil es neu ist)
+     */
+    public Optional<KfzKennzeichenEntity> nachschlagen( long kennzeichenCode ) {
+
+        final Abbild abbild    = _abbild.get();
+        final Long   geaendert = _geaenderteCodes.get( kennzeichenCode );
+        if ( abbild == null || ( geaendert != null && geaendert > abbild.aenderungen() ) ) {
+
+            _fallback.increment();
+            return null;
+        }
+
+        final KfzKennzeichenEntity entity = abbild.datei().lesen( kennzeichenCode, _aesHelfer );
+        if ( entity == null ) {
+
+            _fallback.increment();
+            return null;
+        }
+
+        _treffer.increment();
+        return Optional.of( entity );
+    }
+
+
+    /**
+     * Event-Handler für Schreibzugriffe auf die Datenbank (nach dem Commit): Nach
+     * Änderungen und Löschungen sind die betroffenen KFZ-Kennzeichen im Snapshot veraltet
+     * und werden aus der Datenbank geladen, bis der Snapshot nach der Verzögerung neu
+     * aufgebaut ist. Neue KFZ-Kennzeichen sind nicht im Snapshot und deshalb egal. Wird
+     * vor dem Handler des {@link KfzKennzeichenCache} aufgerufen, damit der Cache nach
+     * seiner Invalidierung nicht erneut aus dem veralteten Snapshot befüllt wird.
+     *
+     * @param event Event mit den KFZ-Kennzeichen einer Transaktion
+     */
+    @EventListener
+    @Order( Ordered.HIGHEST_PRECEDENCE )
+    public void beiDatenAenderung( DatenAenderungEvent event ) {
+
+        if ( !_aktiv || event.geaenderteKennzeichen().isEmpty() ) {
+
+            return;
+        }
+
+        final long aenderungen = _aenderungen.incrementAndGet();
+        for ( String kennzeichen : event.geaenderteKennzeichen() ) {
+
+            final long kennzeichenCode = KennzeichenParser.parsen( kennzeichen );
+            if ( kennzeichenCode != KennzeichenParser.UNGUELTIG ) {
+
+                _geaenderteCodes.put( kennzeichenCode, aenderungen );
+            }
+        }
+
+        if ( _abbild.get() != null ) { // sonst läuft gerade der erste Aufbau
+
+            neuaufbauPlanen( _verzoegerungSekunden );
+        }
+    }
+
+
+    /**
+     * Neuaufbau sofort starten (z.B. nach Änderungen über die H2-Konsole).
+     *
+     * @return {@code false}, wenn der Snapshot ausgeschaltet ist
+     */
+    public boolean neuaufbauStarten() {
+
+        if ( !_aktiv ) {
+
+            return false;
+        }
+
+        _abbild.set( null ); // bisheriger Snapshot wird nicht mehr verwendet
+        _executor.execute( this::aufbauen );
+        return true;
+    }
+
+
+    /**
+     * Status und Zähler des Snapshots abfragen.
+     *
+     * @return Momentaufnahme
+     */
+    public SnapshotStatistik getStatistik() {
+
+        final Abbild abbild = _abbild.get();
+
+        return new SnapshotStatistik( _aktiv,
+                                      abbild != null && abbild.aenderungen() == _aenderungen.get(),
+                                      abbild == null ? 0    : abbild.datei().getAnzahl(),
+                                      abbild == null ? 0    : abbild.datei().getGroesse(),
+                                      abbild == null ? null : abbild.erstellt(),
+                                      abbild == null ? 0    : abbild.aufbauDauerMs(),
+                                      _treffer.sum(),
+                                      _fallback.sum(),
+                                      _neuaufbauten.sum() );
+    }
+
+
+    private void neuaufbauPlanen( long verzoegerungSekunden ) {
+
+        if ( _neuaufbauGeplant.compareAndSet( false, true ) ) {
+
+            _executor.schedule( () -> {
+
+                _neuaufbauGeplant.set( false );
+                aufbauen();
+
+            }, verzoegerungSekunden, TimeUnit.SECONDS );
+        }
+    }
+
+
+    /**
+     * Vorhandene Snapshot-Datei übernehmen, wenn sie zum Datenstand der Datenbank passt.
+     *
+     * @return {@code true}, wenn die Datei übernommen wurde
+     */
+    private boolean dateiUebernehmen() {
+
+        if ( !Files.exists( _datei ) ) {
+
+            return false;
+        }
+
+        final long aenderungen = _aenderungen.get();
+        try {
+
+            final SnapshotDatei datei      = SnapshotDatei.oeffnen( _datei );
+            final Datenstand    datenstand = datenstandLesen();
+            if ( !datei.getDatenstand().equals( datenstand ) ) {
+
+                LOG.info( "Snapshot-Datei \"{}\" passt nicht zum Datenstand der Datenbank, wird neu aufgebaut.", _datei );
+                return false;
+            }
+
+            final BitSet versionen = datei.getSchluesselVersionen();
+            for ( int version = versionen.nextSetBit( 0 ); version >= 0; version = versionen.nextSetBit( version + 1 ) ) {
+
+                if ( !_aesHelfer.hatSchluessel( version ) ) {
+
+                    LOG.info( "Snapshot-Datei enthält Chiffren mit nicht mehr konfigurierter Schlüssel-Version {}, " +
+                              "wird neu aufgebaut.", version );
+                    return false;
+                }
+            }
+
+            aktivieren( new Abbild( datei, aenderungen, Instant.now(), 0 ) );
+            LOG.info( "Snapshot-Datei \"{}\" mit {} KFZ-Kennzeichen übernommen ({} KiB).",
+                      _datei, datei.getAnzahl(), datei.getGroesse() / 1024 );
+            return true;
+        }
+        catch ( IOException ex ) {
+
+            LOG.warn( "Snapshot-Datei \"{}\" kann nicht verwendet werden, wird neu aufgebaut: {}",
+                      _datei, ex.getMessage() );
+            return false;
+        }
+    }
+
+
+    /**
+     * Snapshot aus der Datenbank in temporäre Datei schreiben, diese an die Stelle der
+     * Snapshot-Datei verschieben und neuen Snapshot aktivieren. Fehler werden nur geloggt,
+     * Abfragen gehen dann weiter an die Datenbank.
+     */
+    private void aufbauen() {
+
+        final long startZeit   = System.nanoTime();
+        final long aenderungen = _aenderungen.get(); // vor dem Lesen!
+
+        Path temp = null;
+        try {
+
+            final Path verzeichnis = _datei.toAbsolutePath().getParent();
+            Files.createDirectories( verzeichnis );
+            temp = Files.createTempFile( verzeichnis, _datei.getFileName().toString(), ".tmp" );
+
+            final Path tempDatei = temp;
+            final TransactionTemplate transactionTemplate = new TransactionTemplate( _transactionManager );
+            transactionTemplate.setReadOnly( true );
+            transactionTemplate.setIsolationLevel( ISOLATION_REPEATABLE_READ ); // Datenstand passt zu Daten
+
+            transactionTemplate.executeWithoutResult( status -> {
+
+                final Datenstand datenstand = datenstandLesen();
+
+                @SuppressWarnings( "unchecked" )
+                final Stream<Object[]> zeilenStream = _entityManager.createNativeQuery( SnapshotDatei.SQL_ALLE )
+                                                                    .setHint( HINT_FETCH_SIZE, 1000 )
+                                                                    .getResultStream();
+                try ( zeilenStream ) {
+
+                    SnapshotDatei.schreiben( tempDatei, datenstand, zeilenStream.iterator() );
+                }
+                catch ( IOException ex ) {
+
+                    throw new UncheckedIOException( ex );
+                }
+            });
+
+            Files.move( temp, _datei, ATOMIC_MOVE, REPLACE_EXISTING );
+            temp = null;
+
+            final SnapshotDatei datei   = SnapshotDatei.oeffnen( _datei );
+            final long          dauerMs = ( System.nanoTime() - startZeit ) / 1_000_000;
+            aktivieren( new Abbild( datei, aenderungen, Instant.now(), dauerMs ) );
+            _neuaufbauten.increment();
+
+            LOG.info( "Snapshot mit {} KFZ-Kennzeichen aufgebaut in {} ms ({} KiB).",
+                      datei.getAnzahl(), dauerMs, datei.getGroesse() / 1024 );
+        }
+        catch ( IOException | RuntimeException ex ) {
+
+            LOG.error( "Aufbau des Snapshots der KFZ-Kennzeichen fehlgeschlagen.", ex );
+        }
+        finally {
+
+            if ( temp != null ) {
+
+                try {
+
+                    Files.deleteIfExists( temp );
+                }
+                catch ( IOException ex ) {
+
+                    LOG.warn( "Temporäre Snapshot-Datei \"{}\" konnte nicht gelöscht werden.", temp );
+                }
+            }
+        }
+
+        if ( _aenderungen.get() != aenderungen ) {
+
+            neuaufbauPlanen( _verzoegerungSekunden ); // Änderungen während des Aufbaus
+        }
+    }
+
+
+    /**
+     * Neuen Snapshot verwenden und Einträge für KFZ-Kennzeichen entfernen, deren Änderung
+     * schon im neuen Snapshot enthalten ist.
+     *
+     * @param abbild Neuer Snapshot
+     */
+    private void aktivieren( Abbild abbild ) {
+
+        _abbild.set( abbild );
+        _geaenderteCodes.values().removeIf( aenderungen -> aenderungen <= abbild.aenderungen() );
+    }
+
+
+    /**
+     * Datenstand der Datenbank abfragen, muss innerhalb einer Transaktion erfolgen, wenn
+     * er zu den danach gelesenen Daten passen soll.
+     */
+    private Datenstand datenstandLesen() {
+
+        final Object[] zeile = (Object[]) _entityManager.createNativeQuery( Datenstand.SQL ).getSingleResult();
+
+        return Datenstand.ausZeile( zeile );
+    }
+
+}
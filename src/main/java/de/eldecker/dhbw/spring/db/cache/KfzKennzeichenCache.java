@@ -0,0 +1,352 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.db.DatenAenderungEvent;
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+
+/**
+ * Read-Through-Cache vor {@link KfzKennzeichenRepo#findByKennzeichenCode(long)}.
+ * <br><br>
+ *
+ * Beim Laden einer {@link KfzKennzeichenEntity} werden vier Attribute des Fahrzeughalters
+ * entschlüsselt; wenn dasselbe KFZ-Kennzeichen oft hintereinander abgefragt wird, dann
+ * lohnt es sich deshalb, das Ergebnis im Speicher zu halten. Es werden auch Abfragen
+ * für nicht vorhandene KFZ-Kennzeichen gecacht.
+ * <br><br>
+ *
+ * Eigenschaften:
+ * <ul>
+ * <li>Schlüssel ist das normierte KFZ-Kennzeichen (siehe {@link #normieren(String)}),
+ *     kodiert als Zahl mit {@link KennzeichenKodierer}. KFZ-Kennzeichen mit ungültigem
+ *     Format werden ohne Datenbankzugriff als "nicht gefunden" beantwortet.</li>
+ * <li>KFZ-Kennzeichen, die laut {@link KennzeichenBloomFilter} sicher nicht vorhanden
+ *     sind, werden ohne Cache- und Datenbankzugriff als "nicht gefunden" beantwortet;
+ *     sie verdrängen also auch keine anderen Einträge aus dem Cache.</li>
+ * <li>Bei einem Fehlschlag wird zuerst im {@link KennzeichenSnapshot} nachgeschlagen,
+ *     erst danach wird die Datenbank abgefragt.</li>
+ * <li>Die Anzahl der Einträge ist begrenzt, bei Überschreitung wird der am längsten
+ *     nicht mehr verwendete Eintrag verdrängt (LRU); jeder Eintrag verfällt nach einer
+ *     konfigurierbaren Zeit (TTL), siehe {@link LruTtlSpeicher}.</li>
+ * <li>Bei jedem Schreibzugriff über die Repositories werden die betroffenen Einträge
+ *     verworfen, siehe {@link #beiDatenAenderung(DatenAenderungEvent)}.</li>
+ * </ul>
+ * Die Zähler sind auch als Metriken {@code kfz.cache.*} verfügbar.
+ */
+@Component
+public class KfzKennzeichenCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger( KfzKennzeichenCache.class );
+
+    /** Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    /** Bean für Erkennung nicht vorhandener KFZ-Kennzeichen ohne Datenbankzugriff. */
+    @Autowired
+    private KennzeichenBloomFilter _bloomFilter;
+
+    /** Bean für Abfragen ohne Datenbankzugriff bei Fehlschlag im Cache. */
+    @Autowired
+    private KennzeichenSnapshot _snapshot;
+
+    /** Registry für Metriken. */
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    /** Maximale Anzahl der Einträge im Cache. */
+    @Value( "${de.eldecker.kfz-kennzeichen.cache.max-eintraege:10000}" )
+    private int _maxEintraege;
+
+    /** Lebensdauer eines Eintrags in Sekunden. */
+    @Value( "${de.eldecker.kfz-kennzeichen.cache.ttl-sekunden:300}" )
+    private long _ttlSekunden;
+
+    /**
+     * Cache-Einträge mit kodiertem KFZ-Kennzeichen als Schlüssel und Ergebnis der
+     * Datenbankabfrage (kann leer sein) als Wert.
+     */
+    private LruTtlSpeicher<Optional<KfzKennzeichenEntity>> _speicher;
+
+
+    /**
+     * Speicher für Cache-Einträge anlegen, nachdem die Konfigurationswerte gesetzt wurden.
+     */
+    @PostConstruct
+    public void initialisierung() {
+
+        _speicher = new LruTtlSpeicher<>( _maxEintraege, _ttlSekunden );
+        _speicher.metrikenRegistrieren( _meterRegistry, "kfz.cache", "KFZ-Kennzeichen" );
+
+        LOG.info( "Cache für KFZ-Kennzeichen: max. {} Einträge, TTL {} Sekunden.",
+                  _maxEintraege, _ttlSekunden );
+    }
+
+
+    /**
+     * KFZ-Kennzeichen auflösen; wenn das Ergebnis nicht im Cache ist oder abgelaufen ist,
+     * dann wird es aus dem Snapshot oder der Datenbank geladen und im Cache abgelegt.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, z.B. "KA X 123"; wird vor der Suche normiert.
+     *
+     * @return Optional enthält Datensatz wenn gefunden
+     */
+    public Optional<KfzKennzeichenEntity> findByKennzeichen( String kennzeichen ) {
+
+        final long schluessel = KennzeichenParser.parsen( kennzeichen );
+        if ( schluessel == KennzeichenParser.UNGUELTIG ) {
+
+            return Optional.empty();
+        }
+
+        return findByKennzeichenCode( schluessel );
+    }
+
+
+    /**
+     * KFZ-Kennzeichen auflösen, das schon mit {@link KennzeichenParser} geprüft und
+     * kodiert wurde; wenn das Ergebnis nicht im Cache ist oder abgelaufen ist, dann
+     * wird es aus der Datenbank geladen und im Cache abgelegt.
+     *
+     * @param schluessel Kodiertes KFZ-Kennzeichen, siehe {@link KennzeichenKodierer}
+     *
+     * @return Optional enthält Datensatz wenn gefunden
+     */
+    public Optional<KfzKennzeichenEntity> findByKennzeichenCode( long schluessel ) {
+
+        if ( !_bloomFilter.vielleichtEnthalten( schluessel ) ) {
+
+            return Optional.empty();
+        }
+
+        final Optional<KfzKennzeichenEntity> treffer = _speicher.nachschlagen( schluessel );
+        if ( treffer != null ) {
+
+            return treffer;
+        }
+        final long generation = _speicher.getGeneration();
+
+        final Optional<KfzKennzeichenEntity> ausSnapshot = _snapshot.nachschlagen( schluessel );
+        final Optional<KfzKennzeichenEntity> ergebnis    = ausSnapshot != null
+                                                           ? ausSnapshot
+                                                           : _kfzKennzeichenRepo.findByKennzeichenCode( schluessel );
+
+        _speicher.ablegen( schluessel, ergebnis, generation );
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Mehrere KFZ-Kennzeichen auflösen; alle KFZ-Kennzeichen, die weder im Cache noch im
+     * Snapshot sind, werden mit einer einzigen Datenbankabfrage geladen.
+     *
+     * @param kennzeichenListe KFZ-Kennzeichen, werden vor der Suche normiert; Duplikate
+     *                         sind erlaubt, {@code null} nicht.
+     *
+     * @return Map mit normiertem KFZ-Kennzeichen als Schlüssel und Optional mit Datensatz
+     *         als Wert, in der Reihenfolge von {@code kennzeichenListe} (ohne Duplikate)
+     */
+    public Map<String, Optional<KfzKennzeichenEntity>> findByKennzeichenIn( Collection<String> kennzeichenListe ) {
+
+        final Map<String, Optional<KfzKennzeichenEntity>> ergebnisMap = new LinkedHashMap<>( kennzeichenListe.size() * 2 );
+        final List<Long> schluesselListe = new ArrayList<>( kennzeichenListe.size() );
+
+        for ( String kennzeichen : kennzeichenListe ) {
+
+            final String kennzeichenNormiert = normieren( kennzeichen );
+            if ( ergebnisMap.containsKey( kennzeichenNormiert ) ) {
+
+                continue; // Duplikat
+            }
+
+            final Long schluessel = schluesselBerechnen( kennzeichenNormiert );
+            if ( schluessel == null || !_bloomFilter.vielleichtEnthalten( schluessel ) ) {
+
+                ergebnisMap.put( kennzeichenNormiert, Optional.empty() );
+
+            } else {
+
+                ergebnisMap.put( kennzeichenNormiert, null ); // Platzhalter, Reihenfolge wie kennzeichenListe
+                schluesselListe.add( schluessel );
+            }
+        }
+
+        if ( schluesselListe.isEmpty() ) {
+
+            return ergebnisMap;
+        }
+
+        final Map<Long, Optional<KfzKennzeichenEntity>> trefferMap = _speicher.nachschlagen( schluesselListe );
+        final Set<Long> fehlendeSet = new HashSet<>();
+        for ( Long schluessel : schluesselListe ) {
+
+            final Optional<KfzKennzeichenEntity> treffer = trefferMap.get( schluessel );
+            if ( treffer != null ) {
+
+                ergebnisMap.put( KennzeichenKodierer.dekodieren( schluessel ), treffer );
+
+            } else {
+
+                fehlendeSet.add( schluessel );
+            }
+        }
+
+        if ( fehlendeSet.isEmpty() ) {
+
+            return ergebnisMap;
+        }
+        final long generation = _speicher.getGeneration();
+
+        final Map<Long, Optional<KfzKennzeichenEntity>> codeMap = new HashMap<>( fehlendeSet.size() * 2 );
+        final Set<Long> datenbankSet = new HashSet<>();
+        for ( Long schluessel : fehlendeSet ) {
+
+            final Optional<KfzKennzeichenEntity> ausSnapshot = _snapshot.nachschlagen( schluessel );
+            if ( ausSnapshot != null ) {
+
+                codeMap.put( schluessel, ausSnapshot );
+
+            } else {
+
+                datenbankSet.add( schluessel );
+            }
+        }
+
+        if ( !datenbankSet.isEmpty() ) {
+
+            final List<KfzKennzeichenEntity> gefundenListe = _kfzKennzeichenRepo.findByKennzeichenCodeIn( datenbankSet );
+            for ( KfzKennzeichenEntity entity : gefundenListe ) {
+
+                codeMap.put( entity.getKennzeichenCode(), Optional.of( entity ) );
+            }
+        }
+
+        for ( Long schluessel : fehlendeSet ) {
+
+            final Optional<KfzKennzeichenEntity> ergebnis =
+                    codeMap.computeIfAbsent( schluessel, code -> Optional.empty() ); // auch "nicht gefunden" cachen
+            ergebnisMap.put( KennzeichenKodierer.dekodieren( schluessel ), ergebnis );
+        }
+        _speicher.ablegen( codeMap, generation );
+
+        return ergebnisMap;
+    }
+
+
+    /**
+     * Einträge aus dem Cache entfernen; laufende Abfragen legen ihr Ergebnis danach nicht
+     * mehr ab (siehe {@link LruTtlSpeicher#getGeneration()}).
+     *
+     * @param kennzeichenListe KFZ-Kennzeichen, werden vor dem Entfernen normiert
+     */
+    public void invalidieren( Collection<String> kennzeichenListe ) {
+
+        final List<Long> schluesselListe = new ArrayList<>( kennzeichenListe.size() );
+        for ( String kennzeichen : kennzeichenListe ) {
+
+            final Long schluessel = schluesselBerechnen( kennzeichen );
+            if ( schluessel != null ) {
+
+                schluesselListe.add( schluessel );
+            }
+        }
+
+        _speicher.invalidieren( schluesselListe );
+    }
+
+
+    /**
+     * Alle Einträge aus dem Cache entfernen.
+     */
+    public void alleInvalidieren() {
+
+        _speicher.alleInvalidieren();
+    }
+
+
+    /**
+     * Event-Handler für Schreibzugriffe auf die Datenbank: Die Einträge der betroffenen
+     * KFZ-Kennzeichen werden verworfen. Das Event wird erst nach dem Commit der Transaktion
+     * veröffentlicht, damit nicht zwischenzeitlich ein noch nicht committeter Stand erneut
+     * in den Cache geladen wird. Wird nach {@link KennzeichenSnapshot} und vor dem Cache
+     * für kodierte Antworten aufgerufen, da beide auf diesem Cache aufbauen.
+     *
+     * @param event Event mit den KFZ-Kennzeichen einer Transaktion
+     */
+    @EventListener
+    @Order( 0 )
+    public void beiDatenAenderung( DatenAenderungEvent event ) {
+
+        invalidieren( event.alleKennzeichen() );
+    }
+
+
+    /**
+     * Zähler des Caches abfragen.
+     *
+     * @return Momentaufnahme der Zähler
+     */
+    public CacheStatistik getStatistik() {
+
+        return _speicher.getStatistik();
+    }
+
+
+    /**
+     * KFZ-Kennzeichen normieren: Leerzeichen am Anfang und Ende entfernen, mehrere
+     * Leerzeichen hintereinander durch ein Leerzeichen ersetzen und in Großbuchstaben
+     * umwandeln, siehe {@link KennzeichenParser#normieren(String)}.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, z.B. " ka  x 123"; darf nicht {@code null} sein
+     *
+     * @return Normiertes KFZ-Kennzeichen, z.B. "KA X 123"; bei ungültigem Format nur
+     *         ohne Leerzeichen am Anfang und Ende
+     */
+    public static String normieren( String kennzeichen ) {
+
+        final String kennzeichenNormiert = KennzeichenParser.normieren( kennzeichen );
+
+        return kennzeichenNormiert != null ? kennzeichenNormiert : kennzeichen.trim();
+    }
+
+
+
+    /**
+     * Schlüssel für Cache-Eintrag berechnen.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, wird vor der Kodierung normiert
+     *
+     * @return Kodiertes KFZ-Kennzeichen, oder {@code null} wenn das Format ungültig ist
+     */
+    private static Long schluesselBerechnen( String kennzeichen ) {
+
+        final long schluessel = KennzeichenParser.parsen( kennzeichen );
+
+        return schluessel == KennzeichenParser.UNGUELTIG ? null : schluessel;
+    }
+
+}
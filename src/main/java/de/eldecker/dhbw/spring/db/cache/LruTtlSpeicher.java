@@ -0,0 +1,380 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+
+/**
+ * Speicher für Cache-Einträge mit einer Zahl als Schlüssel (z.B. kodiertes
+ * KFZ-Kennzeichen), wird von {@link KfzKennzeichenCache} und vom Cache für kodierte
+ * Antworten verwendet.
+ * <br><br>
+ *
+ * Eigenschaften:
+ * <ul>
+ * <li>Die Anzahl der Einträge ist begrenzt, bei Überschreitung wird der am längsten
+ *     nicht mehr verwendete Eintrag verdrängt (LRU).</li>
+ * <li>Jeder Eintrag verfällt nach einer konfigurierbaren Zeit (TTL).</li>
+ * <li>Jede Invalidierung erhöht einen Zähler ("Generation"): Ein Wert, der vor einer
+ *     Invalidierung geladen wurde, wird nicht mehr abgelegt (er könnte veraltet sein).
+ *     Dafür muss {@link #getGeneration()} <b>vor</b> dem Laden aufgerufen und das
+ *     Ergebnis an {@link #ablegen(long, Object, long)} übergeben werden.</li>
+ * <li>Zähler für Treffer, Fehlschläge, Verdrängungen und Invalidierungen, siehe
+ *     {@link #getStatistik()} und {@link #metrikenRegistrieren(MeterRegistry, String, String)}.</li>
+ * </ul>
+ *
+ * @param <V> Typ der Werte; {@code null} ist als Wert nicht erlaubt, weil es für
+ *            "nicht im Cache" steht
+ */
+public class LruTtlSpeicher<V> {
+
+    /** Maximale Anzahl der Einträge. */
+    private final int _maxEintraege;
+
+    /** Lebensdauer eines Eintrags in Nanosekunden. */
+    private final long _ttlNanos;
+
+    /**
+     * Map mit den Einträgen; da die Map in "access order" arbeitet, ändert auch ein
+     * lesender Zugriff die interne Reihenfolge, deshalb muss jeder Zugriff auf die Map
+     * mit {@link #_lock} geschützt werden.
+     */
+    private final Map<Long, Eintrag<V>> _eintraege;
+
+    /**
+     * Sperre für {@link #_eintraege} und {@link #_generation}; es wird kein
+     * {@code synchronized} verwendet, weil ein virtueller Thread, der auf einen Monitor
+     * wartet, seinen Träger-Thread blockiert ("pinning").
+     */
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    /** Zähler für Invalidierungen, siehe {@link #getGeneration()}. */
+    private long _generation = 0;
+
+    private final LongAdder _treffer           = new LongAdder();
+    private final LongAdder _fehlschlaege      = new LongAdder();
+    private final LongAdder _verdraengtGroesse = new LongAdder();
+    private final LongAdder _verdraengtTtl     = new LongAdder();
+    private final LongAdder _invalidierungen   = new LongAdder();
+
+
+    /**
+     * Ein Eintrag im Speicher.
+     *
+     * @param wert Gecachter Wert
+     *
+     * @param ablaufzeitpunkt Zeitpunkt (laut {@code System.nanoTime()}), ab dem der Eintrag
+     *                        nicht mehr verwendet werden darf
+     */
+    private record Eintrag<V>( V wert, long ablaufzeitpunkt ) {}
+
+
+    /**
+     * Leeren Speicher anlegen.
+     *
+     * @param maxEintraege Maximale Anzahl der Einträge
+     *
+     * @param ttlSekunden Lebensdauer eines Eintrags in Sekunden
+     */
+    public LruTtlSpeicher( int maxEintraege, long ttlSekunden ) {
+
+        _maxEintraege = maxEintraege;
+        _ttlNanos     = TimeUnit.SECONDS.toNanos( ttlSekunden );
+
+        _eintraege = new LinkedHashMap<>( 16, 0.75f, true ) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Long, Eintrag<V>> aeltesterEintrag ) {
+
+                if ( size() > _maxEintraege ) {
+
+                    _verdraengtGroesse.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+
+    /**
+     * Zähler als Metriken registrieren; die Werte werden erst beim Abruf der Metriken aus
+     * den Zählern gelesen.
+     *
+     * @param meterRegistry Registry für Metriken
+     *
+     * @param praefix Präfix der Metrik-Namen, z.B. "kfz.cache"
+     *
+     * @param inhalt Inhalt des Caches für die Beschreibungen der Metriken, z.B.
+     *               "KFZ-Kennzeichen" für "Zugriffe auf Cache für KFZ-Kennzeichen"
+     */
+    public void metrikenRegistrieren( MeterRegistry meterRegistry, String praefix, String inhalt ) {
+
+        FunctionCounter.builder( praefix + ".zugriffe", _treffer, LongAdder::sum )
+                       .description( "Zugriffe auf Cache für " + inhalt )
+                       .tag( "ergebnis", "treffer" )
+                       .register( meterRegistry );
+        FunctionCounter.builder( praefix + ".zugriffe", _fehlschlaege, LongAdder::sum )
+                       .description( "Zugriffe auf Cache für " + inhalt )
+                       .tag( "ergebnis", "fehlschlag" )
+                       .register( meterRegistry );
+        FunctionCounter.builder( praefix + ".verdraengungen", _verdraengtGroesse, LongAdder::sum )
+                       .description( "Aus Cache für " + inhalt + " verdrängte Einträge" )
+                       .tag( "grund", "groesse" )
+                       .register( meterRegistry );
+        FunctionCounter.builder( praefix + ".verdraengungen", _verdraengtTtl, LongAdder::sum )
+                       .description( "Aus Cache für " + inhalt + " verdrängte Einträge" )
+                       .tag( "grund", "ttl" )
+                       .register( meterRegistry );
+        FunctionCounter.builder( praefix + ".invalidierungen", _invalidierungen, LongAdder::sum )
+                       .description( "Invalidierungen des Caches für " + inhalt )
+                       .register( meterRegistry );
+        Gauge.builder( praefix + ".eintraege", this, speicher -> speicher.getStatistik().anzahlEintraege() )
+             .description( "Anzahl Einträge im Cache für " + inhalt )
+             .register( meterRegistry );
+    }
+
+
+    /**
+     * Eintrag nachschlagen und Zähler für Treffer bzw. Fehlschlag erhöhen; ein abgelaufener
+     * Eintrag wird dabei entfernt.
+     *
+     * @param schluessel Schlüssel des Eintrags
+     *
+     * @return Gecachter Wert, oder {@code null} wenn nicht im Cache (oder abgelaufen)
+     */
+    public V nachschlagen( long schluessel ) {
+
+        _lock.lock();
+        try {
+
+            return nachschlagenGesperrt( schluessel );
+        }
+        finally {
+
+            _lock.unlock();
+        }
+    }
+
+
+    /**
+     * Mehrere Einträge mit nur einer Sperre nachschlagen, sonst wie {@link #nachschlagen(long)}.
+     *
+     * @param schluesselListe Schlüssel der Einträge
+     *
+     * @return Map mit den Treffern; Schlüssel, die nicht im Cache sind, fehlen darin
+     */
+    public Map<Long, V> nachschlagen( Collection<Long> schluesselListe ) {
+
+        final Map<Long, V> trefferMap = new HashMap<>( schluesselListe.size() * 2 );
+
+        _lock.lock();
+        try {
+
+            for ( Long schluessel : schluesselListe ) {
+
+                final V wert = nachschlagenGesperrt( schluessel );
+                if ( wert != null ) {
+
+                    trefferMap.put( schluessel, wert );
+                }
+            }
+        }
+        finally {
+
+            _lock.unlock();
+        }
+
+        return trefferMap;
+    }
+
+
+    /**
+     * Eintrag nachschlagen; Aufruf nur mit {@link #_lock}.
+     */
+    private V nachschlagenGesperrt( long schluessel ) {
+
+        final Eintrag<V> eintrag = _eintraege.get( schluessel );
+        if ( eintrag != null ) {
+
+            if ( System.nanoTime() - eintrag.ablaufzeitpunkt() < 0 ) {
+
+                _treffer.increment();
+                return eintrag.wert();
+            }
+
+            _eintraege.remove( schluessel );
+            _verdraengtTtl.increment();
+        }
+
+        _fehlschlaege.increment();
+        return null;
+    }
+
+
+    /**
+     * Aktuelle Generation abfragen; muss <b>vor</b> dem Laden eines Werts aufgerufen und
+     * an {@link #ablegen(long, Object, long)} übergeben werden.
+     *
+     * @return Wert des Zählers für Invalidierungen
+     */
+    public long getGeneration() {
+
+        _lock.lock();
+        try {
+
+            return _generation;
+        }
+        finally {
+
+            _lock.unlock();
+        }
+    }
+
+
+    /**
+     * Wert ablegen, wenn es seit dem Aufruf von {@link #getGeneration()} keine
+     * Invalidierung gab.
+     *
+     * @param schluessel Schlüssel des Eintrags
+     *
+     * @param wert Zu cachender Wert, nicht {@code null}
+     *
+     * @param generation Wert von {@link #getGeneration()} vor dem Laden von {@code wert}
+     */
+    public void ablegen( long schluessel, V wert, long generation ) {
+
+        final long ablaufzeitpunkt = System.nanoTime() + _ttlNanos;
+
+        _lock.lock();
+        try {
+
+            if ( generation == _generation ) {
+
+                _eintraege.put( schluessel, new Eintrag<>( wert, ablaufzeitpunkt ) );
+            }
+        }
+        finally {
+
+            _lock.unlock();
+        }
+    }
+
+
+    /**
+     * Mehrere Werte mit nur einer Sperre ablegen, sonst wie {@link #ablegen(long, Object, long)}.
+     *
+     * @param werte Map mit Schlüssel und zu cachendem Wert
+     *
+     * @param generation Wert von {@link #getGeneration()} vor dem Laden der Werte
+     */
+    public void ablegen( Map<Long, V> werte, long generation ) {
+
+        final long ablaufzeitpunkt = System.nanoTime() + _ttlNanos;
+
+        _lock.lock();
+        try {
+
+            if ( generation == _generation ) {
+
+                for ( Map.Entry<Long, V> wert : werte.entrySet() ) {
+
+                    _eintraege.put( wert.getKey(), new Eintrag<>( wert.getValue(), ablaufzeitpunkt ) );
+                }
+            }
+        }
+        finally {
+
+            _lock.unlock();
+        }
+    }
+
+
+    /**
+     * Einträge entfernen; Werte, die vorher geladen wurden, werden danach nicht mehr
+     * abgelegt (siehe {@link #getGeneration()}).
+     *
+     * @param schluesselListe Schlüssel der zu entfernenden Einträge
+     */
+    public void invalidieren( Collection<Long> schluesselListe ) {
+
+        _lock.lock();
+        try {
+
+            for ( Long schluessel : schluesselListe ) {
+
+                _eintraege.remove( schluessel );
+            }
+            _generation++;
+            _invalidierungen.increment();
+        }
+        finally {
+
+            _lock.unlock();
+        }
+    }
+
+
+    /**
+     * Alle Einträge entfernen, sonst wie {@link #invalidieren(Collection)}.
+     */
+    public void alleInvalidieren() {
+
+        _lock.lock();
+        try {
+
+            _eintraege.clear();
+            _generation++;
+            _invalidierungen.increment();
+        }
+        finally {
+
+            _lock.unlock();
+        }
+    }
+
+
+    /**
+     * Zähler abfragen.
+     *
+     * @return Momentaufnahme der Zähler
+     */
+    public CacheStatistik getStatistik() {
+
+        final int anzahlEintraege;
+        _lock.lock();
+        try {
+
+            anzahlEintraege = _eintraege.size();
+        }
+        finally {
+
+            _lock.unlock();
+        }
+
+        final long treffer      = _treffer.sum();
+        final long fehlschlaege = _fehlschlaege.sum();
+        final long abfragen     = treffer + fehlschlaege;
+
+        return new CacheStatistik( anzahlEintraege,
+                                   _maxEintraege,
+                                   treffer,
+                                   fehlschlaege,
+                                   _verdraengtGroesse.sum(),
+                                   _verdraengtTtl.sum(),
+                                   _invalidierungen.sum(),
+                                   abfragen == 0 ? 0.0 : (double) treffer / abfragen );
+    }
+
+}
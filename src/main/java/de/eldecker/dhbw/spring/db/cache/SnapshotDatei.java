@@ -0,0 +1,577 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.db.krypto.VerschluesselterString;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+import de.eldecker.dhbw.spring.model.KfzFarbeEnum;
+import de.eldecker.dhbw.spring.model.KfzMarkeEnum;
+
+
+/**
+ * Schreiben und Lesen der Snapshot-Datei von {@link KennzeichenSnapshot}: alle
+ * KFZ-Kennzeichen mit Fahrzeugdaten und Halter (Attribute verschlüsselt wie in der
+ * Datenbank), sortiert nach kodiertem KFZ-Kennzeichen (siehe {@link KennzeichenKodierer}).
+ * Die Datei wird mit Memory Mapping gelesen; ein KFZ-Kennzeichen wird mit binärer Suche
+ * im Index gefunden, ohne dass dafür Objekte erzeugt werden.
+ * <br><br>
+ *
+ * Aufbau (alle Zahlen Big Endian):
+ * <pre>
+ * Kopf       : Kennung "KFZS" (4 Bytes), Format-Version (4), Anzahl n (4), Position Index (8),
+ *              Datenstand (6 x 8), verwendete Schlüssel-Versionen (Bitmap, 32 Bytes)
+ * Datensätze : n Datensätze mit variabler Länge, sortiert nach kodiertem KFZ-Kennzeichen
+ * Index      : n x kodiertes KFZ-Kennzeichen (8), danach n x Position des Datensatzes (4)
+ * </pre>
+ * Der Index liegt am Ende, weil die Anzahl erst nach dem Schreiben der Datensätze bekannt
+ * ist; die Kennzeichen liegen dort hintereinander, damit die binäre Suche nur wenige
+ * Seiten der Datei berührt. Strings und Chiffren werden mit ihrer Länge (2 Bytes,
+ * {@value #NULL_LAENGE} für {@code null}) gespeichert, Strings in UTF-8.
+ * <br><br>
+ *
+ * Objekte dieser Klasse werden nach dem Öffnen nicht mehr verändert und können von
+ * beliebig vielen Threads gleichzeitig gelesen werden, da nur absolute Lesezugriffe auf
+ * den Puffer erfolgen.
+ */
+final class SnapshotDatei {
+
+    /** Kennung am Dateianfang: "KFZS". */
+    private static final int KENNUNG = 0x4B465A53;
+
+    /** Format-Version, muss bei jeder Änderung des Aufbaus erhöht werden. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Anzahl {@code long}-Werte für die Bitmap der Schlüssel-Versionen (256 Bits). */
+    private static final int BITMAP_LONGS = ( AesHelfer.VERSION_MAX + 1 ) / 64;
+
+    /** Länge des Kopfs in Bytes. */
+    private static final int KOPF_LAENGE = 4 + 4 + 4 + 8 + Datenstand.ANZAHL_WERTE * 8 + BITMAP_LONGS * 8;
+
+    /** Längenangabe für {@code null}. */
+    private static final int NULL_LAENGE = 0xFFFF;
+
+    /**
+     * SQL-Abfrage für alle KFZ-Kennzeichen mit Fahrzeugdaten und Halter, sortiert nach
+     * kodiertem KFZ-Kennzeichen (Index von {@code unique_kennzeichen_code}); die Reihenfolge
+     * der Spalten entspricht dem Aufbau eines Datensatzes. KFZ-Kennzeichen ohne Code,
+     * Fahrzeugdaten oder Halter sind nicht enthalten und werden immer aus der Datenbank
+     * geladen.
+     */
+    static final String SQL_ALLE =
+            "SELECT k.kennzeichen_code, k.id, k.version, k.historisch, "                 +
+                   "d.id, d.farbe, CAST( d.marke AS VARCHAR ), d.fin, d.baujahr, "      +
+                   "h.id, h.version, h.anrede, h.vorname, h.nachname, "                 +
+                   "h.strasse_hausnummer, h.plz, h.wohnort "                             +
+            "FROM KFZ_KENNZEICHEN k "                                                    +
+            "JOIN FAHRZEUG_DATEN  d ON d.id = k.fahrzeug_daten_fk "                      +
+            "JOIN FAHRZEUG_HALTER h ON h.id = k.fahrzeug_halter_fk "                     +
+            "WHERE k.kennzeichen_code IS NOT NULL "                                      +
+            "ORDER BY k.kennzeichen_code";
+
+    /** Gemappte Datei (nur lesend). */
+    private final ByteBuffer _puffer;
+
+    /** Anzahl KFZ-Kennzeichen. */
+    private final int _anzahl;
+
+    /** Position der kodierten KFZ-Kennzeichen im Index. */
+    private final int _positionCodes;
+
+    /** Position der Datensatz-Positionen im Index. */
+    private final int _positionOffsets;
+
+    /** Datenstand beim Erstellen. */
+    private final Datenstand _datenstand;
+
+    /** Schlüssel-Versionen, die in den Chiffren vorkommen. */
+    private final BitSet _schluesselVersionen;
+
+
+    /**
+     * Stand der Datenbank beim Erstellen der Datei; damit wird beim Hochfahren erkannt, ob
+     * eine vorhandene Datei noch verwendet werden kann. Für jede Tabelle werden die Anzahl
+     * der Zeilen und eine Prüfsumme (XOR der Hash-Werte aller Zeilen) gespeichert, so dass
+     * auch Änderungen über die H2-Konsole oder eine neu angelegte Datenbank mit gleich
+     * vielen Datensätzen erkannt werden.
+     */
+    record Datenstand( long anzahlKennzeichen,
+                       long pruefsummeKennzeichen,
+                       long anzahlHalter,
+                       long pruefsummeHalter,
+                       long anzahlFahrzeugDaten,
+                       long pruefsummeFahrzeugDaten ) {
+
+        /** Anzahl Werte in der Datei. */
+        static final int ANZAHL_WERTE = 6;
+
+        /**
+         * SQL-Abfrage, liefert die Werte in der Reihenfolge der Komponenten; liest alle
+         * drei Tabellen vollständig, ist aber deutlich schneller als der Aufbau der Datei.
+         */
+        static final String SQL =
+                "SELECT ( SELECT COUNT(*) FROM KFZ_KENNZEICHEN ), "                                       +
+                       "( SELECT COALESCE( BIT_XOR_AGG( ORA_HASH( CONCAT_WS( '|', "                        +
+                                "id, version, kennzeichen_code, historisch, "                              +
+                                "fahrzeug_daten_fk, fahrzeug_halter_fk ) ) ), 0 ) FROM KFZ_KENNZEICHEN ), " +
+                       "( SELECT COUNT(*) FROM FAHRZEUG_HALTER ), "                                       +
+                       "( SELECT COALESCE( BIT_XOR_AGG( ORA_HASH( CONCAT_WS( '|', "                        +
+                                "id, version, anrede, vorname, nachname, strasse_hausnummer, "             +
+                                "plz, wohnort ) ) ), 0 ) FROM FAHRZEUG_HALTER ), "                         +
+                       "( SELECT COUNT(*) FROM FAHRZEUG_DATEN ), "                                        +
+                       "( SELECT COALESCE( BIT_XOR_AGG( ORA_HASH( CONCAT_WS( '|', "                        +
+                                "id, farbe, marke, fin, baujahr ) ) ), 0 ) FROM FAHRZEUG_DATEN )";
+
+        /**
+         * Datenstand aus Ergebniszeile von {@link #SQL}.
+         */
+        static Datenstand ausZeile( Object[] zeile ) {
+
+            return new Datenstand( zahl( zeile[ 0 ] ), zahl( zeile[ 1 ] ), zahl( zeile[ 2 ] ),
+                                   zahl( zeile[ 3 ] ), zahl( zeile[ 4 ] ), zahl( zeile[ 5 ] ) );
+        }
+
+        private long[] alsArray() {
+
+            return new long[] { anzahlKennzeichen, pruefsummeKennzeichen, anzahlHalter,
+                                pruefsummeHalter, anzahlFahrzeugDaten, pruefsummeFahrzeugDaten };
+        }
+    }
+
+
+    private SnapshotDatei( ByteBuffer puffer, int anzahl, int positionIndex,
+                           Datenstand datenstand, BitSet schluesselVersionen ) {
+
+        _puffer              = puffer;
+        _anzahl              = anzahl;
+        _positionCodes       = positionIndex;
+        _positionOffsets     = positionIndex + anzahl * 8;
+        _datenstand          = datenstand;
+        _schluesselVersionen = schluesselVersionen;
+    }
+
+
+    /**
+     * Datei aus Ergebniszeilen von {@link #SQL_ALLE} schreiben.
+     *
+     * @param datei Zieldatei, wird überschrieben
+     *
+     * @param datenstand Datenstand vor der Abfrage
+     *
+     * @param zeilen Ergebniszeilen, sortiert nach kodiertem KFZ-Kennzeichen
+     *
+     * @return Anzahl geschriebener KFZ-Kennzeichen
+     *
+     * @throws IOException Fehler beim Schreiben, oder Datei würde größer als 2 GB (kann
+     *                     nicht mit einem einzigen Puffer gemappt werden)
+     */
+    static int schreiben( Path datei, Datenstand datenstand, Iterator<Object[]> zeilen ) throws IOException {
+
+        try ( FileChannel channel = FileChannel.open( datei, CREATE, WRITE, TRUNCATE_EXISTING ) ) {
+
+            final DataOutputStream out = new DataOutputStream(
+                                            new BufferedOutputStream( Channels.newOutputStream( channel ), 64 * 1024 ) );
+
+            out.write( new byte[ KOPF_LAENGE ] ); // Platzhalter, wird am Schluss geschrieben
+
+            final BitSet schluesselVersionen = new BitSet( AesHelfer.VERSION_MAX + 1 );
+            long[] codes     = new long[ 1024 ];
+            int[]  positions = new int[ 1024 ];
+            int    anzahl    = 0;
+            while ( zeilen.hasNext() ) {
+
+                final Object[] zeile = zeilen.next();
+                final long     code  = zahl( zeile[ 0 ] );
+                if ( anzahl > 0 && code <= codes[ anzahl - 1 ] ) {
+
+                    throw new IOException( "KFZ-Kennzeichen nicht aufsteigend sortiert: " + code );
+                }
+                if ( anzahl == codes.length ) {
+
+                    codes     = Arrays.copyOf( codes    , anzahl * 2 );
+                    positions = Arrays.copyOf( positions, anzahl * 2 );
+                }
+                codes    [ anzahl ] = code;
+                positions[ anzahl ] = positionPruefen( out.size() ); // out.size() zählt alle Bytes
+                anzahl++;
+
+                datensatzSchreiben( out, zeile, schluesselVersionen );
+            }
+
+            final int positionIndex = positionPruefen( out.size() );
+            for ( int i = 0; i < anzahl; i++ ) {
+
+                out.writeLong( codes[ i ] );
+            }
+            for ( int i = 0; i < anzahl; i++ ) {
+
+                out.writeInt( positions[ i ] );
+            }
+            positionPruefen( out.size() );
+            out.flush();
+
+            final ByteBuffer kopf = ByteBuffer.allocate( KOPF_LAENGE );
+            kopf.putInt( KENNUNG ).putInt( FORMAT_VERSION ).putInt( anzahl ).putLong( positionIndex );
+            for ( long wert : datenstand.alsArray() ) {
+
+                kopf.putLong( wert );
+            }
+            final long[] bitmap = Arrays.copyOf( schluesselVersionen.toLongArray(), BITMAP_LONGS );
+            for ( long wert : bitmap ) {
+
+                kopf.putLong( wert );
+            }
+            kopf.flip();
+            channel.write( kopf, 0 );
+            channel.force( true );
+
+            return anzahl;
+        }
+    }
+
+
+    /**
+     * Datei öffnen und mappen; die Datei kann danach umbenannt oder ersetzt werden, der
+     * Puffer bleibt bis zur Garbage Collection gültig.
+     *
+     * @param datei Datei, die mit {@link #schreiben(Path, Datenstand, Iterator)} erzeugt wurde
+     *
+     * @return Gemappte Datei
+     *
+     * @throws IOException Fehler beim Lesen, oder Datei ist beschädigt oder hat ein
+     *                     anderes Format
+     */
+    static SnapshotDatei oeffnen( Path datei ) throws IOException {
+
+        final MappedByteBuffer puffer;
+        try ( FileChannel channel = FileChannel.open( datei, READ ) ) {
+
+            final long groesse = channel.size();
+            if ( groesse < KOPF_LAENGE || groesse > Integer.MAX_VALUE ) {
+
+                throw new IOException( "Ungültige Größe von Snapshot-Datei: " + groesse );
+            }
+            puffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, groesse );
+        }
+
+        if ( puffer.getInt( 0 ) != KENNUNG || puffer.getInt( 4 ) != FORMAT_VERSION ) {
+
+            throw new IOException( "Snapshot-Datei hat unbekanntes Format." );
+        }
+
+        final int  anzahl        = puffer.getInt( 8 );
+        final long positionIndex = puffer.getLong( 12 );
+        if ( anzahl < 0 || positionIndex < KOPF_LAENGE || positionIndex + anzahl * 12L != puffer.capacity() ) {
+
+            throw new IOException( "Snapshot-Datei ist unvollständig oder beschädigt." );
+        }
+
+        final long[] datenstandWerte = new long[ Datenstand.ANZAHL_WERTE ];
+        int position = 20;
+        for ( int i = 0; i < datenstandWerte.length; i++, position += 8 ) {
+
+            datenstandWerte[ i ] = puffer.getLong( position );
+        }
+        final long[] bitmap = new long[ BITMAP_LONGS ];
+        for ( int i = 0; i < bitmap.length; i++, position += 8 ) {
+
+            bitmap[ i ] = puffer.getLong( position );
+        }
+
+        final Datenstand datenstand = new Datenstand( datenstandWerte[ 0 ], datenstandWerte[ 1 ], datenstandWerte[ 2 ],
+                                                      datenstandWerte[ 3 ], datenstandWerte[ 4 ], datenstandWerte[ 5 ] );
+
+        return new SnapshotDatei( puffer, anzahl, (int) positionIndex, datenstand, BitSet.valueOf( bitmap ) );
+    }
+
+
+    /**
+     * KFZ-Kennzeichen mit binärer Suche im Index finden und Datensatz lesen.
+     *
+     * @param code Kodiertes KFZ-Kennzeichen
+     *
+     * @param aesHelfer Bean für die Entschlüsselung der Attribute des Halters (erst beim
+     *                  Zugriff auf die Getter)
+     *
+     * @return Nicht verwaltetes Entity (nur lesen, nicht speichern), oder {@code null}
+     *         wenn das KFZ-Kennzeichen nicht enthalten ist
+     */
+    KfzKennzeichenEntity lesen( long code, AesHelfer aesHelfer ) {
+
+        int von = 0;
+        int bis = _anzahl - 1;
+        while ( von <= bis ) {
+
+            final int  mitte     = ( von + bis ) >>> 1;
+            final long codeMitte = _puffer.getLong( _positionCodes + mitte * 8 );
+            if ( codeMitte < code ) {
+
+                von = mitte + 1;
+
+            } else if ( codeMitte > code ) {
+
+                bis = mitte - 1;
+
+            } else {
+
+                return datensatzLesen( code, _puffer.getInt( _positionOffsets + mitte * 4 ), aesHelfer );
+            }
+        }
+
+        return null;
+    }
+
+
+    /** Anzahl KFZ-Kennzeichen in der Datei. */
+    int getAnzahl() {
+
+        return _anzahl;
+    }
+
+    /** Größe der Datei in Bytes. */
+    long getGroesse() {
+
+        return _puffer.capacity();
+    }
+
+    /** Datenstand beim Erstellen der Datei. */
+    Datenstand getDatenstand() {
+
+        return _datenstand;
+    }
+
+    /** Schlüssel-Versionen, die in den Chiffren der Datei vorkommen. */
+    BitSet getSchluesselVersionen() {
+
+        return (BitSet) _schluesselVersionen.clone();
+    }
+
+
+    /**
+     * Einen Datensatz schreiben, Aufbau siehe {@link #datensatzLesen(long, int, AesHelfer)}.
+     */
+    private static void datensatzSchreiben( DataOutputStream out, Object[] zeile, BitSet schluesselVersionen )
+                        throws IOException {
+
+        // KFZ-Kennzeichen: ID, Version, historisch
+        out.writeLong   ( zahl( zeile[ 1 ] ) );
+        out.writeLong   ( zeile[ 2 ] == null ? -1 : zahl( zeile[ 2 ] ) );
+        out.writeBoolean( (Boolean) zeile[ 3 ] );
+
+        // Fahrzeugdaten: ID, Farbe (Ordinalzahl wie in Datenbank), Marke, FIN, Baujahr
+        out.writeLong   ( zahl( zeile[ 4 ] ) );
+        out.writeByte   ( zeile[ 5 ] == null ? -1 : (int) zahl( zeile[ 5 ] ) );
+        bytesSchreiben  ( out, text( zeile[ 6 ] ) );
+        bytesSchreiben  ( out, text( zeile[ 7 ] ) );
+        out.writeInt    ( (int) zahl( zeile[ 8 ] ) );
+
+        // Halter: ID, Version, Chiffren von Anrede, Vorname, Nachname, Anschrift, PLZ, Wohnort
+        out.writeLong   ( zahl( zeile[ 9 ] ) );
+        out.writeLong   ( zeile[ 10 ] == null ? -1 : zahl( zeile[ 10 ] ) );
+        for ( int i = 11; i <= 14; i++ ) {
+
+            final byte[] chiffre = (byte[]) zeile[ i ];
+            if ( chiffre != null ) {
+
+                try {
+
+                    schluesselVersionen.set( AesHelfer.schluesselVersion( chiffre ) );
+                }
+                catch ( GeneralSecurityException ex ) {
+
+                    throw new IOException( "Chiffre mit ungültigem Format für Halter " + zeile[ 9 ], ex );
+                }
+            }
+            bytesSchreiben( out, chiffre );
+        }
+        out.writeInt    ( (int) zahl( zeile[ 15 ] ) );
+        bytesSchreiben  ( out, text( zeile[ 16 ] ) );
+    }
+
+
+    /**
+     * Einen Datensatz lesen und daraus die Entities erzeugen.
+     */
+    private KfzKennzeichenEntity datensatzLesen( long code, int position, AesHelfer aesHelfer ) {
+
+        final Leser leser = new Leser( _puffer, position );
+
+        final long    id         = leser.zahl();
+        final long    version    = leser.zahl();
+        final boolean historisch = leser.wahrheitswert();
+
+        final long   datenId = leser.zahl();
+        final int    farbe   = leser.kleineZahl();
+        final String marke   = leser.text();
+        final String fin     = leser.text();
+        final int    baujahr = leser.ganzzahl();
+
+        final long   halterId          = leser.zahl();
+        final long   halterVersion     = leser.zahl();
+        final byte[] anrede            = leser.bytes();
+        final byte[] vorname           = leser.bytes();
+        final byte[] nachname          = leser.bytes();
+        final byte[] strasseHausnummer = leser.bytes();
+        final int    plz               = leser.ganzzahl();
+        final String wohnort           = leser.text();
+
+        final FahrzeugDatenEntity fahrzeugDaten =
+                new FahrzeugDatenEntity( datenId,
+                                         marke == null ? null : KfzMarkeEnum.valueOf( marke ),
+                                         farbe < 0     ? null : KfzFarbeEnum.values()[ farbe ],
+                                         fin,
+                                         baujahr );
+
+        final FahrzeugHalterEntity fahrzeugHalter =
+                new FahrzeugHalterEntity( halterId,
+                                          halterVersion < 0 ? null : halterVersion,
+                                          chiffre( anrede           , aesHelfer ),
+                                          chiffre( vorname          , aesHelfer ),
+                                          chiffre( nachname         , aesHelfer ),
+                                          chiffre( strasseHausnummer, aesHelfer ),
+                                          plz,
+                                          wohnort );
+
+        return new KfzKennzeichenEntity( id,
+                                         version < 0 ? null : version,
+                                         KennzeichenKodierer.dekodieren( code ),
+                                         historisch,
+                                         fahrzeugDaten,
+                                         fahrzeugHalter );
+    }
+
+
+    private static VerschluesselterString chiffre( byte[] chiffre, AesHelfer aesHelfer ) {
+
+        return chiffre == null ? null : VerschluesselterString.ausChiffre( chiffre, aesHelfer );
+    }
+
+
+    private static void bytesSchreiben( OutputStream out, byte[] bytes ) throws IOException {
+
+        if ( bytes == null ) {
+
+            out.write( NULL_LAENGE >>> 8 );
+            out.write( NULL_LAENGE & 0xFF );
+            return;
+        }
+        if ( bytes.length >= NULL_LAENGE ) {
+
+            throw new IOException( "Wert zu lang für Snapshot-Datei: " + bytes.length + " Bytes" );
+        }
+        out.write( bytes.length >>> 8 );
+        out.write( bytes.length & 0xFF );
+        out.write( bytes );
+    }
+
+
+    /**
+     * Prüft Position von {@code DataOutputStream.size()}; der Zähler bleibt bei
+     * {@code Integer.MAX_VALUE} stehen.
+     */
+    private static int positionPruefen( int position ) throws IOException {
+
+        if ( position == Integer.MAX_VALUE ) {
+
+            throw new IOException( "Snapshot-Datei wäre größer als 2 GB." );
+        }
+        return position;
+    }
+
+
+    private static long zahl( Object wert ) {
+
+        return ( (Number) wert ).longValue();
+    }
+
+
+    private static byte[] text( Object wert ) {
+
+        return wert == null ? null : wert.toString().getBytes( UTF_8 );
+    }
+
+
+    /**
+     * Liest Werte ab einer Position mit absoluten Zugriffen, so dass die Position des
+     * (von allen Threads gemeinsam verwendeten) Puffers nicht verändert wird.
+     */
+    private static final class Leser {
+
+        private final ByteBuffer _puffer;
+
+        private int _position;
+
+        Leser( ByteBuffer puffer, int position ) {
+
+            _puffer   = puffer;
+            _position = position;
+        }
+
+        long zahl() {
+
+            final long wert = _puffer.getLong( _position );
+            _position += 8;
+            return wert;
+        }
+
+        int ganzzahl() {
+
+            final int wert = _puffer.getInt( _position );
+            _position += 4;
+            return wert;
+        }
+
+        int kleineZahl() {
+
+            return _puffer.get( _position++ );
+        }
+
+        boolean wahrheitswert() {
+
+            return _puffer.get( _position++ ) != 0;
+        }
+
+        byte[] bytes() {
+
+            final int laenge = _puffer.getShort( _position ) & 0xFFFF;
+            _position += 2;
+            if ( laenge == NULL_LAENGE ) {
+
+                return null;
+            }
+
+            final byte[] bytes = new byte[ laenge ];
+            _puffer.get( _position, bytes );
+            _position += laenge;
+            return bytes;
+        }
+
+        String text() {
+
+            final byte[] bytes = bytes();
+            return bytes == null ? null : new String( bytes, UTF_8 );
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import java.time.Instant;
+
+
+/**
+ * Momentaufnahme von Status und Zählern von {@link KennzeichenSnapshot}, wird über den
+ * REST-Endpunkt {@code /api/v1/admin/snapshot} als JSON ausgeliefert.
+ *
+ * @param aktiv {@code true}, wenn der Snapshot eingeschaltet ist
+ *
+ * @param aktuell {@code true}, wenn Abfragen aus dem Snapshot beantwortet werden; nach
+ *                einer Änderung bis zum Neuaufbau {@code false}
+ *
+ * @param anzahlEintraege Anzahl KFZ-Kennzeichen im Snapshot
+ *
+ * @param dateiGroesse Größe der Snapshot-Datei in Bytes
+ *
+ * @param erstellt Zeitpunkt, seit dem der Snapshot verwendet wird
+ *
+ * @param aufbauDauerMs Dauer des letzten Aufbaus, 0 wenn die Datei beim Hochfahren
+ *                      übernommen wurde
+ *
+ * @param treffer Anzahl Abfragen, die aus dem Snapshot beantwortet wurden
+ *
+ * @param fallback Anzahl Abfragen, für die auf die Datenbank zugegriffen wurde
+ *
+ * @param neuaufbauten Anzahl Neuaufbauten seit dem Hochfahren
+ */
+public record SnapshotStatistik( boolean aktiv,
+                                 boolean aktuell,
+                                 int     anzahlEintraege,
+                                 long    dateiGroesse,
+                                 Instant erstellt,
+                                 long    aufbauDauerMs,
+                                 long    treffer,
+                                 long    fallback,
+                                 long    neuaufbauten ) {
+}
@@ -0,0 +1,6 @@
+/**
+ * Dieses Paket enthält Caches, die vor den Repository-Abfragen liegen, damit
+ * häufig abgefragte KFZ-Kennzeichen nicht jedes Mal aus der Datenbank geladen
+ * und entschlüsselt werden müssen.
+ */
+package de.eldecker.dhbw.spring.db.cache;
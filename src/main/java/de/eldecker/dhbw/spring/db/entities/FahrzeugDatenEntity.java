@@ -1,19 +1,25 @@
 package de.eldecker.dhbw.spring.db.entities;
 
+import static de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity.SEQUENZ_BLOCKGROESSE;
 import static de.eldecker.dhbw.spring.model.KfzFarbeEnum.FARBE_UNBEKANNT;
 import static de.eldecker.dhbw.spring.model.KfzMarkeEnum.MARKE_UNBEKANNT;
 
 import static jakarta.persistence.EnumType.STRING;
-import static jakarta.persistence.GenerationType.AUTO;
+import static jakarta.persistence.GenerationType.SEQUENCE;
 
+import de.eldecker.dhbw.spring.db.DatenAenderungListener;
 import de.eldecker.dhbw.spring.model.KfzFarbeEnum;
 import de.eldecker.dhbw.spring.model.KfzMarkeEnum;
 import de.eldecker.dhbw.spring.validatoren.JahrNichtInZukunft;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import jakarta.validation.constraints.Min;
@@ -25,14 +31,26 @@ import jakarta.validation.constraints.Pattern;
  * dieser Klasse zugeordnet. Es kann aber sein, dass ein Objekt dieser Klasse noch kein
  * KFZ-Kennzeichen hat (z.B. Auto, das noch nicht zugelassen ist, weil es noch beim
  * Händler steht).
+ * <br><br>
+ *
+ * Wenn KFZ-Kennzeichen ohne {@code EntityGraph} geladen werden (z.B. seitenweise für
+ * einen Halter), dann lädt Hibernate die Fahrzeugdaten dank {@code BatchSize} für bis
+ * zu 100 KFZ-Kennzeichen mit einer Abfrage nach, nicht mit einer Abfrage pro Datensatz.
  */
 @Entity
+@BatchSize( size = 100 )
+@EntityListeners( DatenAenderungListener.class )
 @Table( name = "FAHRZEUG_DATEN" )
 public class FahrzeugDatenEntity {
 
-    /** Primärschlüssel, wird von JPA gesetzt/verwaltet. */
+    /**
+     * Primärschlüssel, wird von JPA aus der Sequenz {@code FAHRZEUG_DATEN_SEQ} vergeben
+     * (blockweise, siehe {@link KfzKennzeichenEntity}).
+     */
     @Id
-    @GeneratedValue( strategy = AUTO )
+    @GeneratedValue( strategy = SEQUENCE, generator = "fahrzeug_daten_seq" )
+    @SequenceGenerator( name = "fahrzeug_daten_seq", sequenceName = "FAHRZEUG_DATEN_SEQ",
+                        allocationSize = SEQUENZ_BLOCKGROESSE )
     private Long id;
 
     /**
@@ -113,6 +131,20 @@ public class FahrzeugDatenEntity {
         this.baujahr = baujahr;
     }
 
+    /**
+     * Konstruktor für Kopien außerhalb des Persistence Context (z.B. aus dem Snapshot
+     * der KFZ-Kennzeichen), die nur gelesen und nicht gespeichert werden.
+     */
+    public FahrzeugDatenEntity( Long id,
+                                KfzMarkeEnum marke,
+                                KfzFarbeEnum farbe,
+                                String fin,
+                                int baujahr ) {
+
+        this( marke, farbe, fin, baujahr );
+        this.id = id;
+    }
+
     public Long getId() {
 
         return id;
@@ -1,17 +1,32 @@
 package de.eldecker.dhbw.spring.db.entities;
 
-import static jakarta.persistence.GenerationType.AUTO;
+import static de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity.SEQUENZ_BLOCKGROESSE;
+import static de.eldecker.dhbw.spring.db.krypto.VerschluesselterString.ausKlartext;
+import static de.eldecker.dhbw.spring.db.krypto.VerschluesselterString.klartext;
+import static jakarta.persistence.GenerationType.SEQUENCE;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import de.eldecker.dhbw.spring.db.BlindIndexListener;
+import de.eldecker.dhbw.spring.db.DatenAenderungListener;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.db.krypto.BlindIndexHelfer;
 import de.eldecker.dhbw.spring.db.krypto.KryptoStringAttributeConverter;
+import de.eldecker.dhbw.spring.db.krypto.VerschluesselterString;
+import jakarta.persistence.Column;
 import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -30,31 +45,46 @@ import jakarta.validation.constraints.NotNull;
  *  <br><br>
  *  
  *  Einige der Attribute werden in veschlüsselter Form auf der 
- *  Datenbank gespeichert.
+ *  Datenbank gespeichert. Diese Attribute haben den Typ
+ *  {@link VerschluesselterString}, damit erst beim Aufruf des
+ *  jeweiligen Getters entschlüsselt wird.
+ *  <br><br>
+ *
+ *  Für die Suche nach Vorname, Nachname und Anschrift gibt es zu diesen Attributen
+ *  jeweils einen Blind Index (siehe {@link BlindIndexHelfer}), der vor dem Speichern
+ *  von {@link BlindIndexListener} berechnet wird. Der Index über Nachname und PLZ
+ *  unterstützt die Suche nach Nachname (mit oder ohne PLZ).
  */
 @Entity
-@Table( name = "FAHRZEUG_HALTER" )
+@EntityListeners( { DatenAenderungListener.class, BlindIndexListener.class } )
+@Table( name = "FAHRZEUG_HALTER",
+        indexes = { @Index( name = "index_halter_nachname_plz", columnList = "nachname_bi, plz" ) } )
 public class FahrzeugHalterEntity {
 
-    /** Primärschlüssel, wird von JPA gesetzt/verwaltet. */
+    /**
+     * Primärschlüssel, wird von JPA aus der Sequenz {@code FAHRZEUG_HALTER_SEQ} vergeben
+     * (blockweise, siehe {@link KfzKennzeichenEntity}).
+     */
     @Id
-    @GeneratedValue( strategy = AUTO )
+    @GeneratedValue( strategy = SEQUENCE, generator = "fahrzeug_halter_seq" )
+    @SequenceGenerator( name = "fahrzeug_halter_seq", sequenceName = "FAHRZEUG_HALTER_SEQ",
+                        allocationSize = SEQUENZ_BLOCKGROESSE )
     private Long id;
 
     /** Anrede, z.B. "Herr", "Frau Dr." oder "Hr. Dipl.-Ing"; wird verschlüsselt. */
     @Convert( converter = KryptoStringAttributeConverter.class )
     @NotNull( message = "Andrede darf nicht leer" ) 
-    private String anrede;
+    private VerschluesselterString anrede;
 
     /** Vorname, z.B. "Herbert"; wird verschlüsselt. */
     @Convert( converter = KryptoStringAttributeConverter.class )
     @NotNull( message = "Vorname darf nicht leer sein" )
-    private String vorname;
+    private VerschluesselterString vorname;
 
     /** Vorname, z.B. "Müller-Lüdenscheidt"; wird verschlüsselt. */
     @Convert( converter = KryptoStringAttributeConverter.class )
     @NotNull( message = "Nachname darf nicht leer sein" )
-    private String nachname;
+    private VerschluesselterString nachname;
 
     /** 
      * Anschrift mit Hausnummer (in Deutschland), z.B. "Hauptstraße 23B";
@@ -62,7 +92,22 @@ public class FahrzeugHalterEntity {
      */
     @Convert( converter = KryptoStringAttributeConverter.class )
     @NotNull( message = "Straße und Hausnummer darf nicht leer sein" )
-    private String strasseHausnummer;
+    private VerschluesselterString strasseHausnummer;
+
+    /**
+     * Blind Index für {@code vorname}; wird von den Settern auf {@code null} gesetzt und
+     * dann vor dem Speichern neu berechnet. Wird nicht serialisiert (kein Getter).
+     */
+    @Column( name = "vorname_bi", length = BlindIndexHelfer.LAENGE )
+    private String vornameBlindIndex;
+
+    /** Blind Index für {@code nachname}, siehe {@code vornameBlindIndex}. */
+    @Column( name = "nachname_bi", length = BlindIndexHelfer.LAENGE )
+    private String nachnameBlindIndex;
+
+    /** Blind Index für {@code strasseHausnummer}, siehe {@code vornameBlindIndex}. */
+    @Column( name = "strasse_bi", length = BlindIndexHelfer.LAENGE )
+    private String strasseBlindIndex;
 
     /**
      * Fünfstellige Postleitzahl in Deutschland; die evtl. führende
@@ -84,10 +129,22 @@ public class FahrzeugHalterEntity {
      * Liste der KFZ-Kennzeichen, die diesem Halter zugeordnet sind.
      * Da ein KFZ-Kennzeichen genau einen Halter hat handelt es sich
      * um eine 1:N-Beziehung und nicht um eine N:M-Beziehung.
+     * <br><br>
+     *
+     * Kein Getter, da ein Halter (z.B. Fuhrpark) sehr viele KFZ-Kennzeichen haben kann;
+     * zum Lesen {@code KfzKennzeichenRepo.findByFahrzeugHalterIdAndIdGreaterThanOrderById()}
+     * verwenden (seitenweise).
      */
     @OneToMany( mappedBy = "fahrzeugHalter" )
     private List<KfzKennzeichenEntity> kennzeichen = new ArrayList<>( 5 );
 
+    /**
+     * Versionsnummer für Optimistic Locking, wird von JPA bei jeder Änderung erhöht;
+     * wird auch für das ETag bei REST-Abfragen verwendet.
+     */
+    @Version
+    private Long version;
+
 
     /**
      * Default-Konstruktor für JPA.
@@ -100,6 +157,26 @@ public class FahrzeugHalterEntity {
     public FahrzeugHalterEntity( String anrede, String vorname, String nachname,
                                  String anschrift, int plz, String wohnort ) {
 
+       this.anrede            = ausKlartext( anrede    );
+       this.vorname           = ausKlartext( vorname   );
+       this.nachname          = ausKlartext( nachname  );
+       this.strasseHausnummer = ausKlartext( anschrift );
+       this.plz               = plz;
+       this.wohnort           = wohnort;
+    }
+
+    /**
+     * Konstruktor für Kopien außerhalb des Persistence Context (z.B. aus dem Snapshot
+     * der KFZ-Kennzeichen), die nur gelesen und nicht gespeichert werden; die
+     * verschlüsselten Attribute werden erst beim Aufruf der Getter entschlüsselt.
+     */
+    public FahrzeugHalterEntity( Long id, Long version,
+                                 VerschluesselterString anrede, VerschluesselterString vorname,
+                                 VerschluesselterString nachname, VerschluesselterString anschrift,
+                                 int plz, String wohnort ) {
+
+       this.id                = id;
+       this.version           = version;
        this.anrede            = anrede;
        this.vorname           = vorname;
        this.nachname          = nachname;
@@ -112,46 +189,59 @@ public class FahrzeugHalterEntity {
 
         return id;
     }
+
+    /**
+     * Versionsnummer ist kein fachliches Attribut und wird deshalb nicht mit
+     * serialisiert (sie steckt schon im ETag).
+     */
+    @JsonIgnore
+    public Long getVersion() {
+
+        return version;
+    }
     
         
     public String getAnrede() {
         
-        return anrede;
+        return klartext( anrede );
     }
 
     public void setAnrede( String anrede ) {
         
-        this.anrede = anrede;
+        this.anrede = ausKlartext( anrede );
     }
 
     public String getVorname() {
         
-        return vorname;
+        return klartext( vorname );
     }
 
     public void setVorname( String vorname ) {
         
-        this.vorname = vorname;
+        this.vorname           = ausKlartext( vorname );
+        this.vornameBlindIndex = null;
     }
 
     public String getNachname() {
         
-        return nachname;
+        return klartext( nachname );
     }
 
     public void setNachname( String nachname ) {
         
-        this.nachname = nachname;
+        this.nachname           = ausKlartext( nachname );
+        this.nachnameBlindIndex = null;
     }
 
     public String getAnschrift() {
         
-        return strasseHausnummer;
+        return klartext( strasseHausnummer );
     }
 
     public void setAnschrift( String anschrift ) {
         
-        this.strasseHausnummer = anschrift;
+        this.strasseHausnummer = ausKlartext( anschrift );
+        this.strasseBlindIndex = null;
     }
 
     public int getPlz() {
@@ -174,6 +264,50 @@ public class FahrzeugHalterEntity {
         this.wohnort = wohnort;
     }
 
+
+    /**
+     * Alle verschlüsselten Attribute schon vor dem Speichern verschlüsseln, damit dies
+     * z.B. bei einem Massenimport parallel für viele Objekte erfolgen kann.
+     *
+     * @param aesHelfer Bean für Verschlüsselung
+     */
+    public void vorabVerschluesseln( AesHelfer aesHelfer ) {
+
+        anrede            = verschluesseln( anrede           , aesHelfer );
+        vorname           = verschluesseln( vorname          , aesHelfer );
+        nachname          = verschluesseln( nachname         , aesHelfer );
+        strasseHausnummer = verschluesseln( strasseHausnummer, aesHelfer );
+    }
+
+    private static VerschluesselterString verschluesseln( VerschluesselterString wert, AesHelfer aesHelfer ) {
+
+        return wert == null ? null : wert.verschluesseln( aesHelfer );
+    }
+
+
+    /**
+     * Fehlende Blind Indizes berechnen (für neue Objekte, nach Aufruf eines Setters oder
+     * für Datensätze, die vor Einführung der Blind Indizes gespeichert wurden). Bei
+     * geladenen Objekten muss dafür entschlüsselt werden.
+     *
+     * @param blindIndexHelfer Bean für Berechnung der Blind Indizes
+     */
+    public void blindIndizesBerechnen( BlindIndexHelfer blindIndexHelfer ) {
+
+        if ( vornameBlindIndex == null ) {
+
+            vornameBlindIndex = blindIndexHelfer.berechnen( getVorname() );
+        }
+        if ( nachnameBlindIndex == null ) {
+
+            nachnameBlindIndex = blindIndexHelfer.berechnen( getNachname() );
+        }
+        if ( strasseBlindIndex == null ) {
+
+            strasseBlindIndex = blindIndexHelfer.berechnen( getAnschrift() );
+        }
+    }
+
     
     /**
      * String-Darstellung des Objekts, geeignet für Anzeige auf UI.
@@ -185,10 +319,38 @@ public class FahrzeugHalterEntity {
     public String toString() {
         
         return String.format( "%s %s %s, %s, %d %s",
-                              anrede, vorname, nachname,
-                              strasseHausnummer,
+                              getAnrede(), getVorname(), getNachname(),
+                              getAnschrift(),
                               plz, wohnort 
                             );
     }
+
+
+    /**
+     * Alle Halterdaten als Wert, um gleiche Halter zu erkennen (z.B. als Schlüssel in
+     * einer Map). Anders als bei {@link #toString()} bleiben die Attribute getrennt, so
+     * dass z.B. Vorname "Anna Maria" mit Nachname "Schmidt" ein anderer Halter ist als
+     * Vorname "Anna" mit Nachname "Maria Schmidt". Bei geladenen Objekten muss dafür
+     * entschlüsselt werden.
+     *
+     * @return Halterdaten ohne Primärschlüssel, Version und Blind Indizes
+     */
+    public Identitaet identitaet() {
+
+        return new Identitaet( getAnrede(), getVorname(), getNachname(), getAnschrift(), plz, wohnort );
+    }
+
+
+    /**
+     * Halterdaten, mit denen ein Fahrzeughalter fachlich identifiziert wird, siehe
+     * {@link FahrzeugHalterEntity#identitaet()}.
+     */
+    public record Identitaet( String anrede,
+                              String vorname,
+                              String nachname,
+                              String anschrift,
+                              int    plz,
+                              String wohnort ) {
+    }
     
 }
@@ -2,19 +2,31 @@ package de.eldecker.dhbw.spring.db.entities;
 
 import static jakarta.persistence.CascadeType.PERSIST;
 import static jakarta.persistence.FetchType.EAGER;
-import static jakarta.persistence.GenerationType.AUTO;
+import static jakarta.persistence.GenerationType.SEQUENCE;
 
+import de.eldecker.dhbw.spring.db.DatenAenderungListener;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import de.eldecker.dhbw.spring.validatoren.KfzKennzeichen;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 
-import jakarta.validation.constraints.Pattern;
-import jakarta.validation.constraints.Size;
 
 
 /**
@@ -22,13 +34,46 @@ import jakarta.validation.constraints.Size;
  * referenziert genau ein zugehöriges {@link FahrzeugDatenEntity}-Objekt
  */
 @Entity
+@EntityListeners( DatenAenderungListener.class )
 @Table( name = "KFZ_KENNZEICHEN",
-        indexes = {@Index(name = "index_kennzeichen", columnList = "kennzeichen")} )
+        indexes = {@Index(name = "index_kennzeichen"       , columnList = "kennzeichen"            ),
+                   @Index(name = "index_kennzeichen_halter", columnList = "fahrzeug_halter_fk, id" )},
+        uniqueConstraints = {@UniqueConstraint(name = KfzKennzeichenEntity.UNIQUE_KENNZEICHEN_CODE,
+                                               columnNames = "kennzeichen_code" )} )
 public class KfzKennzeichenEntity {
 
-    /** Primärschlüssel, wird von JPA gesetzt/verwaltet. */
+    /**
+     * Anzahl Werte, die Hibernate mit einer Abfrage einer Sequenz für Primärschlüssel
+     * reserviert; gilt für die Sequenzen aller Entity-Klassen und entspricht
+     * {@code hibernate.jdbc.batch_size}.
+     */
+    public static final int SEQUENZ_BLOCKGROESSE = 50;
+
+    /**
+     * Name des Unique Constraints für Spalte {@code kennzeichen_code}; die Datenbank legt
+     * dafür einen Index an, der auch für die Abfragen nach KFZ-Kennzeichen verwendet wird.
+     * Bei vorhandenen Datenbanken prüft {@code DatenMigration} beim Hochfahren, ob es den
+     * Constraint gibt.
+     */
+    public static final String UNIQUE_KENNZEICHEN_CODE = "unique_kennzeichen_code";
+
+    /**
+     * Primärschlüssel, wird von JPA gesetzt/verwaltet.
+     * <br><br>
+     *
+     * Die Werte kommen aus der Sequenz {@code KFZ_KENNZEICHEN_SEQ}; wegen
+     * {@code allocationSize} holt Hibernate mit einer Abfrage der Sequenz gleich
+     * {@link #SEQUENZ_BLOCKGROESSE} Werte (Optimizer "pooled") und vergibt sie im
+     * Speicher. Im Gegensatz zu {@code IDENTITY} ist der Primärschlüssel damit schon
+     * vor dem {@code INSERT} bekannt, so dass die {@code INSERT}-Statements in
+     * JDBC-Batches zusammengefasst werden können. Name und Schrittweite der Sequenz
+     * entsprechen dem, was Hibernate bisher für {@code AUTO} angelegt hat, vorhandene
+     * Datenbanken passen also.
+     */
     @Id
-    @GeneratedValue( strategy = AUTO )
+    @GeneratedValue( strategy = SEQUENCE, generator = "kfz_kennzeichen_seq" )
+    @SequenceGenerator( name = "kfz_kennzeichen_seq", sequenceName = "KFZ_KENNZEICHEN_SEQ",
+                        allocationSize = SEQUENZ_BLOCKGROESSE )
     private Long id;
 
     /**
@@ -58,14 +103,50 @@ public class KfzKennzeichenEntity {
      * <li>Max-Länge ist auf 8 festgesetzt (mit Leerzeichen dazwischen also 10).</li>
      * </ul><br><br>
      *
-     * Das KFZ-Kennzeichen wird mit einem regulären Ausdruck geprüft
-     * (Bean Validation).
+     * Das KFZ-Kennzeichen wird mit {@link KfzKennzeichen} geprüft (Bean Validation),
+     * es muss normiert sein (siehe {@link KennzeichenParser}).
      */
-    @Pattern( regexp = "[A-Z]{1,3} [A-Z]{1,2} [0-9]{1,4}",
-              message = "Ungültiges KFZ-Kennzeichen" )
-    @Size( min = 5, max = 10, message = "KFZ-Kennzeichen hat ungültige Länge" )
+    @KfzKennzeichen
     private String kennzeichen;
 
+    /**
+     * Attribut {@code kennzeichen} als Zahl kodiert, siehe {@link KennzeichenKodierer}.
+     * Wird automatisch gesetzt, wenn {@code kennzeichen} gesetzt wird. Abfragen nach
+     * KFZ-Kennzeichen sollten über diese Spalte erfolgen, weil der Index über eine
+     * Zahlenspalte kleiner ist als über eine {@code VARCHAR}-Spalte.
+     * <br><br>
+     *
+     * Die Werte sind eindeutig (Unique Constraint {@link #UNIQUE_KENNZEICHEN_CODE}), so dass
+     * auch zwei gleichzeitige Requests dasselbe KFZ-Kennzeichen nicht zweimal anlegen können.
+     * <br><br>
+     *
+     * Ist {@code null}, wenn {@code kennzeichen} ungültig ist (wird dann von Bean
+     * Validation abgelehnt) oder bei Datensätzen, die vor Einführung dieser Spalte
+     * angelegt wurden (wird beim Hochfahren nachgetragen).
+     */
+    @Column( name = "kennzeichen_code" )
+    private Long kennzeichenCode;
+
+    /**
+     * KFZ-Kennzeichen, wie es zuletzt aus der Datenbank gelesen bzw. in die Datenbank
+     * geschrieben wurde; wird nicht gespeichert. Damit kann der {@link DatenAenderungListener}
+     * nach einer Änderung des KFZ-Kennzeichens auch den bisherigen Wert invalidieren
+     * (die Callbacks des Listeners werden vor {@link #kennzeichenMerken()} aufgerufen).
+     */
+    @Transient
+    private String kennzeichenGespeichert;
+
+    /**
+     * Versionsnummer für Optimistic Locking, wird von JPA bei jeder Änderung erhöht;
+     * wird auch für das ETag bei REST-Abfragen verwendet.
+     * <br><br>
+     *
+     * Ist bei Datensätzen, die vor Einführung dieser Spalte angelegt wurden, zunächst
+     * {@code null} (wird beim Hochfahren nachgetragen).
+     */
+    @Version
+    private Long version;
+
     /**
      * Historische Fahrzeuge (Erstzulassung vor über 30 Jahren), haben ein "H"
      * ganz am Ende des KFZ-Kennzeichens. Das KFZ-Kennzeichen ist auch ohne
@@ -99,6 +180,10 @@ public class KfzKennzeichenEntity {
     /**
      * Ein KFZ-Kennzeichen ist genau einem Fahrzeughalter zugeordnet (dieser kann aber
      * weitere Fahrzeuge mit anderen KFZ-Kennzeichen besitzen).
+     * <br><br>
+     *
+     * Der Index über Fremdschlüssel und Primärschlüssel ermöglicht das seitenweise Lesen
+     * aller KFZ-Kennzeichen eines Halters (Keyset-Pagination nach {@code id}).
      */
     @ManyToOne( fetch = EAGER, cascade = PERSIST )
     @JoinColumn( name = "fahrzeug_halter_fk" )
@@ -120,10 +205,11 @@ public class KfzKennzeichenEntity {
                                  FahrzeugHalterEntity fahrzeugHalter 
                                ) {
 
-        this.kennzeichen    = kennzeichen;
-        this.fahrzeugDaten  = fahrzeugdaten;
-        this.fahrzeugHalter = fahrzeugHalter;
-        this.historisch     = false;
+        this.kennzeichen     = kennzeichen;
+        this.kennzeichenCode = codeBerechnen( kennzeichen );
+        this.fahrzeugDaten   = fahrzeugdaten;
+        this.fahrzeugHalter  = fahrzeugHalter;
+        this.historisch      = false;
     }
 
     /**
@@ -135,10 +221,28 @@ public class KfzKennzeichenEntity {
                                  boolean              historisch 
                                ) {
 
-        this.kennzeichen    = kennzeichen;
-        this.fahrzeugDaten  = fahrzeugdaten;
-        this.fahrzeugHalter = fahrzeugHalter;
-        this.historisch     = historisch;
+        this.kennzeichen     = kennzeichen;
+        this.kennzeichenCode = codeBerechnen( kennzeichen );
+        this.fahrzeugDaten   = fahrzeugdaten;
+        this.fahrzeugHalter  = fahrzeugHalter;
+        this.historisch      = historisch;
+    }
+
+    /**
+     * Konstruktor für Kopien außerhalb des Persistence Context (z.B. aus dem Snapshot
+     * der KFZ-Kennzeichen), die nur gelesen und nicht gespeichert werden.
+     */
+    public KfzKennzeichenEntity( Long                 id,
+                                 Long                 version,
+                                 String               kennzeichen,
+                                 boolean              historisch,
+                                 FahrzeugDatenEntity  fahrzeugdaten,
+                                 FahrzeugHalterEntity fahrzeugHalter
+                               ) {
+
+        this( kennzeichen, fahrzeugdaten, fahrzeugHalter, historisch );
+        this.id      = id;
+        this.version = version;
     }
 
     public Long getId() {
@@ -153,7 +257,35 @@ public class KfzKennzeichenEntity {
 
     public void setKennzeichen( String kennzeichen ) {
 
-        this.kennzeichen = kennzeichen;
+        this.kennzeichen     = kennzeichen;
+        this.kennzeichenCode = codeBerechnen( kennzeichen );
+    }
+
+    public String getKennzeichenGespeichert() {
+
+        return kennzeichenGespeichert;
+    }
+
+    /**
+     * Aktuelles KFZ-Kennzeichen als gespeicherten Wert merken, siehe
+     * {@link #getKennzeichenGespeichert()}.
+     */
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void kennzeichenMerken() {
+
+        kennzeichenGespeichert = kennzeichen;
+    }
+
+    public Long getKennzeichenCode() {
+
+        return kennzeichenCode;
+    }
+
+    public Long getVersion() {
+
+        return version;
     }
         
     public boolean isHistorisch() {
@@ -187,6 +319,32 @@ public class KfzKennzeichenEntity {
         this.fahrzeugHalter = fahrzeugHalter;
     }
 
+    /**
+     * Kodiertes KFZ-Kennzeichen für Attribut {@code kennzeichenCode} berechnen.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, z.B. "KA X 123"
+     *
+     * @return Kodiertes KFZ-Kennzeichen, oder {@code null} wenn {@code kennzeichen}
+     *         ungültig ist
+     */
+    private static Long codeBerechnen( String kennzeichen ) {
+
+        if ( kennzeichen == null ) {
+
+            return null;
+        }
+
+        try {
+
+            return KennzeichenKodierer.kodieren( kennzeichen );
+        }
+        catch ( IllegalArgumentException ex ) {
+
+            return null; // wird von Bean Validation abgelehnt
+        }
+    }
+
+
     /**
      * Gibt String mit KFZ-Kennzeichen einschl. evtl. "H" am Ende zurück.
      * 
@@ -0,0 +1,122 @@
+package de.eldecker.dhbw.spring.db.entities;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+
+/**
+ * Fortschritt der Neuverschlüsselung der Fahrzeughalter für ein Chiffre-Format (also
+ * eine Schlüssel-Version), siehe {@code NeuverschluesselungsJob}. Der Fortschritt wird
+ * nach jedem Block in derselben Transaktion wie die neu verschlüsselten Datensätze
+ * gespeichert, so dass der Job nach einem Neustart der Anwendung an derselben Stelle
+ * weitermachen kann.
+ */
+@Entity
+@Table( name = "NEUVERSCHLUESSELUNG" )
+public class NeuverschluesselungEntity {
+
+    /** Ziel-Format der Neuverschlüsselung, z.B. "g2" für Schlüssel-Version 2. */
+    @Id
+    private String ziel;
+
+    /** Primärschlüssel des zuletzt bearbeiteten Fahrzeughalters (0 = noch keiner). */
+    private long letzteHalterId = 0;
+
+    /** Anzahl geprüfter Fahrzeughalter. */
+    private long geprueft = 0;
+
+    /** Anzahl Fahrzeughalter, die neu verschlüsselt wurden. */
+    private long neuVerschluesselt = 0;
+
+    /** {@code true}, wenn alle Fahrzeughalter bearbeitet wurden. */
+    private boolean fertig = false;
+
+    /** Zeitpunkt des ersten Starts für dieses Ziel-Format. */
+    private Instant gestartet;
+
+    /** Zeitpunkt der letzten Änderung. */
+    private Instant aktualisiert;
+
+
+    /**
+     * Default-Konstruktor für JPA.
+     */
+    public NeuverschluesselungEntity() {}
+
+    /**
+     * Konstruktor für neue Neuverschlüsselung.
+     *
+     * @param ziel Ziel-Format, z.B. "g2"
+     */
+    public NeuverschluesselungEntity( String ziel ) {
+
+        this.ziel         = ziel;
+        this.gestartet    = Instant.now();
+        this.aktualisiert = this.gestartet;
+    }
+
+    public String getZiel() {
+
+        return ziel;
+    }
+
+    public long getLetzteHalterId() {
+
+        return letzteHalterId;
+    }
+
+    public long getGeprueft() {
+
+        return geprueft;
+    }
+
+    public long getNeuVerschluesselt() {
+
+        return neuVerschluesselt;
+    }
+
+    public boolean isFertig() {
+
+        return fertig;
+    }
+
+    public Instant getGestartet() {
+
+        return gestartet;
+    }
+
+    public Instant getAktualisiert() {
+
+        return aktualisiert;
+    }
+
+    /**
+     * Fortschritt nach Bearbeitung eines Blocks fortschreiben.
+     *
+     * @param letzteHalterId Primärschlüssel des letzten Fahrzeughalters im Block
+     *
+     * @param geprueft Anzahl Fahrzeughalter im Block
+     *
+     * @param neuVerschluesselt Anzahl neu verschlüsselter Fahrzeughalter im Block
+     */
+    public void blockBearbeitet( long letzteHalterId, int geprueft, int neuVerschluesselt ) {
+
+        this.letzteHalterId     = letzteHalterId;
+        this.geprueft          += geprueft;
+        this.neuVerschluesselt += neuVerschluesselt;
+        this.aktualisiert       = Instant.now();
+    }
+
+    /**
+     * Neuverschlüsselung als abgeschlossen markieren.
+     */
+    public void abschliessen() {
+
+        this.fertig       = true;
+        this.aktualisiert = Instant.now();
+    }
+
+}
@@ -4,25 +4,80 @@ import static jakarta.xml.bind.DatatypeConverter.parseHexBinary;
 import static javax.crypto.Cipher.DECRYPT_MODE;
 import static javax.crypto.Cipher.ENCRYPT_MODE;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
 import java.util.Base64;
 import java.util.Base64.Decoder;
-import java.util.Base64.Encoder;
+import java.util.HashMap;
+import java.util.Map;
 import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 
 
 /**
- * Bean-Klasse für symmetrische Verschlüsselung mit dem Algorithmus "AES128".
+ * Bean-Klasse für symmetrische Verschlüsselung mit dem Algorithmus "AES128" in der
+ * Betriebsart GCM ("Galois/Counter Mode").
+ * <br><br>
+ *
+ * <b>Format der Chiffre</b> (binär, Spaltentyp {@code VARBINARY}):
+ * <pre>
+ * | Format (1 Byte) = 0x01 | Schlüssel-Version (1 Byte) | Nonce (12 Bytes) | Chiffre + Tag (Klartext + 16 Bytes) |
+ * </pre>
+ * Die Nonce wird für jede Verschlüsselung zufällig erzeugt, gleiche Klartexte ergeben
+ * deshalb auch ohne Versalzung unterschiedliche Chiffren. Das Tag (128 Bit) schützt die
+ * Chiffre gegen Veränderung; die ersten beiden Bytes werden als "Additional Authenticated
+ * Data" (AAD) mit geschützt, so dass auch die Version nicht unbemerkt geändert werden kann.
+ * Für AES-GCM hat die JVM Intrinsics (AES-NI und Carry-less Multiplication), die Kosten
+ * pro Feld werden deshalb vor allem durch die Initialisierung des {@link Cipher} bestimmt.
+ * <br><br>
+ *
+ * <b>Altes Format:</b> Bis zur Einführung des binären Formats wurde mit "AES/ECB/PKCS5Padding"
+ * verschlüsselt und die Chiffre als Base64-Text (mit oder ohne Präfix {@code k<Version>:})
+ * gespeichert. Solche Chiffren beginnen nie mit dem Byte 0x01 und können weiterhin
+ * entschlüsselt werden: Hibernate ändert beim Hochfahren ({@code ddl-auto=update}) den Typ
+ * der Text-Spalten nach {@code VARBINARY}, H2 übernimmt dabei die Bytes des Texts. Neu
+ * geschrieben wird nur noch im binären Format, der Hintergrund-Job
+ * {@code NeuverschluesselungsJob} wandelt alle Datensätze um.
+ * <br><br>
+ *
+ * Die Methoden dieser Klasse werden von allen Request-Threads gleichzeitig aufgerufen.
+ * Da ein {@link Cipher}-Objekt nicht thread-sicher ist, leiht sich jeder Aufruf ein
+ * {@code Cipher}-Objekt aus einem {@link ObjektPool} aus; ebenso gibt es einen Pool mit
+ * Zufallsgeneratoren für die Nonces. Dadurch müssen sich die Threads nicht gegenseitig
+ * sperren, und auch mit virtuellen Threads (ein neuer Thread pro Request) müssen keine
+ * neuen Objekte erzeugt werden.
+ * <br><br>
+ *
+ * Die Dauer jeder Ver- und Entschlüsselung wird mit dem Timer {@code kfz.krypto}
+ * (Tag {@code operation}) erfasst.
+ * <br><br>
+ *
+ * <b>Schlüsselrotation:</b> Jeder Schlüssel hat eine Versionsnummer (1 bis 255); der
+ * Schlüssel aus {@code krypto.schluessel} hat die Version 1, weitere Schlüssel werden mit
+ * {@code krypto.weitere-schluessel} konfiguriert. Verschlüsselt wird immer mit dem
+ * Schlüssel aus {@code krypto.schluessel-version}, beim Entschlüsseln wird der Schlüssel
+ * anhand der Version in der Chiffre gewählt (Chiffren im alten Format ohne Präfix gehören
+ * zu Version 1). So können nach einem Wechsel des Schlüssels alte und neue Chiffren
+ * gleichzeitig gelesen werden, bis alle Datensätze im Hintergrund neu verschlüsselt sind
+ * (siehe {@code NeuverschluesselungsJob}).
  */
 @Component
 public class AesHelfer {
@@ -33,19 +88,51 @@ public class AesHelfer {
      * Genauer Bezeichner Verschlüsselungsalgorithmus:
      * <ul>
      * <li>AES: Symmetrischer Verschlüsselungsalgorithmus, Block-Chiffre</li>
+     * <li>GCM: Betriebsart "Galois/Counter Mode" mit Authentifizierung</li>
+     * <li>NoPadding: GCM ist eine Strom-Chiffre, es werden keine Füll-Bytes benötigt.</li>
+     * </ul>
+     */
+    private static final String KRYPTO_ALGO_NAME = "AES/GCM/NoPadding";
+
+    /**
+     * Algorithmus für Chiffren im alten Text-Format; nur noch für Entschlüsselung:
+     * <ul>
      * <li>ECB: Betriebsart "Electronic Codebook" (nicht sicher!)</li>
      * <li>PKCS5Padding: Algo für Füll-Bytes, um Block bei Bedarf aufzufüllen.</li>
      * </ul>
      */
-    private static final String KRYPTO_ALGO_NAME = "AES/ECB/PKCS5Padding";
+    private static final String KRYPTO_ALGO_NAME_ALT = "AES/ECB/PKCS5Padding";
+
+    /** Erstes Byte einer Chiffre im binären Format; kommt in Base64-Text nicht vor. */
+    public static final byte FORMAT_GCM = 0x01;
+
+    /** Anzahl Bytes vor der Nonce: Format und Schlüssel-Version; werden als AAD geschützt. */
+    private static final int KOPF_LAENGE = 2;
+
+    /** Länge der Nonce in Bytes; 96 Bit ist die für GCM empfohlene Länge. */
+    private static final int NONCE_LAENGE = 12;
+
+    /** Länge des Authentifizierungs-Tags in Bits. */
+    private static final int TAG_BITS = 128;
+
+    /** Zusätzliche Bytes pro Chiffre gegenüber dem Klartext (Kopf, Nonce und Tag). */
+    public static final int ZUSATZ_BYTES = KOPF_LAENGE + NONCE_LAENGE + TAG_BITS / 8;
 
     /**
-     * Anzahl der Zufallszeichen, die vor den zu verschlüsselnden String
-     * gestellt werden, damit identische Klartext nicht zu identischen
-     * Chiffraten führen und ein Angreifer daraus Rückschlüsse ziehen kann.
+     * Anzahl der Zufallszeichen, die bei Chiffren im alten Format vor den verschlüsselten
+     * String gestellt wurden (wenn Versalzung eingeschaltet war).
      */
     private static final int ANZAHL_ZUFALLSZEICHEN = 3;
 
+    /** Version von {@code krypto.schluessel} und von alten Chiffren ohne Präfix. */
+    public static final int VERSION_OHNE_PRAEFIX = 1;
+
+    /** Höchste Schlüssel-Version, da die Version in einem Byte gespeichert wird. */
+    public static final int VERSION_MAX = 255;
+
+    /** Trennzeichen nach der Version im Präfix des alten Formats; kommt in Base64 nicht vor. */
+    private static final char PRAEFIX_ENDE = ':';
+
     /**
      * Symmetrischer Schlüssel (128 Bit) als Hexadezimalziffer mit 32 Buchstaben,
      * aus Datei {@code application.properties}. Da es sich bei AES um ein
@@ -70,28 +157,85 @@ public class AesHelfer {
     private String _schluesselHex;
 
     /**
-     * Wenn {@code true}, dann wird den String vor Verschlüsselung ein
-     * Zufalls-String vorangestellt, damit gleiche Klartexte nicht zur
-     * gleichen Chiffre führen. Per Default ausgeschaltet.
+     * Wenn {@code true}, dann wurde bei Chiffren im alten Format dem String vor der
+     * Verschlüsselung ein Zufalls-String vorangestellt, der beim Entschlüsseln entfernt
+     * werden muss. Für das binäre Format ohne Bedeutung (zufällige Nonce).
+     * Per Default ausgeschaltet.
      */
     @Value( "${de.eldecker.kfz-kennzeichen.krypto.versalzung:false}" )
     private boolean _versalzung;
 
+    /**
+     * Weitere Schlüssel für die Schlüsselrotation als kommaseparierte Liste von Einträgen
+     * {@code <Version>:<Hex-Zahl mit 32 Zeichen>}, z.B. "2:0a1b...,3:4c5d..."; Default ist
+     * ein leerer String (nur Schlüssel mit Version 1).
+     */
+    @Value( "${de.eldecker.kfz-kennzeichen.krypto.weitere-schluessel:}" )
+    private String _weitereSchluessel = "";
+
+    /** Version des Schlüssels, mit dem verschlüsselt wird. */
+    @Value( "${de.eldecker.kfz-kennzeichen.krypto.schluessel-version:1}" )
+    private int _schluesselVersion = VERSION_OHNE_PRAEFIX;
+
+    /**
+     * Registry für Metriken; ist {@code null}, wenn die Klasse ohne Spring-Kontext
+     * verwendet wird (z.B. in Tests), dann werden die Timer in der globalen Registry
+     * angelegt, die ohne Konfiguration keine Werte speichert.
+     */
+    @Autowired( required = false )
+    private MeterRegistry _meterRegistry;
+
+    /** Timer für Verschlüsselung. */
+    private Timer _verschluesselungTimer;
+
+    /** Timer für Entschlüsselung. */
+    private Timer _entschluesselungTimer;
+
+
+    /** Maximale Anzahl freier Objekte in jedem Pool. */
+    private static final int POOL_KAPAZITAET = Runtime.getRuntime().availableProcessors() * 4;
 
-    /** Objekt für Ver-/Entschlüsselung */
-    private Cipher _aesCipher = null;
+    /**
+     * Ein Schlüssel mit seinen {@code Cipher}-Objekten für das alte Format.
+     *
+     * @param version Versionsnummer des Schlüssels
+     *
+     * @param secretKey Symmetrischer Schlüssel
+     *
+     * @param altEntschluesselungsCipherPool Objekte für Entschlüsselung von Chiffren im
+     *                                       alten Format, die bereits mit dem Schlüssel
+     *                                       initialisiert sind. Nach {@code doFinal()} ist
+     *                                       ein {@code Cipher} für ECB wieder im
+     *                                       initialisierten Zustand.
+     */
+    private record Schluessel( int                version,
+                               SecretKeySpec      secretKey,
+                               ObjektPool<Cipher> altEntschluesselungsCipherPool ) {}
+
+    /** Alle Schlüssel nach Version; wird nur in {@link #initialisierung()} geändert. */
+    private final Map<Integer, Schluessel> _schluesselMap = new HashMap<>( 4 );
 
-    /** Objekt mit symmetrischem Schlüssel */
-    private SecretKeySpec _secretKey = null;
+    /** Schlüssel für Verschlüsselung (Version {@link #_schluesselVersion}). */
+    private Schluessel _aktuellerSchluessel = null;
 
-    /** Objekt für die Umwandlung von {@code byte[]} nach String mit Base64-Kodierung */
-    private Encoder _base64Encoder = Base64.getEncoder();
+    /**
+     * {@code Cipher}-Objekte für GCM, für alle Schlüssel gemeinsam. Bei GCM muss vor jeder
+     * Verwendung {@code init()} mit Schlüssel und neuer Nonce aufgerufen werden; gespart
+     * wird also nur die Erzeugung des Objekts mit {@code Cipher.getInstance()}.
+     */
+    private final ObjektPool<Cipher> _gcmCipherPool =
+                        new ObjektPool<>( POOL_KAPAZITAET, AesHelfer::erzeugeGcmCipher );
 
-    /** Objekt für die (Rück-)Umwandlung von einem String nach {@code byte[]} mit Base64-Kodierung */
+    /** Objekt für die Umwandlung von Base64-Kodierung nach {@code byte[]} (altes Format). */
     private Decoder _base64Decoder = Base64.getDecoder();
 
-    /** Sicherer Zufallsgenerator für Erzeugung zufälliger Zeichenketten. */
-    private SecureRandom _secureRandom = new SecureRandom();
+    /**
+     * Sichere Zufallsgeneratoren für Erzeugung der Nonces. Es wird "DRBG" verwendet, weil
+     * die Default-Implementierung unter Linux ("NativePRNG") beim Lesen aus
+     * {@code /dev/urandom} eine globale Sperre verwendet, die sich alle Instanzen teilen.
+     */
+    private final ObjektPool<SecureRandom> _secureRandomPool =
+                        new ObjektPool<>( POOL_KAPAZITAET, AesHelfer::erzeugeZufallsgenerator );
 
 
     /**
@@ -115,20 +259,78 @@ public class AesHelfer {
     @PostConstruct
     private void initialisierung() throws GeneralSecurityException {
 
-        if ( _schluesselHex.length() != 32 ) {
+        schluesselHinzufuegen( VERSION_OHNE_PRAEFIX, _schluesselHex );
+
+        for ( String eintrag : _weitereSchluessel.split( "," ) ) {
+
+            if ( eintrag.isBlank() ) {
 
-            throw new GeneralSecurityException( "Hex-Zahl mit Schlüssel hat falsche Länge." );
+                continue;
+            }
+
+            final String[] teile = eintrag.trim().split( ":" );
+            if ( teile.length != 2 ) {
+
+                throw new GeneralSecurityException( "Weiterer Schlüssel nicht im Format <Version>:<Hex-Zahl>." );
+            }
+            schluesselHinzufuegen( Integer.parseInt( teile[ 0 ] ), teile[ 1 ] );
         }
 
-        _aesCipher = Cipher.getInstance( KRYPTO_ALGO_NAME );
+        _aktuellerSchluessel = _schluesselMap.get( _schluesselVersion );
+        if ( _aktuellerSchluessel == null ) {
+
+            throw new GeneralSecurityException( "Kein Schlüssel für Version " + _schluesselVersion + " konfiguriert." );
+        }
 
-        final byte[] keyBytes = parseHexBinary( _schluesselHex ); // throws IllegalArgumentException (wenn keine gültige Hex-Zahl)
-        _secretKey = new SecretKeySpec( keyBytes, "AES" );
+        final MeterRegistry meterRegistry = _meterRegistry != null ? _meterRegistry : Metrics.globalRegistry;
+        _verschluesselungTimer = Timer.builder( "kfz.krypto" )
+                                      .description( "Dauer Ver- bzw. Entschlüsselung eines Strings" )
+                                      .tag( "operation", "verschluesseln" )
+                                      .register( meterRegistry );
+        _entschluesselungTimer = Timer.builder( "kfz.krypto" )
+                                      .description( "Dauer Ver- bzw. Entschlüsselung eines Strings" )
+                                      .tag( "operation", "entschluesseln" )
+                                      .register( meterRegistry );
 
         testVerEntschluesselung(); // throws GeneralSecurityException
 
-        LOG.info( "Verschlüsselungs-Algo initialisiert: {}", _aesCipher  );
-        LOG.info( "Versalzung eingeschaltet: {}"           , _versalzung );
+        LOG.info( "Verschlüsselungs-Algo initialisiert: {}", KRYPTO_ALGO_NAME );
+        LOG.info( "Versalzung im alten Format: {}"         , _versalzung );
+        LOG.info( "Schlüssel-Versionen: {}, verschlüsselt wird mit Version {}",
+                  _schluesselMap.keySet(), _schluesselVersion );
+    }
+
+
+    /**
+     * Schlüssel prüfen und mit eigenem {@code Cipher}-Pool für das alte Format in
+     * {@link #_schluesselMap} aufnehmen.
+     *
+     * @param version Versionsnummer des Schlüssels (1 bis {@value #VERSION_MAX})
+     *
+     * @param schluesselHex Schlüssel als Hex-Zahl mit 32 Zeichen
+     *
+     * @throws GeneralSecurityException Ungültige Version oder Schlüssel mit falscher Länge
+     */
+    private void schluesselHinzufuegen( int version, String schluesselHex ) throws GeneralSecurityException {
+
+        if ( version < VERSION_OHNE_PRAEFIX || version > VERSION_MAX || _schluesselMap.containsKey( version ) ) {
+
+            throw new GeneralSecurityException( "Ungültige oder doppelte Schlüssel-Version: " + version );
+        }
+        if ( schluesselHex.length() != 32 ) {
+
+            throw new GeneralSecurityException( "Hex-Zahl mit Schlüssel für Version " + version + " hat falsche Länge." );
+        }
+
+        final byte[] keyBytes = parseHexBinary( schluesselHex ); // throws IllegalArgumentException (wenn keine gültige Hex-Zahl)
+        final SecretKeySpec secretKey = new SecretKeySpec( keyBytes, "AES" );
+
+        final Schluessel schluessel =
+                new Schluessel( version,
+                                secretKey,
+                                new ObjektPool<>( POOL_KAPAZITAET, () -> erzeugeAltCipher( secretKey ) ) );
+
+        _schluesselMap.put( version, schluessel );
     }
 
 
@@ -143,8 +345,8 @@ public class AesHelfer {
 
         final String testString = "Lorem Ipsum ?!*";
 
-        final String testStringVerschluesselt = verschluesseln( testString );
-        LOG.info( "Test-String verschlüsselt: \"{}\"", testStringVerschluesselt );
+        final byte[] testStringVerschluesselt = verschluesseln( testString );
+        LOG.info( "Test-String verschlüsselt: {} Bytes", testStringVerschluesselt.length );
 
         final String testStringEntschluesselt = entschluesseln( testStringVerschluesselt );
         LOG.info( "Test-String entschlüsselt: \"{}\" ", testStringEntschluesselt );
@@ -157,69 +359,301 @@ public class AesHelfer {
 
 
     /**
-     * Verschlüsselt {@code stringKlartext}.
+     * Verschlüsselt {@code stringKlartext} mit dem aktuellen Schlüssel.
      *
      * @param stringKlartext Zu verschlüsselnder String
      *
-     * @return Chiffre in Base64-Kodierung
+     * @return Chiffre im binären Format (siehe Klassenkommentar), also
+     *         {@value #ZUSATZ_BYTES} Bytes länger als der Klartext in UTF-8
      *
      * @throws GeneralSecurityException Fehler beim Verschlüsseln
      */
-    public String verschluesseln( String stringKlartext ) throws GeneralSecurityException {
+    public byte[] verschluesseln( String stringKlartext ) throws GeneralSecurityException {
+
+        final long startZeit = System.nanoTime();
+        try {
+
+            final byte[] klartextBytes = stringKlartext.getBytes( UTF_8 );
+
+            final Schluessel schluessel = _aktuellerSchluessel;
+
+            final byte[] chiffre = new byte[ ZUSATZ_BYTES + klartextBytes.length ];
+            chiffre[ 0 ] = FORMAT_GCM;
+            chiffre[ 1 ] = (byte) schluessel.version();
 
-        _aesCipher.init( ENCRYPT_MODE, _secretKey ); // throws InvalidKeyException
+            final SecureRandom secureRandom = _secureRandomPool.holen();
+            final byte[] nonce = new byte[ NONCE_LAENGE ];
+            secureRandom.nextBytes( nonce );
+            _secureRandomPool.zurueckgeben( secureRandom );
+            System.arraycopy( nonce, 0, chiffre, KOPF_LAENGE, NONCE_LAENGE );
 
-        stringKlartext = salzDazu( stringKlartext );
+            final Cipher cipher = _gcmCipherPool.holen();
+            try {
 
-        byte[] klartextBytes = stringKlartext.getBytes();
+                cipher.init( ENCRYPT_MODE, schluessel.secretKey(), new GCMParameterSpec( TAG_BITS, nonce ) );
+                cipher.updateAAD( chiffre, 0, KOPF_LAENGE );
+                cipher.doFinal( klartextBytes, 0, klartextBytes.length,
+                                chiffre, KOPF_LAENGE + NONCE_LAENGE ); // throws ShortBufferException, IllegalBlockSizeException, ...
+            }
+            finally {
 
-        byte[] encryptedBytes = _aesCipher.doFinal( klartextBytes ); // throws IllegalBlockSizeException, BadPaddingException
+                _gcmCipherPool.zurueckgeben( cipher );
+            }
 
-        return _base64Encoder.encodeToString( encryptedBytes );
+            return chiffre;
+        }
+        finally {
+
+            _verschluesselungTimer.record( System.nanoTime() - startZeit, NANOSECONDS );
+        }
     }
 
 
     /**
-     * Entschlüsselt {@code stringVerschluesselt}.
+     * Entschlüsselt {@code chiffre} im binären oder im alten Text-Format.
      *
-     * @param stringVerschluesselt Base64-Kodierung von Chiffre
+     * @param chiffre Chiffre wie in der Datenbank gespeichert
      *
      * @return Entschlüsselter String
      *
+     * @throws GeneralSecurityException Fehler beim Entschlüsseln (z.B. weil die Chiffre
+     *                                  verändert wurde), oder kein Schlüssel für die
+     *                                  Version der Chiffre konfiguriert
+     */
+    public String entschluesseln( byte[] chiffre ) throws GeneralSecurityException {
+
+        final long startZeit = System.nanoTime();
+        try {
+
+            final Schluessel schluessel = schluesselFuer( chiffre );
+
+            if ( istBinaerformat( chiffre ) ) {
+
+                if ( chiffre.length < ZUSATZ_BYTES ) {
+
+                    throw new GeneralSecurityException( "Chiffre ist zu kurz." );
+                }
+
+                final Cipher cipher = _gcmCipherPool.holen();
+                final byte[] decryptedBytes;
+                try {
+
+                    cipher.init( DECRYPT_MODE, schluessel.secretKey(),
+                                 new GCMParameterSpec( TAG_BITS, chiffre, KOPF_LAENGE, NONCE_LAENGE ) );
+                    cipher.updateAAD( chiffre, 0, KOPF_LAENGE );
+                    decryptedBytes = cipher.doFinal( chiffre, KOPF_LAENGE + NONCE_LAENGE,
+                                                     chiffre.length - KOPF_LAENGE - NONCE_LAENGE ); // throws AEADBadTagException
+                }
+                finally {
+
+                    _gcmCipherPool.zurueckgeben( cipher );
+                }
+
+                return new String( decryptedBytes, UTF_8 );
+            }
+
+            return altEntschluesseln( new String( chiffre, US_ASCII ), schluessel );
+        }
+        finally {
+
+            _entschluesselungTimer.record( System.nanoTime() - startZeit, NANOSECONDS );
+        }
+    }
+
+
+    /**
+     * Entschlüsselt eine Chiffre im alten Text-Format ("AES/ECB/PKCS5Padding", Base64).
+     *
+     * @param stringVerschluesselt Base64-Kodierung von Chiffre, mit oder ohne Präfix für
+     *                             Schlüssel-Version
+     *
+     * @param schluessel Schlüssel für die Version im Präfix
+     *
+     * @return Entschlüsselter String ohne Versalzung
+     *
      * @throws GeneralSecurityException Fehler beim Entschlüsseln
      */
-    public String entschluesseln( String stringVerschluesselt ) throws GeneralSecurityException {
+    private String altEntschluesseln( String stringVerschluesselt, Schluessel schluessel ) throws GeneralSecurityException {
+
+        final int start = stringVerschluesselt.indexOf( PRAEFIX_ENDE ) + 1; // 0 wenn ohne Präfix
+
+        final byte[] encryptedBytes;
+        try {
 
-        _aesCipher.init( DECRYPT_MODE, _secretKey );
+            encryptedBytes = _base64Decoder.decode( stringVerschluesselt.substring( start ) );
+        }
+        catch ( IllegalArgumentException ex ) {
+
+            throw new GeneralSecurityException( "Chiffre im alten Format ist kein gültiger Base64-Text." );
+        }
 
-        byte[] encryptedBytes = _base64Decoder.decode( stringVerschluesselt );
+        final Cipher cipher = schluessel.altEntschluesselungsCipherPool().holen();
+        final byte[] decryptedBytes;
+        try {
 
-        byte[] decryptedBytes = _aesCipher.doFinal( encryptedBytes );
+            decryptedBytes = cipher.doFinal( encryptedBytes );
+        }
+        finally {
 
-        String decryptedString = new String( decryptedBytes );
+            schluessel.altEntschluesselungsCipherPool().zurueckgeben( cipher );
+        }
 
-        return salzEntfernen( decryptedString );
+        return salzEntfernen( new String( decryptedBytes, UTF_8 ) );
     }
 
 
     /**
-     * Vor {@code inputString} einige Zufallszeichen dazu, damit gleiche
-     * Klartexte nicht gleiche Chiffren ergeben; wenn Versalzung ausgeschaltet,
-     * dann wird {@code inputString} unverändert zurückgegeben.
+     * Schlüssel für die Version einer Chiffre.
+     *
+     * @param chiffre Chiffre im binären oder alten Format
      *
-     * @param inputString String, vor den einige Zufallszeichen gestellt werden
+     * @return Schlüssel
      *
-     * @return {@code inputString} mit einigen Zufallszeichen vorne dran
+     * @throws GeneralSecurityException Version ungültig oder kein Schlüssel konfiguriert
      */
-    private String salzDazu( String inputString ) {
+    private Schluessel schluesselFuer( byte[] chiffre ) throws GeneralSecurityException {
 
-        if ( _versalzung == false ) {
+        final int version = schluesselVersion( chiffre );
 
-            return inputString;
+        final Schluessel schluessel = _schluesselMap.get( version );
+        if ( schluessel == null ) {
+
+            throw new GeneralSecurityException( "Kein Schlüssel für Version " + version + " konfiguriert." );
         }
 
-        final String zufallsStr = erzeugeZufallsString( ANZAHL_ZUFALLSZEICHEN );
-        return zufallsStr + inputString;
+        return schluessel;
+    }
+
+
+    /**
+     * Prüft, ob eine Chiffre im binären Format (AES-GCM) vorliegt.
+     *
+     * @param chiffre Chiffre wie in der Datenbank gespeichert
+     *
+     * @return {@code true} für binäres Format, {@code false} für altes Text-Format
+     */
+    public static boolean istBinaerformat( byte[] chiffre ) {
+
+        return chiffre.length > 0 && chiffre[ 0 ] == FORMAT_GCM;
+    }
+
+
+    /**
+     * Version des Schlüssels, mit dem eine Chiffre verschlüsselt wurde.
+     *
+     * @param chiffre Chiffre im binären Format, oder im alten Format z.B. "k2:q83v..."
+     *
+     * @return Version aus Chiffre, oder {@link #VERSION_OHNE_PRAEFIX} für Chiffre im
+     *         alten Format ohne Präfix
+     *
+     * @throws GeneralSecurityException Chiffre zu kurz oder Präfix hat ungültiges Format
+     */
+    public static int schluesselVersion( byte[] chiffre ) throws GeneralSecurityException {
+
+        if ( istBinaerformat( chiffre ) ) {
+
+            if ( chiffre.length < KOPF_LAENGE ) {
+
+                throw new GeneralSecurityException( "Chiffre ist zu kurz." );
+            }
+            return chiffre[ 1 ] & 0xFF;
+        }
+
+        int praefixEnde = -1;
+        for ( int i = 0; i < chiffre.length; i++ ) {
+
+            if ( chiffre[ i ] == PRAEFIX_ENDE ) {
+
+                praefixEnde = i;
+                break;
+            }
+        }
+        if ( praefixEnde < 0 ) {
+
+            return VERSION_OHNE_PRAEFIX;
+        }
+
+        try {
+
+            if ( chiffre[ 0 ] != 'k' ) {
+
+                throw new NumberFormatException();
+            }
+            return Integer.parseInt( new String( chiffre, 1, praefixEnde - 1, US_ASCII ) );
+        }
+        catch ( NumberFormatException ex ) {
+
+            throw new GeneralSecurityException( "Chiffre hat ungültiges Präfix für Schlüssel-Version." );
+        }
+    }
+
+
+    /**
+     * Prüft, ob eine Chiffre im binären Format mit dem aktuellen Schlüssel verschlüsselt
+     * wurde.
+     *
+     * @param chiffre Chiffre wie in der Datenbank gespeichert
+     *
+     * @return {@code false}, wenn die Chiffre neu verschlüsselt werden sollte
+     *
+     * @throws GeneralSecurityException Chiffre hat ungültiges Format
+     */
+    public boolean istAktuell( byte[] chiffre ) throws GeneralSecurityException {
+
+        return istBinaerformat( chiffre ) && schluesselVersion( chiffre ) == _schluesselVersion;
+    }
+
+
+    /**
+     * Chiffre mit dem aktuellen Schlüssel im binären Format neu verschlüsseln, falls sie
+     * mit einem anderen Schlüssel oder im alten Format verschlüsselt wurde.
+     *
+     * @param chiffre Chiffre wie in der Datenbank gespeichert
+     *
+     * @return {@code chiffre} wenn schon aktuell, sonst neue Chiffre
+     *
+     * @throws GeneralSecurityException Fehler beim Ent- oder Verschlüsseln
+     */
+    public byte[] neuVerschluesseln( byte[] chiffre ) throws GeneralSecurityException {
+
+        return istAktuell( chiffre ) ? chiffre : verschluesseln( entschluesseln( chiffre ) );
+    }
+
+
+    /**
+     * Version des Schlüssels, mit dem verschlüsselt wird.
+     *
+     * @return Schlüssel-Version, z.B. 2
+     */
+    public int getSchluesselVersion() {
+
+        return _schluesselVersion;
+    }
+
+
+    /**
+     * Prüft, ob ein Schlüssel für eine Version konfiguriert ist, z.B. bevor Chiffren
+     * aus einem älteren Snapshot verwendet werden.
+     *
+     * @param version Schlüssel-Version, z.B. von {@link #schluesselVersion(byte[])}
+     *
+     * @return {@code true}, wenn Chiffren mit dieser Version entschlüsselt werden können
+     */
+    public boolean hatSchluessel( int version ) {
+
+        return _schluesselMap.containsKey( version );
+    }
+
+
+    /**
+     * Kennung für das Format neuer Chiffren, z.B. für den Fortschritt der
+     * Neuverschlüsselung.
+     *
+     * @return "g" (binäres Format mit AES-GCM) und Schlüssel-Version, z.B. "g2"
+     */
+    public String getChiffreFormat() {
+
+        return "g" + _schluesselVersion;
     }
 
 
@@ -248,26 +682,68 @@ public class AesHelfer {
 
 
     /**
-     * Erzeugt String mit {@code anzahl} zufälliger Buchstaben.
+     * Erzeugt ein neues {@code Cipher}-Objekt für AES-GCM; wird vor jeder Verwendung mit
+     * Schlüssel und Nonce initialisiert.
      *
-     * @param anzahl Anzahl zufälliger Buchstaben
+     * @return Noch nicht initialisiertes {@code Cipher}-Objekt
      *
-     * @return String mit {@code anzahl} zufällig gewählter Groß-
-     *         und Kleinbuchstaben, für {@code anzahl=3} z.B. "XaD"
+     * @throws KryptoRuntimeException Algorithmus nicht verfügbar
      */
-    private String erzeugeZufallsString( int anzahl ) {
+    private static Cipher erzeugeGcmCipher() {
 
-        final StringBuilder stringBuilder = new StringBuilder( anzahl );
-        for (int i = 0; i < anzahl; i++) {
+        try {
 
-            int zufallsZahl = _secureRandom.nextInt( 26 );
-            char basisChar  = _secureRandom.nextBoolean() ? 'a' : 'A';
+            return Cipher.getInstance( KRYPTO_ALGO_NAME );
+        }
+        catch ( GeneralSecurityException ex ) {
 
-            char zufallsBuchstabe = (char) ( basisChar + zufallsZahl );
-            stringBuilder.append( zufallsBuchstabe );
+            throw new KryptoRuntimeException( "Erzeugung Cipher-Objekt fehlgeschlagen: " + ex.getMessage(), ex );
         }
+    }
+
+
+    /**
+     * Erzeugt ein neues {@code Cipher}-Objekt für die Entschlüsselung im alten Format
+     * und initialisiert es mit dem symmetrischen Schlüssel.
+     *
+     * @param secretKey Symmetrischer Schlüssel
+     *
+     * @return Initialisiertes {@code Cipher}-Objekt
+     *
+     * @throws KryptoRuntimeException Algorithmus nicht verfügbar oder Schlüssel ungültig
+     */
+    private static Cipher erzeugeAltCipher( SecretKeySpec secretKey ) {
+
+        try {
 
-        return stringBuilder.toString();
+            final Cipher cipher = Cipher.getInstance( KRYPTO_ALGO_NAME_ALT );
+            cipher.init( DECRYPT_MODE, secretKey ); // throws InvalidKeyException
+            return cipher;
+        }
+        catch ( GeneralSecurityException ex ) {
+
+            throw new KryptoRuntimeException( "Erzeugung Cipher-Objekt fehlgeschlagen: " + ex.getMessage(), ex );
+        }
+    }
+
+
+    /**
+     * Erzeugt einen neuen Zufallsgenerator für den Pool.
+     *
+     * @return Zufallsgenerator vom Typ "DRBG", oder Default-Implementierung falls "DRBG"
+     *         nicht verfügbar ist
+     */
+    private static SecureRandom erzeugeZufallsgenerator() {
+
+        try {
+
+            return SecureRandom.getInstance( "DRBG" );
+        }
+        catch ( NoSuchAlgorithmException ex ) {
+
+            LOG.warn( "Zufallsgenerator \"DRBG\" nicht verfügbar, verwende Default-Implementierung." );
+            return new SecureRandom();
+        }
     }
     
 }
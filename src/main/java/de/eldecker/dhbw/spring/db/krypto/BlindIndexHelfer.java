@@ -0,0 +1,176 @@
+package de.eldecker.dhbw.spring.db.krypto;
+
+import static jakarta.xml.bind.DatatypeConverter.parseHexBinary;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.GeneralSecurityException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Base64.Encoder;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+
+/**
+ * Bean-Klasse für die Berechnung von "Blind Indizes" für verschlüsselte Attribute.
+ * <br><br>
+ *
+ * Da die Attribute mit Versalzung verschlüsselt werden, ergibt derselbe Klartext jedes Mal
+ * eine andere Chiffre; nach einem verschlüsselten Attribut kann deshalb nicht mit SQL
+ * gesucht werden. Für jedes durchsuchbare Attribut wird deshalb zusätzlich ein HMAC
+ * (Hash mit Schlüssel) über den normierten Klartext in einer eigenen Spalte mit Index
+ * gespeichert. Für eine Suche wird der HMAC des Suchbegriffs berechnet und in dieser
+ * Spalte nach Gleichheit gesucht.
+ * <br><br>
+ *
+ * Eigenschaften:
+ * <ul>
+ * <li>Algorithmus "HmacSHA256" mit eigenem Schlüssel, also nicht mit dem Schlüssel für
+ *     AES; ohne Schlüssel kann ein Angreifer keine Blind Indizes für geratene Namen
+ *     berechnen.</li>
+ * <li>Vor der Berechnung wird der Klartext normiert (siehe {@link #normieren(String)}),
+ *     damit die Suche nicht von Groß-/Kleinschreibung und Leerzeichen abhängt.</li>
+ * <li>Vom HMAC werden nur die ersten 16 Bytes verwendet (Base64: 22 Zeichen); für eine
+ *     Suche nach Gleichheit reicht das, und die Spalte wird kleiner.</li>
+ * </ul>
+ * Achtung: Ein Blind Index verrät, welche Datensätze im jeweiligen Attribut übereinstimmen
+ * (z.B. wie viele Halter denselben Nachnamen haben), aber nicht den Klartext.
+ * <br><br>
+ *
+ * Wie bei {@link AesHelfer} ist ein {@link Mac}-Objekt nicht thread-sicher, deshalb wird
+ * ein {@link ObjektPool} verwendet.
+ */
+@Component
+public class BlindIndexHelfer {
+
+    private final static Logger LOG = LoggerFactory.getLogger( BlindIndexHelfer.class );
+
+    /** Algorithmus für HMAC. */
+    private static final String HMAC_ALGO_NAME = "HmacSHA256";
+
+    /** Anzahl Bytes des HMAC, die für den Blind Index verwendet werden. */
+    private static final int ANZAHL_BYTES = 16;
+
+    /** Länge eines Blind Index in Zeichen, für Spaltendefinition. */
+    public static final int LAENGE = 22;
+
+    /** Maximale Anzahl freier Objekte im Pool. */
+    private static final int POOL_KAPAZITAET = Runtime.getRuntime().availableProcessors() * 4;
+
+    /**
+     * Schlüssel (256 Bit) für HMAC als Hexadezimalzahl mit 64 Zeichen, aus Datei
+     * {@code application.properties}; Default-Wert ist ein leerer String.
+     */
+    @Value( "${de.eldecker.kfz-kennzeichen.krypto.blindindex-schluessel:}" )
+    private String _schluesselHex;
+
+    /** Objekt mit Schlüssel für HMAC. */
+    private SecretKeySpec _secretKey = null;
+
+    /** {@code Mac}-Objekte, die bereits mit {@link #_secretKey} initialisiert sind. */
+    private final ObjektPool<Mac> _macPool = new ObjektPool<>( POOL_KAPAZITAET, this::erzeugeMac );
+
+    /** Base64-Kodierung für URLs ohne Füllzeichen, damit immer {@value #LAENGE} Zeichen. */
+    private final Encoder _base64Encoder = Base64.getUrlEncoder().withoutPadding();
+
+
+    /**
+     * Schlüssel prüfen und übernehmen; wenn diese Methode eine Exception wirft, dann
+     * bricht das Programm ab (wie bei {@link AesHelfer}).
+     *
+     * @throws GeneralSecurityException Schlüssel hat falsche Länge
+     */
+    @PostConstruct
+    private void initialisierung() throws GeneralSecurityException {
+
+        if ( _schluesselHex.length() != 64 ) {
+
+            throw new GeneralSecurityException( "Hex-Zahl mit Schlüssel für Blind Index hat falsche Länge." );
+        }
+
+        _secretKey = new SecretKeySpec( parseHexBinary( _schluesselHex ), HMAC_ALGO_NAME );
+
+        LOG.info( "Blind Index initialisiert: {}", HMAC_ALGO_NAME );
+    }
+
+
+    /**
+     * Blind Index für einen Klartext berechnen.
+     *
+     * @param klartext Klartext, z.B. "Müller-Lüdenscheidt"; wird vor der Berechnung normiert
+     *
+     * @return Blind Index mit {@value #LAENGE} Zeichen, oder {@code null} wenn
+     *         {@code klartext} den Wert {@code null} hat
+     */
+    public String berechnen( String klartext ) {
+
+        if ( klartext == null ) {
+
+            return null;
+        }
+
+        final byte[] eingabe = normieren( klartext ).getBytes( UTF_8 );
+
+        final Mac mac = _macPool.holen();
+        final byte[] hmac;
+        try {
+
+            hmac = mac.doFinal( eingabe ); // Mac ist danach wieder im Anfangszustand
+        }
+        finally {
+
+            _macPool.zurueckgeben( mac );
+        }
+
+        return _base64Encoder.encodeToString( Arrays.copyOf( hmac, ANZAHL_BYTES ) );
+    }
+
+
+    /**
+     * Klartext normieren: Unicode-Normalform NFC (damit z.B. "ü" immer gleich kodiert ist),
+     * Leerzeichen am Anfang und Ende entfernen, mehrere Leerzeichen hintereinander durch
+     * ein Leerzeichen ersetzen und in Kleinbuchstaben umwandeln.
+     *
+     * @param klartext Klartext, z.B. " MÜLLER  Lüdenscheidt "
+     *
+     * @return Normierter Klartext, z.B. "müller lüdenscheidt"
+     */
+    static String normieren( String klartext ) {
+
+        return Normalizer.normalize( klartext, Normalizer.Form.NFC )
+                         .trim()
+                         .replaceAll( "\\s+", " " )
+                         .toLowerCase( Locale.GERMAN );
+    }
+
+
+    /**
+     * Erzeugt ein neues {@code Mac}-Objekt für den Pool.
+     *
+     * @throws KryptoRuntimeException Algorithmus nicht verfügbar oder Schlüssel ungültig
+     */
+    private Mac erzeugeMac() {
+
+        try {
+
+            final Mac mac = Mac.getInstance( HMAC_ALGO_NAME );
+            mac.init( _secretKey ); // throws InvalidKeyException
+            return mac;
+        }
+        catch ( GeneralSecurityException ex ) {
+
+            throw new KryptoRuntimeException( "Erzeugung Mac-Objekt fehlgeschlagen: " + ex.getMessage(), ex );
+        }
+    }
+
+}
@@ -17,33 +17,69 @@ import jakarta.persistence.AttributeConverter;
  * <br><br>
  * 
  * Es wird der symmetrische Verschlüsselungsalgorithmus "AES" mit einer Schlüssel-Länge
- * von 128 Bit eingesetzt, siehe {@link AesHelfer}. Der Schlüssel wird in der Datei
+ * von 128 Bit in der Betriebsart GCM eingesetzt, siehe {@link AesHelfer}; die Chiffre
+ * wird binär gespeichert (Spaltentyp {@code VARBINARY}). Der Schlüssel wird in der Datei
  * {@code application.properties} definiert; für eine produktive Anwendung sollte er
  * von der Ausführungsumgebung der Spring-Boot-Anwendung über eine Umgebungsvariable
  * bereitgestellt werden. 
+ * <br><br>
+ * 
+ * Beim Laden wird noch nicht entschlüsselt, sondern nur ein {@link VerschluesselterString}
+ * mit der Chiffre erzeugt, der erst beim ersten Zugriff auf den Klartext entschlüsselt.
+ * <br><br>
+ *
+ * Die Instanz wird von Hibernate über den Spring-Container erzeugt; die Bean wird über
+ * den Konstruktor injiziert, weil mit Spring AOT (Profil {@code schnellstart}) zur
+ * Laufzeit kein {@code AutowiredAnnotationBeanPostProcessor} registriert ist und
+ * {@code Autowired} an Attributen solcher Instanzen deshalb nicht funktioniert.
  */
-public class KryptoStringAttributeConverter implements AttributeConverter<String, String> {
+public class KryptoStringAttributeConverter implements AttributeConverter<VerschluesselterString, byte[]> {
 
     private final static Logger LOG = LoggerFactory.getLogger( KryptoStringAttributeConverter.class );
     
     /** Bean für Ver- und Entschlüsselung. */
+    private final AesHelfer _aesVerschluessler;
+
+
+    /**
+     * Konstruktor für Dependency Injection.
+     *
+     * @param aesVerschluessler Bean für Ver- und Entschlüsselung
+     */
     @Autowired
-    private AesHelfer _aesVerschluessler;
-    
+    public KryptoStringAttributeConverter( AesHelfer aesVerschluessler ) {
+
+        _aesVerschluessler = aesVerschluessler;
+    }
+
     
     /**
-     * String-Attribut vor Speichern auf Datenbank verschlüsseln.
+     * String-Attribut vor Speichern auf Datenbank verschlüsseln. Wenn der Wert aus der
+     * Datenbank geladen und nicht ersetzt wurde, dann wird die ursprüngliche Chiffre
+     * zurückgegeben, außer sie wurde mit einem alten Schlüssel oder im alten Text-Format
+     * verschlüsselt; jeder Schreibzugriff auf einen Datensatz verschlüsselt ihn also mit
+     * dem aktuellen Schlüssel im binären Format.
      * 
-     * @param stringKlartext Attributwert im Klartext
+     * @param wert Attributwert
      * 
-     * @return Chiffre von {@code stringKlartext}
+     * @return Chiffre von {@code wert}
      */
     @Override
-    public String convertToDatabaseColumn( String stringKlartext ) {
+    public byte[] convertToDatabaseColumn( VerschluesselterString wert ) {
+
+        if ( wert == null ) {
+
+            return null;
+        }
 
         try {
-        
-            return _aesVerschluessler.verschluesseln( stringKlartext );
+
+            if ( wert.getChiffre() != null ) {
+
+                return _aesVerschluessler.neuVerschluesseln( wert.getChiffre() );
+            }
+
+            return _aesVerschluessler.verschluesseln( wert.getKlartext() );
         }
         catch ( GeneralSecurityException ex ) {
 
@@ -55,25 +91,22 @@ public class KryptoStringAttributeConverter implements AttributeConverter<String
 
 
     /**
-     * String-Attribut von Datenbank entschlüsseln.
+     * String-Attribut von Datenbank übernehmen; die Entschlüsselung erfolgt erst
+     * beim ersten Zugriff auf den Klartext, siehe {@link VerschluesselterString#getKlartext()}.
      * 
-     * @param stringVerschluesselt Chiffre für Attributwert
+     * @param chiffre Chiffre für Attributwert
      * 
-     * @return Klartext von {@code stringVerschluesselt}
+     * @return Objekt mit noch nicht entschlüsseltem Attributwert
      */
     @Override
-    public String convertToEntityAttribute( String stringVerschluesselt ) {
+    public VerschluesselterString convertToEntityAttribute( byte[] chiffre ) {
 
-        try {
-            
-            return _aesVerschluessler.entschluesseln( stringVerschluesselt );
+        if ( chiffre == null ) {
+
+            return null;
         }
-        catch ( GeneralSecurityException ex ) {
 
-            String fehlertext = "Verschlüsselung von String fehlgeschlagen: " + ex.getMessage();            
-            LOG.error( fehlertext );
-            throw new KryptoRuntimeException( fehlertext, ex ); 
-        }                
+        return VerschluesselterString.ausChiffre( chiffre, _aesVerschluessler );
     }
 
 }
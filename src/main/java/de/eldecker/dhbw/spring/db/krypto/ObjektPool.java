@@ -0,0 +1,68 @@
+package de.eldecker.dhbw.spring.db.krypto;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+
+/**
+ * Einfacher Pool für Objekte, die nicht thread-sicher sind und deren Erzeugung teuer ist
+ * (z.B. {@link javax.crypto.Cipher}). Ein Objekt wird mit {@link #holen()} exklusiv
+ * ausgeliehen und muss nach der Verwendung mit {@link #zurueckgeben(Object)} wieder
+ * zurückgegeben werden.
+ * <br><br>
+ *
+ * Im Gegensatz zu einem {@link ThreadLocal} funktioniert der Pool auch mit virtuellen
+ * Threads, von denen für jeden Request ein neuer erzeugt wird: Bei einem {@code ThreadLocal}
+ * müsste dann für jeden Request ein neues Objekt erzeugt werden. Der Pool verwendet intern
+ * keine {@code synchronized}-Blöcke, so dass ein virtueller Thread beim Warten auf den Pool
+ * nicht an seinen Träger-Thread gebunden ("pinned") wird.
+ */
+class ObjektPool<T> {
+
+    /** Freie Objekte. */
+    private final ArrayBlockingQueue<T> _freieObjekte;
+
+    /** Erzeugt ein neues Objekt, wenn kein freies Objekt im Pool ist. */
+    private final Supplier<T> _erzeuger;
+
+
+    /**
+     * Konstruktor für leeren Pool.
+     *
+     * @param kapazitaet Maximale Anzahl freier Objekte im Pool; werden mehr Objekte
+     *                   zurückgegeben, dann werden sie verworfen.
+     *
+     * @param erzeuger Erzeugt ein neues Objekt, wenn kein freies Objekt im Pool ist
+     */
+    ObjektPool( int kapazitaet, Supplier<T> erzeuger ) {
+
+        _freieObjekte = new ArrayBlockingQueue<>( kapazitaet );
+        _erzeuger     = erzeuger;
+    }
+
+
+    /**
+     * Objekt ausleihen; blockiert nie, wenn kein freies Objekt vorhanden ist, dann wird
+     * ein neues Objekt erzeugt.
+     *
+     * @return Objekt, das bis zur Rückgabe nur vom aufrufenden Thread verwendet werden darf
+     */
+    T holen() {
+
+        final T objekt = _freieObjekte.poll();
+
+        return objekt != null ? objekt : _erzeuger.get();
+    }
+
+
+    /**
+     * Ausgeliehenes Objekt zurückgeben.
+     *
+     * @param objekt Objekt, das mit {@link #holen()} ausgeliehen wurde
+     */
+    void zurueckgeben( T objekt ) {
+
+        _freieObjekte.offer( objekt );
+    }
+
+}
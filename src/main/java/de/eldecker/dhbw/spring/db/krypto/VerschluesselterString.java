@@ -0,0 +1,205 @@
+package de.eldecker.dhbw.spring.db.krypto;
+
+import java.security.GeneralSecurityException;
+
+import org.hibernate.annotations.Immutable;
+
+
+/**
+ * Wert eines verschlüsselten Entity-Attributs. Beim Laden aus der Datenbank wird
+ * nur die Chiffre übernommen, entschlüsselt wird erst beim ersten Zugriff auf
+ * {@link #getKlartext()}. Der Klartext wird dann in diesem Objekt gemerkt, so dass
+ * pro Entity-Instanz höchstens einmal entschlüsselt wird. Attribute, die nie gelesen
+ * werden (z.B. weil nur geprüft wird, ob ein KFZ-Kennzeichen existiert), werden
+ * also gar nicht entschlüsselt.
+ * <br><br>
+ *
+ * Objekte dieser Klasse werden von {@link KryptoStringAttributeConverter} erzeugt
+ * (beim Laden) oder über {@link #ausKlartext(String)} (beim Setzen eines neuen Werts).
+ * Solange eine geladene Instanz nicht ersetzt wird, schreibt der Converter die
+ * ursprüngliche Chiffre unverändert zurück, es muss also auch nicht neu verschlüsselt
+ * werden.
+ * <br><br>
+ *
+ * Die Annotation {@code Immutable} teilt Hibernate mit, dass sich der Wert eines Objekts
+ * nicht ändert (der gemerkte Klartext ist nur ein Cache), so dass für die Erkennung
+ * von Änderungen ("dirty checking") keine Kopie angelegt werden muss; eine Änderung
+ * des Attributs erfolgt immer durch Zuweisung eines neuen Objekts.
+ */
+@Immutable
+public final class VerschluesselterString {
+
+    /**
+     * Chiffre wie in der Datenbank gespeichert; {@code null} für neu gesetzte Werte.
+     * Das Array wird nie verändert.
+     */
+    private final byte[] _chiffre;
+
+    /** Bean für Entschlüsselung; {@code null} für neu gesetzte Werte. */
+    private final AesHelfer _aesHelfer;
+
+    /**
+     * Klartext; wird bei geladenen Werten erst beim ersten Zugriff gesetzt. Wenn zwei
+     * Threads gleichzeitig zum ersten Mal zugreifen, dann wird evtl. zweimal entschlüsselt,
+     * das Ergebnis ist aber dasselbe, deshalb ist keine Synchronisierung nötig.
+     */
+    private volatile String _klartext;
+
+
+    /**
+     * Konstruktor, nur über die statischen Factory-Methoden aufrufbar.
+     */
+    private VerschluesselterString( byte[] chiffre, AesHelfer aesHelfer, String klartext ) {
+
+        _chiffre   = chiffre;
+        _aesHelfer = aesHelfer;
+        _klartext  = klartext;
+    }
+
+
+    /**
+     * Neuen Wert aus Klartext erzeugen, z.B. in einem Setter einer Entity-Klasse.
+     * Verschlüsselt wird erst beim Schreiben auf die Datenbank.
+     *
+     * @param klartext Klartext, kann {@code null} sein
+     *
+     * @return Neues Objekt, oder {@code null} wenn {@code klartext} den Wert {@code null} hat
+     */
+    public static VerschluesselterString ausKlartext( String klartext ) {
+
+        if ( klartext == null ) {
+
+            return null;
+        }
+
+        return new VerschluesselterString( null, null, klartext );
+    }
+
+
+    /**
+     * Wert aus Chiffre erzeugen, wird von {@link KryptoStringAttributeConverter} beim
+     * Laden aus der Datenbank aufgerufen (und beim Lesen aus dem Snapshot, der die
+     * Chiffren aus der Datenbank enthält).
+     *
+     * @param chiffre Chiffre wie in der Datenbank gespeichert
+     *
+     * @param aesHelfer Bean für spätere Entschlüsselung
+     *
+     * @return Neues Objekt, noch nicht entschlüsselt
+     */
+    public static VerschluesselterString ausChiffre( byte[] chiffre, AesHelfer aesHelfer ) {
+
+        return new VerschluesselterString( chiffre, aesHelfer, null );
+    }
+
+
+    /**
+     * Null-sicherer Zugriff auf den Klartext, für Getter in Entity-Klassen.
+     *
+     * @param wert Verschlüsselter Wert, kann {@code null} sein
+     *
+     * @return Klartext, oder {@code null} wenn {@code wert} den Wert {@code null} hat
+     */
+    public static String klartext( VerschluesselterString wert ) {
+
+        return wert == null ? null : wert.getKlartext();
+    }
+
+
+    /**
+     * Klartext abfragen; beim ersten Aufruf für einen geladenen Wert wird entschlüsselt.
+     *
+     * @return Klartext
+     *
+     * @throws KryptoRuntimeException Fehler bei Entschlüsselung
+     */
+    public String getKlartext() {
+
+        String klartext = _klartext;
+        if ( klartext == null ) {
+
+            try {
+
+                klartext = _aesHelfer.entschluesseln( _chiffre );
+            }
+            catch ( GeneralSecurityException ex ) {
+
+                throw new KryptoRuntimeException( "Entschlüsselung von String fehlgeschlagen: " + ex.getMessage(), ex );
+            }
+            _klartext = klartext;
+        }
+
+        return klartext;
+    }
+
+
+    /**
+     * Wert schon vor dem Schreiben auf die Datenbank verschlüsseln, z.B. um beim Import
+     * großer Datenmengen parallel auf mehreren Threads zu verschlüsseln; der Converter
+     * übernimmt dann die bereits berechnete Chiffre.
+     *
+     * @param aesHelfer Bean für Verschlüsselung
+     *
+     * @return Neues Objekt mit Klartext und Chiffre, oder {@code this} wenn die Chiffre
+     *         schon bekannt ist
+     *
+     * @throws KryptoRuntimeException Fehler bei Verschlüsselung
+     */
+    public VerschluesselterString verschluesseln( AesHelfer aesHelfer ) {
+
+        if ( _chiffre != null ) {
+
+            return this;
+        }
+
+        try {
+
+            final byte[] chiffre = aesHelfer.verschluesseln( _klartext );
+            return new VerschluesselterString( chiffre, aesHelfer, _klartext );
+        }
+        catch ( GeneralSecurityException ex ) {
+
+            throw new KryptoRuntimeException( "Verschlüsselung von String fehlgeschlagen: " + ex.getMessage(), ex );
+        }
+    }
+
+
+    /**
+     * Chiffre abfragen, wird von {@link KryptoStringAttributeConverter} beim Schreiben
+     * auf die Datenbank aufgerufen.
+     *
+     * @return Chiffre wie aus der Datenbank geladen, oder {@code null} wenn der Wert neu
+     *         aus einem Klartext erzeugt wurde (muss dann noch verschlüsselt werden)
+     */
+    byte[] getChiffre() {
+
+        return _chiffre;
+    }
+
+
+    /**
+     * Gibt zurück, ob der Klartext schon bekannt ist (neu gesetzt oder schon entschlüsselt).
+     *
+     * @return {@code false} wenn beim nächsten Zugriff auf {@link #getKlartext()}
+     *         entschlüsselt werden muss
+     */
+    public boolean istEntschluesselt() {
+
+        return _klartext != null;
+    }
+
+
+    /**
+     * String-Darstellung ohne Klartext, damit dieser nicht versehentlich (z.B. in
+     * Log-Ausgaben) offengelegt oder dafür entschlüsselt wird.
+     *
+     * @return String mit Hinweis, ob schon entschlüsselt wurde
+     */
+    @Override
+    public String toString() {
+
+        return istEntschluesselt() ? "VerschluesselterString[entschlüsselt]"
+                                   : "VerschluesselterString[verschlüsselt]";
+    }
+
+}
@@ -0,0 +1,192 @@
+package de.eldecker.dhbw.spring.db.reaktiv;
+
+import java.security.GeneralSecurityException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.db.cache.KennzeichenBloomFilter;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.db.krypto.KryptoRuntimeException;
+import de.eldecker.dhbw.spring.model.FahrzeugHalterDaten;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+
+/**
+ * Reaktive Abfrage des Halters zu einem KFZ-Kennzeichen mit R2DBC: KFZ-Kennzeichen und
+ * Halter werden mit einer SQL-Abfrage (Join) geladen, ohne JPA und ohne Cache; nur
+ * KFZ-Kennzeichen, die laut {@link KennzeichenBloomFilter} sicher nicht vorhanden sind,
+ * werden ohne Datenbankzugriff beantwortet.
+ * <br><br>
+ *
+ * Die Entschlüsselung der Attribute des Halters braucht CPU-Zeit und wird deshalb auf einem
+ * eigenen Scheduler mit einer festen Anzahl von Threads ausgeführt, damit sie nie die
+ * Threads blockiert, die Datenbank-Ergebnisse oder Requests verarbeiten.
+ * <br><br>
+ *
+ * Hinweis: Der R2DBC-Treiber für H2 greift intern auf die eingebettete Datenbank zu,
+ * die Abfrage selbst wird deshalb auf dem Scheduler {@code boundedElastic} ausgeführt.
+ * Mit einem R2DBC-Treiber für eine Datenbank mit Netzwerkzugriff (z.B. PostgreSQL)
+ * wäre auch die Abfrage nicht-blockierend.
+ */
+@Component
+public class ReaktiveHalterAbfrage {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ReaktiveHalterAbfrage.class );
+
+    /** SQL-Abfrage für Halter zu kodiertem KFZ-Kennzeichen (siehe {@link KennzeichenKodierer}). */
+    private static final String SQL_HALTER_ZU_KENNZEICHEN =
+            "SELECT h.ID, h.ANREDE, h.VORNAME, h.NACHNAME, h.STRASSE_HAUSNUMMER, h.PLZ, h.WOHNORT " +
+            "FROM KFZ_KENNZEICHEN k JOIN FAHRZEUG_HALTER h ON h.ID = k.FAHRZEUG_HALTER_FK "      +
+            "WHERE k.KENNZEICHEN_CODE = :code";
+
+    /** R2DBC-URL der Datenbank, mit Connection-Pool. */
+    @Value( "${de.eldecker.kfz-kennzeichen.reaktiv.url}" )
+    private String _r2dbcUrl;
+
+    /** Benutzername für Datenbank, wie für JDBC. */
+    @Value( "${spring.datasource.username}" )
+    private String _benutzername;
+
+    /** Passwort für Datenbank, wie für JDBC. */
+    @Value( "${spring.datasource.password}" )
+    private String _passwort;
+
+    /** Bean für Erkennung nicht vorhandener KFZ-Kennzeichen ohne Datenbankzugriff. */
+    @Autowired
+    private KennzeichenBloomFilter _bloomFilter;
+
+    /** Bean für Entschlüsselung. */
+    @Autowired
+    private AesHelfer _aesHelfer;
+
+    /** Anzahl Threads für Entschlüsselung; 0 bedeutet Anzahl CPU-Kerne. */
+    @Value( "${de.eldecker.kfz-kennzeichen.reaktiv.krypto-threads:0}" )
+    private int _anzahlKryptoThreads;
+
+    /**
+     * Connection Factory mit Pool; wird bewusst nicht als Bean angelegt, weil Spring Boot
+     * sonst keine {@code DataSource} für JPA konfiguriert.
+     */
+    private ConnectionFactory _connectionFactory;
+
+    private DatabaseClient _databaseClient;
+
+    /** Scheduler für Entschlüsselung. */
+    private Scheduler _kryptoScheduler;
+
+
+    /**
+     * Zeile aus Ergebnis der SQL-Abfrage, Attribute des Halters noch verschlüsselt.
+     */
+    private record HalterZeile( Long id, byte[] anrede, byte[] vorname, byte[] nachname,
+                                byte[] strasseHausnummer, int plz, String wohnort ) {}
+
+
+    @PostConstruct
+    public void initialisierung() {
+
+        final int anzahlThreads = _anzahlKryptoThreads > 0
+                                  ? _anzahlKryptoThreads
+                                  : Runtime.getRuntime().availableProcessors();
+
+        final ConnectionFactoryOptions optionen =
+                ConnectionFactoryOptions.parse( _r2dbcUrl )
+                                        .mutate()
+                                        .option( ConnectionFactoryOptions.USER    , _benutzername )
+                                        .option( ConnectionFactoryOptions.PASSWORD, _passwort     )
+                                        .build();
+
+        _connectionFactory = ConnectionFactories.get( optionen );
+        _databaseClient    = DatabaseClient.create( _connectionFactory );
+        _kryptoScheduler = Schedulers.newParallel( "krypto", anzahlThreads );
+
+        LOG.info( "Reaktive Halter-Abfrage: {} Threads für Entschlüsselung.", anzahlThreads );
+    }
+
+    @PreDestroy
+    public void herunterfahren() {
+
+        _kryptoScheduler.dispose();
+
+        if ( _connectionFactory instanceof Disposable pool ) {
+
+            pool.dispose();
+        }
+    }
+
+
+    /**
+     * Halter zu KFZ-Kennzeichen abfragen.
+     *
+     * @param code Mit {@link KennzeichenParser#parsen(String)} kodiertes KFZ-Kennzeichen
+     *             (nicht {@link KennzeichenParser#UNGUELTIG})
+     *
+     * @return Mono mit entschlüsselten Daten des Halters, oder leeres Mono wenn das
+     *         KFZ-Kennzeichen nicht gefunden wurde
+     */
+    public Mono<FahrzeugHalterDaten> findByKennzeichenCode( long code ) {
+
+        if ( !_bloomFilter.vielleichtEnthalten( code ) ) {
+
+            return Mono.empty();
+        }
+
+        return _databaseClient.sql( SQL_HALTER_ZU_KENNZEICHEN )
+                              .bind( "code", code )
+                              .map( ( row, metadata ) -> new HalterZeile( row.get( "ID"                , Long.class    ),
+                                                                          row.get( "ANREDE"            , byte[].class  ),
+                                                                          row.get( "VORNAME"           , byte[].class  ),
+                                                                          row.get( "NACHNAME"          , byte[].class  ),
+                                                                          row.get( "STRASSE_HAUSNUMMER", byte[].class  ),
+                                                                          row.get( "PLZ"               , Integer.class ),
+                                                                          row.get( "WOHNORT"           , String.class  ) ) )
+                              .one()
+                              .subscribeOn( Schedulers.boundedElastic() )
+                              .publishOn( _kryptoScheduler )
+                              .map( this::entschluesseln );
+    }
+
+
+    /**
+     * Attribute des Halters entschlüsseln; wird auf {@link #_kryptoScheduler} ausgeführt.
+     *
+     * @param zeile Zeile aus Ergebnis der SQL-Abfrage
+     *
+     * @return Entschlüsselte Daten des Halters
+     *
+     * @throws KryptoRuntimeException Fehler bei Entschlüsselung
+     */
+    private FahrzeugHalterDaten entschluesseln( HalterZeile zeile ) {
+
+        try {
+
+            return new FahrzeugHalterDaten( zeile.id(),
+                                            _aesHelfer.entschluesseln( zeile.anrede()            ),
+                                            _aesHelfer.entschluesseln( zeile.vorname()           ),
+                                            _aesHelfer.entschluesseln( zeile.nachname()          ),
+                                            zeile.plz(),
+                                            zeile.wohnort(),
+                                            _aesHelfer.entschluesseln( zeile.strasseHausnummer() ) );
+        }
+        catch ( GeneralSecurityException ex ) {
+
+            throw new KryptoRuntimeException( "Entschlüsselung Halter fehlgeschlagen: " + ex.getMessage(), ex );
+        }
+    }
+
+}
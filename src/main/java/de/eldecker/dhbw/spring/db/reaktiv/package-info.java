@@ -0,0 +1,5 @@
+/**
+ * Dieses Paket enthält den reaktiven Datenbankzugriff (R2DBC) für die Abfrage von
+ * KFZ-Kennzeichen, bei dem kein Thread auf das Ergebnis der Abfrage warten muss.
+ */
+package de.eldecker.dhbw.spring.db.reaktiv;
@@ -0,0 +1,285 @@
+package de.eldecker.dhbw.spring.logik;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+
+/**
+ * Export aller KFZ-Kennzeichen mit Fahrzeugdaten und Halter als NDJSON (ein JSON-Objekt
+ * pro Zeile), z.B. für den nächtlichen Abgleich mit anderen Systemen. Der Export kann
+ * über den REST-Endpunkt {@code GET /api/v1/admin/export} abgerufen werden (nur wenn
+ * {@code de.eldecker.kfz-kennzeichen.export.rest-aktiv=true} konfiguriert ist) oder beim
+ * Start der App mit dem Programmargument {@code --export-datei=<Pfad>} in eine Datei
+ * geschrieben werden (mit gzip komprimiert, wenn der Pfad auf {@code .gz} endet), z.B.:
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.arguments="--export-datei=export.ndjson.gz"
+ * </pre>
+ * Nach dem Export in eine Datei wird die App beendet (Exit-Code 0), so dass der Aufruf
+ * z.B. in einem Cronjob verwendet werden kann.
+ *
+ * Damit der Speicherbedarf unabhängig von der Anzahl der Datensätze konstant bleibt,
+ * wird nicht {@code findAll()} verwendet, sondern:
+ * <ol>
+ * <li>Die Datensätze werden über einen Datenbank-Cursor gelesen
+ *     ({@link KfzKennzeichenRepo#streamAlle()}).</li>
+ * <li>Jeweils ein Block wird parallel auf allen CPU-Kernen serialisiert (dabei werden die
+ *     Attribute der Halter entschlüsselt) und in der ursprünglichen Reihenfolge direkt in
+ *     den Ausgabe-Stream geschrieben.</li>
+ * <li>Danach wird der Persistence Context geleert, damit die Entities des Blocks vom
+ *     Garbage Collector freigegeben werden können.</li>
+ * </ol>
+ */
+@Component
+@Order( 4 )
+public class DatenExporter implements ApplicationRunner {
+
+    private final static Logger LOG = LoggerFactory.getLogger( DatenExporter.class );
+
+    /** Name von Programmargument mit Pfad der Exportdatei. */
+    public static final String ARGUMENT_EXPORT_DATEI = "export-datei";
+
+    /** Zeilenende nach jedem JSON-Objekt. */
+    private static final byte ZEILENENDE = '\n';
+
+    /** Repo-Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    /** Von Spring Boot konfigurierter JSON-Serialisierer (wie für REST-Antworten). */
+    @Autowired
+    private ObjectMapper _objectMapper;
+
+    /** Entity Manager, um Persistence Context nach jedem Block zu leeren. */
+    @PersistenceContext
+    private EntityManager _entityManager;
+
+    /** Transaktionsmanager, der Cursor muss innerhalb einer Transaktion gelesen werden. */
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    /** Kontext der App, um sie nach dem Export in eine Datei zu beenden. */
+    @Autowired
+    private ApplicationContext _applicationContext;
+
+    /** Anzahl Datensätze, die jeweils parallel serialisiert werden. */
+    @Value( "${de.eldecker.kfz-kennzeichen.export.blockgroesse:1000}" )
+    private int _blockgroesse;
+
+
+    /**
+     * Eine Zeile des Exports.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, z.B. "KA X 123"
+     *
+     * @param historisch {@code true} für historisches Fahrzeug
+     *
+     * @param fahrzeugDaten Daten des Fahrzeugs
+     *
+     * @param fahrzeugHalter Halter des Fahrzeugs (entschlüsselt)
+     */
+    private record ExportZeile( String               kennzeichen,
+                                boolean              historisch,
+                                FahrzeugDatenEntity  fahrzeugDaten,
+                                FahrzeugHalterEntity fahrzeugHalter ) {}
+
+
+    /**
+     * Export in Datei ausführen und danach die App beenden, wenn Programmargument
+     * {@code --export-datei} angegeben ist. Bei einem Fehler wird die Exception geworfen,
+     * dann bricht Spring Boot den Start ab (Exit-Code ungleich 0).
+     */
+    @Override
+    public void run( ApplicationArguments args ) throws Exception {
+
+        final List<String> dateiListe = args.getOptionValues( ARGUMENT_EXPORT_DATEI );
+        if ( dateiListe == null || dateiListe.isEmpty() ) {
+
+            return;
+        }
+
+        final Path    datei = Path.of( dateiListe.get( 0 ) );
+        final boolean gzip  = datei.getFileName().toString().endsWith( ".gz" );
+
+        LOG.info( "Export in Datei \"{}\" gestartet (gzip: {}).", datei, gzip );
+
+        try ( OutputStream out = new BufferedOutputStream( Files.newOutputStream( datei ) ) ) {
+
+            exportieren( out, gzip );
+        }
+
+        LOG.info( "App wird nach Export in Datei beendet." );
+        System.exit( SpringApplication.exit( _applicationContext, () -> 0 ) );
+    }
+
+
+    /**
+     * Alle KFZ-Kennzeichen als NDJSON in einen Ausgabe-Stream schreiben.
+     *
+     * @param out Ausgabe-Stream (z.B. Response-Body), wird nicht geschlossen
+     *
+     * @param gzip {@code true}, wenn die Ausgabe mit gzip komprimiert werden soll
+     *
+     * @return Anzahl exportierter KFZ-Kennzeichen
+     *
+     * @throws IOException Fehler beim Schreiben, z.B. weil der Client die Verbindung
+     *                     abgebrochen hat
+     */
+    public long exportieren( OutputStream out, boolean gzip ) throws IOException {
+
+        final long startZeit = System.nanoTime();
+
+        final OutputStream ziel = gzip ? new GZIPOutputStream( out, 64 * 1024 ) : out;
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate( _transactionManager );
+        transactionTemplate.setReadOnly( true );
+
+        final long anzahl;
+        try {
+
+            anzahl = transactionTemplate.execute( status -> {
+
+                try ( Stream<KfzKennzeichenEntity> stream = _kfzKennzeichenRepo.streamAlle() ) {
+
+                    return blockweiseSchreiben( stream, ziel );
+                }
+            });
+        }
+        catch ( UncheckedIOException ex ) {
+
+            throw ex.getCause();
+        }
+
+        if ( gzip ) {
+
+            ( (GZIPOutputStream) ziel ).finish(); // schließt out nicht
+        }
+        ziel.flush();
+
+        final double dauerSekunden = ( System.nanoTime() - startZeit ) / 1e9;
+        LOG.info( "Export beendet: {} KFZ-Kennzeichen, Dauer {} s, {} Zeilen/s",
+                  anzahl, String.format( "%.1f", dauerSekunden ),
+                  Math.round( dauerSekunden > 0 ? anzahl / dauerSekunden : 0 ) );
+
+        return anzahl;
+    }
+
+
+    /**
+     * Datensätze aus dem Cursor blockweise serialisieren und schreiben.
+     *
+     * @return Anzahl geschriebener Datensätze
+     *
+     * @throws UncheckedIOException Fehler beim Schreiben
+     */
+    private long blockweiseSchreiben( Stream<KfzKennzeichenEntity> stream, OutputStream ziel ) {
+
+        final List<KfzKennzeichenEntity> block = new ArrayList<>( _blockgroesse );
+        final long[] anzahl = { 0 };
+
+        stream.forEach( kennzeichen -> {
+
+            block.add( kennzeichen );
+            if ( block.size() >= _blockgroesse ) {
+
+                anzahl[ 0 ] += blockSchreiben( block, ziel );
+            }
+        });
+
+        if ( !block.isEmpty() ) {
+
+            anzahl[ 0 ] += blockSchreiben( block, ziel );
+        }
+
+        return anzahl[ 0 ];
+    }
+
+
+    /**
+     * Einen Block parallel serialisieren, in ursprünglicher Reihenfolge schreiben und
+     * danach Block und Persistence Context leeren.
+     *
+     * @return Anzahl geschriebener Datensätze
+     *
+     * @throws UncheckedIOException Fehler beim Schreiben
+     */
+    private int blockSchreiben( List<KfzKennzeichenEntity> block, OutputStream ziel ) {
+
+        final List<byte[]> zeilenListe = block.parallelStream() // toList() behält Reihenfolge bei
+                                              .map( this::serialisieren )
+                                              .toList();
+        try {
+
+            for ( byte[] zeile : zeilenListe ) {
+
+                ziel.write( zeile );
+                ziel.write( ZEILENENDE );
+            }
+        }
+        catch ( IOException ex ) {
+
+            throw new UncheckedIOException( ex );
+        }
+
+        final int anzahl = block.size();
+        block.clear();
+        _entityManager.clear();
+
+        return anzahl;
+    }
+
+
+    /**
+     * Ein KFZ-Kennzeichen als JSON serialisieren; dabei werden die Attribute des Halters
+     * entschlüsselt.
+     */
+    private byte[] serialisieren( KfzKennzeichenEntity kennzeichen ) {
+
+        final ExportZeile exportZeile = new ExportZeile( kennzeichen.getKennzeichen(),
+                                                         kennzeichen.isHistorisch(),
+                                                         kennzeichen.getFahrzeugDaten(),
+                                                         kennzeichen.getFahrzeugHalter() );
+        try {
+
+            return _objectMapper.writeValueAsBytes( exportZeile );
+        }
+        catch ( JsonProcessingException ex ) {
+
+            throw new IllegalStateException( "Serialisierung von KFZ-Kennzeichen fehlgeschlagen: " +
+                                             kennzeichen.getKennzeichen(), ex );
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+package de.eldecker.dhbw.spring.logik;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.db.FahrzeugHalterRepo;
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.BlindIndexHelfer;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+
+/**
+ * Diese Bean trägt unmittelbar nach dem Start der App Werte für Spalten nach, die
+ * erst nachträglich eingeführt wurden. Mit {@code spring.jpa.hibernate.ddl-auto=update}
+ * legt Hibernate neue Spalten zwar an, befüllt sie für vorhandene Datensätze aber nicht.
+ * <br><br>
+ *
+ * Die Datensätze werden in Blöcken gelesen (Keyset-Paging über die {@code id}) und jeder
+ * Block wird in einer eigenen Transaktion geschrieben, damit auch bei großen Tabellen
+ * weder alle Datensätze gleichzeitig im Speicher sind noch das Undo-Log der Datenbank
+ * mit der ganzen Tabelle wächst. Bricht die Migration ab, dann bleiben die schon
+ * committeten Blöcke erhalten; beim nächsten Start wird nur der Rest nachgetragen.
+ * <br><br>
+ *
+ * Außerdem wird sichergestellt, dass es den Unique Constraint für die Spalte
+ * {@code kennzeichen_code} gibt: Hibernate versucht bei {@code ddl-auto=update} zwar, ihn
+ * anzulegen, ignoriert aber Fehler (z.B. wegen schon vorhandener Duplikate).
+ * <br><br>
+ *
+ * Die Bean läuft vor dem {@link DemoDatenImporter}.
+ */
+@Component
+@Order( 1 )
+public class DatenMigration implements ApplicationRunner {
+
+    private final static Logger LOG = LoggerFactory.getLogger( DatenMigration.class );
+
+    /** Repo-Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    /** Repo-Bean für Zugriff auf Datenbanktabelle mit Fahrzeughaltern. */
+    @Autowired
+    private FahrzeugHalterRepo _fahrzeugHalterRepo;
+
+    /** Bean für Berechnung der Blind Indizes. */
+    @Autowired
+    private BlindIndexHelfer _blindIndexHelfer;
+
+    /** Anzahl Datensätze, die jeweils zusammen geladen und geschrieben werden. */
+    @Value( "${de.eldecker.kfz-kennzeichen.migration.blockgroesse:1000}" )
+    private int _blockgroesse;
+
+    /** Für Massen-Updates, bei denen die Entities nicht geladen werden müssen, und für DDL. */
+    @PersistenceContext
+    private EntityManager _entityManager;
+
+    /** Transaktionsmanager, für eine Transaktion pro Block. */
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+
+    @Override
+    public void run( ApplicationArguments args ) throws Exception {
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate( _transactionManager );
+
+        versionenNachtragen( KfzKennzeichenEntity.class, transactionTemplate ); // zuerst, damit die Entities
+        versionenNachtragen( FahrzeugHalterEntity.class, transactionTemplate ); // danach mit Version geladen werden
+        kennzeichenCodesNachtragen( transactionTemplate );
+        transactionTemplate.executeWithoutResult( status -> kennzeichenCodeEindeutig() );
+        blindIndizesNachtragen( transactionTemplate );
+    }
+
+
+    /**
+     * Für alle KFZ-Kennzeichen ohne Wert in Spalte {@code kennzeichen_code} den Wert
+     * berechnen und speichern, eine Transaktion pro Block.
+     *
+     * @param transactionTemplate Template für die Transaktionen
+     */
+    private void kennzeichenCodesNachtragen( TransactionTemplate transactionTemplate ) {
+
+        long letzteId = 0;
+        int  anzahl   = 0;
+        List<KfzKennzeichenEntity> kennzeichenListe;
+        do {
+
+            final long nachId = letzteId;
+            kennzeichenListe = transactionTemplate.execute( status -> {
+
+                final List<KfzKennzeichenEntity> block =
+                        _kfzKennzeichenRepo.findByKennzeichenCodeIsNullAndIdGreaterThanOrderById( nachId,
+                                                                                                 Limit.of( _blockgroesse ) );
+                for ( KfzKennzeichenEntity kennzeichen : block ) {
+
+                    kennzeichen.setKennzeichen( kennzeichen.getKennzeichen() ); // berechnet auch Code
+                }
+                return block; // Commit schreibt die Änderungen
+            });
+            if ( kennzeichenListe.isEmpty() ) {
+
+                break;
+            }
+
+            letzteId = kennzeichenListe.get( kennzeichenListe.size() - 1 ).getId();
+            anzahl  += kennzeichenListe.size();
+        }
+        while ( kennzeichenListe.size() == _blockgroesse );
+
+        if ( anzahl > 0 ) {
+
+            LOG.warn( "Kodiertes KFZ-Kennzeichen für {} Datensätze nachgetragen.", anzahl );
+        }
+    }
+
+
+    /**
+     * Unique Constraint für Spalte {@code kennzeichen_code} anlegen, falls er noch nicht
+     * existiert, und den bisherigen (nicht eindeutigen) Index entfernen, der durch den
+     * Index des Constraints überflüssig wird. Muss nach {@link #kennzeichenCodesNachtragen()}
+     * aufgerufen werden, damit auch nachgetragene Codes geprüft werden.
+     * <br><br>
+     *
+     * Gibt es schon mehrfach vorhandene KFZ-Kennzeichen, dann wird der Constraint nicht
+     * angelegt, sondern die Duplikate werden als Fehler geloggt: Welcher Datensatz gelöscht
+     * werden kann, muss manuell entschieden werden. Bis dahin verhindert nur die Prüfung beim
+     * Anlegen weitere Duplikate.
+     */
+    private void kennzeichenCodeEindeutig() {
+
+        final List<Long> doppeltListe = _kfzKennzeichenRepo.doppelteKennzeichenCodes();
+        if ( !doppeltListe.isEmpty() ) {
+
+            LOG.error( "Unique Constraint {} nicht angelegt, {} KFZ-Kennzeichen mehrfach vorhanden: {}",
+                       KfzKennzeichenEntity.UNIQUE_KENNZEICHEN_CODE, doppeltListe.size(),
+                       doppeltListe.stream().map( KennzeichenKodierer::dekodieren ).toList() );
+            return;
+        }
+
+        _entityManager.createNativeQuery( "ALTER TABLE KFZ_KENNZEICHEN ADD CONSTRAINT IF NOT EXISTS " +
+                                          KfzKennzeichenEntity.UNIQUE_KENNZEICHEN_CODE + " UNIQUE ( kennzeichen_code )" )
+                      .executeUpdate();
+        _entityManager.createNativeQuery( "DROP INDEX IF EXISTS index_kennzeichen_code" )
+                      .executeUpdate();
+    }
+
+
+    /**
+     * Für alle Fahrzeughalter ohne Blind Index für den Nachnamen die Blind Indizes
+     * berechnen; dafür müssen die verschlüsselten Attribute entschlüsselt werden. Eine
+     * Transaktion pro Block.
+     *
+     * @param transactionTemplate Template für die Transaktionen
+     */
+    private void blindIndizesNachtragen( TransactionTemplate transactionTemplate ) {
+
+        long letzteId = 0;
+        int  anzahl   = 0;
+        List<FahrzeugHalterEntity> halterListe;
+        do {
+
+            final long nachId = letzteId;
+            halterListe = transactionTemplate.execute( status -> {
+
+                final List<FahrzeugHalterEntity> block =
+                        _fahrzeugHalterRepo.findByNachnameBlindIndexIsNullAndIdGreaterThanOrderById( nachId,
+                                                                                                    Limit.of( _blockgroesse ) );
+                for ( FahrzeugHalterEntity halter : block ) {
+
+                    halter.blindIndizesBerechnen( _blindIndexHelfer );
+                }
+                return block; // Commit schreibt die Änderungen
+            });
+            if ( halterListe.isEmpty() ) {
+
+                break;
+            }
+
+            letzteId = halterListe.get( halterListe.size() - 1 ).getId();
+            anzahl  += halterListe.size();
+        }
+        while ( halterListe.size() == _blockgroesse );
+
+        if ( anzahl > 0 ) {
+
+            LOG.warn( "Blind Indizes für {} Fahrzeughalter nachgetragen.", anzahl );
+        }
+    }
+
+
+    /**
+     * Für alle Datensätze ohne Wert in Spalte {@code version} die Version 0 setzen;
+     * Hibernate würde solche Datensätze sonst als "noch nicht gespeichert" ansehen.
+     * Es werden Massen-Updates verwendet, damit die Entities nicht geladen werden und
+     * keine Events für die Invalidierung des Caches ausgelöst werden; jedes Update
+     * betrifft einen Bereich von {@link #_blockgroesse} Primärschlüsseln und läuft in
+     * einer eigenen Transaktion.
+     *
+     * @param entityKlasse Klasse der Entity mit Attribut {@code version}
+     *
+     * @param transactionTemplate Template für die Transaktionen
+     */
+    private void versionenNachtragen( Class<?> entityKlasse, TransactionTemplate transactionTemplate ) {
+
+        final String entityName = entityKlasse.getSimpleName();
+
+        final Object[] bereich = transactionTemplate.execute( status ->
+                (Object[]) _entityManager.createQuery( "SELECT MIN(e.id), MAX(e.id) FROM " + entityName +
+                                                       " e WHERE e.version IS NULL" )
+                                         .getSingleResult() );
+        if ( bereich[ 0 ] == null ) {
+
+            return; // keine Datensätze ohne Version
+        }
+        final long minId = (Long) bereich[ 0 ];
+        final long maxId = (Long) bereich[ 1 ];
+
+        final String jpql = "UPDATE " + entityName + " e SET e.version = 0 " +
+                            "WHERE e.version IS NULL AND e.id >= :von AND e.id < :bis";
+        int anzahl = 0;
+        for ( long von = minId; von <= maxId; von += _blockgroesse ) {
+
+            final long vonId = von;
+            final long bisId = von + _blockgroesse;
+            anzahl += transactionTemplate.execute( status -> _entityManager.createQuery( jpql )
+                                                                           .setParameter( "von", vonId )
+                                                                           .setParameter( "bis", bisId )
+                                                                           .executeUpdate() );
+        }
+        if ( anzahl > 0 ) {
+
+            LOG.warn( "Version für {} Datensätze von {} nachgetragen.", anzahl, entityKlasse.getSimpleName() );
+        }
+    }
+
+}
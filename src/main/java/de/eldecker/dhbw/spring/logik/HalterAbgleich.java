@@ -0,0 +1,122 @@
+package de.eldecker.dhbw.spring.logik;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.db.FahrzeugHalterRepo;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity.Identitaet;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.BlindIndexHelfer;
+
+
+/**
+ * Sucht zu neuen Fahrzeughaltern die schon in der Datenbank vorhandenen Halter mit
+ * denselben Halterdaten, damit für eine Person nicht bei jeder neuen Zulassung ein
+ * weiterer Halter angelegt wird (sonst würden z.B. die KFZ-Kennzeichen eines Halters
+ * nicht mehr vollständig gefunden).
+ * <br><br>
+ *
+ * Weil die Halterdaten verschlüsselt gespeichert werden, werden zuerst über den Blind
+ * Index des Nachnamens und die PLZ Kandidaten gesucht (eine Abfrage für alle Halter);
+ * nur diese werden entschlüsselt und mit {@link FahrzeugHalterEntity#identitaet()}
+ * verglichen.
+ * <br><br>
+ *
+ * Die Methoden müssen innerhalb der Transaktion aufgerufen werden, in der gespeichert
+ * wird, damit die gefundenen Halter dort verwaltet ("managed") sind.
+ */
+@Component
+public class HalterAbgleich {
+
+    /** Repo-Bean für Zugriff auf Datenbanktabelle mit Fahrzeughaltern. */
+    @Autowired
+    private FahrzeugHalterRepo _fahrzeugHalterRepo;
+
+    /** Bean für Berechnung der Blind Indizes. */
+    @Autowired
+    private BlindIndexHelfer _blindIndexHelfer;
+
+
+    /**
+     * Vorhandene Halter zu neuen Haltern suchen.
+     *
+     * @param halterListe Neue (noch nicht gespeicherte) Halter
+     *
+     * @return Map von Halterdaten auf vorhandenen Halter; enthält nur Halterdaten, zu
+     *         denen es schon einen Halter gibt (bei mehreren der mit der kleinsten
+     *         {@code id})
+     */
+    public Map<Identitaet, FahrzeugHalterEntity> vorhandeneHalter( Collection<FahrzeugHalterEntity> halterListe ) {
+
+        final Map<Identitaet, FahrzeugHalterEntity> vorhandenMap = new HashMap<>();
+        if ( halterListe.isEmpty() ) {
+
+            return vorhandenMap;
+        }
+
+        final Set<Identitaet> gesuchtSet  = new HashSet<>( halterListe.size() * 2 );
+        final Set<String>     nachnameSet = new HashSet<>( halterListe.size() * 2 );
+        final Set<Integer>    plzSet      = new HashSet<>( halterListe.size() * 2 );
+        for ( FahrzeugHalterEntity halter : halterListe ) {
+
+            gesuchtSet.add( halter.identitaet() );
+            nachnameSet.add( _blindIndexHelfer.berechnen( halter.getNachname() ) );
+            plzSet.add( halter.getPlz() );
+        }
+
+        for ( FahrzeugHalterEntity kandidat :
+                _fahrzeugHalterRepo.findByNachnameBlindIndexInAndPlzInOrderById( nachnameSet, plzSet ) ) {
+
+            final Identitaet identitaet = kandidat.identitaet();
+            if ( gesuchtSet.contains( identitaet ) ) {
+
+                vorhandenMap.putIfAbsent( identitaet, kandidat );
+            }
+        }
+
+        return vorhandenMap;
+    }
+
+
+    /**
+     * Neuen KFZ-Kennzeichen statt ihres neuen Halters den vorhandenen Halter mit denselben
+     * Halterdaten zuordnen, falls es einen gibt.
+     *
+     * @param kennzeichenListe Neue KFZ-Kennzeichen mit neuen Haltern
+     *
+     * @return Anzahl der vorhandenen Halter, die zugeordnet wurden
+     */
+    public int vorhandeneHalterZuordnen( Collection<KfzKennzeichenEntity> kennzeichenListe ) {
+
+        final Set<FahrzeugHalterEntity> neuSet = new HashSet<>( kennzeichenListe.size() * 2 );
+        for ( KfzKennzeichenEntity kennzeichen : kennzeichenListe ) {
+
+            neuSet.add( kennzeichen.getFahrzeugHalter() );
+        }
+
+        final Map<Identitaet, FahrzeugHalterEntity> vorhandenMap = vorhandeneHalter( neuSet );
+        if ( vorhandenMap.isEmpty() ) {
+
+            return 0;
+        }
+
+        for ( KfzKennzeichenEntity kennzeichen : kennzeichenListe ) {
+
+            final FahrzeugHalterEntity vorhanden = vorhandenMap.get( kennzeichen.getFahrzeugHalter().identitaet() );
+            if ( vorhanden != null ) {
+
+                kennzeichen.setFahrzeugHalter( vorhanden );
+            }
+        }
+
+        return vorhandenMap.size();
+    }
+
+}
@@ -0,0 +1,415 @@
+package de.eldecker.dhbw.spring.logik;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity.Identitaet;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.model.KfzFarbeEnum;
+import de.eldecker.dhbw.spring.model.KfzMarkeEnum;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+
+/**
+ * Import von großen Datenmengen (z.B. kompletter Abzug aller Zulassungen) aus einer
+ * CSV-Datei. Der Import wird beim Start der App ausgeführt, wenn das Programmargument
+ * {@code --import-datei=<Pfad>} angegeben ist, z.B.:
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.arguments="--import-datei=zulassungen.csv"
+ * </pre>
+ *
+ * Damit der Speicherbedarf unabhängig von der Dateigröße konstant bleibt, wird die
+ * Datei zeilenweise gelesen und in Blöcken verarbeitet:
+ * <ol>
+ * <li>Zeilen parsen und mit Bean Validation prüfen (gleiche Constraints wie beim
+ *     Speichern über die Repositories); ungültige Zeilen werden abgelehnt.</li>
+ * <li>Verschlüsselte Attribute der Fahrzeughalter parallel auf allen CPU-Kernen
+ *     verschlüsseln.</li>
+ * <li>Block in einer Transaktion speichern; Halter, die es schon in der Datenbank gibt
+ *     (auch aus einem vorherigen Block oder Import), werden dabei wiederverwendet (siehe
+ *     {@link HalterAbgleich}). Wegen {@code hibernate.jdbc.batch_size}
+ *     werden die {@code INSERT}-Statements in JDBC-Batches zusammengefasst. Danach wird
+ *     der Persistence Context geleert ({@code flush()} + {@code clear()}).</li>
+ * </ol>
+ *
+ * Format der CSV-Datei (Trennzeichen Semikolon, Kodierung UTF-8, optionale Kopfzeile):
+ * <pre>
+ * kennzeichen;historisch;marke;farbe;fin;baujahr;anrede;vorname;nachname;strasse_hausnummer;plz;wohnort
+ * KA XX 123;false;VW;ROT;WVWHG83A8VNUBRGCG;2007;Herr;Max;Mustermann;Kronenplatz 1;76676;Karlsruhe
+ * </pre>
+ * Zeilen mit identischen Halterdaten werden auf einen Fahrzeughalter abgebildet, egal
+ * in welchem Block sie stehen.
+ */
+@Component
+@Order( 3 )
+public class MassenImporter implements ApplicationRunner {
+
+    private final static Logger LOG = LoggerFactory.getLogger( MassenImporter.class );
+
+    /** Name von Programmargument mit Pfad von zu importierender Datei. */
+    public static final String ARGUMENT_IMPORT_DATEI = "import-datei";
+
+    /** Trennzeichen zwischen den Spalten in der CSV-Datei. */
+    public static final String TRENNZEICHEN = ";";
+
+    /** Kopfzeile der CSV-Datei. */
+    public static final String KOPFZEILE = "kennzeichen;historisch;marke;farbe;fin;baujahr;anrede;vorname;nachname;strasse_hausnummer;plz;wohnort";
+
+    /** Anzahl der Spalten in der CSV-Datei. */
+    private static final int ANZAHL_SPALTEN = 12;
+
+    /** Maximale Anzahl abgelehnter Zeilen, die einzeln auf den Logger geschrieben werden. */
+    private static final int MAX_ANZAHL_FEHLER_LOG = 100;
+
+    /** Mindestabstand zwischen zwei Fortschrittsmeldungen in Millisekunden. */
+    private static final long FORTSCHRITT_INTERVALL_MS = 5_000;
+
+    /** Repo-Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    /** Bean, um vorhandene Halter mit denselben Halterdaten zu finden. */
+    @Autowired
+    private HalterAbgleich _halterAbgleich;
+
+    /** Bean für Verschlüsselung der Halterdaten. */
+    @Autowired
+    private AesHelfer _aesHelfer;
+
+    /** Bean für Bean Validation. */
+    @Autowired
+    private Validator _validator;
+
+    /** Entity Manager, um Persistence Context nach jedem Block zu leeren. */
+    @PersistenceContext
+    private EntityManager _entityManager;
+
+    /** Transaktionsmanager, für eine Transaktion pro Block. */
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    /** Anzahl Zeilen, die in einer Transaktion gespeichert werden. */
+    @Value( "${de.eldecker.kfz-kennzeichen.import.blockgroesse:1000}" )
+    private int _blockgroesse;
+
+
+    /**
+     * Ergebnis eines Imports.
+     *
+     * @param anzahlZeilen Anzahl gelesener Datenzeilen (ohne Kopfzeile)
+     *
+     * @param anzahlImportiert Anzahl gespeicherter KFZ-Kennzeichen
+     *
+     * @param anzahlAbgelehnt Anzahl abgelehnter Zeilen
+     *
+     * @param dauerSekunden Dauer des Imports in Sekunden
+     */
+    public record ImportErgebnis( long   anzahlZeilen,
+                                  long   anzahlImportiert,
+                                  long   anzahlAbgelehnt,
+                                  double dauerSekunden ) {
+
+        /**
+         * Durchsatz des Imports.
+         *
+         * @return Anzahl gespeicherter Zeilen pro Sekunde
+         */
+        public double zeilenProSekunde() {
+
+            return dauerSekunden > 0 ? anzahlImportiert / dauerSekunden : 0;
+        }
+    }
+
+
+    /**
+     * Eine geparste Zeile der CSV-Datei.
+     *
+     * @param zeilenNr Zeilennummer in der Datei (1-basiert), für Fehlermeldungen
+     *
+     * @param kennzeichen Entity mit referenzierten Fahrzeugdaten und Fahrzeughalter
+     */
+    private record ImportZeile( long zeilenNr, KfzKennzeichenEntity kennzeichen ) {}
+
+
+    /**
+     * Import ausführen, wenn Programmargument {@code --import-datei} angegeben ist.
+     */
+    @Override
+    public void run( ApplicationArguments args ) throws Exception {
+
+        final List<String> dateiListe = args.getOptionValues( ARGUMENT_IMPORT_DATEI );
+        if ( dateiListe == null || dateiListe.isEmpty() ) {
+
+            return;
+        }
+
+        for ( String datei : dateiListe ) {
+
+            importieren( Path.of( datei ) );
+        }
+    }
+
+
+    /**
+     * CSV-Datei importieren.
+     *
+     * @param datei Pfad der CSV-Datei
+     *
+     * @return Ergebnis des Imports (wird auch auf den Logger geschrieben)
+     *
+     * @throws IOException Fehler beim Lesen der Datei
+     */
+    public ImportErgebnis importieren( Path datei ) throws IOException {
+
+        LOG.info( "Import von Datei \"{}\" gestartet, Blockgröße {}.", datei, _blockgroesse );
+
+        final long       startZeit        = System.nanoTime();
+        final AtomicLong anzahlAbgelehnt  = new AtomicLong();
+        long             letzteMeldung    = System.currentTimeMillis();
+        long             zeilenNr         = 0;
+        long             anzahlZeilen     = 0;
+        long             anzahlImportiert = 0;
+
+        final List<ImportZeile> block = new ArrayList<>( _blockgroesse );
+
+        try ( BufferedReader reader = Files.newBufferedReader( datei, UTF_8 ) ) {
+
+            String zeile;
+            while ( ( zeile = reader.readLine() ) != null ) {
+
+                zeilenNr++;
+                if ( zeile.isBlank() || ( zeilenNr == 1 && zeile.startsWith( "kennzeichen" ) ) ) {
+
+                    continue;
+                }
+                anzahlZeilen++;
+
+                try {
+
+                    block.add( new ImportZeile( zeilenNr, parsen( zeile ) ) );
+                }
+                catch ( IllegalArgumentException ex ) {
+
+                    ablehnen( zeilenNr, ex.getMessage(), anzahlAbgelehnt );
+                }
+
+                if ( block.size() >= _blockgroesse ) {
+
+                    anzahlImportiert += blockSpeichern( block, anzahlAbgelehnt );
+                    block.clear();
+
+                    if ( System.currentTimeMillis() - letzteMeldung >= FORTSCHRITT_INTERVALL_MS ) {
+
+                        letzteMeldung = System.currentTimeMillis();
+                        final double sekunden = ( System.nanoTime() - startZeit ) / 1e9;
+                        LOG.info( "Import: {} Zeilen gelesen, {} importiert, {} abgelehnt, {} Zeilen/s",
+                                  anzahlZeilen, anzahlImportiert, anzahlAbgelehnt.get(),
+                                  Math.round( anzahlImportiert / sekunden ) );
+                    }
+                }
+            }
+
+            if ( !block.isEmpty() ) {
+
+                anzahlImportiert += blockSpeichern( block, anzahlAbgelehnt );
+            }
+        }
+
+        final double dauerSekunden = ( System.nanoTime() - startZeit ) / 1e9;
+
+        final ImportErgebnis ergebnis =
+                new ImportErgebnis( anzahlZeilen, anzahlImportiert, anzahlAbgelehnt.get(), dauerSekunden );
+
+        LOG.info( "Import von Datei \"{}\" beendet: {} Zeilen gelesen, {} importiert, {} abgelehnt, " +
+                  "Dauer {} s, {} Zeilen/s",
+                  datei, ergebnis.anzahlZeilen(), ergebnis.anzahlImportiert(), ergebnis.anzahlAbgelehnt(),
+                  String.format( "%.1f", dauerSekunden ), Math.round( ergebnis.zeilenProSekunde() ) );
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Eine Zeile der CSV-Datei in Entity-Objekte umwandeln (noch ohne Validierung).
+     *
+     * @param zeile Zeile aus CSV-Datei
+     *
+     * @return KFZ-Kennzeichen mit Fahrzeugdaten und Fahrzeughalter
+     *
+     * @throws IllegalArgumentException Zeile hat falsche Anzahl von Spalten oder eine
+     *                                  Spalte hat ein ungültiges Format
+     */
+    private static KfzKennzeichenEntity parsen( String zeile ) {
+
+        final String[] spalten = zeile.split( TRENNZEICHEN, -1 );
+        if ( spalten.length != ANZAHL_SPALTEN ) {
+
+            throw new IllegalArgumentException( "Falsche Anzahl Spalten: " + spalten.length );
+        }
+
+        final FahrzeugDatenEntity fahrzeugDaten =
+                new FahrzeugDatenEntity( KfzMarkeEnum.valueOf( spalten[ 2 ].trim() ),
+                                         KfzFarbeEnum.valueOf( spalten[ 3 ].trim() ),
+                                         spalten[ 4 ].trim(),
+                                         Integer.parseInt( spalten[ 5 ].trim() ) );
+
+        final FahrzeugHalterEntity fahrzeugHalter =
+                new FahrzeugHalterEntity( spalten[  6 ].trim(),
+                                          spalten[  7 ].trim(),
+                                          spalten[  8 ].trim(),
+                                          spalten[  9 ].trim(),
+                                          Integer.parseInt( spalten[ 10 ].trim() ),
+                                          spalten[ 11 ].trim() );
+
+        return new KfzKennzeichenEntity( spalten[ 0 ].trim(),
+                                         fahrzeugDaten,
+                                         fahrzeugHalter,
+                                         Boolean.parseBoolean( spalten[ 1 ].trim() ) );
+    }
+
+
+    /**
+     * Einen Block von Zeilen validieren, verschlüsseln und speichern.
+     *
+     * @param block Geparste Zeilen
+     *
+     * @param anzahlAbgelehnt Zähler für abgelehnte Zeilen, wird erhöht
+     *
+     * @return Anzahl gespeicherter KFZ-Kennzeichen
+     */
+    private int blockSpeichern( List<ImportZeile> block, AtomicLong anzahlAbgelehnt ) {
+
+        // Schritt 1: Validieren und Duplikate aussortieren
+        final Map<Long, ImportZeile> gueltigMap = new HashMap<>( block.size() * 2 );
+        for ( ImportZeile zeile : block ) {
+
+            final String fehler = validieren( zeile.kennzeichen() );
+            if ( fehler != null ) {
+
+                ablehnen( zeile.zeilenNr(), fehler, anzahlAbgelehnt );
+
+            } else if ( gueltigMap.putIfAbsent( zeile.kennzeichen().getKennzeichenCode(), zeile ) != null ) {
+
+                ablehnen( zeile.zeilenNr(), "KFZ-Kennzeichen mehrfach in Datei", anzahlAbgelehnt );
+            }
+        }
+
+        final Set<Long> vorhandenSet = new HashSet<>( _kfzKennzeichenRepo.vorhandeneKennzeichenCodes( gueltigMap.keySet() ) );
+
+        final List<KfzKennzeichenEntity> speichernListe = new ArrayList<>( gueltigMap.size() );
+        final Map<Identitaet, FahrzeugHalterEntity> halterMap = new HashMap<>( gueltigMap.size() * 2 );
+        for ( ImportZeile zeile : block ) {
+
+            final KfzKennzeichenEntity kennzeichen = zeile.kennzeichen();
+            if ( gueltigMap.get( kennzeichen.getKennzeichenCode() ) != zeile ) {
+
+                continue; // ungültig oder Duplikat, wurde schon abgelehnt
+            }
+            if ( vorhandenSet.contains( kennzeichen.getKennzeichenCode() ) ) {
+
+                ablehnen( zeile.zeilenNr(), "KFZ-Kennzeichen existiert bereits", anzahlAbgelehnt );
+                continue;
+            }
+
+            // gleiche Halterdaten im selben Block -> ein Halter
+            final FahrzeugHalterEntity halter = kennzeichen.getFahrzeugHalter();
+            kennzeichen.setFahrzeugHalter( halterMap.computeIfAbsent( halter.identitaet(), schluessel -> halter ) );
+
+            speichernListe.add( kennzeichen );
+        }
+
+        // Schritt 2: Parallel verschlüsseln
+        halterMap.values()
+                 .parallelStream()
+                 .forEach( halter -> halter.vorabVerschluesseln( _aesHelfer ) );
+
+        // Schritt 3: In einer Transaktion vorhandene Halter zuordnen und speichern (JDBC-Batches),
+        // dann Persistence Context leeren
+        final TransactionTemplate transactionTemplate = new TransactionTemplate( _transactionManager );
+        transactionTemplate.executeWithoutResult( status -> {
+
+            _halterAbgleich.vorhandeneHalterZuordnen( speichernListe );
+            for ( KfzKennzeichenEntity kennzeichen : speichernListe ) {
+
+                _entityManager.persist( kennzeichen );
+            }
+            _entityManager.flush();
+            _entityManager.clear();
+        });
+
+        return speichernListe.size();
+    }
+
+
+    /**
+     * KFZ-Kennzeichen mit Fahrzeugdaten und Fahrzeughalter mit Bean Validation prüfen.
+     *
+     * @param kennzeichen Zu prüfende Entity
+     *
+     * @return Fehlermeldung(en), oder {@code null} wenn gültig
+     */
+    private String validieren( KfzKennzeichenEntity kennzeichen ) {
+
+        final List<String> fehlerListe = new ArrayList<>( 2 );
+        for ( Object entity : List.of( kennzeichen,
+                                       kennzeichen.getFahrzeugDaten(),
+                                       kennzeichen.getFahrzeugHalter() ) ) {
+
+            for ( ConstraintViolation<Object> verletzung : _validator.validate( entity ) ) {
+
+                fehlerListe.add( verletzung.getMessage() );
+            }
+        }
+
+        return fehlerListe.isEmpty() ? null : String.join( "; ", fehlerListe );
+    }
+
+
+    /**
+     * Zeile ablehnen: Zähler erhöhen und für die ersten Zeilen Grund auf Logger schreiben.
+     */
+    private static void ablehnen( long zeilenNr, String grund, AtomicLong anzahlAbgelehnt ) {
+
+        final long anzahl = anzahlAbgelehnt.incrementAndGet();
+        if ( anzahl <= MAX_ANZAHL_FEHLER_LOG ) {
+
+            LOG.warn( "Import: Zeile {} abgelehnt: {}", zeilenNr, grund );
+
+        } else if ( anzahl == MAX_ANZAHL_FEHLER_LOG + 1 ) {
+
+            LOG.warn( "Import: Weitere abgelehnte Zeilen werden nur noch gezählt." );
+        }
+    }
+
+}
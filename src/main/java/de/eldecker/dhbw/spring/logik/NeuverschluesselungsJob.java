@@ -0,0 +1,391 @@
+package de.eldecker.dhbw.spring.logik;
+
+import java.security.GeneralSecurityException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.db.FahrzeugHalterRepo;
+import de.eldecker.dhbw.spring.db.NeuverschluesselungRepo;
+import de.eldecker.dhbw.spring.db.entities.NeuverschluesselungEntity;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.db.krypto.KryptoRuntimeException;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+
+/**
+ * Hintergrund-Job, der nach einem Wechsel des Schlüssels (Konfiguration
+ * {@code krypto.schluessel-version}, siehe {@link AesHelfer}) oder des Formats der Chiffren
+ * (altes Text-Format nach binärem Format mit AES-GCM) alle Fahrzeughalter mit dem
+ * aktuellen Schlüssel im aktuellen Format verschlüsselt, während die Anwendung weiter
+ * Anfragen beantwortet; die alten Schlüssel müssen bis zum Abschluss konfiguriert bleiben.
+ * <br><br>
+ *
+ * Ablauf:
+ * <ul>
+ * <li>Der Job startet, wenn die Anwendung hochgefahren ist, auf einem eigenen Thread.</li>
+ * <li>Die Fahrzeughalter werden in Blöcken nach Primärschlüssel gelesen; Chiffren, die
+ *     nicht mit dem aktuellen Schlüssel im binären Format verschlüsselt sind, werden neu
+ *     verschlüsselt.</li>
+ * <li>Es wird direkt mit SQL gelesen und geschrieben, ohne die Entities zu laden: So wird
+ *     die Versionsnummer nicht erhöht (die ETags der REST-Antworten bleiben gültig, der
+ *     Klartext ändert sich ja nicht) und es werden keine Events für die Invalidierung
+ *     des Caches ausgelöst. Geschrieben wird nur, wenn sich die Versionsnummer seit dem
+ *     Lesen nicht geändert hat; wurde der Datensatz zwischendurch geändert, dann wurde er
+ *     dabei schon mit dem aktuellen Schlüssel verschlüsselt.</li>
+ * <li>Der Fortschritt wird mit jedem Block in derselben Transaktion in der Tabelle
+ *     {@code NEUVERSCHLUESSELUNG} gespeichert; nach einem Neustart wird dort fortgesetzt.</li>
+ * <li>Damit der normale Betrieb nicht beeinträchtigt wird, wird die Anzahl der Datensätze
+ *     pro Sekunde begrenzt.</li>
+ * </ul>
+ * Der Fortschritt kann über den REST-Endpunkt {@code /api/v1/admin/neuverschluesselung}
+ * abgefragt werden.
+ */
+@Component
+public class NeuverschluesselungsJob {
+
+    private final static Logger LOG = LoggerFactory.getLogger( NeuverschluesselungsJob.class );
+
+    /** Mindestabstand zwischen zwei Fortschrittsmeldungen in Millisekunden. */
+    private static final long FORTSCHRITT_INTERVALL_MS = 5_000;
+
+    /** SQL zum Lesen eines Blocks von Fahrzeughaltern mit den Chiffren. */
+    private static final String SQL_LESEN =
+            "SELECT id, version, anrede, vorname, nachname, strasse_hausnummer " +
+            "FROM FAHRZEUG_HALTER WHERE id > ?1 ORDER BY id";
+
+    /** SQL zum Schreiben der neuen Chiffren, nur wenn Datensatz nicht geändert wurde. */
+    private static final String SQL_SCHREIBEN =
+            "UPDATE FAHRZEUG_HALTER SET anrede = ?1, vorname = ?2, nachname = ?3, strasse_hausnummer = ?4 " +
+            "WHERE id = ?5 AND version = ?6";
+
+    /** Bean für Ver- und Entschlüsselung. */
+    @Autowired
+    private AesHelfer _aesHelfer;
+
+    /** Repo-Bean für Fortschritt. */
+    @Autowired
+    private NeuverschluesselungRepo _neuverschluesselungRepo;
+
+    /** Repo-Bean für Anzahl Fahrzeughalter. */
+    @Autowired
+    private FahrzeugHalterRepo _fahrzeugHalterRepo;
+
+    /** Entity Manager für SQL-Statements. */
+    @PersistenceContext
+    private EntityManager _entityManager;
+
+    /** Transaktionsmanager, für eine Transaktion pro Block. */
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    /** Soll der Job beim Hochfahren gestartet werden? */
+    @Value( "${de.eldecker.kfz-kennzeichen.krypto.neuverschluesselung.aktiv:true}" )
+    private boolean _aktiv;
+
+    /** Anzahl Fahrzeughalter pro Block (und Transaktion). */
+    @Value( "${de.eldecker.kfz-kennzeichen.krypto.neuverschluesselung.blockgroesse:200}" )
+    private int _blockgroesse;
+
+    /** Maximale Anzahl geprüfter Fahrzeughalter pro Sekunde; 0 für unbegrenzt. */
+    @Value( "${de.eldecker.kfz-kennzeichen.krypto.neuverschluesselung.max-zeilen-pro-sekunde:2000}" )
+    private int _maxZeilenProSekunde;
+
+    /** Thread, auf dem der Job läuft; {@code null} wenn nicht gestartet. */
+    private Thread _thread = null;
+
+    /** Wird beim Herunterfahren gesetzt, damit der Job nach dem aktuellen Block endet. */
+    private volatile boolean _beenden = false;
+
+    /** Aktueller Stand für {@link #getStatus()}. */
+    private volatile Status _status = null;
+
+
+    /**
+     * Momentaufnahme des Fortschritts, wird über den REST-Endpunkt
+     * {@code /api/v1/admin/neuverschluesselung} als JSON ausgeliefert.
+     *
+     * @param ziel Ziel-Format, z.B. "g2" für Schlüssel-Version 2
+     *
+     * @param laeuft {@code true}, solange der Job läuft
+     *
+     * @param fertig {@code true}, wenn alle Fahrzeughalter bearbeitet sind
+     *
+     * @param letzteHalterId Primärschlüssel des zuletzt bearbeiteten Fahrzeughalters
+     *
+     * @param geprueft Anzahl geprüfter Fahrzeughalter (seit erstem Start für {@code ziel})
+     *
+     * @param neuVerschluesselt Anzahl neu verschlüsselter Fahrzeughalter
+     *
+     * @param anzahlHalter Anzahl Fahrzeughalter beim Start des Jobs
+     *
+     * @param zeilenProSekunde Geprüfte Fahrzeughalter pro Sekunde seit Start des Jobs
+     */
+    public record Status( String  ziel,
+                          boolean laeuft,
+                          boolean fertig,
+                          long    letzteHalterId,
+                          long    geprueft,
+                          long    neuVerschluesselt,
+                          long    anzahlHalter,
+                          double  zeilenProSekunde ) {}
+
+
+    /**
+     * Job auf eigenem Thread starten, wenn die Anwendung hochgefahren ist (also nach
+     * {@link DatenMigration} und ggf. dem Massenimport).
+     */
+    @EventListener( ApplicationReadyEvent.class )
+    public void starten() {
+
+        if ( !_aktiv ) {
+
+            LOG.info( "Neuverschlüsselung ist ausgeschaltet." );
+            return;
+        }
+
+        _thread = Thread.ofPlatform()
+                        .name( "neuverschluesselung" )
+                        .daemon( true )
+                        .start( this::ausfuehren );
+    }
+
+
+    /**
+     * Job beim Herunterfahren der Anwendung nach dem aktuellen Block beenden; der
+     * Fortschritt ist dann schon gespeichert.
+     */
+    @PreDestroy
+    public void stoppen() throws InterruptedException {
+
+        _beenden = true;
+        if ( _thread != null ) {
+
+            _thread.interrupt();
+            _thread.join( 10_000 );
+        }
+    }
+
+
+    /**
+     * Aktuellen Fortschritt abfragen.
+     *
+     * @return Fortschritt, oder {@code null} wenn der Job nicht gestartet wurde
+     */
+    public Status getStatus() {
+
+        return _status;
+    }
+
+
+    /**
+     * Alle Fahrzeughalter ab dem gespeicherten Fortschritt blockweise bearbeiten.
+     */
+    private void ausfuehren() {
+
+        final String ziel = _aesHelfer.getChiffreFormat();
+
+        NeuverschluesselungEntity fortschritt = _neuverschluesselungRepo.findById( ziel )
+                                                                        .orElseGet( () -> new NeuverschluesselungEntity( ziel ) );
+        final long anzahlHalter = _fahrzeugHalterRepo.count();
+
+        if ( fortschritt.isFertig() ) {
+
+            _status = status( fortschritt, false, anzahlHalter, 0 );
+            LOG.info( "Neuverschlüsselung für Format \"{}\" ist bereits abgeschlossen.", ziel );
+            return;
+        }
+
+        LOG.info( "Neuverschlüsselung für Format \"{}\" gestartet bei Halter-ID {} ({} Halter insgesamt).",
+                  ziel, fortschritt.getLetzteHalterId(), anzahlHalter );
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate( _transactionManager );
+
+        final long startZeit     = System.nanoTime();
+        final long geprueftStart = fortschritt.getGeprueft();
+        long letzteMeldung       = System.currentTimeMillis();
+        double zeilenProSekunde  = 0;
+
+        _status = status( fortschritt, true, anzahlHalter, 0 );
+        try {
+
+            while ( !_beenden && !fortschritt.isFertig() ) {
+
+                final NeuverschluesselungEntity stand = fortschritt;
+                fortschritt = transactionTemplate.execute( status -> blockBearbeiten( stand ) );
+
+                final long   geprueftSeitStart = fortschritt.getGeprueft() - geprueftStart;
+                final double sekunden          = ( System.nanoTime() - startZeit ) / 1e9;
+                zeilenProSekunde = sekunden > 0 ? geprueftSeitStart / sekunden : 0;
+
+                _status = status( fortschritt, true, anzahlHalter, zeilenProSekunde );
+
+                if ( System.currentTimeMillis() - letzteMeldung >= FORTSCHRITT_INTERVALL_MS ) {
+
+                    letzteMeldung = System.currentTimeMillis();
+                    LOG.info( "Neuverschlüsselung: {} von {} Haltern geprüft, {} neu verschlüsselt, {} Zeilen/s",
+                              fortschritt.getGeprueft(), anzahlHalter, fortschritt.getNeuVerschluesselt(),
+                              Math.round( zeilenProSekunde ) );
+                }
+
+                drosseln( geprueftSeitStart, startZeit );
+            }
+        }
+        catch ( InterruptedException ex ) {
+
+            LOG.info( "Neuverschlüsselung unterbrochen bei Halter-ID {}.", fortschritt.getLetzteHalterId() );
+        }
+        catch ( RuntimeException ex ) {
+
+            LOG.error( "Neuverschlüsselung abgebrochen bei Halter-ID " + fortschritt.getLetzteHalterId(), ex );
+        }
+        finally {
+
+            _status = status( fortschritt, false, anzahlHalter, zeilenProSekunde );
+        }
+
+        if ( fortschritt.isFertig() ) {
+
+            LOG.info( "Neuverschlüsselung für Format \"{}\" abgeschlossen: {} Halter geprüft, {} neu verschlüsselt.",
+                      ziel, fortschritt.getGeprueft(), fortschritt.getNeuVerschluesselt() );
+        }
+    }
+
+
+    /**
+     * Einen Block von Fahrzeughaltern lesen, bei Bedarf neu verschlüsseln und Fortschritt
+     * speichern; muss innerhalb einer Transaktion aufgerufen werden.
+     *
+     * @param fortschritt Bisheriger Fortschritt
+     *
+     * @return Gespeicherter neuer Fortschritt
+     */
+    private NeuverschluesselungEntity blockBearbeiten( NeuverschluesselungEntity fortschritt ) {
+
+        @SuppressWarnings( "unchecked" )
+        final List<Object[]> zeilenListe = _entityManager.createNativeQuery( SQL_LESEN )
+                                                         .setParameter( 1, fortschritt.getLetzteHalterId() )
+                                                         .setMaxResults( _blockgroesse )
+                                                         .getResultList();
+        if ( zeilenListe.isEmpty() ) {
+
+            fortschritt.abschliessen();
+            return _neuverschluesselungRepo.save( fortschritt );
+        }
+
+        int neuVerschluesselt = 0;
+        for ( Object[] zeile : zeilenListe ) {
+
+            final byte[][] chiffren = new byte[ 4 ][];
+            boolean geaendert = false;
+            for ( int i = 0; i < chiffren.length; i++ ) {
+
+                final byte[] alt = (byte[]) zeile[ i + 2 ];
+                chiffren[ i ] = neuVerschluesseln( alt );
+                geaendert |= chiffren[ i ] != alt;
+            }
+            if ( !geaendert ) {
+
+                continue;
+            }
+
+            neuVerschluesselt += _entityManager.createNativeQuery( SQL_SCHREIBEN )
+                                               .setParameter( 1, chiffren[ 0 ] )
+                                               .setParameter( 2, chiffren[ 1 ] )
+                                               .setParameter( 3, chiffren[ 2 ] )
+                                               .setParameter( 4, chiffren[ 3 ] )
+                                               .setParameter( 5, zeile[ 0 ] )
+                                               .setParameter( 6, zeile[ 1 ] )
+                                               .executeUpdate(); // 0 wenn zwischendurch geändert
+        }
+
+        final long letzteHalterId = ( (Number) zeilenListe.get( zeilenListe.size() - 1 )[ 0 ] ).longValue();
+        fortschritt.blockBearbeitet( letzteHalterId, zeilenListe.size(), neuVerschluesselt );
+
+        return _neuverschluesselungRepo.save( fortschritt );
+    }
+
+
+    /**
+     * Eine Chiffre bei Bedarf mit dem aktuellen Schlüssel neu verschlüsseln.
+     *
+     * @param chiffre Chiffre aus Datenbank, kann {@code null} sein
+     *
+     * @return Dasselbe Objekt wie {@code chiffre}, wenn keine Neuverschlüsselung nötig ist
+     *
+     * @throws KryptoRuntimeException Fehler bei Ent- oder Verschlüsselung, z.B. weil der
+     *                                alte Schlüssel nicht mehr konfiguriert ist
+     */
+    private byte[] neuVerschluesseln( byte[] chiffre ) {
+
+        if ( chiffre == null ) {
+
+            return null;
+        }
+
+        try {
+
+            return _aesHelfer.neuVerschluesseln( chiffre );
+        }
+        catch ( GeneralSecurityException ex ) {
+
+            throw new KryptoRuntimeException( "Neuverschlüsselung fehlgeschlagen: " + ex.getMessage(), ex );
+        }
+    }
+
+
+    /**
+     * Wartet, bis die Anzahl geprüfter Zeilen pro Sekunde seit Start des Jobs wieder
+     * unter {@link #_maxZeilenProSekunde} liegt.
+     *
+     * @param geprueft Anzahl geprüfter Zeilen seit Start des Jobs
+     *
+     * @param startZeit Start des Jobs, von {@code System.nanoTime()}
+     *
+     * @throws InterruptedException Job soll beendet werden
+     */
+    private void drosseln( long geprueft, long startZeit ) throws InterruptedException {
+
+        if ( _maxZeilenProSekunde <= 0 ) {
+
+            return;
+        }
+
+        final long sollMillis = geprueft * 1000 / _maxZeilenProSekunde;
+        final long istMillis  = ( System.nanoTime() - startZeit ) / 1_000_000;
+        if ( sollMillis > istMillis ) {
+
+            Thread.sleep( sollMillis - istMillis );
+        }
+    }
+
+
+    /**
+     * Momentaufnahme für {@link #getStatus()} erzeugen.
+     */
+    private static Status status( NeuverschluesselungEntity fortschritt, boolean laeuft,
+                                  long anzahlHalter, double zeilenProSekunde ) {
+
+        return new Status( fortschritt.getZiel(),
+                           laeuft,
+                           fortschritt.isFertig(),
+                           fortschritt.getLetzteHalterId(),
+                           fortschritt.getGeprueft(),
+                           fortschritt.getNeuVerschluesselt(),
+                           anzahlHalter,
+                           zeilenProSekunde );
+    }
+
+}
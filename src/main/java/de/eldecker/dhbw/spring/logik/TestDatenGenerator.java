@@ -0,0 +1,460 @@
+package de.eldecker.dhbw.spring.logik;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.model.KfzFarbeEnum;
+import de.eldecker.dhbw.spring.model.KfzMarkeEnum;
+
+
+/**
+ * Erzeugt synthetische, aber gültige Zulassungsdaten für Last- und Skalierungstests,
+ * z.B. mehrere Millionen KFZ-Kennzeichen. Die erzeugten Daten erfüllen alle
+ * Bean-Validation-Constraints der Entity-Klassen:
+ * <ul>
+ * <li>KFZ-Kennzeichen passen zum regulären Ausdruck von {@code KfzKennzeichenEntity},
+ *     haben höchstens acht Zeichen (ohne Leerzeichen) und sind eindeutig.</li>
+ * <li>FINs bestehen aus 17 Großbuchstaben/Ziffern (ohne I, O und Q), die ersten drei
+ *     Zeichen entsprechen dem Herstellercode der Marke.</li>
+ * <li>Baujahre liegen nicht in der Zukunft.</li>
+ * </ul>
+ * Marken und Farben werden gemäß einer (ungefähren) Verteilung der Neuzulassungen in
+ * Deutschland gewählt; die meisten Halter haben ein Fahrzeug, einige mehrere und wenige
+ * Flottenhalter sehr viele.
+ * <br><br>
+ *
+ * Für denselben Seed werden immer genau dieselben Daten erzeugt, damit die Ergebnisse
+ * von Benchmark-Läufen vergleichbar sind. Deshalb wird auch nicht das aktuelle Jahr,
+ * sondern das feste Bezugsjahr {@link #BEZUGSJAHR} verwendet.
+ * <br><br>
+ *
+ * Die Daten können beim Start der App als CSV-Datei im Format von {@link MassenImporter}
+ * geschrieben werden:
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.arguments="--testdaten-anzahl=1000000 --testdaten-datei=testdaten.csv"
+ * </pre>
+ * Wenn zusätzlich {@code --import-datei=testdaten.csv} angegeben wird, dann wird die Datei
+ * anschließend importiert. Optional kann mit {@code --testdaten-seed=<Zahl>} der Seed
+ * gesetzt werden (Default: {@value #DEFAULT_SEED}).
+ */
+@Component
+@Order( 2 )
+public class TestDatenGenerator implements ApplicationRunner {
+
+    private final static Logger LOG = LoggerFactory.getLogger( TestDatenGenerator.class );
+
+    /** Name Programmargument für Anzahl der zu erzeugenden KFZ-Kennzeichen. */
+    public static final String ARGUMENT_ANZAHL = "testdaten-anzahl";
+
+    /** Name Programmargument für Pfad der zu schreibenden CSV-Datei. */
+    public static final String ARGUMENT_DATEI = "testdaten-datei";
+
+    /** Name Programmargument für Seed. */
+    public static final String ARGUMENT_SEED = "testdaten-seed";
+
+    /** Default-Seed für Zufallsgenerator. */
+    public static final long DEFAULT_SEED = 42;
+
+    /** Jahr, auf das sich die Baujahre beziehen. */
+    public static final int BEZUGSJAHR = 2024;
+
+    /** Unterscheidungszeichen, aus denen gewählt wird. */
+    private static final String[] UNTERSCHEIDUNGSZEICHEN = {
+        "A", "AA", "AB", "AC", "B", "BAD", "BB", "BC", "BN", "BO", "D", "DA", "DO", "DD", "E", "EM",
+        "ES", "F", "FB", "FR", "GP", "H", "HB", "HD", "HH", "HN", "K", "KA", "KI", "KN", "KO", "L",
+        "LB", "LU", "M", "MA", "MZ", "N", "OG", "OF", "P", "PF", "R", "RA", "RT", "S", "SB", "UL",
+        "W", "WI", "X", "Y"
+    };
+
+    /** Marken mit Gewichtung (ungefährer Marktanteil in Promille) und Herstellercode (WMI). */
+    private static final List<Gewichtet<KfzMarkeEnum>> MARKEN = List.of(
+            new Gewichtet<>( KfzMarkeEnum.VW         , 200, "WVW" ),
+            new Gewichtet<>( KfzMarkeEnum.MERCEDES   , 100, "WDB" ),
+            new Gewichtet<>( KfzMarkeEnum.BMW        ,  90, "WBA" ),
+            new Gewichtet<>( KfzMarkeEnum.AUDI       ,  80, "WAU" ),
+            new Gewichtet<>( KfzMarkeEnum.OPEL       ,  70, "W0L" ),
+            new Gewichtet<>( KfzMarkeEnum.FORD       ,  60, "WF0" ),
+            new Gewichtet<>( KfzMarkeEnum.SEAT       ,  50, "VSS" ),
+            new Gewichtet<>( KfzMarkeEnum.FIAT       ,  30, "ZFA" ),
+            new Gewichtet<>( KfzMarkeEnum.PORSCHE    ,  10, "WP0" ),
+            new Gewichtet<>( KfzMarkeEnum.FERRARI    ,   1, "ZFF" ),
+            new Gewichtet<>( KfzMarkeEnum.LAMBORGHINI,   1, "ZHW" ) );
+
+    /** Farben mit Gewichtung (ungefährer Anteil in Promille). */
+    private static final List<Gewichtet<KfzFarbeEnum>> FARBEN = List.of(
+            new Gewichtet<>( KfzFarbeEnum.GRAU   , 300, null ),
+            new Gewichtet<>( KfzFarbeEnum.SCHWARZ, 240, null ),
+            new Gewichtet<>( KfzFarbeEnum.WEISS  , 190, null ),
+            new Gewichtet<>( KfzFarbeEnum.BLAU   , 100, null ),
+            new Gewichtet<>( KfzFarbeEnum.SILBER ,  70, null ),
+            new Gewichtet<>( KfzFarbeEnum.ROT    ,  50, null ),
+            new Gewichtet<>( KfzFarbeEnum.GRUEN  ,  20, null ),
+            new Gewichtet<>( KfzFarbeEnum.BRAUN  ,  10, null ),
+            new Gewichtet<>( KfzFarbeEnum.GELB   ,   5, null ),
+            new Gewichtet<>( KfzFarbeEnum.ORANGE ,   5, null ),
+            new Gewichtet<>( KfzFarbeEnum.VIOLET ,   3, null ),
+            new Gewichtet<>( KfzFarbeEnum.PINK   ,   1, null ) );
+
+    private static final String[] VORNAMEN_M = { "Max", "Jan", "Lukas", "Paul", "Felix", "Jonas", "Leon", "Tim", "Peter", "Thomas", "Michael", "Stefan" };
+    private static final String[] VORNAMEN_W = { "Pia", "Eva", "Anna", "Lea", "Marie", "Laura", "Julia", "Sarah", "Sabine", "Petra", "Claudia", "Monika" };
+    private static final String[] NACHNAMEN  = { "Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer", "Wagner", "Becker", "Schulz", "Hoffmann", "Koch", "Richter", "Klein", "Wolf", "Neumann", "Schwarz" };
+    private static final String[] STRASSEN   = { "Hauptstraße", "Schulstraße", "Gartenstraße", "Bahnhofstraße", "Dorfstraße", "Bergstraße", "Kirchweg", "Am Ring", "Lindenallee", "Kronenplatz" };
+
+    /** Postleitzahlen mit zugehörigem Wohnort. */
+    private static final Object[][] ORTE = {
+        { 10115, "Berlin"    }, { 20095, "Hamburg"    }, { 80331, "München"   }, { 50667, "Köln"       },
+        { 60311, "Frankfurt" }, { 70173, "Stuttgart"  }, { 40213, "Düsseldorf"}, { 4103 , "Leipzig"    },
+        { 1067 , "Dresden"   }, { 68159, "Mannheim"   }, { 76133, "Karlsruhe" }, { 76532, "Baden-Baden"},
+        { 69117, "Heidelberg"}, { 79098, "Freiburg"   }, { 89073, "Ulm"       }, { 28195, "Bremen"     }
+    };
+
+    /** Zeichen für FIN (ohne I, O und Q, wie bei echten FINs). */
+    private static final String FIN_ZEICHEN = "ABCDEFGHJKLMNPRSTUVWXYZ0123456789";
+
+    /** Anzahl möglicher Buchstabenkombinationen in der Erkennungsnummer (1 oder 2 Buchstaben). */
+    private static final long ANZAHL_BUCHSTABEN = 26 + 26 * 26;
+
+    /** Größe des Raums der KFZ-Kennzeichen, aus dem gewählt wird. */
+    private static final long ANZAHL_KENNZEICHEN = UNTERSCHEIDUNGSZEICHEN.length * ANZAHL_BUCHSTABEN * 9999;
+
+
+    /**
+     * Element mit Gewichtung für Auswahl nach Verteilung.
+     *
+     * @param wert Element
+     *
+     * @param gewicht Relatives Gewicht
+     *
+     * @param kuerzel Zusatzinformation (z.B. Herstellercode für FIN), kann {@code null} sein
+     */
+    private record Gewichtet<T>( T wert, int gewicht, String kuerzel ) {}
+
+
+    /**
+     * Testdaten erzeugen und als CSV-Datei schreiben, wenn Programmargumente
+     * {@code --testdaten-anzahl} und {@code --testdaten-datei} angegeben sind.
+     */
+    @Override
+    public void run( ApplicationArguments args ) throws Exception {
+
+        if ( !args.containsOption( ARGUMENT_ANZAHL ) || !args.containsOption( ARGUMENT_DATEI ) ) {
+
+            return;
+        }
+
+        final long anzahl = Long.parseLong( args.getOptionValues( ARGUMENT_ANZAHL ).get( 0 ) );
+        final Path datei  = Path.of( args.getOptionValues( ARGUMENT_DATEI ).get( 0 ) );
+        final long seed   = args.containsOption( ARGUMENT_SEED )
+                            ? Long.parseLong( args.getOptionValues( ARGUMENT_SEED ).get( 0 ) )
+                            : DEFAULT_SEED;
+
+        csvSchreiben( datei, anzahl, seed );
+    }
+
+
+    /**
+     * Testdaten als CSV-Datei im Format von {@link MassenImporter} schreiben.
+     *
+     * @param datei Pfad der CSV-Datei, wird ggf. überschrieben
+     *
+     * @param anzahl Anzahl der KFZ-Kennzeichen
+     *
+     * @param seed Seed für Zufallsgenerator
+     *
+     * @throws IOException Fehler beim Schreiben der Datei
+     */
+    public void csvSchreiben( Path datei, long anzahl, long seed ) throws IOException {
+
+        LOG.info( "Erzeuge {} KFZ-Kennzeichen mit Seed {} in Datei \"{}\".", anzahl, seed, datei );
+        final long startZeit = System.nanoTime();
+
+        try ( BufferedWriter writer = Files.newBufferedWriter( datei, UTF_8 ) ) {
+
+            writer.write( MassenImporter.KOPFZEILE );
+            writer.newLine();
+
+            final Iterator<KfzKennzeichenEntity> iterator = erzeugen( anzahl, seed );
+            while ( iterator.hasNext() ) {
+
+                writer.write( csvZeile( iterator.next() ) );
+                writer.newLine();
+            }
+        }
+
+        LOG.info( "{} KFZ-Kennzeichen erzeugt in {} s.",
+                  anzahl, String.format( "%.1f", ( System.nanoTime() - startZeit ) / 1e9 ) );
+    }
+
+
+    /**
+     * Testdaten erzeugen. Die Objekte werden erst beim Aufruf von {@code next()} erzeugt,
+     * so dass auch sehr viele KFZ-Kennzeichen ohne großen Speicherbedarf erzeugt werden
+     * können. Aufeinanderfolgende KFZ-Kennzeichen können dasselbe
+     * {@link FahrzeugHalterEntity}-Objekt referenzieren.
+     *
+     * @param anzahl Anzahl der KFZ-Kennzeichen
+     *
+     * @param seed Seed für Zufallsgenerator
+     *
+     * @return Iterator über die erzeugten KFZ-Kennzeichen mit Fahrzeugdaten und Haltern
+     */
+    public Iterator<KfzKennzeichenEntity> erzeugen( long anzahl, long seed ) {
+
+        if ( anzahl > ANZAHL_KENNZEICHEN / 2 ) {
+
+            throw new IllegalArgumentException( "Zu viele KFZ-Kennzeichen angefordert: " + anzahl );
+        }
+
+        return new KennzeichenIterator( anzahl, seed );
+    }
+
+
+    /**
+     * KFZ-Kennzeichen mit Fahrzeugdaten und Halter als Zeile für CSV-Datei formatieren.
+     *
+     * @param kennzeichen KFZ-Kennzeichen
+     *
+     * @return CSV-Zeile ohne Zeilenumbruch
+     */
+    public static String csvZeile( KfzKennzeichenEntity kennzeichen ) {
+
+        final FahrzeugDatenEntity  daten  = kennzeichen.getFahrzeugDaten();
+        final FahrzeugHalterEntity halter = kennzeichen.getFahrzeugHalter();
+
+        return String.join( MassenImporter.TRENNZEICHEN,
+                            kennzeichen.getKennzeichen(),
+                            Boolean.toString( kennzeichen.isHistorisch() ),
+                            daten.getMarke().name(),
+                            daten.getFarbe().name(),
+                            daten.getFin(),
+                            Integer.toString( daten.getBaujahr() ),
+                            halter.getAnrede(),
+                            halter.getVorname(),
+                            halter.getNachname(),
+                            halter.getAnschrift(),
+                            Integer.toString( halter.getPlz() ),
+                            halter.getWohnort() );
+    }
+
+
+    /**
+     * Iterator, der die Testdaten erzeugt. Die KFZ-Kennzeichen werden über eine
+     * Permutation {@code (a * i + b) mod n} des Raums aller KFZ-Kennzeichen gewählt;
+     * da {@code a} und {@code n} teilerfremd sind, kommt kein KFZ-Kennzeichen doppelt
+     * vor, ohne dass die bisher erzeugten KFZ-Kennzeichen gespeichert werden müssen.
+     */
+    private static final class KennzeichenIterator implements Iterator<KfzKennzeichenEntity> {
+
+        private final SplittableRandom _zufall;
+
+        private final long _anzahl;
+
+        private final long _faktor;
+
+        private final long _summand;
+
+        /** Anzahl bisher erzeugter KFZ-Kennzeichen. */
+        private long _anzahlErzeugt = 0;
+
+        /** Index im Raum der KFZ-Kennzeichen (vor Permutation). */
+        private long _index = 0;
+
+        /** Halter, dem die nächsten KFZ-Kennzeichen zugeordnet werden. */
+        private FahrzeugHalterEntity _halter = null;
+
+        /** Anzahl KFZ-Kennzeichen, die {@link #_halter} noch bekommt. */
+        private int _restFahrzeugeHalter = 0;
+
+
+        KennzeichenIterator( long anzahl, long seed ) {
+
+            _zufall  = new SplittableRandom( seed );
+            _anzahl  = anzahl;
+            _summand = _zufall.nextLong( ANZAHL_KENNZEICHEN );
+
+            long faktor;
+            do {
+
+                faktor = _zufall.nextLong( ANZAHL_KENNZEICHEN / 3, ANZAHL_KENNZEICHEN );
+            } while ( ggT( faktor, ANZAHL_KENNZEICHEN ) != 1 );
+            _faktor = faktor;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+
+            return _anzahlErzeugt < _anzahl;
+        }
+
+
+        @Override
+        public KfzKennzeichenEntity next() {
+
+            if ( !hasNext() ) {
+
+                throw new NoSuchElementException();
+            }
+
+            if ( _restFahrzeugeHalter == 0 ) {
+
+                _halter              = erzeugeHalter();
+                _restFahrzeugeHalter = erzeugeAnzahlFahrzeuge();
+            }
+            _restFahrzeugeHalter--;
+
+            final FahrzeugDatenEntity daten = erzeugeFahrzeugDaten();
+            final boolean historisch = BEZUGSJAHR - daten.getBaujahr() >= 30 && _zufall.nextBoolean();
+
+            _anzahlErzeugt++;
+
+            return new KfzKennzeichenEntity( naechstesKennzeichen(), daten, _halter, historisch );
+        }
+
+
+        /**
+         * Nächstes KFZ-Kennzeichen aus der Permutation; KFZ-Kennzeichen mit mehr als acht
+         * Zeichen (ohne Leerzeichen) werden übersprungen.
+         */
+        private String naechstesKennzeichen() {
+
+            while ( true ) {
+
+                // kein Überlauf, da _faktor und _index kleiner als ANZAHL_KENNZEICHEN (< 2^31)
+                final long permutiert = ( _faktor * _index + _summand ) % ANZAHL_KENNZEICHEN;
+                _index++;
+
+                final long zahl        = permutiert % 9999 + 1;
+                final long rest        = permutiert / 9999;
+                final int  buchstaben  = (int) ( rest % ANZAHL_BUCHSTABEN );
+                final int  bezirk      = (int) ( rest / ANZAHL_BUCHSTABEN );
+
+                final String teil1 = UNTERSCHEIDUNGSZEICHEN[ bezirk ];
+                final String teil2 = buchstaben < 26
+                                     ? String.valueOf( (char) ( 'A' + buchstaben ) )
+                                     : "" + (char) ( 'A' + ( buchstaben - 26 ) / 26 ) + (char) ( 'A' + ( buchstaben - 26 ) % 26 );
+                final String teil3 = Long.toString( zahl );
+
+                if ( teil1.length() + teil2.length() + teil3.length() <= 8 ) {
+
+                    return teil1 + " " + teil2 + " " + teil3;
+                }
+            }
+        }
+
+
+        private FahrzeugDatenEntity erzeugeFahrzeugDaten() {
+
+            final Gewichtet<KfzMarkeEnum> marke = waehlen( MARKEN );
+            final Gewichtet<KfzFarbeEnum> farbe = waehlen( FARBEN );
+
+            final StringBuilder fin = new StringBuilder( 17 );
+            fin.append( marke.kuerzel() );
+            while ( fin.length() < 17 ) {
+
+                fin.append( FIN_ZEICHEN.charAt( _zufall.nextInt( FIN_ZEICHEN.length() ) ) );
+            }
+
+            // Alter ungefähr exponentialverteilt (Mittelwert 10 Jahre), höchstens 60 Jahre
+            final int alter   = (int) Math.min( 60, -10 * Math.log( 1 - _zufall.nextDouble() ) );
+            final int baujahr = BEZUGSJAHR - alter;
+
+            return new FahrzeugDatenEntity( marke.wert(), farbe.wert(), fin.toString(), baujahr );
+        }
+
+
+        private FahrzeugHalterEntity erzeugeHalter() {
+
+            final boolean weiblich = _zufall.nextBoolean();
+            final boolean doktor   = _zufall.nextInt( 100 ) < 3;
+
+            final String anrede   = ( weiblich ? "Frau" : "Herr" ) + ( doktor ? " Dr." : "" );
+            final String vorname  = weiblich ? waehlen( VORNAMEN_W ) : waehlen( VORNAMEN_M );
+            final String nachname = waehlen( NACHNAMEN );
+            final String strasse  = waehlen( STRASSEN ) + " " + ( _zufall.nextInt( 150 ) + 1 );
+
+            final Object[] ort = ORTE[ _zufall.nextInt( ORTE.length ) ];
+
+            return new FahrzeugHalterEntity( anrede, vorname, nachname, strasse, (Integer) ort[ 0 ], (String) ort[ 1 ] );
+        }
+
+
+        /**
+         * Anzahl Fahrzeuge für neuen Halter: 80% ein Fahrzeug, 15% zwei oder drei,
+         * 4.5% vier bis zehn und 0.5% Flotten mit bis zu 500 Fahrzeugen.
+         */
+        private int erzeugeAnzahlFahrzeuge() {
+
+            final int prozentMal10 = _zufall.nextInt( 1000 );
+
+            if      ( prozentMal10 < 800 ) return 1;
+            else if ( prozentMal10 < 950 ) return _zufall.nextInt( 2, 4 );
+            else if ( prozentMal10 < 995 ) return _zufall.nextInt( 4, 11 );
+            else                           return _zufall.nextInt( 11, 501 );
+        }
+
+
+        private <T> Gewichtet<T> waehlen( List<Gewichtet<T>> liste ) {
+
+            int summe = 0;
+            for ( Gewichtet<T> element : liste ) {
+
+                summe += element.gewicht();
+            }
+
+            int zufallsZahl = _zufall.nextInt( summe );
+            for ( Gewichtet<T> element : liste ) {
+
+                zufallsZahl -= element.gewicht();
+                if ( zufallsZahl < 0 ) {
+
+                    return element;
+                }
+            }
+
+            return liste.get( liste.size() - 1 );
+        }
+
+
+        private String waehlen( String[] array ) {
+
+            return array[ _zufall.nextInt( array.length ) ];
+        }
+    }
+
+
+
+    /** Größter gemeinsamer Teiler. */
+    private static long ggT( long a, long b ) {
+
+        while ( b != 0 ) {
+
+            final long t = b;
+            b = a % b;
+            a = t;
+        }
+
+        return a;
+    }
+
+
+}
@@ -0,0 +1,468 @@
+package de.eldecker.dhbw.spring.logik;
+
+import static de.eldecker.dhbw.spring.model.KfzFarbeEnum.FARBE_UNBEKANNT;
+import static de.eldecker.dhbw.spring.model.KfzMarkeEnum.MARKE_UNBEKANNT;
+import static de.eldecker.dhbw.spring.model.SchreibStatusEnum.GESPEICHERT;
+import static de.eldecker.dhbw.spring.model.SchreibStatusEnum.KONFLIKT;
+import static de.eldecker.dhbw.spring.model.SchreibStatusEnum.NICHT_GEFUNDEN;
+import static de.eldecker.dhbw.spring.model.SchreibStatusEnum.UNGUELTIG;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.cache.KfzKennzeichenCache;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity.Identitaet;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+import de.eldecker.dhbw.spring.model.SchreibErgebnis;
+import de.eldecker.dhbw.spring.model.SchreibStatusEnum;
+import de.eldecker.dhbw.spring.model.Zulassung;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+
+/**
+ * Anlegen und Ändern von Zulassungen (KFZ-Kennzeichen mit Fahrzeugdaten und Halter)
+ * für die schreibenden REST-Endpunkte.
+ * <br><br>
+ *
+ * Beim Anlegen werden alle Zulassungen eines Requests wie beim {@link MassenImporter}
+ * zuerst geprüft und die Halter parallel verschlüsselt, erst dann wird eine einzige
+ * Transaktion geöffnet. Darin werden alle Entities mit {@code persist()} registriert
+ * und mit einem {@code flush()} geschrieben: Weil die Primärschlüssel blockweise aus den
+ * Sequenzen kommen (siehe {@code KfzKennzeichenEntity}) und die Statements nach Entity-Typ
+ * sortiert werden ({@code hibernate.order_inserts}), fasst Hibernate die {@code INSERT}s
+ * in JDBC-Batches mit {@code hibernate.jdbc.batch_size} Zeilen zusammen. Ohne eine
+ * umschließende Transaktion würde dagegen jedes {@code save()} des Repos in einer eigenen
+ * Transaktion mit eigenem Commit ausgeführt.
+ * <br><br>
+ *
+ * Gibt es einen Halter mit denselben Halterdaten schon in der Datenbank, dann wird den
+ * KFZ-Kennzeichen dieser Halter zugeordnet, statt einen weiteren anzulegen (siehe
+ * {@link HalterAbgleich}).
+ * <br><br>
+ *
+ * Ein Request wird ganz oder gar nicht gespeichert: Ist eine Zulassung ungültig oder
+ * existiert eines der KFZ-Kennzeichen bereits, dann wird keine gespeichert und die
+ * Gründe werden zurückgegeben. Legt ein gleichzeitiger Request dasselbe KFZ-Kennzeichen
+ * zwischen Prüfung und Commit an, dann verhindert der Unique Constraint für die Spalte
+ * {@code kennzeichen_code} das Duplikat; auch das wird als Konflikt zurückgegeben.
+ * <br><br>
+ *
+ * Metriken:
+ * <ul>
+ * <li>Zähler {@code kfz.zulassungen} mit den Tags {@code art} ({@code neu} oder
+ *     {@code geaendert}) und {@code ergebnis} ({@code gespeichert} oder {@code abgelehnt});
+ *     die Rate des Zählers mit {@code ergebnis=gespeichert} ist der Durchsatz in
+ *     KFZ-Kennzeichen pro Sekunde, z.B. mit Prometheus
+ *     {@code rate(kfz_zulassungen_total{ergebnis="gespeichert"}[1m])}.</li>
+ * <li>Timer {@code kfz.zulassungen.schreiben} mit Tag {@code art} für die Dauer eines
+ *     Requests.</li>
+ * </ul>
+ */
+@Component
+public class ZulassungsService {
+
+    private final static Logger LOG = LoggerFactory.getLogger( ZulassungsService.class );
+
+    /** Wert für Tag {@code art}: neue Zulassungen. */
+    private static final String ART_NEU = "neu";
+
+    /** Wert für Tag {@code art}: geänderte Zulassungen. */
+    private static final String ART_GEAENDERT = "geaendert";
+
+    /** Repo-Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    /** Bean, um vorhandene Halter mit denselben Halterdaten zu finden. */
+    @Autowired
+    private HalterAbgleich _halterAbgleich;
+
+    /** Bean für Verschlüsselung der Halterdaten. */
+    @Autowired
+    private AesHelfer _aesHelfer;
+
+    /** Bean für Bean Validation. */
+    @Autowired
+    private Validator _validator;
+
+    /** Entity Manager, um Entities zu registrieren und gesammelt zu schreiben. */
+    @PersistenceContext
+    private EntityManager _entityManager;
+
+    /** Transaktionsmanager, für eine Transaktion pro Request. */
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    /** Registry, in der die Metriken angelegt werden. */
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    private Counter _neuGespeichert;
+    private Counter _neuAbgelehnt;
+    private Counter _geaendertGespeichert;
+    private Counter _geaendertAbgelehnt;
+
+    private Timer _timerNeu;
+    private Timer _timerGeaendert;
+
+
+    /**
+     * Zähler und Timer anlegen.
+     */
+    @PostConstruct
+    public void initialisierung() {
+
+        _neuGespeichert       = zaehler( ART_NEU      , "gespeichert" );
+        _neuAbgelehnt         = zaehler( ART_NEU      , "abgelehnt"   );
+        _geaendertGespeichert = zaehler( ART_GEAENDERT, "gespeichert" );
+        _geaendertAbgelehnt   = zaehler( ART_GEAENDERT, "abgelehnt"   );
+
+        _timerNeu       = timer( ART_NEU       );
+        _timerGeaendert = timer( ART_GEAENDERT );
+    }
+
+    private Counter zaehler( String art, String ergebnis ) {
+
+        return Counter.builder( "kfz.zulassungen" )
+                      .description( "Anzahl neuer bzw. geänderter KFZ-Kennzeichen" )
+                      .tag( "art"     , art      )
+                      .tag( "ergebnis", ergebnis )
+                      .register( _meterRegistry );
+    }
+
+    private Timer timer( String art ) {
+
+        return Timer.builder( "kfz.zulassungen.schreiben" )
+                    .description( "Dauer eines Requests zum Anlegen bzw. Ändern von Zulassungen" )
+                    .tag( "art", art )
+                    .register( _meterRegistry );
+    }
+
+
+    /**
+     * Neue Zulassungen prüfen und in einer Transaktion speichern.
+     *
+     * @param zulassungListe Neue Zulassungen; die KFZ-Kennzeichen dürfen noch nicht
+     *                       existieren. Zulassungen mit identischen Halterdaten werden
+     *                       auf einen Halter abgebildet, auch auf einen schon
+     *                       vorhandenen.
+     *
+     * @return Ergebnis; Status {@code UNGUELTIG} oder {@code KONFLIKT}, wenn mindestens
+     *         eine Zulassung abgelehnt wurde (dann wurde keine gespeichert)
+     */
+    public SchreibErgebnis anlegen( List<Zulassung> zulassungListe ) {
+
+        final long startZeit = System.nanoTime();
+
+        // Schritt 1: Entities erzeugen, validieren und Duplikate im Request aussortieren
+        final List<String>                          fehlerListe    = new ArrayList<>();
+        final List<KfzKennzeichenEntity>            speichernListe = new ArrayList<>( zulassungListe.size() );
+        final Map<Long, Integer>                    positionMap    = new HashMap<>( zulassungListe.size() * 2 );
+        final Map<Identitaet, FahrzeugHalterEntity> halterMap      = new HashMap<>( zulassungListe.size() * 2 );
+        for ( int i = 0; i < zulassungListe.size(); i++ ) {
+
+            final Zulassung zulassung = zulassungListe.get( i );
+            if ( zulassung == null || zulassung.kennzeichen() == null ) {
+
+                fehlerListe.add( fehlertext( i, null, "KFZ-Kennzeichen fehlt" ) );
+                continue;
+            }
+
+            final KfzKennzeichenEntity kennzeichen =
+                    entityErzeugen( KfzKennzeichenCache.normieren( zulassung.kennzeichen() ), zulassung );
+
+            final String fehler = validieren( kennzeichen );
+            if ( fehler != null ) {
+
+                fehlerListe.add( fehlertext( i, kennzeichen.getKennzeichen(), fehler ) );
+
+            } else if ( positionMap.putIfAbsent( kennzeichen.getKennzeichenCode(), i ) != null ) {
+
+                fehlerListe.add( fehlertext( i, kennzeichen.getKennzeichen(), "KFZ-Kennzeichen mehrfach im Request" ) );
+
+            } else {
+
+                // gleiche Halterdaten im selben Request -> ein Halter
+                final FahrzeugHalterEntity halter = kennzeichen.getFahrzeugHalter();
+                kennzeichen.setFahrzeugHalter( halterMap.computeIfAbsent( halter.identitaet(), schluessel -> halter ) );
+
+                speichernListe.add( kennzeichen );
+            }
+        }
+        if ( !fehlerListe.isEmpty() ) {
+
+            return abgelehnt( UNGUELTIG, zulassungListe.size(), fehlerListe, startZeit, _neuAbgelehnt, _timerNeu );
+        }
+
+        // Schritt 2: Parallel verschlüsseln (außerhalb der Transaktion)
+        halterMap.values()
+                 .parallelStream()
+                 .forEach( halter -> halter.vorabVerschluesseln( _aesHelfer ) );
+
+        // Schritt 3: In einer Transaktion prüfen, ob KFZ-Kennzeichen schon existieren, und speichern
+        int anzahlHalterVorhanden = 0;
+        try {
+
+            final TransactionTemplate transactionTemplate = new TransactionTemplate( _transactionManager );
+            anzahlHalterVorhanden = transactionTemplate.execute( status -> {
+
+                for ( Long vorhanden : _kfzKennzeichenRepo.vorhandeneKennzeichenCodes( positionMap.keySet() ) ) {
+
+                    fehlerListe.add( fehlertext( positionMap.get( vorhanden ),
+                                                 KennzeichenKodierer.dekodieren( vorhanden ),
+                                                 "KFZ-Kennzeichen existiert bereits" ) );
+                }
+                if ( !fehlerListe.isEmpty() ) {
+
+                    return 0;
+                }
+
+                final int anzahlVorhanden = _halterAbgleich.vorhandeneHalterZuordnen( speichernListe );
+                for ( KfzKennzeichenEntity kennzeichen : speichernListe ) {
+
+                    _entityManager.persist( kennzeichen );
+                }
+                _kfzKennzeichenRepo.flush(); // über Repo, damit Exception übersetzt wird
+                _entityManager.clear();
+
+                return anzahlVorhanden;
+            });
+        }
+        catch ( DataIntegrityViolationException ex ) {
+
+            LOG.warn( "KFZ-Kennzeichen wurde gleichzeitig von anderem Request angelegt: {}", ex.getMessage() );
+            fehlerListe.add( "Mindestens ein KFZ-Kennzeichen wurde gleichzeitig angelegt" );
+        }
+        if ( !fehlerListe.isEmpty() ) {
+
+            return abgelehnt( KONFLIKT, zulassungListe.size(), fehlerListe, startZeit, _neuAbgelehnt, _timerNeu );
+        }
+
+        final SchreibErgebnis ergebnis = gespeichert( speichernListe.size(), startZeit, _neuGespeichert, _timerNeu );
+
+        LOG.info( "{} neue KFZ-Kennzeichen mit {} Haltern (davon {} schon vorhanden) gespeichert in {} ms ({} Zeilen/s).",
+                  speichernListe.size(), halterMap.size(), anzahlHalterVorhanden,
+                  Math.round( ergebnis.dauerSekunden() * 1000 ), Math.round( ergebnis.zeilenProSekunde() ) );
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Vorhandene Zulassung ändern: Fahrzeugdaten und Attribut {@code historisch} werden
+     * überschrieben. Wenn sich die Halterdaten geändert haben, dann wird der Halter
+     * geändert, falls ihm nur dieses KFZ-Kennzeichen zugeordnet ist; sonst (z.B. Verkauf
+     * eines Fahrzeugs aus einem Fuhrpark) wird dem KFZ-Kennzeichen ein anderer Halter
+     * zugeordnet, damit die anderen KFZ-Kennzeichen des bisherigen Halters unverändert
+     * bleiben: ein vorhandener Halter mit den neuen Halterdaten, sonst ein neuer Halter.
+     *
+     * @param kennzeichen Normiertes KFZ-Kennzeichen aus der URL, z.B. "KA X 123"
+     *
+     * @param zulassung Neue Daten; das KFZ-Kennzeichen darin darf fehlen, muss sonst aber
+     *                  mit {@code kennzeichen} übereinstimmen
+     *
+     * @return Ergebnis; Status {@code NICHT_GEFUNDEN}, wenn es das KFZ-Kennzeichen nicht
+     *         gibt, {@code KONFLIKT}, wenn der Datensatz gleichzeitig geändert wurde
+     *         (Optimistic Locking)
+     */
+    public SchreibErgebnis aendern( String kennzeichen, Zulassung zulassung ) {
+
+        final long startZeit = System.nanoTime();
+
+        if ( zulassung.kennzeichen() != null &&
+             !KfzKennzeichenCache.normieren( zulassung.kennzeichen() ).equals( kennzeichen ) ) {
+
+            return abgelehnt( UNGUELTIG, 1,
+                              List.of( fehlertext( 0, zulassung.kennzeichen(), "KFZ-Kennzeichen passt nicht zur URL" ) ),
+                              startZeit, _geaendertAbgelehnt, _timerGeaendert );
+        }
+
+        final KfzKennzeichenEntity neu    = entityErzeugen( kennzeichen, zulassung );
+        final String               fehler = validieren( neu );
+        if ( fehler != null ) {
+
+            return abgelehnt( UNGUELTIG, 1, List.of( fehlertext( 0, kennzeichen, fehler ) ),
+                              startZeit, _geaendertAbgelehnt, _timerGeaendert );
+        }
+        neu.getFahrzeugHalter().vorabVerschluesseln( _aesHelfer ); // nur gebraucht, wenn neuer Halter
+
+        final boolean gefunden;
+        try {
+
+            final TransactionTemplate transactionTemplate = new TransactionTemplate( _transactionManager );
+            gefunden = transactionTemplate.execute( status -> {
+
+                final Optional<KfzKennzeichenEntity> kennzeichenOptional =
+                        _kfzKennzeichenRepo.findByKennzeichenCode( neu.getKennzeichenCode() );
+                if ( kennzeichenOptional.isEmpty() ) {
+
+                    return false;
+                }
+
+                final KfzKennzeichenEntity vorhanden = kennzeichenOptional.get();
+                vorhanden.setHistorisch( neu.isHistorisch() );
+
+                final FahrzeugDatenEntity daten    = vorhanden.getFahrzeugDaten();
+                final FahrzeugDatenEntity datenNeu = neu.getFahrzeugDaten();
+                daten.setMarke(   datenNeu.getMarke()   );
+                daten.setFarbe(   datenNeu.getFarbe()   );
+                daten.setFin(     datenNeu.getFin()     );
+                daten.setBaujahr( datenNeu.getBaujahr() );
+
+                final FahrzeugHalterEntity halter    = vorhanden.getFahrzeugHalter();
+                final FahrzeugHalterEntity halterNeu = neu.getFahrzeugHalter();
+                if ( !halter.identitaet().equals( halterNeu.identitaet() ) ) {
+
+                    if ( _kfzKennzeichenRepo.countByFahrzeugHalterId( halter.getId() ) == 1 ) {
+
+                        halter.setAnrede(    halterNeu.getAnrede()    );
+                        halter.setVorname(   halterNeu.getVorname()   );
+                        halter.setNachname(  halterNeu.getNachname()  );
+                        halter.setAnschrift( halterNeu.getAnschrift() );
+                        halter.setPlz(       halterNeu.getPlz()       );
+                        halter.setWohnort(   halterNeu.getWohnort()   );
+
+                    } else {
+
+                        final FahrzeugHalterEntity halterVorhanden =
+                                _halterAbgleich.vorhandeneHalter( List.of( halterNeu ) ).get( halterNeu.identitaet() );
+
+                        vorhanden.setFahrzeugHalter( halterVorhanden != null ? halterVorhanden
+                                                                             : halterNeu ); // wegen cascade = PERSIST gespeichert
+                    }
+                }
+                return true;
+            });
+        }
+        catch ( OptimisticLockingFailureException ex ) {
+
+            LOG.warn( "KFZ-Kennzeichen \"{}\" wurde gleichzeitig geändert: {}", kennzeichen, ex.getMessage() );
+            return abgelehnt( KONFLIKT, 1,
+                              List.of( fehlertext( 0, kennzeichen, "Datensatz wurde gleichzeitig geändert" ) ),
+                              startZeit, _geaendertAbgelehnt, _timerGeaendert );
+        }
+
+        if ( !gefunden ) {
+
+            return abgelehnt( NICHT_GEFUNDEN, 1, List.of( fehlertext( 0, kennzeichen, "KFZ-Kennzeichen existiert nicht" ) ),
+                              startZeit, _geaendertAbgelehnt, _timerGeaendert );
+        }
+
+        LOG.info( "KFZ-Kennzeichen \"{}\" geändert.", kennzeichen );
+
+        return gespeichert( 1, startZeit, _geaendertGespeichert, _timerGeaendert );
+    }
+
+
+    /**
+     * Entities für eine Zulassung erzeugen (noch ohne Validierung); fehlende Marke bzw.
+     * Farbe werden wie bei den Entity-Klassen auf "unbekannt" gesetzt.
+     *
+     * @param kennzeichen Normiertes KFZ-Kennzeichen
+     *
+     * @param zulassung Daten aus dem Request
+     *
+     * @return KFZ-Kennzeichen mit Fahrzeugdaten und Fahrzeughalter
+     */
+    private static KfzKennzeichenEntity entityErzeugen( String kennzeichen, Zulassung zulassung ) {
+
+        final FahrzeugDatenEntity fahrzeugDaten =
+                new FahrzeugDatenEntity( zulassung.marke() != null ? zulassung.marke() : MARKE_UNBEKANNT,
+                                         zulassung.farbe() != null ? zulassung.farbe() : FARBE_UNBEKANNT,
+                                         zulassung.fin(),
+                                         zulassung.baujahr() );
+
+        final FahrzeugHalterEntity fahrzeugHalter =
+                new FahrzeugHalterEntity( zulassung.anrede(),
+                                          zulassung.vorname(),
+                                          zulassung.nachname(),
+                                          zulassung.anschrift(),
+                                          zulassung.plz(),
+                                          zulassung.wohnort() );
+
+        return new KfzKennzeichenEntity( kennzeichen, fahrzeugDaten, fahrzeugHalter, zulassung.historisch() );
+    }
+
+
+    /**
+     * KFZ-Kennzeichen mit Fahrzeugdaten und Fahrzeughalter mit Bean Validation prüfen.
+     *
+     * @param kennzeichen Zu prüfende Entity
+     *
+     * @return Fehlermeldung(en), oder {@code null} wenn gültig
+     */
+    private String validieren( KfzKennzeichenEntity kennzeichen ) {
+
+        final List<String> fehlerListe = new ArrayList<>( 2 );
+        for ( Object entity : List.of( kennzeichen,
+                                       kennzeichen.getFahrzeugDaten(),
+                                       kennzeichen.getFahrzeugHalter() ) ) {
+
+            for ( ConstraintViolation<Object> verletzung : _validator.validate( entity ) ) {
+
+                fehlerListe.add( verletzung.getMessage() );
+            }
+        }
+
+        return fehlerListe.isEmpty() ? null : String.join( "; ", fehlerListe );
+    }
+
+
+    private static String fehlertext( int position, String kennzeichen, String fehler ) {
+
+        return kennzeichen == null ? String.format( "Zulassung %d: %s", position, fehler )
+                                   : String.format( "Zulassung %d (%s): %s", position, kennzeichen, fehler );
+    }
+
+
+    private static SchreibErgebnis gespeichert( int anzahl, long startZeit, Counter zaehler, Timer timer ) {
+
+        final long   dauerNanos    = System.nanoTime() - startZeit;
+        final double dauerSekunden = dauerNanos / 1e9;
+
+        zaehler.increment( anzahl );
+        timer.record( dauerNanos, NANOSECONDS );
+
+        return new SchreibErgebnis( GESPEICHERT, anzahl, List.of(), dauerSekunden,
+                                    dauerSekunden > 0 ? anzahl / dauerSekunden : 0 );
+    }
+
+
+    private static SchreibErgebnis abgelehnt( SchreibStatusEnum status, int anzahl, List<String> fehlerListe,
+                                              long startZeit, Counter zaehler, Timer timer ) {
+
+        final long dauerNanos = System.nanoTime() - startZeit;
+
+        zaehler.increment( anzahl );
+        timer.record( dauerNanos, NANOSECONDS );
+
+        return new SchreibErgebnis( status, 0, fehlerListe, dauerNanos / 1e9, 0 );
+    }
+
+}
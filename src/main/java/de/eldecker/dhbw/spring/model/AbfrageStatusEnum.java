@@ -0,0 +1,25 @@
+package de.eldecker.dhbw.spring.model;
+
+
+/**
+ * Ergebnis der Abfrage eines einzelnen KFZ-Kennzeichens in einer
+ * Sammelabfrage.
+ */
+public enum AbfrageStatusEnum {
+
+    /** KFZ-Kennzeichen wurde gefunden, Halterdaten sind in der Antwort enthalten. */
+    GEFUNDEN,
+
+    /** KFZ-Kennzeichen ist nicht in der Datenbank. */
+    NICHT_GEFUNDEN,
+
+    /**
+     * KFZ-Kennzeichen ist ungültig (falsches Format), es wurde nicht gesucht; entspricht
+     * HTTP-Status-Code 400 bei der Einzelabfrage.
+     */
+    UNGUELTIG,
+
+    /** Interner Fehler (ggf. simuliert), Abfrage sollte wiederholt werden. */
+    FEHLER;
+
+}
@@ -0,0 +1,36 @@
+package de.eldecker.dhbw.spring.model;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+
+
+/**
+ * Entschlüsselte Daten eines Fahrzeughalters ohne JPA-Entity, für den reaktiven
+ * REST-Endpunkt. Die JSON-Serialisierung enthält dieselben Attribute in derselben
+ * Reihenfolge wie die von {@link FahrzeugHalterEntity}.
+ *
+ * @param id Primärschlüssel des Halters
+ *
+ * @param anrede Anrede, z.B. "Frau Dr."
+ *
+ * @param vorname Vorname
+ *
+ * @param nachname Nachname
+ *
+ * @param plz Postleitzahl
+ *
+ * @param wohnort Wohnort
+ *
+ * @param anschrift Straße und Hausnummer
+ */
+public record FahrzeugHalterDaten( Long   id,
+                                   String anrede,
+                                   String vorname,
+                                   String nachname,
+                                   int    plz,
+                                   String wohnort,
+                                   String anschrift ) {
+
+    /** Leeres Objekt als "Antwort" für Abfragen, wenn KFZ-Kennzeichen nicht gefunden wurde. */
+    public static final FahrzeugHalterDaten LEER = new FahrzeugHalterDaten( null, null, null, null, 0, null, null );
+
+}
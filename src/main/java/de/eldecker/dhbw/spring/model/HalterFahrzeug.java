@@ -0,0 +1,19 @@
+package de.eldecker.dhbw.spring.model;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+
+
+/**
+ * Ein Fahrzeug eines Halters in der Antwort auf die Abfrage aller KFZ-Kennzeichen eines
+ * Halters (REST-Endpunkt {@code GET /api/v1/halter/{halterId}/kennzeichen}).
+ *
+ * @param kennzeichen KFZ-Kennzeichen, z.B. "KA X 123"
+ *
+ * @param historisch {@code true} für historisches Fahrzeug ("H" am Ende des Kennzeichens)
+ *
+ * @param fahrzeugDaten Daten des Fahrzeugs
+ */
+public record HalterFahrzeug( String              kennzeichen,
+                              boolean             historisch,
+                              FahrzeugDatenEntity fahrzeugDaten ) {
+}
@@ -0,0 +1,18 @@
+package de.eldecker.dhbw.spring.model;
+
+import java.util.List;
+
+
+/**
+ * Eine Seite der Fahrzeuge eines Halters (REST-Endpunkt
+ * {@code GET /api/v1/halter/{halterId}/kennzeichen}).
+ *
+ * @param fahrzeuge Fahrzeuge auf dieser Seite, sortiert nach Primärschlüssel des
+ *                  KFZ-Kennzeichens
+ *
+ * @param weiterNach Wert für URL-Parameter {@code nach}, um die nächste Seite abzufragen;
+ *                   {@code null}, wenn dies die letzte Seite ist
+ */
+public record HalterFahrzeugSeite( List<HalterFahrzeug> fahrzeuge,
+                                   Long                 weiterNach ) {
+}
@@ -0,0 +1,21 @@
+package de.eldecker.dhbw.spring.model;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+
+
+/**
+ * Ergebnis für ein KFZ-Kennzeichen in der Antwort auf eine Sammelabfrage
+ * (REST-Endpunkt {@code POST /api/v1/abfrage}) oder eine Suche nach Halter
+ * (REST-Endpunkt {@code GET /api/v1/suche}).
+ *
+ * @param kennzeichen Abgefragtes KFZ-Kennzeichen in normierter Form, z.B. "KA X 123"
+ *
+ * @param status Ergebnis der Abfrage
+ *
+ * @param fahrzeugHalter Halter des Fahrzeugs; nur bei Status {@code GEFUNDEN} gesetzt,
+ *                       sonst {@code null}
+ */
+public record KennzeichenAbfrageErgebnis( String               kennzeichen,
+                                          AbfrageStatusEnum    status,
+                                          FahrzeugHalterEntity fahrzeugHalter ) {
+}
@@ -0,0 +1,146 @@
+package de.eldecker.dhbw.spring.model;
+
+
+/**
+ * Bildet ein deutsches KFZ-Kennzeichen verlustfrei auf eine Zahl vom Typ {@code long}
+ * ab und zurück. Die Zahl wird in der Datenbank als zusätzliche Spalte mit eigenem Index
+ * gespeichert, weil ein Index über eine Zahlenspalte kleiner ist und Vergleiche billiger
+ * sind als bei der {@code VARCHAR}-Spalte mit dem KFZ-Kennzeichen als String.
+ * <br><br>
+ *
+ * Aufbau der Zahl (von den höchstwertigen zu den niederwertigsten Bits):
+ * <ul>
+ * <li>15 Bits: Unterscheidungszeichen, 1-3 Buchstaben zur Basis 27
+ *     (A=1 bis Z=26, 0 für nicht belegte Stellen am Ende)</li>
+ * <li>10 Bits: Buchstaben der Erkennungsnummer, 1-2 Buchstaben zur Basis 27</li>
+ * <li>14 Bits: Zahl der Erkennungsnummer (0 bis 9999)</li>
+ * <li>2 Bits: Anzahl der Ziffern minus 1, damit auch führende Nullen erhalten bleiben</li>
+ * </ul>
+ * Da die Buchstaben linksbündig kodiert werden, entspricht die Reihenfolge der Zahlen
+ * bei den Buchstaben der alphabetischen Reihenfolge.
+ * <br><br>
+ *
+ * Geprüft und zerlegt wird das KFZ-Kennzeichen von {@link KennzeichenParser}.
+ */
+public final class KennzeichenKodierer {
+
+    /** Basis für Kodierung von Buchstaben; 0 steht für "kein Buchstabe". */
+    private static final int BASIS = 27;
+
+    private static final int BITS_STELLEN = 2;
+    private static final int BITS_ZAHL    = 14;
+    private static final int BITS_TEIL2   = 10;
+
+    private static final int SHIFT_ZAHL  = BITS_STELLEN;
+    private static final int SHIFT_TEIL2 = SHIFT_ZAHL  + BITS_ZAHL;
+    private static final int SHIFT_TEIL1 = SHIFT_TEIL2 + BITS_TEIL2;
+
+
+    /** Keine Instanzen, nur statische Methoden. */
+    private KennzeichenKodierer() {}
+
+
+    /**
+     * KFZ-Kennzeichen in Zahl umwandeln.
+     *
+     * @param kennzeichen Normiertes KFZ-Kennzeichen, z.B. "KA X 123"
+     *
+     * @return Zahl, aus der mit {@link #dekodieren(long)} wieder {@code kennzeichen}
+     *         erzeugt werden kann
+     *
+     * @throws IllegalArgumentException {@code kennzeichen} hat ungültiges Format
+     */
+    public static long kodieren( String kennzeichen ) {
+
+        final long ergebnis = KennzeichenParser.parsenMitKennung( kennzeichen );
+        if ( ergebnis == KennzeichenParser.UNGUELTIG || ( ergebnis & KennzeichenParser.NICHT_NORMIERT ) != 0 ) {
+
+            throw new IllegalArgumentException( "Ungültiges KFZ-Kennzeichen: " + kennzeichen );
+        }
+
+        return ergebnis;
+    }
+
+
+    /**
+     * Zahl aus den schon geprüften Teilen eines KFZ-Kennzeichens zusammensetzen, wird von
+     * {@link KennzeichenParser} aufgerufen.
+     *
+     * @param teil1 Unterscheidungszeichen, linksbündig zur Basis 27 kodiert
+     *
+     * @param teil2 Buchstaben der Erkennungsnummer, linksbündig zur Basis 27 kodiert
+     *
+     * @param zahl Zahl der Erkennungsnummer
+     *
+     * @param stellen Anzahl der Ziffern der Zahl (1 bis 4)
+     *
+     * @return Zahl für das KFZ-Kennzeichen
+     */
+    static long kodieren( int teil1, int teil2, int zahl, int stellen ) {
+
+        return   (long) teil1 << SHIFT_TEIL1
+               | (long) teil2 << SHIFT_TEIL2
+               | (long) zahl  << SHIFT_ZAHL
+               | ( stellen - 1 );
+    }
+
+
+    /**
+     * Zahl wieder in KFZ-Kennzeichen umwandeln.
+     *
+     * @param code Mit {@link #kodieren(String)} erzeugte Zahl
+     *
+     * @return KFZ-Kennzeichen, z.B. "KA X 123"
+     */
+    public static String dekodieren( long code ) {
+
+        final int stellen = (int) ( code & ( ( 1 << BITS_STELLEN ) - 1 ) ) + 1;
+        final int zahl    = (int) ( ( code >>> SHIFT_ZAHL  ) & ( ( 1 << BITS_ZAHL  ) - 1 ) );
+        final int teil2   = (int) ( ( code >>> SHIFT_TEIL2 ) & ( ( 1 << BITS_TEIL2 ) - 1 ) );
+        final int teil1   = (int) ( code >>> SHIFT_TEIL1 );
+
+        final char[] zeichen = new char[ 11 ];
+        int pos = buchstabenDekodieren( teil1, 3, zeichen, 0 );
+        zeichen[ pos++ ] = ' ';
+        pos = buchstabenDekodieren( teil2, 2, zeichen, pos );
+        zeichen[ pos++ ] = ' ';
+
+        int rest = zahl;
+        for ( int i = pos + stellen - 1; i >= pos; i-- ) { // von hinten, mit führenden Nullen
+
+            zeichen[ i ] = (char) ( '0' + rest % 10 );
+            rest /= 10;
+        }
+
+        return new String( zeichen, 0, pos + stellen );
+    }
+
+
+    /**
+     * Linksbündig zur Basis 27 kodierte Buchstaben in {@code zeichen} schreiben.
+     *
+     * @return Position nach dem letzten geschriebenen Buchstaben
+     */
+    private static int buchstabenDekodieren( int wert, int maxAnzahl, char[] zeichen, int pos ) {
+
+        int teiler = 1;
+        for ( int i = 1; i < maxAnzahl; i++ ) {
+
+            teiler *= BASIS;
+        }
+
+        for ( int i = 0; i < maxAnzahl; i++ ) {
+
+            final int ziffer = wert / teiler % BASIS;
+            if ( ziffer == 0 ) {
+
+                break;
+            }
+            zeichen[ pos++ ] = (char) ( 'A' + ziffer - 1 );
+            teiler /= BASIS;
+        }
+
+        return pos;
+    }
+
+}
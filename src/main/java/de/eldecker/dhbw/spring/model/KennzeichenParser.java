@@ -0,0 +1,362 @@
+package de.eldecker.dhbw.spring.model;
+
+
+/**
+ * Handgeschriebener Parser für deutsche KFZ-Kennzeichen, der ein KFZ-Kennzeichen in einem
+ * einzigen Durchlauf über die Zeichen prüft und dabei direkt die Zahl nach
+ * {@link KennzeichenKodierer} berechnet; es werden weder reguläre Ausdrücke noch
+ * Zwischen-Strings (z.B. von {@code trim()} oder {@code toUpperCase()}) verwendet.
+ * <br><br>
+ *
+ * Gültig ist ein KFZ-Kennzeichen aus drei Teilen:
+ * <ol>
+ * <li>Unterscheidungszeichen: 1-3 Buchstaben</li>
+ * <li>Buchstaben der Erkennungsnummer: 1-2 Buchstaben</li>
+ * <li>Zahl der Erkennungsnummer: 1-4 Ziffern (führende Nullen bleiben erhalten)</li>
+ * </ol>
+ * Insgesamt sind höchstens {@value #MAX_ZEICHEN} Buchstaben und Ziffern erlaubt.
+ * Kleinbuchstaben sowie beliebige Leerzeichen zwischen, vor und nach den Teilen werden
+ * akzeptiert. Die normierte Form (z.B. "KA X 123") hat nur Großbuchstaben und genau ein
+ * Leerzeichen zwischen den Teilen; nur diese wird in der Datenbank gespeichert (siehe
+ * Validierungsannotation {@code KfzKennzeichen}).
+ */
+public final class KennzeichenParser {
+
+    /** Rückgabewert von {@link #parsen(CharSequence)} für ungültige KFZ-Kennzeichen. */
+    public static final long UNGUELTIG = -1L;
+
+    /**
+     * Bit im Ergebnis von {@link #parsenMitKennung(CharSequence)}, das gesetzt ist, wenn die
+     * Eingabe zwar gültig, aber nicht normiert ist; kommt in einer Zahl nach
+     * {@link KennzeichenKodierer} (41 Bits) nicht vor.
+     */
+    static final long NICHT_NORMIERT = 1L << 62;
+
+    /** Maximale Anzahl Buchstaben und Ziffern ohne Leerzeichen, z.B. "BAD XY 123". */
+    public static final int MAX_ZEICHEN = 8;
+
+    /** Basis für Kodierung von Buchstaben, wie in {@link KennzeichenKodierer}. */
+    private static final int BASIS = 27;
+
+    /*
+     * Aufbau des Ergebnisses von teilLesen() und leerzeichenUeberspringen(), damit diese
+     * Methoden ohne Objekt für das Ergebnis auskommen: Wert in den Bits 0-15, Anzahl
+     * Zeichen in den Bits 16-23, Position nach dem Teil ab Bit 32; dazu evtl. NICHT_NORMIERT.
+     */
+    private static final int  SHIFT_ANZAHL   = 16;
+    private static final int  SHIFT_POSITION = 32;
+    private static final long MASKE_WERT     = 0xFFFF;
+    private static final long MASKE_ANZAHL   = 0xFF;
+    private static final long MASKE_POSITION = 0x3FFF_FFFFL;
+
+
+    /** Keine Instanzen, nur statische Methoden. */
+    private KennzeichenParser() {}
+
+
+    /**
+     * KFZ-Kennzeichen prüfen und in Zahl umwandeln.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, z.B. " ka  x 0123"
+     *
+     * @return Zahl nach {@link KennzeichenKodierer} (wie für "KA X 0123"), oder
+     *         {@link #UNGUELTIG} wenn {@code kennzeichen} kein gültiges KFZ-Kennzeichen
+     *         ist (auch für {@code null})
+     */
+    public static long parsen( CharSequence kennzeichen ) {
+
+        final long ergebnis = parsenMitKennung( kennzeichen );
+
+        return ergebnis == UNGUELTIG ? UNGUELTIG : ergebnis & ~NICHT_NORMIERT;
+    }
+
+
+    /**
+     * KFZ-Kennzeichen aus drei einzelnen Teilen (z.B. Felder eines Formulars) prüfen und in
+     * Zahl umwandeln; Leerzeichen vor und nach jedem Teil werden ignoriert.
+     *
+     * @param unterscheidungszeichen Unterscheidungszeichen, z.B. "KA"
+     *
+     * @param buchstaben Buchstaben der Erkennungsnummer, z.B. "x"
+     *
+     * @param zahl Zahl der Erkennungsnummer, z.B. "123"
+     *
+     * @return Zahl nach {@link KennzeichenKodierer}, oder {@link #UNGUELTIG} wenn ein
+     *         Teil ungültig ist
+     */
+    public static long parsen( CharSequence unterscheidungszeichen, CharSequence buchstaben, CharSequence zahl ) {
+
+        final long teil1 = feldLesen( unterscheidungszeichen, true , 3 );
+        final long teil2 = feldLesen( buchstaben            , true , 2 );
+        final long teil3 = feldLesen( zahl                  , false, 4 );
+
+        if ( teil1 == UNGUELTIG || teil2 == UNGUELTIG || teil3 == UNGUELTIG ) {
+
+            return UNGUELTIG;
+        }
+
+        return kodieren( teil1, teil2, teil3 );
+    }
+
+
+    /**
+     * KFZ-Kennzeichen prüfen und normieren.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, z.B. " ka  x 123"
+     *
+     * @return Normiertes KFZ-Kennzeichen, z.B. "KA X 123"; wenn {@code kennzeichen} schon
+     *         normiert ist, dann dasselbe Objekt. {@code null}, wenn {@code kennzeichen}
+     *         ungültig ist.
+     */
+    public static String normieren( String kennzeichen ) {
+
+        final long ergebnis = parsenMitKennung( kennzeichen );
+        if ( ergebnis == UNGUELTIG ) {
+
+            return null;
+        }
+
+        return ( ergebnis & NICHT_NORMIERT ) == 0 ? kennzeichen
+                                                  : KennzeichenKodierer.dekodieren( ergebnis & ~NICHT_NORMIERT );
+    }
+
+
+    /**
+     * Prüft, ob ein KFZ-Kennzeichen gültig und normiert ist.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, z.B. "KA X 123"
+     *
+     * @return {@code true} für z.B. "KA X 123", {@code false} für z.B. "ka x 123",
+     *         "KA X123" oder {@code null}
+     */
+    public static boolean istNormiert( CharSequence kennzeichen ) {
+
+        final long ergebnis = parsenMitKennung( kennzeichen );
+
+        return ergebnis != UNGUELTIG && ( ergebnis & NICHT_NORMIERT ) == 0;
+    }
+
+
+    /**
+     * KFZ-Kennzeichen in einem Durchlauf prüfen und in Zahl umwandeln.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, kann {@code null} sein
+     *
+     * @return Zahl nach {@link KennzeichenKodierer}, bei nicht normierter Eingabe mit
+     *         gesetztem Bit {@link #NICHT_NORMIERT}; oder {@link #UNGUELTIG}
+     */
+    static long parsenMitKennung( CharSequence kennzeichen ) {
+
+        if ( kennzeichen == null ) {
+
+            return UNGUELTIG;
+        }
+
+        final int ende = kennzeichen.length();
+
+        final long anfang = leerzeichenUeberspringen( kennzeichen, 0, ende );
+        final long teil1  = teilLesen( kennzeichen, position( anfang ), ende, true, 3 );
+        if ( teil1 == UNGUELTIG ) {
+
+            return UNGUELTIG;
+        }
+
+        final long trenner1 = leerzeichenUeberspringen( kennzeichen, position( teil1 ), ende );
+        if ( anzahl( trenner1 ) == 0 ) {
+
+            return UNGUELTIG;
+        }
+
+        final long teil2 = teilLesen( kennzeichen, position( trenner1 ), ende, true, 2 );
+        if ( teil2 == UNGUELTIG ) {
+
+            return UNGUELTIG;
+        }
+
+        final long trenner2 = leerzeichenUeberspringen( kennzeichen, position( teil2 ), ende );
+        if ( anzahl( trenner2 ) == 0 ) {
+
+            return UNGUELTIG;
+        }
+
+        final long teil3 = teilLesen( kennzeichen, position( trenner2 ), ende, false, 4 );
+        if ( teil3 == UNGUELTIG ) {
+
+            return UNGUELTIG;
+        }
+
+        final long schluss = leerzeichenUeberspringen( kennzeichen, position( teil3 ), ende );
+        if ( position( schluss ) != ende ) {
+
+            return UNGUELTIG; // z.B. "KA X 12345" oder "KA X 12 Y"
+        }
+
+        final long code = kodieren( teil1, teil2, teil3 );
+        if ( code == UNGUELTIG ) {
+
+            return UNGUELTIG;
+        }
+
+        final boolean normiert = anzahl( anfang ) == 0 && anzahl( schluss ) == 0
+                                 && ( ( teil1 | trenner1 | teil2 | trenner2 | teil3 ) & NICHT_NORMIERT ) == 0;
+
+        return code | ( normiert ? 0 : NICHT_NORMIERT );
+    }
+
+
+    /**
+     * Ein Feld lesen, das genau einen Teil des KFZ-Kennzeichens enthält, evtl. mit
+     * Leerzeichen davor und danach.
+     *
+     * @return Ergebnis von {@link #teilLesen(CharSequence, int, int, boolean, int)}, oder
+     *         {@link #UNGUELTIG} wenn das Feld noch andere Zeichen enthält
+     */
+    private static long feldLesen( CharSequence feld, boolean buchstaben, int maxAnzahl ) {
+
+        if ( feld == null ) {
+
+            return UNGUELTIG;
+        }
+
+        final int  ende   = feld.length();
+        final long anfang = leerzeichenUeberspringen( feld, 0, ende );
+        final long teil   = teilLesen( feld, position( anfang ), ende, buchstaben, maxAnzahl );
+        if ( teil == UNGUELTIG || position( leerzeichenUeberspringen( feld, position( teil ), ende ) ) != ende ) {
+
+            return UNGUELTIG;
+        }
+
+        return teil;
+    }
+
+
+    /**
+     * Einen Teil des KFZ-Kennzeichens lesen, bis zum ersten Zeichen, das nicht dazugehört.
+     *
+     * @param s Eingabe
+     *
+     * @param pos Position des ersten Zeichens des Teils
+     *
+     * @param ende Länge der Eingabe
+     *
+     * @param buchstaben {@code true} für Buchstaben (Wert zur Basis 27, linksbündig),
+     *                   {@code false} für Ziffern (Wert ist die Zahl)
+     *
+     * @param maxAnzahl Maximale Anzahl Zeichen des Teils
+     *
+     * @return Wert, Anzahl Zeichen und Position nach dem Teil (siehe Konstanten), mit
+     *         {@link #NICHT_NORMIERT} bei Kleinbuchstaben; {@link #UNGUELTIG} wenn der
+     *         Teil leer ist oder zu viele Zeichen hat
+     */
+    private static long teilLesen( CharSequence s, int pos, int ende, boolean buchstaben, int maxAnzahl ) {
+
+        long normiert = 0;
+        int  wert     = 0;
+        int  anzahl   = 0;
+        while ( pos < ende ) {
+
+            final char zeichen = s.charAt( pos );
+            final int  ziffer;
+            if ( buchstaben ) {
+
+                if ( zeichen >= 'A' && zeichen <= 'Z' ) {
+
+                    ziffer = zeichen - 'A' + 1;
+
+                } else if ( zeichen >= 'a' && zeichen <= 'z' ) {
+
+                    ziffer   = zeichen - 'a' + 1;
+                    normiert = NICHT_NORMIERT;
+
+                } else {
+
+                    break;
+                }
+                wert = wert * BASIS + ziffer;
+
+            } else {
+
+                if ( zeichen < '0' || zeichen > '9' ) {
+
+                    break;
+                }
+                wert = wert * 10 + ( zeichen - '0' );
+            }
+
+            if ( ++anzahl > maxAnzahl ) {
+
+                return UNGUELTIG;
+            }
+            pos++;
+        }
+
+        if ( anzahl == 0 ) {
+
+            return UNGUELTIG;
+        }
+
+        if ( buchstaben ) {
+
+            for ( int i = anzahl; i < maxAnzahl; i++ ) {
+
+                wert *= BASIS; // linksbündig
+            }
+        }
+
+        return (long) pos << SHIFT_POSITION | (long) anzahl << SHIFT_ANZAHL | wert | normiert;
+    }
+
+
+    /**
+     * Leerzeichen überspringen.
+     *
+     * @return Anzahl übersprungener Zeichen und Position des nächsten Zeichens (siehe
+     *         Konstanten), mit {@link #NICHT_NORMIERT} wenn es nicht genau ein Leerzeichen
+     *         {@code ' '} war
+     */
+    private static long leerzeichenUeberspringen( CharSequence s, int pos, int ende ) {
+
+        final int start = pos;
+        while ( pos < ende && Character.isWhitespace( s.charAt( pos ) ) ) {
+
+            pos++;
+        }
+
+        final int  anzahl   = pos - start;
+        final long normiert = anzahl == 1 && s.charAt( start ) == ' ' ? 0 : NICHT_NORMIERT;
+
+        return (long) pos << SHIFT_POSITION | (long) Math.min( anzahl, MASKE_ANZAHL ) << SHIFT_ANZAHL | normiert;
+    }
+
+
+    /**
+     * Zahl nach {@link KennzeichenKodierer} aus den Ergebnissen der drei Teile.
+     *
+     * @return Zahl, oder {@link #UNGUELTIG} wenn die Teile zusammen zu lang sind
+     */
+    private static long kodieren( long teil1, long teil2, long teil3 ) {
+
+        if ( anzahl( teil1 ) + anzahl( teil2 ) + anzahl( teil3 ) > MAX_ZEICHEN ) {
+
+            return UNGUELTIG;
+        }
+
+        return KennzeichenKodierer.kodieren( (int) ( teil1 & MASKE_WERT ),
+                                             (int) ( teil2 & MASKE_WERT ),
+                                             (int) ( teil3 & MASKE_WERT ),
+                                             anzahl( teil3 ) );
+    }
+
+
+    private static int position( long ergebnis ) {
+
+        return (int) ( ( ergebnis >>> SHIFT_POSITION ) & MASKE_POSITION );
+    }
+
+
+    private static int anzahl( long ergebnis ) {
+
+        return (int) ( ( ergebnis >>> SHIFT_ANZAHL ) & MASKE_ANZAHL );
+    }
+
+}
@@ -0,0 +1,27 @@
+package de.eldecker.dhbw.spring.model;
+
+import java.util.List;
+
+
+/**
+ * Antwort der REST-Endpunkte zum Anlegen und Ändern von Zulassungen.
+ *
+ * @param status Ergebnis; außer bei {@link SchreibStatusEnum#GESPEICHERT} wurde nichts
+ *               gespeichert
+ *
+ * @param anzahlGespeichert Anzahl gespeicherter KFZ-Kennzeichen
+ *
+ * @param fehlerListe Gründe für die Ablehnung, je ein Element pro abgelehnter Zulassung
+ *                    mit deren Position im Request (0-basiert); leer bei Erfolg
+ *
+ * @param dauerSekunden Dauer des Schreibzugriffs in Sekunden (Prüfen, Verschlüsseln
+ *                      und Transaktion)
+ *
+ * @param zeilenProSekunde Durchsatz: gespeicherte KFZ-Kennzeichen pro Sekunde
+ */
+public record SchreibErgebnis( SchreibStatusEnum status,
+                               int               anzahlGespeichert,
+                               List<String>      fehlerListe,
+                               double            dauerSekunden,
+                               double            zeilenProSekunde ) {
+}
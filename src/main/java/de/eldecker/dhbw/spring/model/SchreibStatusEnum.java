@@ -0,0 +1,23 @@
+package de.eldecker.dhbw.spring.model;
+
+
+/**
+ * Ergebnis eines Schreibzugriffs über die REST-Endpunkte für Zulassungen.
+ */
+public enum SchreibStatusEnum {
+
+    /** Alle Zulassungen wurden gespeichert. */
+    GESPEICHERT,
+
+    /** Mindestens eine Zulassung ist ungültig, es wurde nichts gespeichert. */
+    UNGUELTIG,
+
+    /**
+     * Mindestens ein neues KFZ-Kennzeichen existiert bereits oder der Datensatz wurde
+     * zwischenzeitlich geändert, es wurde nichts gespeichert.
+     */
+    KONFLIKT,
+
+    /** Das zu ändernde KFZ-Kennzeichen existiert nicht. */
+    NICHT_GEFUNDEN
+}
@@ -0,0 +1,47 @@
+package de.eldecker.dhbw.spring.model;
+
+
+/**
+ * Daten einer Zulassung (KFZ-Kennzeichen mit Fahrzeugdaten und Halter) im Request-Body
+ * der schreibenden REST-Endpunkte {@code POST /api/v1/zulassungen} und
+ * {@code PUT /api/v1/zulassungen/{kennzeichen}}. Die Attribute entsprechen den Spalten
+ * der CSV-Datei für den Massenimport; geprüft werden sie mit den Bean-Validation-Constraints
+ * der Entity-Klassen.
+ *
+ * @param kennzeichen KFZ-Kennzeichen ohne "H" am Ende, z.B. "KA X 123"; wird normiert
+ *
+ * @param historisch {@code true} für historisches Fahrzeug ("H" am Ende des Kennzeichens)
+ *
+ * @param marke Automarke
+ *
+ * @param farbe (Haupt-)Farbe des Autos
+ *
+ * @param fin Fahrzeug-Identifizierungsnummer (17 Stellen)
+ *
+ * @param baujahr Baujahr des Fahrzeugs
+ *
+ * @param anrede Anrede des Halters, z.B. "Frau Dr."
+ *
+ * @param vorname Vorname des Halters
+ *
+ * @param nachname Nachname des Halters
+ *
+ * @param anschrift Straße und Hausnummer des Halters
+ *
+ * @param plz Postleitzahl des Halters
+ *
+ * @param wohnort Wohnort des Halters
+ */
+public record Zulassung( String       kennzeichen,
+                         boolean      historisch,
+                         KfzMarkeEnum marke,
+                         KfzFarbeEnum farbe,
+                         String       fin,
+                         int          baujahr,
+                         String       anrede,
+                         String       vorname,
+                         String       nachname,
+                         String       anschrift,
+                         int          plz,
+                         String       wohnort ) {
+}
@@ -0,0 +1,30 @@
+package de.eldecker.dhbw.spring.validatoren;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.*;
+
+
+/**
+ * <i>Custom Validation Annotation</i> für Bean-Validation definieren,
+ * mit der geprüft wird, dass ein String ein gültiges und normiertes
+ * KFZ-Kennzeichen ist, z.B. "KA X 123" (Großbuchstaben, genau ein
+ * Leerzeichen zwischen den Teilen). Die Implementierung der eigentlichen
+ * Logik ist in der Klasse {@link KfzKennzeichenValidator}.
+ */
+@Documented
+@Constraint( validatedBy = KfzKennzeichenValidator.class )
+@Target( { METHOD, FIELD, PARAMETER })
+@Retention( RUNTIME )
+public @interface KfzKennzeichen {
+
+    String message() default "Ungültiges KFZ-Kennzeichen";
+    Class<?>[] groups() default {};
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,36 @@
+package de.eldecker.dhbw.spring.validatoren;
+
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+
+/**
+ * Implementierung der Logik für die Custom Validation Annotation {@code KfzKennzeichen};
+ * ersetzt den regulären Ausdruck, mit dem das KFZ-Kennzeichen bisher geprüft wurde.
+ *
+ * @param <KfzKennzeichen> Zugehörige Annotation
+ *
+ * @param <String> Typ von Wert, der mit Annotation überprüft wird
+ */
+public class KfzKennzeichenValidator implements ConstraintValidator<KfzKennzeichen, String> {
+
+    /**
+     * Methode mit Logik für die Validierung, die durch die Annotation durchgeführt werden soll:
+     * {@code kennzeichen} muss ein normiertes KFZ-Kennzeichen sein, siehe
+     * {@link KennzeichenParser#istNormiert(CharSequence)}.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, das überprüft werden soll
+     *
+     * @param context Kontext für Validierung
+     *
+     * @return {@code true} wenn {@code kennzeichen} z.B. den Wert "KA X 123" hat;
+     *         {@code false} für {@code null}, "ka x 123" oder "KA X 12345"
+     */
+    @Override
+    public boolean isValid( String kennzeichen, ConstraintValidatorContext context ) {
+
+        return KennzeichenParser.istNormiert( kennzeichen );
+    }
+
+}
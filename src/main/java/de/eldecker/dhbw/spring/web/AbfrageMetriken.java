@@ -0,0 +1,150 @@
+package de.eldecker.dhbw.spring.web;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.model.AbfrageStatusEnum;
+import de.eldecker.dhbw.spring.model.KennzeichenAbfrageErgebnis;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+
+/**
+ * Metriken für die Abfrage von KFZ-Kennzeichen über REST und Thymeleaf.
+ * <br><br>
+ *
+ * Erfasst werden:
+ * <ul>
+ * <li>Timer {@code kfz.abfrage} mit den Tags {@code kanal} ({@code rest}, {@code reaktiv}
+ *     oder {@code thymeleaf}) und {@code ergebnis} ({@code gefunden}, {@code nicht_gefunden}
+ *     oder {@code fehler}).</li>
+ * <li>Timer {@code kfz.sammelabfrage} für Sammelabfragen über REST und Zähler
+ *     {@code kfz.sammelabfrage.kennzeichen} für die einzelnen KFZ-Kennzeichen in diesen
+ *     Abfragen mit Tag {@code ergebnis}.</li>
+ * </ul>
+ * Alle Timer und Zähler werden beim Start angelegt, damit bei jeder Abfrage nur noch
+ * ein Wert erfasst werden muss.
+ */
+@Component
+public class AbfrageMetriken {
+
+    /** Wert für Tag {@code kanal}: Abfrage über REST-Endpunkt. */
+    public static final String KANAL_REST = "rest";
+
+    /** Wert für Tag {@code kanal}: Abfrage über reaktiven REST-Endpunkt. */
+    public static final String KANAL_REAKTIV = "reaktiv";
+
+    /** Wert für Tag {@code kanal}: Abfrage über Web-Frontend. */
+    public static final String KANAL_THYMELEAF = "thymeleaf";
+
+    /** Registry, in der die Metriken angelegt werden. */
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    /** Timer für Einzelabfragen, Schlüssel ist der Kanal. */
+    private final Map<String, Map<AbfrageStatusEnum, Timer>> _abfrageTimerMap = Map.of(
+                        KANAL_REST     , new EnumMap<>( AbfrageStatusEnum.class ),
+                        KANAL_REAKTIV  , new EnumMap<>( AbfrageStatusEnum.class ),
+                        KANAL_THYMELEAF, new EnumMap<>( AbfrageStatusEnum.class ) );
+
+    /** Zähler für die einzelnen KFZ-Kennzeichen in Sammelabfragen. */
+    private final Map<AbfrageStatusEnum, Counter> _sammelabfrageZaehlerMap = new EnumMap<>( AbfrageStatusEnum.class );
+
+    /** Timer für Sammelabfragen. */
+    private Timer _sammelabfrageTimer;
+
+
+    /**
+     * Timer und Zähler für alle Kombinationen von Kanal und Ergebnis anlegen.
+     */
+    @PostConstruct
+    public void initialisierung() {
+
+        for ( AbfrageStatusEnum status : AbfrageStatusEnum.values() ) {
+
+            final String ergebnis = tagWert( status );
+
+            for ( Map.Entry<String, Map<AbfrageStatusEnum, Timer>> eintrag : _abfrageTimerMap.entrySet() ) {
+
+                final Timer timer = Timer.builder( "kfz.abfrage" )
+                                         .description( "Dauer der Abfrage eines KFZ-Kennzeichens" )
+                                         .tag( "kanal"   , eintrag.getKey() )
+                                         .tag( "ergebnis", ergebnis         )
+                                         .register( _meterRegistry );
+                eintrag.getValue().put( status, timer );
+            }
+
+            final Counter zaehler = Counter.builder( "kfz.sammelabfrage.kennzeichen" )
+                                           .description( "Anzahl KFZ-Kennzeichen in Sammelabfragen" )
+                                           .tag( "ergebnis", ergebnis )
+                                           .register( _meterRegistry );
+            _sammelabfrageZaehlerMap.put( status, zaehler );
+        }
+
+        _sammelabfrageTimer = Timer.builder( "kfz.sammelabfrage" )
+                                   .description( "Dauer einer Sammelabfrage von KFZ-Kennzeichen" )
+                                   .register( _meterRegistry );
+    }
+
+
+    /**
+     * Zeitmessung für eine Abfrage starten.
+     *
+     * @return Objekt, das an {@link #abfrageErfassen(Timer.Sample, String, AbfrageStatusEnum)}
+     *         bzw. {@link #sammelabfrageErfassen(Timer.Sample, List)} übergeben werden muss
+     */
+    public Timer.Sample starten() {
+
+        return Timer.start( _meterRegistry );
+    }
+
+
+    /**
+     * Zeitmessung für eine Einzelabfrage beenden.
+     *
+     * @param messung Rückgabewert von {@link #starten()}
+     *
+     * @param kanal {@link #KANAL_REST}, {@link #KANAL_REAKTIV} oder {@link #KANAL_THYMELEAF}
+     *
+     * @param status Ergebnis der Abfrage
+     */
+    public void abfrageErfassen( Timer.Sample messung, String kanal, AbfrageStatusEnum status ) {
+
+        messung.stop( _abfrageTimerMap.get( kanal ).get( status ) );
+    }
+
+
+    /**
+     * Zeitmessung für eine Sammelabfrage beenden und Ergebnisse der einzelnen
+     * KFZ-Kennzeichen zählen.
+     *
+     * @param messung Rückgabewert von {@link #starten()}
+     *
+     * @param ergebnisListe Ergebnisse der Sammelabfrage
+     */
+    public void sammelabfrageErfassen( Timer.Sample messung, List<KennzeichenAbfrageErgebnis> ergebnisListe ) {
+
+        messung.stop( _sammelabfrageTimer );
+
+        for ( KennzeichenAbfrageErgebnis ergebnis : ergebnisListe ) {
+
+            _sammelabfrageZaehlerMap.get( ergebnis.status() ).increment();
+        }
+    }
+
+
+    /**
+     * Wert für Tag {@code ergebnis}, z.B. "nicht_gefunden" für {@code NICHT_GEFUNDEN}.
+     */
+    private static String tagWert( AbfrageStatusEnum status ) {
+
+        return status.name().toLowerCase();
+    }
+
+}
@@ -0,0 +1,234 @@
+package de.eldecker.dhbw.spring.web;
+
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import de.eldecker.dhbw.spring.db.cache.BloomFilterStatistik;
+import de.eldecker.dhbw.spring.db.cache.CacheStatistik;
+import de.eldecker.dhbw.spring.db.cache.KennzeichenBloomFilter;
+import de.eldecker.dhbw.spring.db.cache.KennzeichenSnapshot;
+import de.eldecker.dhbw.spring.db.cache.KfzKennzeichenCache;
+import de.eldecker.dhbw.spring.db.cache.SnapshotStatistik;
+import de.eldecker.dhbw.spring.logik.DatenExporter;
+import de.eldecker.dhbw.spring.logik.NeuverschluesselungsJob;
+
+
+/**
+ * REST-Controller mit Endpunkten für den Betrieb der Anwendung, z.B. um
+ * die Zähler des Caches abzufragen.
+ */
+@RestController
+@RequestMapping( "/api/v1/admin" )
+public class AdminRestController {
+
+    /** Bean mit Cache für KFZ-Kennzeichen-Abfragen. */
+    @Autowired
+    private KfzKennzeichenCache _kfzKennzeichenCache;
+
+    /** Bean mit Cache für serialisierte bzw. gerenderte Antworten. */
+    @Autowired
+    private AntwortCache _antwortCache;
+
+    /** Bean mit Bloom-Filter für nicht vorhandene KFZ-Kennzeichen. */
+    @Autowired
+    private KennzeichenBloomFilter _kennzeichenBloomFilter;
+
+    /** Bean mit Snapshot-Datei der KFZ-Kennzeichen. */
+    @Autowired
+    private KennzeichenSnapshot _kennzeichenSnapshot;
+
+    /** Bean für Export aller KFZ-Kennzeichen. */
+    @Autowired
+    private DatenExporter _datenExporter;
+
+    /**
+     * Darf der Export über REST abgerufen werden? Der Export enthält die entschlüsselten
+     * Daten aller Halter, deshalb ist der Endpunkt standardmäßig ausgeschaltet.
+     */
+    @Value( "${de.eldecker.kfz-kennzeichen.export.rest-aktiv:false}" )
+    private boolean _exportRestAktiv;
+
+    /** Bean für Neuverschlüsselung nach Schlüsselwechsel. */
+    @Autowired
+    private NeuverschluesselungsJob _neuverschluesselungsJob;
+
+
+    /**
+     * REST-Methode, um die Zähler des Caches für KFZ-Kennzeichen abzufragen.
+     * <br><br>
+     *
+     * Beispiel-URL:
+     * <pre>
+     * http://localhost:8080/api/v1/admin/cache
+     * </pre>
+     *
+     * @return Treffer, Fehlschläge, Verdrängungen und aktuelle Größe des Caches
+     */
+    @GetMapping( "/cache" )
+    public ResponseEntity<CacheStatistik> cacheStatistik() {
+
+        return ResponseEntity.ok( _kfzKennzeichenCache.getStatistik() );
+    }
+
+
+    /**
+     * REST-Methode, um die Zähler des Caches für serialisierte (JSON) bzw. gerenderte
+     * (HTML) Antworten zu gefundenen KFZ-Kennzeichen abzufragen.
+     * <br><br>
+     *
+     * Beispiel-URL:
+     * <pre>
+     * http://localhost:8080/api/v1/admin/antwort-cache
+     * </pre>
+     *
+     * @return Treffer, Fehlschläge, Verdrängungen und aktuelle Größe des Caches
+     */
+    @GetMapping( "/antwort-cache" )
+    public ResponseEntity<CacheStatistik> antwortCacheStatistik() {
+
+        return ResponseEntity.ok( _antwortCache.getStatistik() );
+    }
+
+
+    /**
+     * REST-Methode, um Dimensionierung, Speicherbedarf und Zähler des Bloom-Filters
+     * für KFZ-Kennzeichen abzufragen.
+     * <br><br>
+     *
+     * Beispiel-URL:
+     * <pre>
+     * http://localhost:8080/api/v1/admin/bloomfilter
+     * </pre>
+     *
+     * @return Größe, Füllgrad, geschätzte Fehlerrate und Anzahl der Abfragen, die ohne
+     *         Datenbankzugriff beantwortet wurden
+     */
+    @GetMapping( "/bloomfilter" )
+    public ResponseEntity<BloomFilterStatistik> bloomFilterStatistik() {
+
+        return ResponseEntity.ok( _kennzeichenBloomFilter.getStatistik() );
+    }
+
+
+    /**
+     * REST-Methode, um Status, Größe und Zähler des Snapshots der KFZ-Kennzeichen
+     * abzufragen.
+     * <br><br>
+     *
+     * Beispiel-URL:
+     * <pre>
+     * http://localhost:8080/api/v1/admin/snapshot
+     * </pre>
+     *
+     * @return Anzahl Einträge, Dateigröße, Alter und Anzahl der Abfragen, die aus dem
+     *         Snapshot bzw. aus der Datenbank beantwortet wurden
+     */
+    @GetMapping( "/snapshot" )
+    public ResponseEntity<SnapshotStatistik> snapshotStatistik() {
+
+        return ResponseEntity.ok( _kennzeichenSnapshot.getStatistik() );
+    }
+
+
+    /**
+     * REST-Methode, um den Snapshot der KFZ-Kennzeichen sofort neu aufzubauen, z.B. nach
+     * Änderungen an der Datenbank über die H2-Konsole. Bis der Neuaufbau abgeschlossen
+     * ist, werden alle Abfragen aus der Datenbank beantwortet.
+     * <br><br>
+     *
+     * Beispiel-Aufruf mit <i>curl</i>:
+     * <pre>
+     * curl -X POST http://localhost:8080/api/v1/admin/snapshot
+     * </pre>
+     *
+     * @return HTTP-Status-Code 202 (Accepted), wenn der Neuaufbau gestartet wurde;
+     *         404 (Not Found), wenn der Snapshot ausgeschaltet ist
+     */
+    @PostMapping( "/snapshot" )
+    public ResponseEntity<Void> snapshotNeuaufbau() {
+
+        if ( !_kennzeichenSnapshot.neuaufbauStarten() ) {
+
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.accepted().build();
+    }
+
+
+    /**
+     * REST-Methode, um den Fortschritt der Neuverschlüsselung der Fahrzeughalter nach
+     * einem Schlüsselwechsel abzufragen.
+     * <br><br>
+     *
+     * Beispiel-URL:
+     * <pre>
+     * http://localhost:8080/api/v1/admin/neuverschluesselung
+     * </pre>
+     *
+     * @return Ziel-Format, Anzahl geprüfter und neu verschlüsselter Halter und Durchsatz;
+     *         HTTP-Status-Code 404 (Not Found), wenn der Job nicht gestartet wurde
+     */
+    @GetMapping( "/neuverschluesselung" )
+    public ResponseEntity<NeuverschluesselungsJob.Status> neuverschluesselungStatus() {
+
+        final NeuverschluesselungsJob.Status status = _neuverschluesselungsJob.getStatus();
+        if ( status == null ) {
+
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok( status );
+    }
+
+
+    /**
+     * REST-Methode, um alle KFZ-Kennzeichen mit Fahrzeugdaten und Halter als NDJSON
+     * herunterzuladen. Die Antwort wird während des Lesens aus der Datenbank geschrieben
+     * (Chunked Transfer Encoding), siehe {@link DatenExporter}. Der Endpunkt muss mit
+     * {@code de.eldecker.kfz-kennzeichen.export.rest-aktiv=true} eingeschaltet werden.
+     * <br><br>
+     *
+     * Beispiel-Aufruf mit <i>curl</i>:
+     * <pre>
+     * curl -o export.ndjson.gz "http://localhost:8080/api/v1/admin/export?gzip=true"
+     * </pre>
+     *
+     * @param gzip {@code true}, wenn die Datei mit gzip komprimiert werden soll
+     *
+     * @return Datei {@code kfz-export.ndjson} bzw. {@code kfz-export.ndjson.gz};
+     *         HTTP-Status-Code 404 (Not Found), wenn der Endpunkt ausgeschaltet ist
+     */
+    @GetMapping( "/export" )
+    public ResponseEntity<StreamingResponseBody> export( @RequestParam( defaultValue = "false" ) boolean gzip ) {
+
+        if ( !_exportRestAktiv ) {
+
+            return ResponseEntity.notFound().build();
+        }
+
+        final String    dateiname = gzip ? "kfz-export.ndjson.gz" : "kfz-export.ndjson";
+        final MediaType mediaType = gzip ? MediaType.parseMediaType( "application/gzip" ) : APPLICATION_NDJSON;
+
+        final StreamingResponseBody body = out -> _datenExporter.exportieren( out, gzip );
+
+        return ResponseEntity.ok()
+                             .contentType( mediaType )
+                             .header( HttpHeaders.CONTENT_DISPOSITION,
+                                      ContentDisposition.attachment().filename( dateiname ).build().toString() )
+                             .body( body );
+    }
+
+}
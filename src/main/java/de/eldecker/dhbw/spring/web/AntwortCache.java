@@ -0,0 +1,205 @@
+package de.eldecker.dhbw.spring.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import de.eldecker.dhbw.spring.db.DatenAenderungEvent;
+import de.eldecker.dhbw.spring.db.cache.CacheStatistik;
+import de.eldecker.dhbw.spring.db.cache.KfzKennzeichenCache;
+import de.eldecker.dhbw.spring.db.cache.LruTtlSpeicher;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+
+/**
+ * Cache für die fertig kodierten Antworten (Bytes des Bodys) zu gefundenen
+ * KFZ-Kennzeichen, je KFZ-Kennzeichen und {@link Darstellung}.
+ * <br><br>
+ *
+ * {@link KfzKennzeichenCache} spart Datenbankzugriff und Entschlüsselung; trotzdem wird
+ * für jede Abfrage der Halter mit Jackson serialisiert bzw. das Ergebnis-Template mit
+ * Thymeleaf gerendert. Bei einem Treffer in diesem Cache wird stattdessen nur das
+ * gespeicherte Byte-Array in die Antwort geschrieben.
+ * <br><br>
+ *
+ * Eigenschaften:
+ * <ul>
+ * <li>Es werden nur Antworten für gefundene KFZ-Kennzeichen gespeichert; Antworten für
+ *     nicht vorhandene KFZ-Kennzeichen sind auch ohne Cache billig (Bloom-Filter).</li>
+ * <li>Die Anzahl der Einträge ist begrenzt (LRU), jeder Eintrag verfällt nach einer
+ *     konfigurierbaren Zeit (TTL); wie bei {@link KfzKennzeichenCache} werden die
+ *     Einträge in einem {@link LruTtlSpeicher} gehalten.</li>
+ * <li>Bei jedem Schreibzugriff über die Repositories werden die betroffenen Einträge
+ *     verworfen, und zwar erst nach {@link KfzKennzeichenCache}: sonst könnte eine
+ *     Abfrage in der Zwischenzeit den noch nicht invalidierten, veralteten Datensatz
+ *     aus {@link KfzKennzeichenCache} rendern und hier ablegen.</li>
+ * </ul>
+ * Die Zähler sind unter {@code /api/v1/admin/antwort-cache} und als Metriken
+ * {@code kfz.antwort-cache.*} verfügbar.
+ */
+@Component
+public class AntwortCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger( AntwortCache.class );
+
+    /** Darstellung einer Antwort, ist Teil des Schlüssels. */
+    public enum Darstellung {
+
+        /** JSON-Body des REST-Endpunkts {@code /api/v1/abfrage/{kennzeichen}}. */
+        JSON,
+
+        /** HTML-Seite {@code abfrage-kfzkennzeichen-ergebnis.html}. */
+        HTML
+    }
+
+    /** Alle Darstellungen, für Invalidierung und Berechnung der Schlüssel. */
+    private static final Darstellung[] DARSTELLUNGEN = Darstellung.values();
+
+    /**
+     * Eine gecachte Antwort.
+     *
+     * @param body Kodierter Body (UTF-8); darf nicht verändert werden
+     *
+     * @param etag ETag der Antwort ohne Anführungszeichen, oder {@code null}
+     */
+    public record Antwort( byte[] body, String etag ) {}
+
+    /** Registry für Metriken. */
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    /** Maximale Anzahl der Einträge im Cache (über alle Darstellungen). */
+    @Value( "${de.eldecker.kfz-kennzeichen.antwort-cache.max-eintraege:10000}" )
+    private int _maxEintraege;
+
+    /** Lebensdauer eines Eintrags in Sekunden. */
+    @Value( "${de.eldecker.kfz-kennzeichen.antwort-cache.ttl-sekunden:300}" )
+    private long _ttlSekunden;
+
+    /**
+     * Cache-Einträge; Schlüssel siehe {@link #schluessel(long, Darstellung)}.
+     */
+    private LruTtlSpeicher<Antwort> _speicher;
+
+
+    /**
+     * Speicher für Cache-Einträge anlegen und Metriken registrieren, nachdem die
+     * Konfigurationswerte gesetzt wurden.
+     */
+    @PostConstruct
+    public void initialisierung() {
+
+        _speicher = new LruTtlSpeicher<>( _maxEintraege, _ttlSekunden );
+        _speicher.metrikenRegistrieren( _meterRegistry, "kfz.antwort-cache", "kodierte Antworten" );
+
+        LOG.info( "Cache für kodierte Antworten: max. {} Einträge, TTL {} Sekunden.",
+                  _maxEintraege, _ttlSekunden );
+    }
+
+
+    /**
+     * Gecachte Antwort nachschlagen.
+     *
+     * @param kennzeichenCode Kodiertes KFZ-Kennzeichen
+     *
+     * @param darstellung JSON oder HTML
+     *
+     * @return Antwort, oder {@code null} wenn nicht im Cache (oder abgelaufen)
+     */
+    public Antwort nachschlagen( long kennzeichenCode, Darstellung darstellung ) {
+
+        return _speicher.nachschlagen( schluessel( kennzeichenCode, darstellung ) );
+    }
+
+
+    /**
+     * Aktuelle Generation abfragen; muss <b>vor</b> dem Laden des Datensatzes, aus dem die
+     * Antwort erzeugt wird, aufgerufen und an {@link #ablegen(long, Darstellung, Antwort, long)}
+     * übergeben werden.
+     *
+     * @return Wert des Zählers für Invalidierungen
+     */
+    public long getGeneration() {
+
+        return _speicher.getGeneration();
+    }
+
+
+    /**
+     * Erzeugte Antwort im Cache ablegen, wenn es in der Zwischenzeit keine Invalidierung
+     * gab.
+     *
+     * @param kennzeichenCode Kodiertes KFZ-Kennzeichen
+     *
+     * @param darstellung JSON oder HTML
+     *
+     * @param antwort Kodierte Antwort; das Byte-Array darf danach nicht mehr verändert werden
+     *
+     * @param generation Wert von {@link #getGeneration()} vor dem Laden des Datensatzes
+     */
+    public void ablegen( long kennzeichenCode, Darstellung darstellung, Antwort antwort, long generation ) {
+
+        _speicher.ablegen( schluessel( kennzeichenCode, darstellung ), antwort, generation );
+    }
+
+
+    /**
+     * Event-Handler für Schreibzugriffe auf die Datenbank (nach dem Commit), wird nach dem
+     * Handler von {@link KfzKennzeichenCache} aufgerufen (siehe {@code @Order} dort).
+     *
+     * @param event Event mit den KFZ-Kennzeichen einer Transaktion
+     */
+    @EventListener
+    @Order( Ordered.LOWEST_PRECEDENCE )
+    public void beiDatenAenderung( DatenAenderungEvent event ) {
+
+        final List<Long> schluesselListe = new ArrayList<>( event.alleKennzeichen().size() * DARSTELLUNGEN.length );
+        for ( String kennzeichen : event.alleKennzeichen() ) {
+
+            final long kennzeichenCode = KennzeichenParser.parsen( kennzeichen );
+            if ( kennzeichenCode == KennzeichenParser.UNGUELTIG ) {
+
+                continue;
+            }
+            for ( Darstellung darstellung : DARSTELLUNGEN ) {
+
+                schluesselListe.add( schluessel( kennzeichenCode, darstellung ) );
+            }
+        }
+
+        _speicher.invalidieren( schluesselListe );
+    }
+
+
+    /**
+     * Zähler des Caches abfragen.
+     *
+     * @return Momentaufnahme der Zähler
+     */
+    public CacheStatistik getStatistik() {
+
+        return _speicher.getStatistik();
+    }
+
+
+    /**
+     * Schlüssel für Cache-Eintrag berechnen; das kodierte KFZ-Kennzeichen hat höchstens 41 Bits
+     * (siehe {@code KennzeichenKodierer}), es ist also genug Platz für die Darstellung.
+     */
+    private static long schluessel( long kennzeichenCode, Darstellung darstellung ) {
+
+        return kennzeichenCode * DARSTELLUNGEN.length + darstellung.ordinal();
+    }
+
+}
@@ -1,24 +1,55 @@
 package de.eldecker.dhbw.spring.web;
 
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.FEHLER;
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.GEFUNDEN;
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.NICHT_GEFUNDEN;
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.UNGUELTIG;
+import static de.eldecker.dhbw.spring.web.AbfrageMetriken.KANAL_REST;
+import static de.eldecker.dhbw.spring.web.AntwortCache.Darstellung.JSON;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.eldecker.dhbw.spring.db.FahrzeugHalterRepo;
 import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.cache.KennzeichenPraefixIndex;
+import de.eldecker.dhbw.spring.db.cache.KfzKennzeichenCache;
 import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
 import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.BlindIndexHelfer;
+import de.eldecker.dhbw.spring.model.AbfrageStatusEnum;
+import de.eldecker.dhbw.spring.model.HalterFahrzeug;
+import de.eldecker.dhbw.spring.model.HalterFahrzeugSeite;
+import de.eldecker.dhbw.spring.model.KennzeichenAbfrageErgebnis;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 
 
@@ -32,30 +63,92 @@ public class ExternRestController {
 
     private static final Logger LOG = LoggerFactory.getLogger( ExternRestController.class );
 
-    /** Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    /** Bean für (gecachten) Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
     @Autowired
-    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+    private KfzKennzeichenCache _kfzKennzeichenCache;
+
+    /** Bean mit sortiertem Index für Vorschläge zu einem Präfix. */
+    @Autowired
+    private KennzeichenPraefixIndex _praefixIndex;
+
+    /** Bean für Erfassung von Dauer und Ergebnis der Abfragen. */
+    @Autowired
+    private AbfrageMetriken _abfrageMetriken;
+
+    /** Bean mit serialisierten Antworten für gefundene KFZ-Kennzeichen. */
+    @Autowired
+    private AntwortCache _antwortCache;
+
+    /** Von Spring MVC verwendeter Object Mapper, um Antworten für {@link #_antwortCache} zu serialisieren. */
+    @Autowired
+    private ObjectMapper _objectMapper;
     
     /** Leeres Objekt als "Antwort" für Abfragen, wenn KFZ-Kennzeichen nicht gefunden wurde. */ 
     private FahrzeugHalterEntity _fahrzeugHalterLeer = new FahrzeugHalterEntity();
 
-    /** Konfiguration, ob REST-Endpunkt sporadische Fehler zurückliefern soll. */
-    @Value( "${de.eldecker.kfz-kennzeichen.rest.sporadischefehler:false}" )
-    private boolean _sporadischeFehler;
+    /** Bean für Simulation sporadischer Fehler. */
+    @Autowired
+    private FehlerSimulator _fehlerSimulator;
+
+    /** Maximale Anzahl KFZ-Kennzeichen in einer Sammelabfrage. */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.max-sammelabfrage:1000}" )
+    private int _maxSammelabfrage;
+
+    /** Maximale Anzahl Vorschläge für Autovervollständigung. */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.max-vorschlaege:50}" )
+    private int _maxVorschlaege;
+
+    /** Repo-Bean für Suche nach Halter (nicht über Cache, da kein Zugriff über Kennzeichen). */
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    /** Bean für Berechnung der Blind Indizes der Suchbegriffe. */
+    @Autowired
+    private BlindIndexHelfer _blindIndexHelfer;
+
+    /** Maximale Anzahl Ergebnisse bei Suche nach Halter. */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.max-suchergebnisse:100}" )
+    private int _maxSuchergebnisse;
+
+    /** Repo-Bean für Prüfung, ob Halter existiert. */
+    @Autowired
+    private FahrzeugHalterRepo _fahrzeugHalterRepo;
+
+    /** Maximale Seitengröße für Abfrage der KFZ-Kennzeichen eines Halters. */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.max-seitengroesse:500}" )
+    private int _maxSeitengroesse;
+
+    /** Wie lange darf ein Client die Antwort für ein gefundenes KFZ-Kennzeichen cachen? */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.cache-max-alter-sekunden:60}" )
+    private long _cacheMaxAlterSekunden;
+
+    /** Wie lange darf ein Client die Antwort für ein nicht gefundenes KFZ-Kennzeichen cachen? */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.cache-max-alter-nicht-gefunden-sekunden:10}" )
+    private long _cacheMaxAlterNichtGefundenSekunden;
+
+    /** Header {@code Cache-Control} für gefundene KFZ-Kennzeichen (auch bei Status 304). */
+    private CacheControl _cacheControlGefunden;
+
+    /** Header {@code Cache-Control} für nicht gefundene KFZ-Kennzeichen. */
+    private CacheControl _cacheControlNichtGefunden;
+
 
-    
     /**
-     * Methode schreibt auf Logger, ob sporadische Fehler bei REST-Abfragen
-     * laut Konfiguration erzeugt werden sollen.
+     * Header {@code Cache-Control} aus Konfiguration erzeugen; die Antworten enthalten
+     * personenbezogene Daten und dürfen deshalb nur vom Client selbst, aber nicht von
+     * Proxies gecacht werden ({@code private}).
      */
     @PostConstruct
-    public void nachKonstruktor() {
+    public void initialisierung() {
 
-        LOG.info( "Erzeugung sporadische Fehler bei REST-Abfragen: {}",
-                  _sporadischeFehler );
+        _cacheControlGefunden      = CacheControl.maxAge( _cacheMaxAlterSekunden, TimeUnit.SECONDS )
+                                                 .cachePrivate();
+        _cacheControlNichtGefunden = CacheControl.maxAge( _cacheMaxAlterNichtGefundenSekunden, TimeUnit.SECONDS )
+                                                 .cachePrivate();
     }
 
 
+
     /**
      * REST-Methode für Endpunkt, um Infos zu KFZ-Kennzeichen abzufragen.
      * <br><br>
@@ -65,46 +158,404 @@ public class ExternRestController {
      * http://localhost:8080/api/v1/abfrage/BAD%20E%201234
      * </pre><br>
      * Die Leerzeichen müssen mit {@code %20} kodiert werden.
+     * <br><br>
+     *
+     * Die Antwort für ein gefundenes KFZ-Kennzeichen enthält ein ETag, das aus den
+     * Versionsnummern von KFZ-Kennzeichen und Halter gebildet wird (siehe
+     * {@link #etagBerechnen(KfzKennzeichenEntity)}). Schickt der Client dieses ETag im
+     * Header {@code If-None-Match} mit, dann wird nur HTTP-Status-Code 304 (Not Modified)
+     * ohne Body zurückgegeben; die Halterdaten werden dann weder entschlüsselt noch
+     * serialisiert. Der serialisierte Halter wird mit dem ETag in {@link AntwortCache}
+     * abgelegt, bei weiteren Abfragen wird er ohne Jackson direkt geschrieben.
      *
      * @param kennzeichen KFZ-Kennzeichen, für das die Halterinformationen zurückgegeben
      *                    werden sollen.
      *
-     * @return Wenn gefunden, dann serialisiertes Objekt und HTTP-Status-Code 200 (OK),
-     *         wenn nicht gefunden, dann HTTP-Status-Code 404 (Not Found); mit 50%
-     *         Wahrscheinlichkeit treten allerdings interne Fehler auf (um Fehler-Handling
-     *         beim Client zu testen).
+     * @param webRequest Request, für Auswertung Header {@code If-None-Match}
+     *
+     * @return Wenn gefunden, dann serialisiertes Objekt und HTTP-Status-Code 200 (OK)
+     *         bzw. 304 (Not Modified), wenn nicht gefunden, dann HTTP-Status-Code 404
+     *         (Not Found); bei ungültigem KFZ-Kennzeichen HTTP-Status-Code 400 (Bad
+     *         Request) ohne Datenbankzugriff; mit 50% Wahrscheinlichkeit treten
+     *         allerdings interne Fehler auf (um Fehler-Handling beim Client zu testen).
      */
     @GetMapping( "/abfrage/{kennzeichen}" )
-    public ResponseEntity<FahrzeugHalterEntity> kennzeichenAbfragen ( @PathVariable String kennzeichen )
+    public ResponseEntity<?> kennzeichenAbfragen( @PathVariable String kennzeichen,
+                                                  WebRequest webRequest )
                                throws Exception {
 
-        kennzeichen = kennzeichen.trim();
-        LOG.info( "REST-Abfrage für KFZ-Kennzeichen erhalten: \"{}\"", kennzeichen );
+        final long kennzeichenCode = KennzeichenParser.parsen( kennzeichen );
+        if ( kennzeichenCode == KennzeichenParser.UNGUELTIG ) {
+
+            LOG.warn( "REST-Abfrage mit ungültigem KFZ-Kennzeichen: \"{}\"", kennzeichen );
+            return ResponseEntity.status( BAD_REQUEST )
+                                 .cacheControl( CacheControl.noStore() )
+                                 .body( null );
+        }
+
+        final Timer.Sample messung = _abfrageMetriken.starten();
+        AbfrageStatusEnum status = FEHLER; // auch bei Exception
+
+        try {
+
+            kennzeichen = KfzKennzeichenCache.normieren( kennzeichen );
+            LOG.info( "REST-Abfrage für KFZ-Kennzeichen erhalten: \"{}\"", kennzeichen );
+
+            if ( _fehlerSimulator.sporadischerFehler( kennzeichen ) ) {
+
+                return ResponseEntity.status( INTERNAL_SERVER_ERROR )
+                                     .cacheControl( CacheControl.noStore() )
+                                     .body( null );
+            }
+
+            final AntwortCache.Antwort antwort = _antwortCache.nachschlagen( kennzeichenCode, JSON );
+            if ( antwort != null ) {
+
+                LOG.info( "KFZ-Kennzeichen \"{}\" gefunden (Antwort aus Cache).", kennzeichen );
+                status = GEFUNDEN;
+                return jsonAntwort( antwort, webRequest );
+            }
+
+            final long generation = _antwortCache.getGeneration();
+
+            Optional<KfzKennzeichenEntity> kennzeichenOptional =
+                                _kfzKennzeichenCache.findByKennzeichenCode( kennzeichenCode );
+
+            if ( kennzeichenOptional.isEmpty() ) {
 
-        if ( _sporadischeFehler && Math.random() <= 0.5 ) {
+               LOG.warn( "Kein KFZ-Kennzeichen \"{}\" gefunden.", kennzeichen );
+               status = NICHT_GEFUNDEN;
+               return ResponseEntity.status( NOT_FOUND )
+                                    .cacheControl( _cacheControlNichtGefunden )
+                                    .body( _fahrzeugHalterLeer );
 
-            LOG.error( "Interner Fehler bei Abfrage von KFZ-Kennzeichen \"{}\" (Zufallsentscheidung).", 
-                       kennzeichen );
-            return ResponseEntity.status( INTERNAL_SERVER_ERROR ).body( null );
+            } else {
+
+                KfzKennzeichenEntity kfzKennzeichen      = kennzeichenOptional.get();
+                FahrzeugHalterEntity fahrzeugHalterDaten = kfzKennzeichen.getFahrzeugHalter();
+
+                final String etag = etagBerechnen( kfzKennzeichen );
+                status = GEFUNDEN;
+
+                if ( webRequest.checkNotModified( etag ) ) {
+
+                    LOG.info( "KFZ-Kennzeichen gefunden, beim Client aktuell: {}", kfzKennzeichen );
+                    return ResponseEntity.status( NOT_MODIFIED ) // ETag schon von checkNotModified() gesetzt
+                                         .cacheControl( _cacheControlGefunden )
+                                         .build();
+                }
+
+                LOG.info( "KFZ-Kennzeichen gefunden: {}", kfzKennzeichen );
+
+                final AntwortCache.Antwort neueAntwort =
+                        new AntwortCache.Antwort( _objectMapper.writeValueAsBytes( fahrzeugHalterDaten ), etag );
+                _antwortCache.ablegen( kennzeichenCode, JSON, neueAntwort, generation );
+
+                return jsonAntwort( neueAntwort, webRequest );
+            }
+        }
+        finally {
+
+            _abfrageMetriken.abfrageErfassen( messung, KANAL_REST, status );
         }
+    }
+
 
-        Optional<KfzKennzeichenEntity> kennzeichenOptional =
-                            _kfzKennzeichenRepo.findByKennzeichen( kennzeichen );
+    /**
+     * Antwort für gefundenes KFZ-Kennzeichen aus serialisiertem Halter erzeugen; der
+     * Body wird von Spring MVC unverändert geschrieben.
+     *
+     * @param antwort JSON-Body mit ETag
+     *
+     * @param webRequest Request, für Auswertung Header {@code If-None-Match}
+     *
+     * @return Antwort mit HTTP-Status-Code 200 (OK) bzw. 304 (Not Modified)
+     */
+    private ResponseEntity<byte[]> jsonAntwort( AntwortCache.Antwort antwort, WebRequest webRequest ) {
 
-        if ( kennzeichenOptional.isEmpty() ) {
+        if ( webRequest.checkNotModified( antwort.etag() ) ) {
 
-           LOG.warn( "Kein KFZ-Kennzeichen \"{}\" gefunden.", kennzeichen );
-           return ResponseEntity.status( NOT_FOUND ).body( _fahrzeugHalterLeer );
+            return ResponseEntity.status( NOT_MODIFIED ) // ETag schon von checkNotModified() gesetzt
+                                 .cacheControl( _cacheControlGefunden )
+                                 .build();
+        }
+
+        return ResponseEntity.status( OK )
+                             .eTag( antwort.etag() )
+                             .cacheControl( _cacheControlGefunden )
+                             .contentType( APPLICATION_JSON )
+                             .body( antwort.body() );
+    }
 
-        } else {
 
-            KfzKennzeichenEntity kfzKennzeichen      = kennzeichenOptional.get();
-            FahrzeugHalterEntity fahrzeugHalterDaten = kfzKennzeichen.getFahrzeugHalter();
 
-            LOG.info( "KFZ-Kennzeichen gefunden: {}", kfzKennzeichen );
-            return ResponseEntity.status( OK )
-                                 .body( fahrzeugHalterDaten );
+    /**
+     * ETag für Antwort zu einem KFZ-Kennzeichen berechnen. Das ETag ändert sich, wenn
+     * das KFZ-Kennzeichen (z.B. Zuordnung zu anderem Halter) oder der Halter geändert
+     * wird, weil JPA dann die jeweilige Versionsnummer erhöht.
+     *
+     * @param kfzKennzeichen Gefundenes KFZ-Kennzeichen mit Halter
+     *
+     * @return ETag ohne Anführungszeichen, z.B. "12.0-7.3" für KFZ-Kennzeichen mit ID 12
+     *         in Version 0 und Halter mit ID 7 in Version 3
+     */
+    private static String etagBerechnen( KfzKennzeichenEntity kfzKennzeichen ) {
+
+        final FahrzeugHalterEntity halter = kfzKennzeichen.getFahrzeugHalter();
+
+        return kfzKennzeichen.getId() + "." + kfzKennzeichen.getVersion() + "-" +
+               halter.getId()         + "." + halter.getVersion();
+    }
+
+
+
+    /**
+     * REST-Methode für Sammelabfrage von mehreren KFZ-Kennzeichen mit einem Aufruf.
+     * Alle KFZ-Kennzeichen, die nicht im Cache sind, werden mit einer einzigen
+     * Datenbankabfrage aufgelöst.
+     * <br><br>
+     *
+     * Beispiel-Aufruf mit <i>curl</i>:
+     * <pre>
+     * curl -X POST -H "Content-Type: application/json" -d '["BAD E 1234", "KA XX 123"]' http://localhost:8080/api/v1/abfrage
+     * </pre>
+     *
+     * @param kennzeichenListe JSON-Array mit den abzufragenden KFZ-Kennzeichen
+     *
+     * @return HTTP-Status-Code 200 (OK) mit einem Ergebnis pro Element von
+     *         {@code kennzeichenListe} (gleiche Reihenfolge), Status {@code UNGUELTIG}
+     *         für KFZ-Kennzeichen mit falschem Format; wenn die Liste leer ist,
+     *         zu viele Elemente enthält oder ein Element {@code null} ist, dann
+     *         HTTP-Status-Code 400 (Bad Request).
+     *         Wenn sporadische Fehler konfiguriert sind, dann hat jedes einzelne
+     *         Ergebnis mit 50% Wahrscheinlichkeit den Status {@code FEHLER}.
+     */
+    @PostMapping( "/abfrage" )
+    public ResponseEntity<List<KennzeichenAbfrageErgebnis>> kennzeichenSammelAbfragen( @RequestBody List<String> kennzeichenListe ) {
+
+        if ( kennzeichenListe.isEmpty() || kennzeichenListe.size() > _maxSammelabfrage ) {
+
+            LOG.warn( "Sammelabfrage mit ungültiger Anzahl von KFZ-Kennzeichen: {}", kennzeichenListe.size() );
+            return ResponseEntity.status( BAD_REQUEST ).body( null );
         }
+        if ( kennzeichenListe.contains( null ) ) {
+
+            LOG.warn( "Sammelabfrage mit null als KFZ-Kennzeichen." );
+            return ResponseEntity.status( BAD_REQUEST ).body( null );
+        }
+
+        LOG.info( "REST-Sammelabfrage für {} KFZ-Kennzeichen erhalten.", kennzeichenListe.size() );
+
+        final Timer.Sample messung = _abfrageMetriken.starten();
+
+        final Map<String, Optional<KfzKennzeichenEntity>> ergebnisMap =
+                            _kfzKennzeichenCache.findByKennzeichenIn( kennzeichenListe );
+
+        final List<KennzeichenAbfrageErgebnis> ergebnisListe = new ArrayList<>( kennzeichenListe.size() );
+        for ( String kennzeichen : kennzeichenListe ) {
+
+            final String kennzeichenNormiert = KfzKennzeichenCache.normieren( kennzeichen );
+
+            if ( KennzeichenParser.parsen( kennzeichenNormiert ) == KennzeichenParser.UNGUELTIG ) {
+
+                ergebnisListe.add( new KennzeichenAbfrageErgebnis( kennzeichenNormiert, UNGUELTIG, null ) );
+                continue;
+            }
+
+            if ( _fehlerSimulator.sporadischerFehler( kennzeichenNormiert ) ) {
+
+                ergebnisListe.add( new KennzeichenAbfrageErgebnis( kennzeichenNormiert, FEHLER, null ) );
+                continue;
+            }
+
+            final Optional<KfzKennzeichenEntity> kennzeichenOptional = ergebnisMap.get( kennzeichenNormiert );
+            if ( kennzeichenOptional.isEmpty() ) {
+
+                ergebnisListe.add( new KennzeichenAbfrageErgebnis( kennzeichenNormiert, NICHT_GEFUNDEN, null ) );
+
+            } else {
+
+                final FahrzeugHalterEntity fahrzeugHalter = kennzeichenOptional.get().getFahrzeugHalter();
+                ergebnisListe.add( new KennzeichenAbfrageErgebnis( kennzeichenNormiert, GEFUNDEN, fahrzeugHalter ) );
+            }
+        }
+
+        _abfrageMetriken.sammelabfrageErfassen( messung, ergebnisListe );
+
+        return ResponseEntity.status( OK ).body( ergebnisListe );
+    }
+
+
+
+    /**
+     * REST-Methode für Vorschläge (Autovervollständigung) zu einem unvollständigen
+     * KFZ-Kennzeichen. Die Vorschläge kommen aus einem sortierten Index im Speicher,
+     * es erfolgt kein Datenbankzugriff.
+     * <br><br>
+     *
+     * Beispiel-URL für KFZ-Kennzeichen, die mit "KA X" beginnen:
+     * <pre>
+     * http://localhost:8080/api/v1/vorschlaege?praefix=KA%20X&max=10
+     * </pre>
+     *
+     * @param praefix Anfang des KFZ-Kennzeichens, z.B. "KA X"; Groß-/Kleinschreibung
+     *                egal
+     *
+     * @param max Maximale Anzahl Vorschläge, Default-Wert 10
+     *
+     * @return HTTP-Status-Code 200 (OK) mit alphabetisch sortierter Liste von
+     *         KFZ-Kennzeichen (kann leer sein); wenn {@code praefix} leer ist oder
+     *         {@code max} außerhalb des erlaubten Bereichs liegt, dann HTTP-Status-Code
+     *         400 (Bad Request).
+     */
+    @GetMapping( "/vorschlaege" )
+    public ResponseEntity<List<String>> vorschlaege( @RequestParam String praefix,
+                                                     @RequestParam( defaultValue = "10" ) int max ) {
+
+        if ( praefix.isBlank() || max < 1 || max > _maxVorschlaege ) {
+
+            return ResponseEntity.status( BAD_REQUEST ).body( null );
+        }
+
+        return ResponseEntity.status( OK ).body( _praefixIndex.suchen( praefix, max ) );
+    }
+
+
+    /**
+     * REST-Methode, um alle KFZ-Kennzeichen eines Halters zu suchen. Da Namen und
+     * Anschrift verschlüsselt gespeichert sind, wird über die Blind Indizes gesucht;
+     * die Suchbegriffe müssen deshalb vollständig angegeben werden (keine Suche nach
+     * Teilstrings), Groß-/Kleinschreibung und überzählige Leerzeichen sind egal.
+     * <br><br>
+     *
+     * Beispiel-URL für Halter mit Nachname "Musterfrau" und PLZ 68159:
+     * <pre>
+     * http://localhost:8080/api/v1/suche?nachname=Musterfrau&plz=68159
+     * </pre>
+     *
+     * @param nachname Nachname des Halters (Pflicht)
+     *
+     * @param plz Postleitzahl des Halters (optional)
+     *
+     * @param vorname Vorname des Halters (optional)
+     *
+     * @param anschrift Straße und Hausnummer des Halters (optional)
+     *
+     * @return HTTP-Status-Code 200 (OK) mit nach KFZ-Kennzeichen sortierter Liste der
+     *         Treffer (kann leer sein, höchstens {@code max-suchergebnisse} Elemente);
+     *         wenn {@code nachname} leer ist oder {@code plz} keine gültige Postleitzahl,
+     *         dann HTTP-Status-Code 400 (Bad Request).
+     */
+    @GetMapping( "/suche" )
+    public ResponseEntity<List<KennzeichenAbfrageErgebnis>> halterSuchen( @RequestParam String nachname,
+                                                                          @RequestParam( required = false ) Integer plz,
+                                                                          @RequestParam( required = false ) String  vorname,
+                                                                          @RequestParam( required = false ) String  anschrift ) {
+
+        if ( nachname.isBlank() || ( plz != null && ( plz < 1_001 || plz > 99_999 ) ) ) {
+
+            return ResponseEntity.status( BAD_REQUEST ).body( null );
+        }
+
+        LOG.info( "REST-Suche nach Halter erhalten (PLZ: {}).", plz ); // keine Namen ins Log
+
+        final List<KfzKennzeichenEntity> trefferListe =
+                _kfzKennzeichenRepo.sucheNachHalter( _blindIndexHelfer.berechnen( nachname ),
+                                                     plz,
+                                                     suchbegriffIndex( vorname   ),
+                                                     suchbegriffIndex( anschrift ),
+                                                     Limit.of( _maxSuchergebnisse ) );
+
+        final List<KennzeichenAbfrageErgebnis> ergebnisListe = new ArrayList<>( trefferListe.size() );
+        for ( KfzKennzeichenEntity kennzeichen : trefferListe ) {
+
+            ergebnisListe.add( new KennzeichenAbfrageErgebnis( kennzeichen.getKennzeichen(),
+                                                               GEFUNDEN,
+                                                               kennzeichen.getFahrzeugHalter() ) );
+        }
+
+        return ResponseEntity.status( OK ).body( ergebnisListe );
+    }
+
+
+    /**
+     * REST-Methode, um alle KFZ-Kennzeichen eines Halters seitenweise abzufragen
+     * (Keyset-Pagination). Die erste Seite wird ohne Parameter {@code nach} abgefragt,
+     * für jede weitere Seite wird der Wert von {@code weiterNach} aus der Antwort
+     * übergeben; im Gegensatz zu {@code OFFSET} bleibt so jede Seite gleich schnell und
+     * es werden keine Datensätze übersprungen oder doppelt geliefert, wenn zwischendurch
+     * KFZ-Kennzeichen hinzukommen.
+     * <br><br>
+     *
+     * Beispiel-URL für die ersten 100 KFZ-Kennzeichen des Halters mit ID 3:
+     * <pre>
+     * http://localhost:8080/api/v1/halter/3/kennzeichen?max=100
+     * </pre>
+     *
+     * @param halterId Primärschlüssel des Halters (Attribut {@code id} in JSON des Halters)
+     *
+     * @param nach Nur KFZ-Kennzeichen nach diesem Wert liefern, Default-Wert 0 (erste Seite)
+     *
+     * @param max Seitengröße, Default-Wert 100
+     *
+     * @return HTTP-Status-Code 200 (OK) mit einer Seite (kann leer sein); wenn es den
+     *         Halter nicht gibt, dann HTTP-Status-Code 404 (Not Found); wenn {@code max}
+     *         oder {@code nach} außerhalb des erlaubten Bereichs liegt, dann
+     *         HTTP-Status-Code 400 (Bad Request).
+     */
+    @GetMapping( "/halter/{halterId}/kennzeichen" )
+    public ResponseEntity<HalterFahrzeugSeite> halterKennzeichen( @PathVariable long halterId,
+                                                                  @RequestParam( defaultValue = "0"   ) long nach,
+                                                                  @RequestParam( defaultValue = "100" ) int  max ) {
+
+        if ( nach < 0 || max < 1 || max > _maxSeitengroesse ) {
+
+            return ResponseEntity.status( BAD_REQUEST ).body( null );
+        }
+
+        // Halter laden statt nur existsById(): ist dann im Persistence Context (Open Session
+        // in View), so dass die Referenz in den KFZ-Kennzeichen keine weitere Abfrage braucht
+        if ( _fahrzeugHalterRepo.findById( halterId ).isEmpty() ) {
+
+            LOG.warn( "Kein Halter mit ID {} gefunden.", halterId );
+            return ResponseEntity.status( NOT_FOUND ).body( null );
+        }
+
+        final List<KfzKennzeichenEntity> kennzeichenListe =
+                _kfzKennzeichenRepo.findByFahrzeugHalterIdAndIdGreaterThanOrderById( halterId, nach, Limit.of( max ) );
+
+        final List<HalterFahrzeug> fahrzeugListe = new ArrayList<>( kennzeichenListe.size() );
+        for ( KfzKennzeichenEntity kennzeichen : kennzeichenListe ) {
+
+            fahrzeugListe.add( new HalterFahrzeug( kennzeichen.getKennzeichen(),
+                                                   kennzeichen.isHistorisch(),
+                                                   kennzeichen.getFahrzeugDaten() ) );
+        }
+
+        final Long weiterNach = kennzeichenListe.size() < max
+                                ? null
+                                : kennzeichenListe.get( kennzeichenListe.size() - 1 ).getId();
+
+        return ResponseEntity.status( OK ).body( new HalterFahrzeugSeite( fahrzeugListe, weiterNach ) );
+    }
+
+
+    /**
+     * Blind Index für optionalen Suchbegriff berechnen.
+     *
+     * @param suchbegriff Suchbegriff, darf {@code null} oder leer sein
+     *
+     * @return Blind Index, oder {@code null} wenn {@code suchbegriff} leer ist (keine
+     *         Einschränkung der Suche)
+     */
+    private String suchbegriffIndex( String suchbegriff ) {
+
+        if ( suchbegriff == null || suchbegriff.isBlank() ) {
+
+            return null;
+        }
+
+        return _blindIndexHelfer.berechnen( suchbegriff );
     }
 
 }
@@ -0,0 +1,57 @@
+package de.eldecker.dhbw.spring.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+
+/**
+ * Simuliert sporadische interne Fehler bei REST-Abfragen, damit das Fehler-Handling
+ * beim Client getestet werden kann.
+ */
+@Component
+public class FehlerSimulator {
+
+    private static final Logger LOG = LoggerFactory.getLogger( FehlerSimulator.class );
+
+    /** Konfiguration, ob REST-Endpunkte sporadische Fehler zurückliefern sollen. */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.sporadischefehler:false}" )
+    private boolean _sporadischeFehler;
+
+
+    /**
+     * Methode schreibt auf Logger, ob sporadische Fehler bei REST-Abfragen
+     * laut Konfiguration erzeugt werden sollen.
+     */
+    @PostConstruct
+    public void nachKonstruktor() {
+
+        LOG.info( "Erzeugung sporadische Fehler bei REST-Abfragen: {}",
+                  _sporadischeFehler );
+    }
+
+
+    /**
+     * Zufallsentscheidung, ob für die Abfrage eines KFZ-Kennzeichens ein interner
+     * Fehler simuliert werden soll (nur wenn sporadische Fehler konfiguriert sind).
+     *
+     * @param kennzeichen KFZ-Kennzeichen, für Log-Ausgabe
+     *
+     * @return {@code true} wenn Fehler simuliert werden soll (50% Wahrscheinlichkeit)
+     */
+    public boolean sporadischerFehler( String kennzeichen ) {
+
+        if ( _sporadischeFehler && Math.random() <= 0.5 ) {
+
+            LOG.error( "Interner Fehler bei Abfrage von KFZ-Kennzeichen \"{}\" (Zufallsentscheidung).",
+                       kennzeichen );
+            return true;
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,131 @@
+package de.eldecker.dhbw.spring.web;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+
+/**
+ * Erkennt mit <i>Java Flight Recorder</i> (JFR), wenn ein virtueller Thread längere Zeit
+ * an seinen Träger-Thread gebunden ist ("pinning"), z.B. weil er innerhalb eines
+ * {@code synchronized}-Blocks blockiert. Während dieser Zeit kann der Träger-Thread keine
+ * anderen virtuellen Threads ausführen, so dass der Vorteil der virtuellen Threads
+ * verloren geht.
+ * <br><br>
+ *
+ * Der Detektor ist nur aktiv, wenn die Requests auf virtuellen Threads bearbeitet werden
+ * ({@code spring.threads.virtual.enabled=true}). Für jedes Ereignis {@code jdk.VirtualThreadPinned}
+ * wird eine Warnung mit den obersten Stack-Frames geschrieben und der Zähler
+ * {@code kfz.virtualthreads.pinned} erhöht.
+ */
+@Component
+public class PinningDetektor {
+
+    private static final Logger LOG = LoggerFactory.getLogger( PinningDetektor.class );
+
+    /** Name des JFR-Ereignisses. */
+    private static final String EREIGNIS_NAME = "jdk.VirtualThreadPinned";
+
+    /** Anzahl der Stack-Frames, die für ein Ereignis geloggt werden. */
+    private static final int ANZAHL_FRAMES_LOG = 8;
+
+    /** Werden Requests auf virtuellen Threads bearbeitet? */
+    @Value( "${spring.threads.virtual.enabled:false}" )
+    private boolean _virtuelleThreads;
+
+    /** Ereignisse, die kürzer sind, werden nicht gemeldet. */
+    @Value( "${de.eldecker.kfz-kennzeichen.virtual-threads.pinning-schwelle-ms:20}" )
+    private long _schwelleMillis;
+
+    /** Registry für Metriken. */
+    @Autowired
+    private MeterRegistry _meterRegistry;
+
+    /** JFR-Stream, {@code null} wenn Detektor nicht aktiv. */
+    private RecordingStream _recordingStream = null;
+
+    /** Zähler für Pinning-Ereignisse. */
+    private Counter _pinningZaehler;
+
+
+    /**
+     * JFR-Stream starten, wenn virtuelle Threads verwendet werden.
+     */
+    @PostConstruct
+    public void starten() {
+
+        if ( !_virtuelleThreads ) {
+
+            return;
+        }
+
+        _pinningZaehler = Counter.builder( "kfz.virtualthreads.pinned" )
+                                 .description( "Anzahl Ereignisse, bei denen ein virtueller Thread an seinen Träger-Thread gebunden war" )
+                                 .register( _meterRegistry );
+
+        _recordingStream = new RecordingStream();
+        _recordingStream.enable( EREIGNIS_NAME )
+                        .withThreshold( Duration.ofMillis( _schwelleMillis ) )
+                        .withStackTrace();
+        _recordingStream.onEvent( EREIGNIS_NAME, this::beiPinning );
+        _recordingStream.startAsync();
+
+        LOG.info( "Requests werden auf virtuellen Threads bearbeitet, Pinning-Detektor gestartet (Schwelle {} ms).",
+                  _schwelleMillis );
+    }
+
+
+    /**
+     * JFR-Stream beim Herunterfahren der Anwendung schließen.
+     */
+    @PreDestroy
+    public void stoppen() {
+
+        if ( _recordingStream != null ) {
+
+            _recordingStream.close();
+        }
+    }
+
+
+    /**
+     * Callback für ein Pinning-Ereignis.
+     *
+     * @param ereignis Ereignis von JFR
+     */
+    private void beiPinning( RecordedEvent ereignis ) {
+
+        _pinningZaehler.increment();
+
+        String stackTrace = "<kein Stack-Trace>";
+        if ( ereignis.getStackTrace() != null ) {
+
+            final List<RecordedFrame> frameListe = ereignis.getStackTrace().getFrames();
+            stackTrace = frameListe.stream()
+                                   .limit( ANZAHL_FRAMES_LOG )
+                                   .map( frame -> frame.getMethod().getType().getName() + "." +
+                                                  frame.getMethod().getName() + ":" + frame.getLineNumber() )
+                                   .collect( Collectors.joining( "\n    " ) );
+        }
+
+        LOG.warn( "Virtueller Thread \"{}\" war {} ms an Träger-Thread gebunden:\n    {}",
+                  ereignis.getThread() != null ? ereignis.getThread().getJavaName() : "?",
+                  ereignis.getDuration().toMillis(),
+                  stackTrace );
+    }
+
+}
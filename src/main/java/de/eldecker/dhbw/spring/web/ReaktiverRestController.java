@@ -0,0 +1,154 @@
+package de.eldecker.dhbw.spring.web;
+
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.FEHLER;
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.GEFUNDEN;
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.NICHT_GEFUNDEN;
+import static de.eldecker.dhbw.spring.web.AbfrageMetriken.KANAL_REAKTIV;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.eldecker.dhbw.spring.db.cache.KfzKennzeichenCache;
+import de.eldecker.dhbw.spring.db.reaktiv.ReaktiveHalterAbfrage;
+import de.eldecker.dhbw.spring.model.FahrzeugHalterDaten;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * REST-Controller mit reaktiver Variante der Abfrage von KFZ-Kennzeichen: Die Methode
+ * gibt ein {@link Mono} zurück, so dass der Request-Thread sofort wieder frei ist und
+ * die Antwort erst geschrieben wird, wenn Datenbankabfrage und Entschlüsselung
+ * abgeschlossen sind (asynchrone Request-Verarbeitung von Servlet 3).
+ * <br><br>
+ *
+ * Die Antwort entspricht der von {@link ExternRestController#kennzeichenAbfragen(String, org.springframework.web.context.request.WebRequest)}
+ * (ohne ETag), auch der Header {@code Cache-Control} wird aus denselben
+ * Konfigurationsparametern erzeugt.
+ */
+@RestController
+@RequestMapping( "/api/v1/reaktiv" )
+public class ReaktiverRestController {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ReaktiverRestController.class );
+
+    /** Bean für reaktive Abfrage des Halters. */
+    @Autowired
+    private ReaktiveHalterAbfrage _reaktiveHalterAbfrage;
+
+    /** Bean für Simulation sporadischer Fehler. */
+    @Autowired
+    private FehlerSimulator _fehlerSimulator;
+
+    /** Bean für Erfassung von Dauer und Ergebnis der Abfragen. */
+    @Autowired
+    private AbfrageMetriken _abfrageMetriken;
+
+    /** Wie lange darf ein Client die Antwort für ein gefundenes KFZ-Kennzeichen cachen? */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.cache-max-alter-sekunden:60}" )
+    private long _cacheMaxAlterSekunden;
+
+    /** Wie lange darf ein Client die Antwort für ein nicht gefundenes KFZ-Kennzeichen cachen? */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.cache-max-alter-nicht-gefunden-sekunden:10}" )
+    private long _cacheMaxAlterNichtGefundenSekunden;
+
+    /** Header {@code Cache-Control} für gefundene KFZ-Kennzeichen. */
+    private CacheControl _cacheControlGefunden;
+
+    /** Header {@code Cache-Control} für nicht gefundene KFZ-Kennzeichen. */
+    private CacheControl _cacheControlNichtGefunden;
+
+
+    /**
+     * Header {@code Cache-Control} wie bei {@link ExternRestController#initialisierung()}
+     * erzeugen, also nur für den Client selbst ({@code private}).
+     */
+    @PostConstruct
+    public void initialisierung() {
+
+        _cacheControlGefunden      = CacheControl.maxAge( _cacheMaxAlterSekunden, TimeUnit.SECONDS )
+                                                 .cachePrivate();
+        _cacheControlNichtGefunden = CacheControl.maxAge( _cacheMaxAlterNichtGefundenSekunden, TimeUnit.SECONDS )
+                                                 .cachePrivate();
+    }
+
+
+    /**
+     * Reaktive REST-Methode, um Infos zu KFZ-Kennzeichen abzufragen.
+     * <br><br>
+     *
+     * Beispiel-URL für Abfrage KFZ-Kennzeichen "BAD E 1234":
+     * <pre>
+     * http://localhost:8080/api/v1/reaktiv/abfrage/BAD%20E%201234
+     * </pre>
+     *
+     * @param kennzeichen KFZ-Kennzeichen, für das die Halterinformationen zurückgegeben
+     *                    werden sollen.
+     *
+     * @return Wenn gefunden, dann Halterdaten und HTTP-Status-Code 200 (OK), wenn nicht
+     *         gefunden, dann leeres Objekt und HTTP-Status-Code 404 (Not Found); bei
+     *         ungültigem KFZ-Kennzeichen HTTP-Status-Code 400 (Bad Request) ohne
+     *         Datenbankzugriff; wenn sporadische Fehler konfiguriert sind, dann mit 50%
+     *         Wahrscheinlichkeit HTTP-Status-Code 500 (Internal Server Error).
+     */
+    @GetMapping( "/abfrage/{kennzeichen}" )
+    public Mono<ResponseEntity<FahrzeugHalterDaten>> kennzeichenAbfragen( @PathVariable String kennzeichen ) {
+
+        final long kennzeichenCode = KennzeichenParser.parsen( kennzeichen );
+        if ( kennzeichenCode == KennzeichenParser.UNGUELTIG ) {
+
+            LOG.warn( "Reaktive REST-Abfrage mit ungültigem KFZ-Kennzeichen: \"{}\"", kennzeichen );
+            return Mono.just( ResponseEntity.status( BAD_REQUEST )
+                                            .cacheControl( CacheControl.noStore() )
+                                            .body( null ) );
+        }
+
+        final String kennzeichenNormiert = KfzKennzeichenCache.normieren( kennzeichen );
+        LOG.info( "Reaktive REST-Abfrage für KFZ-Kennzeichen erhalten: \"{}\"", kennzeichenNormiert );
+
+        final Timer.Sample messung = _abfrageMetriken.starten();
+
+        if ( _fehlerSimulator.sporadischerFehler( kennzeichenNormiert ) ) {
+
+            _abfrageMetriken.abfrageErfassen( messung, KANAL_REAKTIV, FEHLER );
+            return Mono.just( ResponseEntity.status( INTERNAL_SERVER_ERROR )
+                                            .cacheControl( CacheControl.noStore() )
+                                            .body( null ) );
+        }
+
+        return _reaktiveHalterAbfrage.findByKennzeichenCode( kennzeichenCode )
+                                     .map( halter -> {
+
+                                         _abfrageMetriken.abfrageErfassen( messung, KANAL_REAKTIV, GEFUNDEN );
+                                         return ResponseEntity.status( OK )
+                                                              .cacheControl( _cacheControlGefunden )
+                                                              .body( halter );
+                                     })
+                                     .switchIfEmpty( Mono.fromSupplier( () -> {
+
+                                         LOG.warn( "Kein KFZ-Kennzeichen \"{}\" gefunden.", kennzeichenNormiert );
+                                         _abfrageMetriken.abfrageErfassen( messung, KANAL_REAKTIV, NICHT_GEFUNDEN );
+                                         return ResponseEntity.status( NOT_FOUND )
+                                                              .cacheControl( _cacheControlNichtGefunden )
+                                                              .body( FahrzeugHalterDaten.LEER );
+                                     }))
+                                     .doOnError( ex -> _abfrageMetriken.abfrageErfassen( messung, KANAL_REAKTIV, FEHLER ) );
+    }
+
+}
@@ -1,15 +1,32 @@
 package de.eldecker.dhbw.spring.web;
 
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.FEHLER;
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.GEFUNDEN;
+import static de.eldecker.dhbw.spring.model.AbfrageStatusEnum.NICHT_GEFUNDEN;
+import static de.eldecker.dhbw.spring.web.AbfrageMetriken.KANAL_THYMELEAF;
+import static de.eldecker.dhbw.spring.web.AntwortCache.Darstellung.HTML;
+import static jakarta.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.ISpringTemplateEngine;
 
-import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.cache.KfzKennzeichenCache;
 import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
-
+import de.eldecker.dhbw.spring.model.AbfrageStatusEnum;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Locale;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -25,13 +42,30 @@ public class ThymeleafController {
 
     private static final Logger LOG = LoggerFactory.getLogger( ThymeleafController.class );
 
-    /** Bean für Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    /** Name der Template-Datei für das Ergebnis einer Abfrage (ohne Datei-Endung). */
+    private static final String TEMPLATE_ERGEBNIS = "abfrage-kfzkennzeichen-ergebnis";
+
+    /** Bean für (gecachten) Zugriff auf Datenbanktabelle mit KFZ-Kennzeichen. */
+    @Autowired
+    private KfzKennzeichenCache _kfzKennzeichenCache;
+
+    /** Bean für Erfassung von Dauer und Ergebnis der Abfragen. */
+    @Autowired
+    private AbfrageMetriken _abfrageMetriken;
+
+    /** Bean mit gerenderten Ergebnisseiten für gefundene KFZ-Kennzeichen. */
+    @Autowired
+    private AntwortCache _antwortCache;
+
+    /** Template-Engine, um Ergebnisseiten für {@link #_antwortCache} zu rendern. */
     @Autowired
-    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+    private ISpringTemplateEngine _templateEngine;
 
 
     /**
-     * Controller-Methode für Abfrage KFZ-Kennzeichen.
+     * Controller-Methode für Abfrage KFZ-Kennzeichen. Die Ergebnisseite für ein gefundenes
+     * KFZ-Kennzeichen wird selbst gerendert und in {@link AntwortCache} abgelegt, bei
+     * weiteren Abfragen wird sie direkt aus dem Cache geschrieben.
      *
      * @param model Objekt für Platzhalterwerte in Template
      *
@@ -40,42 +74,102 @@ public class ThymeleafController {
      * @param feld_2 Ein oder zwei Buchstaben "in der Mitte", also zwischen Unterscheidungszeichen
      *               und Zahlen (vorderer Teil Erkennungsnummer).
      *
-     * @param feld_3 Zahl am Schluss, ein bis vier Stellen (hinterer Teil Erkennungsnummer).
+     * @param feld_3 Zahl am Schluss, ein bis vier Stellen (hinterer Teil Erkennungsnummer);
+     *               als String, damit führende Nullen erhalten bleiben.
+     *
+     * @param response Für HTTP-Status-Code 400 (Bad Request) bei ungültigem KFZ-Kennzeichen
+     *                 und für Ergebnisseite eines gefundenen KFZ-Kennzeichens
      *
-     * @return Name von Template-Datei {@code abfrage-kfzkennzeichen-ergebnis.html} ohne Datei-Endung
+     * @return Name von Template-Datei {@code abfrage-kfzkennzeichen-ergebnis.html} ohne Datei-Endung;
+     *         {@code null}, wenn die Ergebnisseite schon in {@code response} geschrieben wurde
+     *
+     * @throws IOException Fehler beim Schreiben der Ergebnisseite
      */
     @GetMapping( "/abfrage-kfz" )
     public String abfrageKfzKennzeichen( Model model,
                                          @RequestParam( value = "feld_1", required = true ) String feld1,
                                          @RequestParam( value = "feld_2", required = true ) String feld2,
-                                         @RequestParam( value = "feld_3", required = true ) int    feld3 ) {
-        final String kfzKennzeichen =
-                        String.format( "%s %s %d",
-                                       feld1.trim().toUpperCase(), // Frontend sollte keine Leerzeichen durchlassen
-                                       feld2.trim().toUpperCase(),
-                                       feld3 );
+                                         @RequestParam( value = "feld_3", required = true ) String feld3,
+                                         HttpServletResponse response ) throws IOException {
+
+        final long kennzeichenCode = KennzeichenParser.parsen( feld1, feld2, feld3 );
+        if ( kennzeichenCode == KennzeichenParser.UNGUELTIG ) {
+
+            LOG.warn( "Abfrage mit ungültigem KFZ-Kennzeichen erhalten: \"{}\" \"{}\" \"{}\"", feld1, feld2, feld3 );
+            model.addAttribute( "nachricht", "Ungültiges KFZ-Kennzeichen." );
+            response.setStatus( SC_BAD_REQUEST );
+            return TEMPLATE_ERGEBNIS;
+        }
+
+        final String kfzKennzeichen = KennzeichenKodierer.dekodieren( kennzeichenCode );
 
         LOG.info( "Abfrage für KFZ-Kennzeichen \"{}\" erhalten.", kfzKennzeichen );
 
-        final Optional<KfzKennzeichenEntity> kennzeichenOptional = _kfzKennzeichenRepo.findByKennzeichen( kfzKennzeichen );
-        if ( kennzeichenOptional.isEmpty() ) {
+        final Timer.Sample messung = _abfrageMetriken.starten();
+        AbfrageStatusEnum status = FEHLER; // auch bei Exception
+
+        try {
 
-            final String nachricht = String.format( "KFZ-Kennzeichen \"%s\" nicht gefunden.", kfzKennzeichen );
-            LOG.info( nachricht );
-            model.addAttribute( "nachricht", nachricht );
+            final AntwortCache.Antwort antwort = _antwortCache.nachschlagen( kennzeichenCode, HTML );
+            if ( antwort != null ) {
 
-        } else { // gefunden
+                LOG.info( "KFZ-Kennzeichen \"{}\" gefunden (Ergebnisseite aus Cache).", kfzKennzeichen );
+                status = GEFUNDEN;
+                htmlSchreiben( response, antwort.body() );
+                return null;
+            }
 
-            final KfzKennzeichenEntity kennzeichenEntity = kennzeichenOptional.get();
+            final long generation = _antwortCache.getGeneration();
 
-            final String nachricht = String.format( "KFZ-Kennzeichen \"%s\" gefunden.", kennzeichenEntity );
-            LOG.info( nachricht );
+            final Optional<KfzKennzeichenEntity> kennzeichenOptional = _kfzKennzeichenCache.findByKennzeichenCode( kennzeichenCode );
+            if ( kennzeichenOptional.isEmpty() ) {
 
-            model.addAttribute( "nachricht"        , nachricht );
-            model.addAttribute( "kennzeichenEntity", kennzeichenEntity );
+                final String nachricht = String.format( "KFZ-Kennzeichen \"%s\" nicht gefunden.", kfzKennzeichen );
+                LOG.info( nachricht );
+                model.addAttribute( "nachricht", nachricht );
+                status = NICHT_GEFUNDEN;
+
+            } else { // gefunden
+
+                final KfzKennzeichenEntity kennzeichenEntity = kennzeichenOptional.get();
+
+                final String nachricht = String.format( "KFZ-Kennzeichen \"%s\" gefunden.", kennzeichenEntity );
+                LOG.info( nachricht );
+
+                model.addAttribute( "nachricht"        , nachricht );
+                model.addAttribute( "kennzeichenEntity", kennzeichenEntity );
+
+                final byte[] html = _templateEngine.process( TEMPLATE_ERGEBNIS, new Context( Locale.GERMAN, model.asMap() ) )
+                                                   .getBytes( UTF_8 );
+                _antwortCache.ablegen( kennzeichenCode, HTML, new AntwortCache.Antwort( html, null ), generation );
+                status = GEFUNDEN;
+                htmlSchreiben( response, html );
+                return null;
+            }
+        }
+        finally {
+
+            _abfrageMetriken.abfrageErfassen( messung, KANAL_THYMELEAF, status );
         }
 
-        return "abfrage-kfzkennzeichen-ergebnis";
+        return TEMPLATE_ERGEBNIS;
+    }
+
+
+    /**
+     * Fertig gerenderte Ergebnisseite als Antwort schreiben.
+     *
+     * @param response Antwort, an die der Body geschrieben wird
+     *
+     * @param html Ergebnisseite in UTF-8
+     *
+     * @throws IOException Fehler beim Schreiben
+     */
+    private static void htmlSchreiben( HttpServletResponse response, byte[] html ) throws IOException {
+
+        response.setContentType( "text/html;charset=UTF-8" );
+        response.setContentLength( html.length );
+        response.getOutputStream().write( html );
     }
 
 }
@@ -0,0 +1,148 @@
+package de.eldecker.dhbw.spring.web;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.eldecker.dhbw.spring.logik.ZulassungsService;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import de.eldecker.dhbw.spring.model.SchreibErgebnis;
+import de.eldecker.dhbw.spring.model.Zulassung;
+
+
+/**
+ * REST-Controller, um Zulassungen (KFZ-Kennzeichen mit Fahrzeugdaten und Halter)
+ * anzulegen und zu ändern, z.B. durch das System einer Zulassungsstelle. Die Caches
+ * für Abfragen werden über die Entity-Listener invalidiert, siehe
+ * {@code DatenAenderungListener}.
+ */
+@RestController
+@RequestMapping( "/api/v1" )
+public class ZulassungRestController {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ZulassungRestController.class );
+
+    /** Bean, die Zulassungen prüft und speichert. */
+    @Autowired
+    private ZulassungsService _zulassungsService;
+
+    /** Maximale Anzahl Zulassungen, die mit einem Request angelegt werden. */
+    @Value( "${de.eldecker.kfz-kennzeichen.rest.max-zulassungen:1000}" )
+    private int _maxZulassungen;
+
+
+    /**
+     * REST-Methode, um eine oder mehrere neue Zulassungen anzulegen. Alle Zulassungen
+     * eines Requests werden in einer Transaktion mit JDBC-Batches gespeichert; für
+     * hohen Durchsatz sollten deshalb möglichst viele Zulassungen (bis zu
+     * {@code max-zulassungen}) mit einem Request geschickt werden.
+     * <br><br>
+     *
+     * Beispiel-Aufruf mit <i>curl</i>:
+     * <pre>
+     * curl -X POST -H "Content-Type: application/json" -d '[{"kennzeichen": "KA AB 1", "historisch": false,
+     *      "marke": "VW", "farbe": "ROT", "fin": "WVWHG83A8VNUBRGCG", "baujahr": 2007, "anrede": "Herr",
+     *      "vorname": "Max", "nachname": "Mustermann", "anschrift": "Kronenplatz 1", "plz": 76676,
+     *      "wohnort": "Karlsruhe"}]' http://localhost:8080/api/v1/zulassungen
+     * </pre>
+     *
+     * @param zulassungListe JSON-Array mit den neuen Zulassungen
+     *
+     * @return HTTP-Status-Code 201 (Created), wenn alle Zulassungen gespeichert wurden;
+     *         400 (Bad Request), wenn die Liste leer ist, zu viele Elemente enthält oder
+     *         mindestens eine Zulassung ungültig ist; 409 (Conflict), wenn mindestens ein
+     *         KFZ-Kennzeichen bereits existiert. Außer bei 201 wurde nichts gespeichert,
+     *         die Gründe stehen in {@code fehlerListe}.
+     */
+    @PostMapping( "/zulassungen" )
+    public ResponseEntity<SchreibErgebnis> zulassungenAnlegen( @RequestBody List<Zulassung> zulassungListe ) {
+
+        if ( zulassungListe.isEmpty() || zulassungListe.size() > _maxZulassungen ) {
+
+            LOG.warn( "Request zum Anlegen mit ungültiger Anzahl von Zulassungen: {}", zulassungListe.size() );
+            return ResponseEntity.status( BAD_REQUEST ).body( null );
+        }
+
+        final SchreibErgebnis ergebnis = _zulassungsService.anlegen( zulassungListe );
+
+        return ResponseEntity.status( httpStatus( ergebnis, CREATED ) ).body( ergebnis );
+    }
+
+
+    /**
+     * REST-Methode, um eine vorhandene Zulassung zu ändern (Fahrzeugdaten, Halter oder
+     * Attribut {@code historisch}); das KFZ-Kennzeichen selbst kann nicht geändert werden.
+     * Zum Verhalten bei geänderten Halterdaten siehe
+     * {@link ZulassungsService#aendern(String, Zulassung)}.
+     * <br><br>
+     *
+     * Beispiel-URL für KFZ-Kennzeichen "KA AB 1" (Body wie bei {@code POST}, aber nur ein
+     * Objekt statt Array):
+     * <pre>
+     * http://localhost:8080/api/v1/zulassungen/KA%20AB%201
+     * </pre>
+     *
+     * @param kennzeichen KFZ-Kennzeichen der zu ändernden Zulassung
+     *
+     * @param zulassung Neue Daten; Attribut {@code kennzeichen} kann fehlen
+     *
+     * @return HTTP-Status-Code 200 (OK), wenn die Änderung gespeichert wurde; 400 (Bad
+     *         Request) bei ungültigem KFZ-Kennzeichen oder ungültigen Daten; 404 (Not
+     *         Found), wenn es das KFZ-Kennzeichen nicht gibt; 409 (Conflict), wenn der
+     *         Datensatz gleichzeitig geändert wurde.
+     */
+    @PutMapping( "/zulassungen/{kennzeichen}" )
+    public ResponseEntity<SchreibErgebnis> zulassungAendern( @PathVariable String kennzeichen,
+                                                             @RequestBody  Zulassung zulassung ) {
+
+        final String kennzeichenNormiert = KennzeichenParser.normieren( kennzeichen );
+        if ( kennzeichenNormiert == null ) {
+
+            LOG.warn( "Request zum Ändern mit ungültigem KFZ-Kennzeichen: \"{}\"", kennzeichen );
+            return ResponseEntity.status( BAD_REQUEST ).body( null );
+        }
+
+        final SchreibErgebnis ergebnis = _zulassungsService.aendern( kennzeichenNormiert, zulassung );
+
+        return ResponseEntity.status( httpStatus( ergebnis, OK ) ).body( ergebnis );
+    }
+
+
+    /**
+     * HTTP-Status-Code für Ergebnis eines Schreibzugriffs.
+     *
+     * @param ergebnis Ergebnis von {@link ZulassungsService}
+     *
+     * @param erfolg HTTP-Status-Code, wenn gespeichert wurde
+     *
+     * @return HTTP-Status-Code für Antwort
+     */
+    private static HttpStatus httpStatus( SchreibErgebnis ergebnis, HttpStatus erfolg ) {
+
+        return switch ( ergebnis.status() ) {
+
+            case GESPEICHERT    -> erfolg;
+            case UNGUELTIG      -> BAD_REQUEST;
+            case KONFLIKT       -> CONFLICT;
+            case NICHT_GEFUNDEN -> NOT_FOUND;
+        };
+    }
+
+}
@@ -0,0 +1,160 @@
+package de.eldecker.dhbw.spring.benchmark;
+
+import static de.eldecker.dhbw.spring.web.AntwortCache.Darstellung.HTML;
+import static de.eldecker.dhbw.spring.web.AntwortCache.Darstellung.JSON;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import de.eldecker.dhbw.spring.model.KfzFarbeEnum;
+import de.eldecker.dhbw.spring.model.KfzMarkeEnum;
+import de.eldecker.dhbw.spring.web.AntwortCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+
+/**
+ * Benchmarks für eine Abfrage, deren Datensatz schon (entschlüsselt) im Speicher ist:
+ * Serialisierung des Halters mit Jackson bzw. Rendern der Ergebnisseite mit Thymeleaf
+ * (mit und ohne Template-Cache, siehe {@code spring.thymeleaf.cache}) im Vergleich
+ * zum Nachschlagen der fertigen Bytes in {@link AntwortCache}.
+ * Für diese Benchmarks wird kein Spring-Kontext benötigt.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class AntwortCacheBenchmark {
+
+    private static final String KENNZEICHEN = "KA XX 123";
+
+    private static final long KENNZEICHEN_CODE = KennzeichenParser.parsen( KENNZEICHEN );
+
+    private static final String TEMPLATE = "abfrage-kfzkennzeichen-ergebnis";
+
+    private KfzKennzeichenEntity _kennzeichenEntity;
+
+    private ObjectMapper _objectMapper;
+
+    private SpringTemplateEngine _templateEngineOhneCache;
+
+    private SpringTemplateEngine _templateEngineMitCache;
+
+    private AntwortCache _antwortCache;
+
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+
+        final FahrzeugHalterEntity halter =
+                new FahrzeugHalterEntity( "Herr", "Max", "Mustermann", "Kronenplatz 1", 76676, "Karlsruhe" );
+        final FahrzeugDatenEntity daten =
+                new FahrzeugDatenEntity( KfzMarkeEnum.BMW, KfzFarbeEnum.BLAU, "WBA12345678901234", 2020 );
+        _kennzeichenEntity = new KfzKennzeichenEntity( KENNZEICHEN, daten, halter );
+
+        _objectMapper = Jackson2ObjectMapperBuilder.json().build(); // wie von Spring Boot konfiguriert
+
+        _templateEngineOhneCache = templateEngine( false );
+        _templateEngineMitCache  = templateEngine( true  );
+
+        _antwortCache = new AntwortCache();
+        ReflectionTestUtils.setField( _antwortCache, "_meterRegistry", new SimpleMeterRegistry() );
+        ReflectionTestUtils.setField( _antwortCache, "_maxEintraege" , 10_000 );
+        ReflectionTestUtils.setField( _antwortCache, "_ttlSekunden"  , 300L );
+        _antwortCache.initialisierung();
+
+        final byte[] json = jsonSerialisieren();
+        final byte[] html = htmlRendernMitTemplateCache();
+        _antwortCache.ablegen( KENNZEICHEN_CODE, JSON, new AntwortCache.Antwort( json, "1.0-1.0" ), 0 );
+        _antwortCache.ablegen( KENNZEICHEN_CODE, HTML, new AntwortCache.Antwort( html, null      ), 0 );
+
+        System.out.printf( "%nAntwort JSON: %d Bytes, HTML: %d Bytes%n", json.length, html.length );
+    }
+
+
+    private static SpringTemplateEngine templateEngine( boolean cache ) {
+
+        final ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix( "templates/" );
+        resolver.setSuffix( ".html" );
+        resolver.setTemplateMode( TemplateMode.HTML );
+        resolver.setCharacterEncoding( "UTF-8" );
+        resolver.setCacheable( cache );
+
+        final SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver( resolver );
+        return templateEngine;
+    }
+
+
+    private byte[] htmlRendern( SpringTemplateEngine templateEngine ) {
+
+        final Map<String, Object> model = Map.of( "nachricht"        , "KFZ-Kennzeichen \"" + _kennzeichenEntity + "\" gefunden.",
+                                                  "kennzeichenEntity", _kennzeichenEntity );
+
+        return templateEngine.process( TEMPLATE, new Context( Locale.GERMAN, model ) ).getBytes( UTF_8 );
+    }
+
+
+    @Benchmark
+    public byte[] jsonSerialisieren() throws JsonProcessingException {
+
+        return _objectMapper.writeValueAsBytes( _kennzeichenEntity.getFahrzeugHalter() );
+    }
+
+
+    @Benchmark
+    public byte[] htmlRendernOhneTemplateCache() {
+
+        return htmlRendern( _templateEngineOhneCache );
+    }
+
+
+    @Benchmark
+    public byte[] htmlRendernMitTemplateCache() {
+
+        return htmlRendern( _templateEngineMitCache );
+    }
+
+
+    @Benchmark
+    public byte[] jsonAusAntwortCache() {
+
+        return _antwortCache.nachschlagen( KENNZEICHEN_CODE, JSON ).body();
+    }
+
+
+    @Benchmark
+    public byte[] htmlAusAntwortCache() {
+
+        return _antwortCache.nachschlagen( KENNZEICHEN_CODE, HTML ).body();
+    }
+
+}
@@ -0,0 +1,69 @@
+package de.eldecker.dhbw.spring.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.logik.MassenImporter;
+import de.eldecker.dhbw.spring.logik.TestDatenGenerator;
+
+
+/**
+ * Gemeinsame H2-Datei für Benchmarks und Lasttests in {@code target/benchmark-db/}; sie wird
+ * beim ersten Lauf mit {@link TestDatenGenerator} und {@link MassenImporter} befüllt, weitere
+ * Läufe verwenden die vorhandene Datei.
+ */
+final class BenchmarkDatenbank {
+
+    /** Programmargument für Spring-Kontext, damit die Benchmark-Datenbank verwendet wird. */
+    static final String ARGUMENT_DATASOURCE_URL = "--spring.datasource.url=jdbc:h2:file:./target/benchmark-db/kfzkennzeichen";
+
+
+    private BenchmarkDatenbank() {}
+
+
+    /**
+     * Datenbank befüllen, wenn sie weniger als {@code anzahl} KFZ-Kennzeichen enthält.
+     *
+     * @param kontext Spring-Kontext, der mit {@link #ARGUMENT_DATASOURCE_URL} gestartet wurde
+     *
+     * @param anzahl Anzahl der KFZ-Kennzeichen in der Datenbank
+     *
+     * @param anzahlAbfragen Anzahl der KFZ-Kennzeichen, die zurückgegeben werden
+     *
+     * @return Die ersten {@code anzahlAbfragen} erzeugten KFZ-Kennzeichen; da der Generator
+     *         deterministisch ist, sind es bei jedem Lauf dieselben.
+     *
+     * @throws IOException Fehler beim Schreiben oder Lesen der CSV-Datei
+     */
+    static String[] befuellen( ConfigurableApplicationContext kontext, int anzahl, int anzahlAbfragen )
+            throws IOException {
+
+        final KfzKennzeichenRepo repo      = kontext.getBean( KfzKennzeichenRepo.class );
+        final TestDatenGenerator generator = kontext.getBean( TestDatenGenerator.class );
+
+        if ( repo.count() < anzahl ) {
+
+            final Path csvDatei = Path.of( "target", "benchmark-testdaten.csv" );
+            generator.csvSchreiben( csvDatei, anzahl, TestDatenGenerator.DEFAULT_SEED );
+            kontext.getBean( MassenImporter.class ).importieren( csvDatei );
+            Files.delete( csvDatei );
+        }
+
+        final String[] kennzeichenArray = new String[ anzahlAbfragen ];
+
+        final Iterator<KfzKennzeichenEntity> iterator = generator.erzeugen( anzahlAbfragen, TestDatenGenerator.DEFAULT_SEED );
+        for ( int i = 0; i < anzahlAbfragen; i++ ) {
+
+            kennzeichenArray[ i ] = iterator.next().getKennzeichen();
+        }
+
+        return kennzeichenArray;
+    }
+
+}
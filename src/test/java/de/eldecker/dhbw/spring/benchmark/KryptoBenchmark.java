@@ -0,0 +1,133 @@
+package de.eldecker.dhbw.spring.benchmark;
+
+import static jakarta.xml.bind.DatatypeConverter.parseHexBinary;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.db.krypto.KryptoStringAttributeConverter;
+import de.eldecker.dhbw.spring.db.krypto.VerschluesselterString;
+
+
+/**
+ * Benchmarks für Ver- und Entschlüsselung mit {@link AesHelfer} für typische Feldwerte
+ * sowie für den Weg eines Attributwerts durch {@link KryptoStringAttributeConverter}.
+ * Verglichen wird die Entschlüsselung im binären Format (AES-GCM) mit der im alten
+ * Text-Format (AES-ECB mit Versalzung, Base64); die Anzahl gespeicherter Bytes pro Feld
+ * in beiden Formaten wird beim Setup ausgegeben.
+ * Für diese Benchmarks wird kein Spring-Kontext benötigt.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class KryptoBenchmark {
+
+    private static final String SCHLUESSEL_HEX = "b69fefb74ccf4b7d90a9dedfed01b4cf";
+
+    /** Typische Werte für Anrede, Nachname und Straße mit Hausnummer. */
+    @Param( { "Herr", "Müller-Lüdenscheidt", "Hauptstraße 123B" } )
+    private String klartext;
+
+    private AesHelfer _aesHelfer;
+
+    private KryptoStringAttributeConverter _converter;
+
+    /** Chiffre im binären Format. */
+    private byte[] _chiffre;
+
+    /** Chiffre im alten Text-Format, wie nach Umwandlung der Spalte nach VARBINARY. */
+    private byte[] _chiffreAlt;
+
+
+    @Setup
+    public void setup() throws GeneralSecurityException {
+
+        _aesHelfer = new AesHelfer();
+        ReflectionTestUtils.setField( _aesHelfer, "_schluesselHex", SCHLUESSEL_HEX );
+        ReflectionTestUtils.setField( _aesHelfer, "_versalzung"   , true );
+        ReflectionTestUtils.invokeMethod( _aesHelfer, "initialisierung" );
+
+        _converter = new KryptoStringAttributeConverter( _aesHelfer );
+
+        _chiffre    = _aesHelfer.verschluesseln( klartext );
+        _chiffreAlt = alteChiffre( klartext );
+
+        System.out.printf( "%n\"%s\": %d Bytes UTF-8, gespeichert %d Bytes (GCM, binär) statt %d Bytes (ECB, Base64)%n",
+                           klartext, klartext.getBytes( UTF_8 ).length, _chiffre.length, _chiffreAlt.length );
+    }
+
+
+    /**
+     * Erzeugt eine Chiffre im alten Text-Format ("AES/ECB/PKCS5Padding" mit drei Zeichen
+     * Versalzung, Base64 mit Präfix), wie sie vor Einführung des binären Formats
+     * gespeichert wurde.
+     */
+    private static byte[] alteChiffre( String klartext ) throws GeneralSecurityException {
+
+        final Cipher cipher = Cipher.getInstance( "AES/ECB/PKCS5Padding" );
+        cipher.init( Cipher.ENCRYPT_MODE, new SecretKeySpec( parseHexBinary( SCHLUESSEL_HEX ), "AES" ) );
+
+        final byte[] chiffre = cipher.doFinal( ( "XyZ" + klartext ).getBytes( UTF_8 ) );
+
+        return ( "k1:" + Base64.getEncoder().encodeToString( chiffre ) ).getBytes( US_ASCII );
+    }
+
+
+    @Benchmark
+    public byte[] verschluesseln() throws GeneralSecurityException {
+
+        return _aesHelfer.verschluesseln( klartext );
+    }
+
+
+    @Benchmark
+    public String entschluesseln() throws GeneralSecurityException {
+
+        return _aesHelfer.entschluesseln( _chiffre );
+    }
+
+
+    /** Entschlüsselung einer Chiffre im alten Text-Format, zum Vergleich. */
+    @Benchmark
+    public String entschluesselnAltesFormat() throws GeneralSecurityException {
+
+        return _aesHelfer.entschluesseln( _chiffreAlt );
+    }
+
+
+    /**
+     * Schreiben und Lesen eines Attributwerts über den Converter, einschließlich
+     * Entschlüsselung beim ersten Zugriff auf den Klartext.
+     */
+    @Benchmark
+    public String converterRundreise() {
+
+        final byte[] chiffre = _converter.convertToDatabaseColumn( VerschluesselterString.ausKlartext( klartext ) );
+
+        return _converter.convertToEntityAttribute( chiffre ).getKlartext();
+    }
+
+}
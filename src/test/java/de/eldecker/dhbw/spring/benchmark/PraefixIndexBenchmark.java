@@ -0,0 +1,79 @@
+package de.eldecker.dhbw.spring.benchmark;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.eldecker.dhbw.spring.db.DatenAenderungEvent;
+import de.eldecker.dhbw.spring.db.cache.KennzeichenPraefixIndex;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.logik.TestDatenGenerator;
+
+
+/**
+ * Benchmarks für Vorschläge zu einem Präfix mit {@link KennzeichenPraefixIndex}, befüllt
+ * mit synthetischen KFZ-Kennzeichen von {@link TestDatenGenerator} (ohne Datenbank).
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class PraefixIndexBenchmark {
+
+    /** Anzahl KFZ-Kennzeichen im Index. */
+    @Param( { "2000000" } )
+    private int anzahl;
+
+    private final KennzeichenPraefixIndex _praefixIndex = new KennzeichenPraefixIndex();
+
+
+    @Setup
+    public void setup() {
+
+        final Iterator<KfzKennzeichenEntity> iterator = new TestDatenGenerator().erzeugen( anzahl, 42 );
+        while ( iterator.hasNext() ) {
+
+            final String kennzeichen = iterator.next().getKennzeichen();
+            _praefixIndex.beiDatenAenderung( new DatenAenderungEvent( Set.of( kennzeichen ), Set.of() ) );
+        }
+    }
+
+
+    /** Viele Treffer, nur die ersten 10 werden zurückgegeben. */
+    @Benchmark
+    public List<String> unterscheidungszeichen() {
+
+        return _praefixIndex.suchen( "KA", 10 );
+    }
+
+
+    @Benchmark
+    public List<String> unterscheidungszeichenUndBuchstaben() {
+
+        return _praefixIndex.suchen( "KA X", 10 );
+    }
+
+
+    /** Präfix ohne Treffer. */
+    @Benchmark
+    public List<String> keinTreffer() {
+
+        return _praefixIndex.suchen( "QQQ", 10 );
+    }
+
+}
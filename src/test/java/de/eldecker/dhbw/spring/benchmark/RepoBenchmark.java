@@ -0,0 +1,97 @@
+package de.eldecker.dhbw.spring.benchmark;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import de.eldecker.dhbw.spring.KfzKennzeichenApplication;
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+
+
+/**
+ * Benchmark für {@link KfzKennzeichenRepo#findByKennzeichen(String)} gegen eine H2-Datei
+ * mit {@code anzahl} KFZ-Kennzeichen, einschließlich Entschlüsselung des Nachnamens des
+ * Halters. Es wird die Datenbank aus {@link BenchmarkDatenbank} verwendet.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class RepoBenchmark {
+
+    /** Anzahl der abgefragten (vorhandenen) KFZ-Kennzeichen. */
+    private static final int ANZAHL_ABFRAGEN = 1024;
+
+    /** Gültiges KFZ-Kennzeichen, das nicht in der DB ist (Unterscheidungszeichen wird nicht erzeugt). */
+    private static final String KENNZEICHEN_UNBEKANNT = "ZZZ Z 1";
+
+    @Param( { "100000" } )
+    private int anzahl;
+
+    private ConfigurableApplicationContext _kontext;
+
+    private KfzKennzeichenRepo _repo;
+
+    private String[] _kennzeichenArray;
+
+    private int _zaehler = 0;
+
+
+    @Setup
+    public void setup() throws IOException {
+
+        _kontext = new SpringApplicationBuilder( KfzKennzeichenApplication.class )
+                        .web( WebApplicationType.NONE )
+                        .run( BenchmarkDatenbank.ARGUMENT_DATASOURCE_URL,
+                              "--logging.level.root=WARN",
+                              "--logging.level.de.eldecker=WARN" );
+
+        _repo             = _kontext.getBean( KfzKennzeichenRepo.class );
+        _kennzeichenArray = BenchmarkDatenbank.befuellen( _kontext, anzahl, ANZAHL_ABFRAGEN );
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        _kontext.close();
+    }
+
+
+    @Benchmark
+    public String findByKennzeichenTreffer() {
+
+        final String kennzeichen = _kennzeichenArray[ _zaehler++ & ( ANZAHL_ABFRAGEN - 1 ) ];
+
+        return _repo.findByKennzeichen( kennzeichen )
+                    .orElseThrow()
+                    .getFahrzeugHalter()
+                    .getNachname();
+    }
+
+
+    @Benchmark
+    public Optional<KfzKennzeichenEntity> findByKennzeichenFehlschlag() {
+
+        return _repo.findByKennzeichen( KENNZEICHEN_UNBEKANNT );
+    }
+
+}
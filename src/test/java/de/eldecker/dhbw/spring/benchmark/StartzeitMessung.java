@@ -0,0 +1,239 @@
+package de.eldecker.dhbw.spring.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Misst die Zeit vom Start der JVM bis zur ersten erfolgreichen Antwort (HTTP-Status 200)
+ * von {@code GET /api/v1/abfrage/{kennzeichen}}, also einschließlich Hochfahren von
+ * Hibernate, Schema-Prüfung, Selbsttest der Verschlüsselung und {@code ApplicationRunner}s.
+ * Verglichen werden:
+ * <ul>
+ * <li>das Fat-JAR, wie es mit {@code maven_fatjar.sh} gebaut wird,</li>
+ * <li>das entpackte JAR ohne weitere Optionen,</li>
+ * <li>das entpackte JAR mit Spring AOT ({@code -Dspring.aot.enabled=true}) und</li>
+ * <li>das entpackte JAR mit Spring AOT und dem AppCDS-Archiv aus dem Trainingslauf.</li>
+ * </ul>
+ * Jede Variante wird als eigener Prozess mit derselben JVM gestartet; die Varianten werden
+ * abwechselnd gestartet, damit sich Schwankungen der Maschine auf alle gleich auswirken.
+ * Arbeitsverzeichnis der Prozesse ist {@code target/startzeit}, dort liegen also Datenbank
+ * und Logdatei; vor der Messung wird die Anwendung einmal ohne Messung gestartet, damit
+ * die Datenbank mit den Demo-Daten schon vorhanden ist.
+ * <br><br>
+ *
+ * Aufruf mit {@code maven_startzeit.sh} (baut vorher mit Profil {@code schnellstart});
+ * Argumente: Verzeichnis {@code target}, Name des JARs ohne Endung, Name des Archivs
+ * ohne Endung, Anzahl Starts pro Variante (Default: 5).
+ */
+public class StartzeitMessung {
+
+    /** KFZ-Kennzeichen aus den Demo-Daten, das abgefragt wird. */
+    private static final String PFAD_ABFRAGE = "/api/v1/abfrage/KA%20XX%20123";
+
+    /** Maximale Dauer eines Starts bis zur ersten erfolgreichen Antwort. */
+    private static final Duration TIMEOUT = Duration.ofMinutes( 2 );
+
+    /** Pause zwischen zwei Abfragen, solange die Anwendung noch nicht antwortet. */
+    private static final long PAUSE_MILLIS = 10;
+
+
+    /**
+     * Eine Variante für den Start der Anwendung.
+     *
+     * @param name Anzeigename
+     *
+     * @param jvmOptionen Optionen für die JVM, z.B. {@code -Dspring.aot.enabled=true}
+     *
+     * @param jar JAR-Datei, die mit {@code java -jar} gestartet wird
+     */
+    private record Variante( String name, List<String> jvmOptionen, Path jar ) {}
+
+
+    public static void main( String[] args ) throws Exception {
+
+        final Path   zielVerzeichnis = Path.of( args[ 0 ] ).toAbsolutePath();
+        final String jarName         = args[ 1 ] + ".jar";
+        final String archivName      = args[ 2 ] + ".jsa";
+        final int    anzahlStarts    = args.length > 3 ? Integer.parseInt( args[ 3 ] ) : 5;
+
+        final Path schnellstartVerzeichnis = zielVerzeichnis.resolve( "schnellstart" );
+        final Path entpacktesJar           = schnellstartVerzeichnis.resolve( jarName );
+        final Path archiv                  = schnellstartVerzeichnis.resolve( archivName );
+        if ( !Files.exists( entpacktesJar ) || !Files.exists( archiv ) ) {
+
+            System.err.println( "Entpacktes JAR oder CDS-Archiv fehlt, vorher mit Profil \"schnellstart\" bauen." );
+            System.exit( 1 );
+        }
+
+        final List<Variante> variantenListe = List.of(
+                new Variante( "Fat-JAR"   , List.of(), zielVerzeichnis.resolve( jarName ) ),
+                new Variante( "Entpackt"  , List.of(), entpacktesJar ),
+                new Variante( "AOT"       , List.of( "-Dspring.aot.enabled=true" ), entpacktesJar ),
+                new Variante( "AOT + CDS" , List.of( "-XX:SharedArchiveFile=" + archiv,
+                                                     "-Xshare:on", // Abbruch statt Messung ohne Archiv
+                                                     "-Xlog:cds=off",
+                                                     "-Xlog:cds+dynamic=off",
+                                                     "-Dspring.aot.enabled=true" ), entpacktesJar ) );
+
+        final Path arbeitsVerzeichnis = zielVerzeichnis.resolve( "startzeit" );
+        Files.createDirectories( arbeitsVerzeichnis );
+
+        System.out.printf( "Startzeit bis zur ersten erfolgreichen Abfrage, %d Starts pro Variante.%n", anzahlStarts );
+        System.out.printf( "Erster Start ohne Messung (Datenbank anlegen) ...%n" );
+        starten( variantenListe.get( 0 ), arbeitsVerzeichnis, "vorbereitung" );
+
+        final Map<Variante, List<Long>> ergebnisMap = new LinkedHashMap<>();
+        for ( int i = 1; i <= anzahlStarts; i++ ) {
+
+            for ( Variante variante : variantenListe ) {
+
+                final long millis = starten( variante, arbeitsVerzeichnis, "start-" + i );
+                System.out.printf( "Start %d, %-10s: %6d ms%n", i, variante.name(), millis );
+                ergebnisMap.computeIfAbsent( variante, v -> new ArrayList<>() ).add( millis );
+            }
+        }
+
+        final double medianReferenz = median( ergebnisMap.get( variantenListe.get( 0 ) ) );
+
+        System.out.println();
+        System.out.printf( "%-10s %10s %10s %10s %10s%n", "Variante", "Min ms", "Median ms", "Max ms", "Faktor" );
+        for ( Map.Entry<Variante, List<Long>> eintrag : ergebnisMap.entrySet() ) {
+
+            final List<Long> zeiten = eintrag.getValue();
+            final double     median = median( zeiten );
+            System.out.printf( "%-10s %10d %10.0f %10d %10.2f%n",
+                               eintrag.getKey().name(), Collections.min( zeiten ), median,
+                               Collections.max( zeiten ), medianReferenz / median );
+        }
+
+        System.exit( 0 );
+    }
+
+
+    /**
+     * Anwendung als neuen Prozess starten, warten bis die erste Abfrage erfolgreich ist,
+     * und Anwendung wieder beenden.
+     *
+     * @param variante Variante für den Start
+     *
+     * @param arbeitsVerzeichnis Arbeitsverzeichnis des Prozesses, darin liegen Datenbank
+     *                           ({@code db/}), Logdatei und Ausgabe des Prozesses
+     *
+     * @param bezeichnung Teil des Namens der Datei mit der Ausgabe des Prozesses
+     *
+     * @return Millisekunden vom Start des Prozesses bis zur ersten Antwort mit Status 200
+     */
+    private static long starten( Variante variante, Path arbeitsVerzeichnis, String bezeichnung ) throws Exception {
+
+        final int port = freierPort();
+
+        final List<String> befehl = new ArrayList<>();
+        befehl.add( Path.of( System.getProperty( "java.home" ), "bin", "java" ).toString() );
+        befehl.addAll( variante.jvmOptionen() );
+        befehl.add( "-jar" );
+        befehl.add( variante.jar().toString() );
+        befehl.add( "--server.port=" + port );
+        befehl.add( "--de.eldecker.kfz-kennzeichen.rest.sporadischefehler=false" );
+
+        final String dateiname = variante.name().replaceAll( "[^A-Za-z]+", "-" ).toLowerCase() + "-" + bezeichnung + ".out";
+        final File   ausgabe   = arbeitsVerzeichnis.resolve( dateiname ).toFile();
+
+        final URI uri = URI.create( "http://localhost:" + port + PFAD_ABFRAGE );
+
+        try ( HttpClient httpClient = HttpClient.newBuilder()
+                                                .connectTimeout( Duration.ofSeconds( 1 ) )
+                                                .build() ) {
+
+            final HttpRequest request = HttpRequest.newBuilder( uri ).GET().build();
+
+            final long    startZeit = System.nanoTime();
+            final Process prozess   = new ProcessBuilder( befehl ).directory( arbeitsVerzeichnis.toFile() ) // für ./db und Logdatei
+                                                                   .redirectErrorStream( true )
+                                                                   .redirectOutput( ausgabe )
+                                                                   .start();
+            try {
+
+                while ( true ) {
+
+                    if ( !prozess.isAlive() ) {
+
+                        throw new IllegalStateException( "Anwendung beendet mit Code " + prozess.exitValue() +
+                                                         ", siehe " + ausgabe );
+                    }
+                    if ( System.nanoTime() - startZeit > TIMEOUT.toNanos() ) {
+
+                        throw new IllegalStateException( "Keine erfolgreiche Abfrage nach " + TIMEOUT + ", siehe " + ausgabe );
+                    }
+
+                    try {
+
+                        final HttpResponse<Void> response = httpClient.send( request, HttpResponse.BodyHandlers.discarding() );
+                        if ( response.statusCode() == 200 ) {
+
+                            return TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startZeit );
+                        }
+                        if ( response.statusCode() >= 500 ) {
+
+                            throw new IllegalStateException( "Abfrage mit Status " + response.statusCode() +
+                                                             ", siehe " + ausgabe );
+                        }
+                    }
+                    catch ( ConnectException ex ) {
+
+                        // Tomcat noch nicht gestartet
+                    }
+                    Thread.sleep( PAUSE_MILLIS );
+                }
+            }
+            finally {
+
+                prozess.destroy(); // SIGTERM, damit die Datenbank sauber geschlossen wird
+                if ( !prozess.waitFor( 30, TimeUnit.SECONDS ) ) {
+
+                    prozess.destroyForcibly().waitFor();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Freien TCP-Port ermitteln.
+     */
+    private static int freierPort() throws IOException {
+
+        try ( ServerSocket socket = new ServerSocket( 0 ) ) {
+
+            return socket.getLocalPort();
+        }
+    }
+
+
+    private static double median( List<Long> werte ) {
+
+        final List<Long> sortiert = new ArrayList<>( werte );
+        Collections.sort( sortiert );
+
+        final int mitte = sortiert.size() / 2;
+
+        return sortiert.size() % 2 == 1 ? sortiert.get( mitte )
+                                        : ( sortiert.get( mitte - 1 ) + sortiert.get( mitte ) ) / 2.0;
+    }
+
+}
@@ -0,0 +1,226 @@
+package de.eldecker.dhbw.spring.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import de.eldecker.dhbw.spring.KfzKennzeichenApplication;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+
+/**
+ * Lasttest, der den REST-Endpunkt {@code GET /api/v1/abfrage/{kennzeichen}} einmal mit
+ * Plattform-Threads (Thread-Pool von Tomcat) und einmal mit virtuellen Threads
+ * ({@code spring.threads.virtual.enabled=true}) unter Last setzt und jeweils Durchsatz
+ * und Latenz (Median, 99%-Quantil) ausgibt.
+ * <br><br>
+ *
+ * Jeder Client ist ein virtueller Thread, der ohne Pause eine Abfrage nach der anderen
+ * schickt. Der Cache ist ausgeschaltet, damit jede Abfrage auf die Datenbank zugreift und
+ * den Nachnamen des Halters entschlüsselt. Es wird die Datenbank aus {@link BenchmarkDatenbank}
+ * verwendet.
+ * <br><br>
+ *
+ * Aufruf mit {@code maven_lasttest.sh}; Argumente (alle optional): Anzahl Clients
+ * (Default: 2000), Dauer der Messung pro Modus in Sekunden (Default: 20) und beliebige
+ * weitere Programmargumente für die Anwendung, z.B.
+ * {@code --spring.datasource.hikari.maximum-pool-size=50}.
+ */
+public class ThreadModusLastvergleich {
+
+    /** Anzahl KFZ-Kennzeichen in der Datenbank. */
+    private static final int ANZAHL_KENNZEICHEN = 100_000;
+
+    /** Anzahl der verschiedenen KFZ-Kennzeichen, die abgefragt werden. */
+    private static final int ANZAHL_ABFRAGEN = 10_000;
+
+    /** Dauer Aufwärmphase pro Modus in Sekunden. */
+    private static final int AUFWAERMEN_SEKUNDEN = 5;
+
+
+    /**
+     * Ergebnis eines Lastlaufs.
+     *
+     * @param modus "Plattform-Threads" oder "Virtuelle Threads"
+     *
+     * @param anfragenProSekunde Erfolgreiche Anfragen pro Sekunde
+     *
+     * @param medianMillis Median der Latenz
+     *
+     * @param p99Millis 99%-Quantil der Latenz
+     *
+     * @param anzahlFehler Anzahl Anfragen mit Exception oder HTTP-Status ungleich 200
+     */
+    private record LastErgebnis( String modus, double anfragenProSekunde, double medianMillis,
+                                 double p99Millis, long anzahlFehler ) {}
+
+
+    public static void main( String[] args ) throws Exception {
+
+        final int anzahlClients = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 2_000;
+        final int dauerSekunden = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 20;
+        final String[] weitereArgumente = args.length > 2 ? Arrays.copyOfRange( args, 2, args.length ) : new String[ 0 ];
+
+        System.out.printf( "Lasttest mit %d Clients, %d Sekunden pro Modus.%n", anzahlClients, dauerSekunden );
+
+        final List<LastErgebnis> ergebnisListe = new ArrayList<>();
+        for ( boolean virtuelleThreads : new boolean[] { false, true } ) {
+
+            ergebnisListe.add( lastlauf( virtuelleThreads, anzahlClients, dauerSekunden, weitereArgumente ) );
+        }
+
+        System.out.println();
+        System.out.printf( "%-20s %12s %12s %12s %10s%n", "Modus", "Anfragen/s", "Median ms", "p99 ms", "Fehler" );
+        for ( LastErgebnis ergebnis : ergebnisListe ) {
+
+            System.out.printf( "%-20s %12.0f %12.1f %12.1f %10d%n",
+                               ergebnis.modus(), ergebnis.anfragenProSekunde(),
+                               ergebnis.medianMillis(), ergebnis.p99Millis(), ergebnis.anzahlFehler() );
+        }
+
+        System.exit( 0 );
+    }
+
+
+    /**
+     * Anwendung im angegebenen Modus starten, aufwärmen und dann messen.
+     */
+    private static LastErgebnis lastlauf( boolean virtuelleThreads, int anzahlClients, int dauerSekunden,
+                                          String[] weitereArgumente ) throws Exception {
+
+        final String modus = virtuelleThreads ? "Virtuelle Threads" : "Plattform-Threads";
+        System.out.printf( "%nStarte Anwendung mit %s ...%n", modus );
+
+        final List<String> argumentListe = new ArrayList<>( List.of(
+                        BenchmarkDatenbank.ARGUMENT_DATASOURCE_URL,
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtuelleThreads,
+                        "--de.eldecker.kfz-kennzeichen.rest.sporadischefehler=false",
+                        "--de.eldecker.kfz-kennzeichen.cache.max-eintraege=0",
+                        "--logging.level.root=WARN",
+                        "--logging.level.de.eldecker=WARN" ) );
+        argumentListe.addAll( Arrays.asList( weitereArgumente ) );
+
+        try ( ConfigurableApplicationContext kontext =
+                        new SpringApplicationBuilder( KfzKennzeichenApplication.class )
+                                .run( argumentListe.toArray( new String[ 0 ] ) ) ) {
+
+            final String[] kennzeichenArray = BenchmarkDatenbank.befuellen( kontext, ANZAHL_KENNZEICHEN, ANZAHL_ABFRAGEN );
+
+            final Environment umgebung = kontext.getEnvironment();
+            final String basisUrl = "http://localhost:" + umgebung.getProperty( "local.server.port" ) + "/api/v1/abfrage/";
+
+            last( basisUrl, kennzeichenArray, anzahlClients, AUFWAERMEN_SEKUNDEN, null );
+
+            final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            final Timer timer = Timer.builder( "lasttest" )
+                                     .publishPercentiles( 0.5, 0.99 )
+                                     .register( registry );
+
+            final long anzahlFehler = last( basisUrl, kennzeichenArray, anzahlClients, dauerSekunden, timer );
+
+            final HistogramSnapshot snapshot = timer.takeSnapshot();
+            double median = 0, p99 = 0;
+            for ( ValueAtPercentile wert : snapshot.percentileValues() ) {
+
+                if ( wert.percentile() == 0.5 ) median = wert.value( TimeUnit.MILLISECONDS );
+                else                            p99    = wert.value( TimeUnit.MILLISECONDS );
+            }
+
+            return new LastErgebnis( modus, (double) timer.count() / dauerSekunden, median, p99, anzahlFehler );
+        }
+    }
+
+
+    /**
+     * Last erzeugen: {@code anzahlClients} virtuelle Threads schicken für {@code dauerSekunden}
+     * Sekunden Abfragen für zufällig gewählte KFZ-Kennzeichen.
+     *
+     * @param timer Timer für Latenz erfolgreicher Anfragen, oder {@code null} (Aufwärmphase)
+     *
+     * @return Anzahl fehlgeschlagener Anfragen
+     */
+    private static long last( String basisUrl, String[] kennzeichenArray, int anzahlClients,
+                              int dauerSekunden, Timer timer ) throws InterruptedException {
+
+        final AtomicBoolean laufen = new AtomicBoolean( true );
+        final LongAdder anzahlFehler = new LongAdder();
+
+        try ( ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+              HttpClient httpClient = HttpClient.newBuilder()
+                                                .executor( clientExecutor )
+                                                .connectTimeout( Duration.ofSeconds( 30 ) )
+                                                .build() ) {
+
+            for ( int i = 0; i < anzahlClients; i++ ) {
+
+                clientExecutor.submit( () -> {
+
+                    while ( laufen.get() ) {
+
+                        final String kennzeichen = kennzeichenArray[ ThreadLocalRandom.current().nextInt( kennzeichenArray.length ) ];
+                        final HttpRequest request = HttpRequest.newBuilder()
+                                                               .uri( URI.create( basisUrl + URLEncoder.encode( kennzeichen, UTF_8 ).replace( "+", "%20" ) ) )
+                                                               .GET()
+                                                               .build();
+                        final long startZeit = System.nanoTime();
+                        try {
+
+                            final HttpResponse<Void> response = httpClient.send( request, HttpResponse.BodyHandlers.discarding() );
+                            if ( !laufen.get() ) {
+
+                                break; // Antwort kam nach Ende der Messung
+                            }
+
+                            if ( response.statusCode() != 200 ) {
+
+                                anzahlFehler.increment();
+
+                            } else if ( timer != null ) {
+
+                                timer.record( System.nanoTime() - startZeit, TimeUnit.NANOSECONDS );
+                            }
+                        }
+                        catch ( Exception ex ) {
+
+                            if ( laufen.get() ) {
+
+                                anzahlFehler.increment();
+                            }
+                        }
+                    }
+                });
+            }
+
+            Thread.sleep( dauerSekunden * 1000L );
+            laufen.set( false );
+
+            clientExecutor.shutdown();
+            clientExecutor.awaitTermination( 60, TimeUnit.SECONDS );
+        }
+
+        return anzahlFehler.sum();
+    }
+
+}
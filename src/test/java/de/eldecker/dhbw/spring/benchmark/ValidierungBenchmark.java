@@ -0,0 +1,97 @@
+package de.eldecker.dhbw.spring.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import de.eldecker.dhbw.spring.model.KfzMarkeEnum;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+
+/**
+ * Benchmarks für die Prüfung von KFZ-Kennzeichen mit Bean Validation
+ * ({@code @KfzKennzeichen} an {@link KfzKennzeichenEntity}), direkt mit
+ * {@link KennzeichenParser} und für {@link KfzMarkeEnum#toString()}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ValidierungBenchmark {
+
+    private static final KfzMarkeEnum[] MARKEN = KfzMarkeEnum.values();
+
+    private ValidatorFactory _validatorFactory;
+
+    private Validator _validator;
+
+    private int _zaehler = 0;
+
+
+    @Setup
+    public void setup() {
+
+        _validatorFactory = Validation.buildDefaultValidatorFactory();
+        _validator        = _validatorFactory.getValidator();
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        _validatorFactory.close();
+    }
+
+
+    @Benchmark
+    public Set<ConstraintViolation<KfzKennzeichenEntity>> kennzeichenGueltig() {
+
+        return _validator.validateValue( KfzKennzeichenEntity.class, "kennzeichen", "KA X 1234" );
+    }
+
+
+    @Benchmark
+    public Set<ConstraintViolation<KfzKennzeichenEntity>> kennzeichenUngueltig() {
+
+        return _validator.validateValue( KfzKennzeichenEntity.class, "kennzeichen", "KA-X-1234" );
+    }
+
+
+    @Benchmark
+    public long kennzeichenParsen() {
+
+        return KennzeichenParser.parsen( " ka  x 1234 " );
+    }
+
+
+    @Benchmark
+    public long kennzeichenFelderParsen() {
+
+        return KennzeichenParser.parsen( "ka", "x", "1234" );
+    }
+
+
+    @Benchmark
+    public String markeToString() {
+
+        return MARKEN[ _zaehler++ % MARKEN.length ].toString();
+    }
+
+}
@@ -0,0 +1,197 @@
+package de.eldecker.dhbw.spring.db;
+
+import static de.eldecker.dhbw.spring.model.KfzFarbeEnum.ROT;
+import static de.eldecker.dhbw.spring.model.KfzFarbeEnum.WEISS;
+import static de.eldecker.dhbw.spring.model.KfzMarkeEnum.BMW;
+import static de.eldecker.dhbw.spring.model.KfzMarkeEnum.VW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.db.krypto.BlindIndexHelfer;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+
+
+/**
+ * Test für {@link KfzKennzeichenRepo}: Es wird mit der Statistik von Hibernate gezählt,
+ * wie viele SQL-Statements für eine Abfrage ausgeführt werden. Kennzeichen, Fahrzeugdaten
+ * und Halter müssen mit genau einer Abfrage (Join) geladen werden.
+ * <br><br>
+ *
+ * Mit {@code DataJpaTest} wird nur die Persistenzschicht mit einer In-Memory-Datenbank
+ * hochgefahren, die Datenbankdatei im Verzeichnis {@code db/} wird also nicht verwendet.
+ */
+@DataJpaTest( properties = "spring.jpa.properties.hibernate.generate_statistics=true" )
+@Import( { AesHelfer.class, BlindIndexHelfer.class } )
+class KfzKennzeichenRepoTest {
+
+    @Autowired
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    @Autowired
+    private TestEntityManager _entityManager;
+
+    @Autowired
+    private BlindIndexHelfer _blindIndexHelfer;
+
+    /** Statistik von Hibernate, enthält u.a. Anzahl der ausgeführten Statements. */
+    private Statistics _statistik;
+
+
+    @BeforeEach
+    void testdatenAnlegen() {
+
+        final FahrzeugHalterEntity halter = new FahrzeugHalterEntity( "Frau", "Pia", "Musterfrau",
+                                                                      "Am Ring 42b", 68159, "Mannheim" );
+
+        _entityManager.persist( new KfzKennzeichenEntity( "MA PM 1",
+                                                          new FahrzeugDatenEntity( VW, ROT, "WVWHG83A8VNUBRGCG", 2007 ),
+                                                          halter ) );
+        _entityManager.persist( new KfzKennzeichenEntity( "MA PM 2",
+                                                          new FahrzeugDatenEntity( BMW, WEISS, "5UMDU93418MXAHHKP", 2021 ),
+                                                          halter ) );
+        _entityManager.flush();
+        _entityManager.clear(); // sonst kommen die Entities aus dem Persistence Context
+
+        _statistik = _entityManager.getEntityManager()
+                                   .getEntityManagerFactory()
+                                   .unwrap( SessionFactory.class )
+                                   .getStatistics();
+        _statistik.clear();
+    }
+
+
+    @Test
+    void findByKennzeichenMitEinerAbfrage() {
+
+        final Optional<KfzKennzeichenEntity> ergebnis = _kfzKennzeichenRepo.findByKennzeichen( "MA PM 1" );
+
+        assertTrue( ergebnis.isPresent() );
+        assertEquals( "Musterfrau", ergebnis.get().getFahrzeugHalter().getNachname() );
+        assertEquals( VW          , ergebnis.get().getFahrzeugDaten().getMarke()     );
+
+        assertEquals( 1, _statistik.getPrepareStatementCount(), "Anzahl SQL-Statements für eine Abfrage" );
+    }
+
+
+    @Test
+    void findByKennzeichenInMitEinerAbfrage() {
+
+        final List<KfzKennzeichenEntity> ergebnisListe =
+                        _kfzKennzeichenRepo.findByKennzeichenIn( List.of( "MA PM 1", "MA PM 2", "MA PM 3" ) );
+
+        assertEquals( 2, ergebnisListe.size() );
+        ergebnisListe.forEach( kennzeichen -> kennzeichen.getFahrzeugDaten().getFin() );
+
+        assertEquals( 1, _statistik.getPrepareStatementCount(), "Anzahl SQL-Statements für eine Sammelabfrage" );
+    }
+
+
+
+    @Test
+    void findByKennzeichenCodeMitEinerAbfrage() {
+
+        final long kennzeichenCode = KennzeichenKodierer.kodieren( "MA PM 2" );
+
+        final Optional<KfzKennzeichenEntity> ergebnis = _kfzKennzeichenRepo.findByKennzeichenCode( kennzeichenCode );
+
+        assertTrue( ergebnis.isPresent() );
+        assertEquals( "MA PM 2", ergebnis.get().getKennzeichen() );
+        assertEquals( BMW      , ergebnis.get().getFahrzeugDaten().getMarke() );
+        assertEquals( "Pia"    , ergebnis.get().getFahrzeugHalter().getVorname() );
+
+        assertEquals( 1, _statistik.getPrepareStatementCount(), "Anzahl SQL-Statements für eine Abfrage" );
+    }
+
+
+    @Test
+    void findByKennzeichenCodeInMitEinerAbfrage() {
+
+        final List<Long> kennzeichenCodes = List.of( KennzeichenKodierer.kodieren( "MA PM 1" ),
+                                                     KennzeichenKodierer.kodieren( "MA PM 2" ),
+                                                     KennzeichenKodierer.kodieren( "MA PM 02" ) );
+
+        final List<KfzKennzeichenEntity> ergebnisListe = _kfzKennzeichenRepo.findByKennzeichenCodeIn( kennzeichenCodes );
+
+        assertEquals( 2, ergebnisListe.size() );
+        ergebnisListe.forEach( kennzeichen -> kennzeichen.getFahrzeugHalter().getPlz() );
+
+        assertEquals( 1, _statistik.getPrepareStatementCount(), "Anzahl SQL-Statements für eine Sammelabfrage" );
+    }
+
+
+    @Test
+    void vorhandeneKennzeichenCodesOhneEntities() {
+
+        final long kennzeichenCode1 = KennzeichenKodierer.kodieren( "MA PM 1" );
+        final long kennzeichenCode3 = KennzeichenKodierer.kodieren( "MA PM 3" );
+
+        final List<Long> ergebnisListe =
+                        _kfzKennzeichenRepo.vorhandeneKennzeichenCodes( List.of( kennzeichenCode1, kennzeichenCode3 ) );
+
+        assertEquals( List.of( kennzeichenCode1 ), ergebnisListe );
+        assertEquals( 1, _statistik.getPrepareStatementCount(), "Anzahl SQL-Statements für eine Sammelabfrage" );
+        assertEquals( 0, _statistik.getEntityLoadCount()      , "Anzahl geladener Entities" );
+    }
+
+
+    @Test
+    void sucheNachHalterUeberBlindIndex() {
+
+        final String nachname = _blindIndexHelfer.berechnen( " MUSTERFRAU " );
+
+        final List<KfzKennzeichenEntity> ergebnisListe =
+                        _kfzKennzeichenRepo.sucheNachHalter( nachname, 68159, null, null, Limit.of( 10 ) );
+
+        assertEquals( 2, ergebnisListe.size() );
+        assertEquals( "MA PM 1", ergebnisListe.get( 0 ).getKennzeichen() );
+        assertEquals( 1, _statistik.getPrepareStatementCount(), "Anzahl SQL-Statements für eine Suche" );
+
+        final String vorname = _blindIndexHelfer.berechnen( "Paul" );
+        assertTrue( _kfzKennzeichenRepo.sucheNachHalter( nachname, 68159, vorname, null, Limit.of( 10 ) ).isEmpty() );
+        assertTrue( _kfzKennzeichenRepo.sucheNachHalter( nachname, 68161, null   , null, Limit.of( 10 ) ).isEmpty() );
+    }
+
+
+    @Test
+    void seitenweiseNachHalterMitBatchFetch() {
+
+        final long halterId = _kfzKennzeichenRepo.findByKennzeichen( "MA PM 1" ).get().getFahrzeugHalter().getId();
+        _entityManager.clear();
+        _entityManager.find( FahrzeugHalterEntity.class, halterId ); // wie im REST-Controller
+        _statistik.clear();
+
+        final List<KfzKennzeichenEntity> seite1 =
+                _kfzKennzeichenRepo.findByFahrzeugHalterIdAndIdGreaterThanOrderById( halterId, 0, Limit.of( 2 ) );
+
+        assertEquals( 2        , seite1.size() );
+        assertEquals( "MA PM 1", seite1.get( 0 ).getKennzeichen() );
+        assertEquals( BMW      , seite1.get( 1 ).getFahrzeugDaten().getMarke() );
+
+        // eine Abfrage für die KFZ-Kennzeichen, eine für die Fahrzeugdaten beider KFZ-Kennzeichen
+        assertEquals( 2, _statistik.getPrepareStatementCount(), "Anzahl SQL-Statements für eine Seite" );
+
+        final List<KfzKennzeichenEntity> seite2 =
+                _kfzKennzeichenRepo.findByFahrzeugHalterIdAndIdGreaterThanOrderById( halterId,
+                                                                                      seite1.get( 1 ).getId(),
+                                                                                      Limit.of( 2 ) );
+        assertTrue( seite2.isEmpty() );
+    }
+
+}
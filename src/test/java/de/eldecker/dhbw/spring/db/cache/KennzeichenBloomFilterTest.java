@@ -0,0 +1,122 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import de.eldecker.dhbw.spring.db.DatenAenderungEvent;
+import de.eldecker.dhbw.spring.model.KennzeichenKodierer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+
+/**
+ * Unit-Tests für {@link KennzeichenBloomFilter} (ohne Spring-Kontext und ohne Datenbank).
+ */
+public class KennzeichenBloomFilterTest {
+
+    private static final int ANZAHL = 10_000;
+
+    private static final double FEHLERRATE = 0.01;
+
+    private final KennzeichenBloomFilter _cut = new KennzeichenBloomFilter();
+
+
+    @BeforeEach
+    void bloomFilterAnlegen() {
+
+        ReflectionTestUtils.setField( _cut, "_meterRegistry"     , new SimpleMeterRegistry() );
+        ReflectionTestUtils.setField( _cut, "_erwarteteEintraege", (long) ANZAHL );
+        ReflectionTestUtils.setField( _cut, "_fehlerrate"        , FEHLERRATE );
+        _cut.initialisierung();
+        ReflectionTestUtils.setField( _cut, "_bereit", true ); // statt befuellen() mit Datenbank
+    }
+
+
+    /**
+     * KFZ-Kennzeichen "KA " + Buchstabe + Zahl, z.B. "KA Q 1234".
+     */
+    private static long code( String unterscheidungszeichen, int nummer ) {
+
+        final char buchstabe = (char) ( 'A' + nummer / 9_999 );
+        return KennzeichenKodierer.kodieren( unterscheidungszeichen + " " + buchstabe + " " + ( 1 + nummer % 9_999 ) );
+    }
+
+
+    @Test
+    void keineFalschNegativenAntworten() {
+
+        for ( int i = 0; i < ANZAHL; i++ ) {
+
+            _cut.hinzufuegen( code( "KA", i ) );
+        }
+
+        for ( int i = 0; i < ANZAHL; i++ ) {
+
+            assertTrue( _cut.vielleichtEnthalten( code( "KA", i ) ) );
+        }
+        assertEquals( ANZAHL, _cut.getStatistik().eingefuegt() );
+    }
+
+
+    @Test
+    void fehlerrateEingehalten() {
+
+        for ( int i = 0; i < ANZAHL; i++ ) {
+
+            _cut.hinzufuegen( code( "KA", i ) );
+        }
+
+        int falschPositiv = 0;
+        for ( int i = 0; i < ANZAHL * 10; i++ ) {
+
+            if ( _cut.vielleichtEnthalten( code( "HD", i ) ) ) {
+
+                falschPositiv++;
+            }
+        }
+
+        final double rate = (double) falschPositiv / ( ANZAHL * 10 );
+        assertTrue( rate < FEHLERRATE * 2, "Fehlerrate zu hoch: " + rate );
+        assertTrue( _cut.getStatistik().geschaetzteFehlerrate() < FEHLERRATE * 2 );
+    }
+
+
+    @Test
+    void vorBefuellungImmerVielleicht() {
+
+        ReflectionTestUtils.setField( _cut, "_bereit", false );
+
+        assertTrue( _cut.vielleichtEnthalten( code( "KA", 1 ) ) );
+
+        ReflectionTestUtils.setField( _cut, "_bereit", true );
+
+        assertFalse( _cut.vielleichtEnthalten( code( "KA", 1 ) ) );
+    }
+
+
+    @Test
+    void eventVorBefuellungNichtGezaehlt() {
+
+        ReflectionTestUtils.setField( _cut, "_bereit", false );
+
+        _cut.beiDatenAenderung( new DatenAenderungEvent( Set.of( "KA X 123" ), Set.of() ) );
+        _cut.hinzufuegen( KennzeichenKodierer.kodieren( "KA X 123" ) ); // Befüllung liest es noch einmal
+
+        ReflectionTestUtils.setField( _cut, "_bereit", true );
+
+        assertTrue( _cut.vielleichtEnthalten( KennzeichenKodierer.kodieren( "KA X 123" ) ) );
+        assertEquals( 1, _cut.getStatistik().eingefuegt() );
+
+        _cut.beiDatenAenderung( new DatenAenderungEvent( Set.of( "KA X 124" ), Set.of() ) );
+
+        assertTrue( _cut.vielleichtEnthalten( KennzeichenKodierer.kodieren( "KA X 124" ) ) );
+        assertEquals( 2, _cut.getStatistik().eingefuegt() );
+    }
+
+}
@@ -0,0 +1,120 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import de.eldecker.dhbw.spring.db.DatenAenderungEvent;
+
+
+/**
+ * Unit-Tests für {@link KennzeichenPraefixIndex} (ohne Spring-Kontext und ohne Datenbank,
+ * der Index wird nur über Events befüllt).
+ */
+public class KennzeichenPraefixIndexTest {
+
+    private final KennzeichenPraefixIndex _cut = new KennzeichenPraefixIndex();
+
+
+    private void einfuegen( String kennzeichen ) {
+
+        _cut.beiDatenAenderung( new DatenAenderungEvent( Set.of( kennzeichen ), Set.of() ) );
+    }
+
+
+    /**
+     * Zufälliges KFZ-Kennzeichen, z.B. "KAR Q 0815".
+     */
+    private static String zufallsKennzeichen( SplittableRandom zufall ) {
+
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = zufall.nextInt( 1, 4 ); i > 0; i-- ) {
+
+            sb.append( (char) zufall.nextInt( 'A', 'Z' + 1 ) );
+        }
+        sb.append( ' ' );
+        for ( int i = zufall.nextInt( 1, 3 ); i > 0; i-- ) {
+
+            sb.append( (char) zufall.nextInt( 'A', 'Z' + 1 ) );
+        }
+        sb.append( ' ' );
+        for ( int i = zufall.nextInt( 1, 5 ); i > 0; i-- ) {
+
+            sb.append( (char) zufall.nextInt( '0', '9' + 1 ) );
+        }
+        return sb.toString();
+    }
+
+
+    @Test
+    void sortierschluesselErhaeltReihenfolge() {
+
+        final SplittableRandom zufall = new SplittableRandom( 42 );
+        for ( int i = 0; i < 10_000; i++ ) {
+
+            final String a = zufallsKennzeichen( zufall );
+            final String b = zufallsKennzeichen( zufall );
+
+            assertEquals( Integer.signum( a.compareTo( b ) ),
+                          Long.signum( KennzeichenPraefixIndex.sortierschluessel( a ) -
+                                       KennzeichenPraefixIndex.sortierschluessel( b ) ),
+                          a + " <-> " + b );
+        }
+    }
+
+
+    @Test
+    void praefixSuche() {
+
+        einfuegen( "KA X 12"  );
+        einfuegen( "KA X 1"   );
+        einfuegen( "KA XY 5"  );
+        einfuegen( "KAR A 1"  );
+        einfuegen( "KA B 99"  );
+        einfuegen( "BAD E 1234" );
+
+        assertEquals( List.of( "KA X 1", "KA X 12", "KA XY 5" ), _cut.suchen( "ka  x", 10 ) );
+        assertEquals( List.of( "KA X 1", "KA X 12" )           , _cut.suchen( "KA X ", 10 ) );
+        assertEquals( List.of( "KA B 99", "KA X 1" )           , _cut.suchen( "KA "  , 2  ) );
+        assertEquals( 5, _cut.suchen( "K", 10 ).size() );
+        assertTrue( _cut.suchen( "KA-X", 10 ).isEmpty() );
+        assertTrue( _cut.suchen( "KA X 123456", 10 ).isEmpty() );
+    }
+
+
+    @Test
+    void gleichesErgebnisNachZusammenfuehren() {
+
+        final SplittableRandom zufall = new SplittableRandom( 4711 );
+        final TreeSet<String> erwartet = new TreeSet<>();
+        for ( int i = 0; i < 25_000; i++ ) { // mehr als MAX_NEUE, also mind. einmal zusammengeführt
+
+            final String kennzeichen = zufallsKennzeichen( zufall );
+            erwartet.add( kennzeichen );
+            einfuegen( kennzeichen );
+        }
+
+        for ( String praefix : List.of( "A", "KA", "KA ", "M X", "Q" ) ) {
+
+            final List<String> erwartetListe = new ArrayList<>();
+            for ( String kennzeichen : erwartet.tailSet( praefix ) ) {
+
+                if ( !kennzeichen.startsWith( praefix ) || erwartetListe.size() == 20 ) {
+
+                    break;
+                }
+                erwartetListe.add( kennzeichen );
+            }
+            assertEquals( erwartetListe, _cut.suchen( praefix, 20 ), praefix );
+        }
+        assertEquals( erwartet.size(), _cut.getAnzahl() );
+    }
+
+}
@@ -0,0 +1,136 @@
+package de.eldecker.dhbw.spring.db.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.model.KennzeichenParser;
+import de.eldecker.dhbw.spring.model.KfzFarbeEnum;
+import de.eldecker.dhbw.spring.model.KfzMarkeEnum;
+
+
+/**
+ * Unit-Tests für {@link SnapshotDatei} (ohne Spring-Kontext und ohne Datenbank).
+ */
+public class SnapshotDateiTest {
+
+    private static final SnapshotDatei.Datenstand DATENSTAND = new SnapshotDatei.Datenstand( 3, 0x1234, 3, 0x5678, 3, 0x9ABC );
+
+    @TempDir
+    private Path _verzeichnis;
+
+    private AesHelfer _aesHelfer;
+
+
+    @BeforeEach
+    void aesHelferAnlegen() {
+
+        _aesHelfer = new AesHelfer();
+        ReflectionTestUtils.setField( _aesHelfer, "_schluesselHex", "b69fefb74ccf4b7d90a9dedfed01b4cf" );
+        ReflectionTestUtils.invokeMethod( _aesHelfer, "initialisierung" );
+    }
+
+
+    /**
+     * Ergebniszeile wie von {@link SnapshotDatei#SQL_ALLE}; Version des Halters und
+     * Wohnort sind {@code null}.
+     */
+    private Object[] zeile( String kennzeichen, long id ) throws GeneralSecurityException {
+
+        return new Object[] { KennzeichenParser.parsen( kennzeichen ), id, 1L, false,
+                              id + 100, KfzFarbeEnum.BLAU.ordinal(), KfzMarkeEnum.BMW.name(), "FIN-" + id, 2020,
+                              id + 200, null,
+                              _aesHelfer.verschluesseln( "Frau"              ),
+                              _aesHelfer.verschluesseln( "Erika"             ),
+                              _aesHelfer.verschluesseln( "Mustermann " + id  ),
+                              _aesHelfer.verschluesseln( "Hauptstraße 1"     ),
+                              76131, null };
+    }
+
+
+    private Path schreiben( String... kennzeichenArray ) throws Exception {
+
+        final List<Object[]> zeilen = new ArrayList<>();
+        for ( int i = 0; i < kennzeichenArray.length; i++ ) {
+
+            zeilen.add( zeile( kennzeichenArray[ i ], 10 * ( i + 1 ) ) );
+        }
+
+        final Path datei = _verzeichnis.resolve( "test.snapshot" );
+        SnapshotDatei.schreiben( datei, DATENSTAND, zeilen.iterator() );
+        return datei;
+    }
+
+
+    @Test
+    void datensaetzeFinden() throws Exception {
+
+        final SnapshotDatei snapshot = SnapshotDatei.oeffnen( schreiben( "BAD X 1", "KA X 123", "MA Y 99" ) );
+
+        assertEquals( 3, snapshot.getAnzahl() );
+        assertEquals( DATENSTAND, snapshot.getDatenstand() );
+        assertTrue( snapshot.getSchluesselVersionen().get( _aesHelfer.getSchluesselVersion() ) );
+
+        final KfzKennzeichenEntity entity = snapshot.lesen( KennzeichenParser.parsen( "KA X 123" ), _aesHelfer );
+        assertEquals( "KA X 123"       , entity.getKennzeichen() );
+        assertEquals( 20L              , entity.getId() );
+        assertFalse( entity.isHistorisch() );
+        assertEquals( KfzMarkeEnum.BMW , entity.getFahrzeugDaten().getMarke() );
+        assertEquals( KfzFarbeEnum.BLAU, entity.getFahrzeugDaten().getFarbe() );
+        assertEquals( "FIN-20"         , entity.getFahrzeugDaten().getFin() );
+        assertEquals( "Mustermann 20"  , entity.getFahrzeugHalter().getNachname() );
+        assertEquals( "Hauptstraße 1"  , entity.getFahrzeugHalter().getAnschrift() );
+        assertNull( entity.getFahrzeugHalter().getVersion() );
+        assertNull( entity.getFahrzeugHalter().getWohnort() );
+
+        assertEquals( "BAD X 1", snapshot.lesen( KennzeichenParser.parsen( "BAD X 1" ), _aesHelfer ).getKennzeichen() );
+        assertEquals( "MA Y 99", snapshot.lesen( KennzeichenParser.parsen( "MA Y 99" ), _aesHelfer ).getKennzeichen() );
+        assertNull( snapshot.lesen( KennzeichenParser.parsen( "KA X 124" ), _aesHelfer ) );
+    }
+
+
+    @Test
+    void leererSnapshot() throws Exception {
+
+        final SnapshotDatei snapshot = SnapshotDatei.oeffnen( schreiben() );
+
+        assertEquals( 0, snapshot.getAnzahl() );
+        assertNull( snapshot.lesen( KennzeichenParser.parsen( "KA X 123" ), _aesHelfer ) );
+    }
+
+
+    @Test
+    void unsortierteZeilen() {
+
+        assertThrows( IOException.class, () -> schreiben( "KA X 123", "BAD X 1" ) );
+    }
+
+
+    @Test
+    void abgeschnitteneDatei() throws Exception {
+
+        final Path   datei = schreiben( "BAD X 1", "KA X 123" );
+        final byte[] bytes = Files.readAllBytes( datei );
+        Files.write( datei, Arrays.copyOf( bytes, bytes.length - 4 ) );
+
+        assertThrows( IOException.class, () -> SnapshotDatei.oeffnen( datei ) );
+    }
+
+}
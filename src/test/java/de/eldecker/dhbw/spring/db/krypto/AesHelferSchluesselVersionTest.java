@@ -0,0 +1,140 @@
+package de.eldecker.dhbw.spring.db.krypto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static jakarta.xml.bind.DatatypeConverter.parseHexBinary;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+/**
+ * Test für die Schlüsselrotation von {@link AesHelfer}: Chiffren mit altem Schlüssel
+ * und im alten Text-Format (auch ohne Präfix) müssen nach einem Wechsel des Schlüssels
+ * lesbar bleiben.
+ */
+class AesHelferSchluesselVersionTest {
+
+    private static final String SCHLUESSEL_1 = "b69fefb74ccf4b7d90a9dedfed01b4cf";
+
+    private static final String SCHLUESSEL_2 = "3c1e9a0f5b7d42e8a6f09b2c4d8e1f73";
+
+
+    /**
+     * Erzeugt eine {@link AesHelfer}-Instanz ohne Spring-Kontext.
+     *
+     * @param weitereSchluessel Konfigurationswert für weitere Schlüssel
+     *
+     * @param version Version des Schlüssels für Verschlüsselung
+     *
+     * @return Initialisierte Instanz
+     */
+    private static AesHelfer erzeugeAesHelfer( String weitereSchluessel, int version ) {
+
+        final AesHelfer aesHelfer = new AesHelfer();
+        ReflectionTestUtils.setField( aesHelfer, "_schluesselHex"    , SCHLUESSEL_1      );
+        ReflectionTestUtils.setField( aesHelfer, "_versalzung"       , true              );
+        ReflectionTestUtils.setField( aesHelfer, "_weitereSchluessel", weitereSchluessel );
+        ReflectionTestUtils.setField( aesHelfer, "_schluesselVersion", version           );
+        ReflectionTestUtils.invokeMethod( aesHelfer, "initialisierung" );
+
+        return aesHelfer;
+    }
+
+
+    /**
+     * Erzeugt eine Chiffre im alten Text-Format ("AES/ECB/PKCS5Padding", Base64, mit
+     * Versalzung), wie sie vor Einführung des binären Formats gespeichert wurde.
+     *
+     * @param klartext Klartext
+     *
+     * @param praefix Präfix für Schlüssel-Version, z.B. "k1:", oder leerer String
+     *
+     * @return Chiffre als Bytes des Base64-Texts, wie nach Umwandlung der Spalte
+     */
+    private static byte[] alteChiffre( String klartext, String praefix ) throws GeneralSecurityException {
+
+        final Cipher cipher = Cipher.getInstance( "AES/ECB/PKCS5Padding" );
+        cipher.init( Cipher.ENCRYPT_MODE, new SecretKeySpec( parseHexBinary( SCHLUESSEL_1 ), "AES" ) );
+
+        final byte[] chiffre = cipher.doFinal( ( "XyZ" + klartext ).getBytes( UTF_8 ) );
+
+        return ( praefix + Base64.getEncoder().encodeToString( chiffre ) ).getBytes( US_ASCII );
+    }
+
+
+    @Test
+    void alteChiffrenNachSchluesselwechselLesbar() throws GeneralSecurityException {
+
+        final AesHelfer alt = erzeugeAesHelfer( "", 1 );
+        final AesHelfer neu = erzeugeAesHelfer( "2:" + SCHLUESSEL_2, 2 );
+
+        final byte[] chiffreText        = alteChiffre( "Müller", "k1:" );
+        final byte[] chiffreOhnePraefix = alteChiffre( "Müller", ""    ); // vor Einführung der Versionen
+        final byte[] chiffreAlt         = alt.verschluesseln( "Müller" );
+        final byte[] chiffreNeu         = neu.verschluesseln( "Müller" );
+
+        assertTrue( AesHelfer.istBinaerformat( chiffreAlt ) );
+        assertFalse( AesHelfer.istBinaerformat( chiffreText ) );
+        assertEquals( "Müller".getBytes( UTF_8 ).length + AesHelfer.ZUSATZ_BYTES, chiffreNeu.length );
+        assertEquals( 1, AesHelfer.schluesselVersion( chiffreText        ) );
+        assertEquals( 1, AesHelfer.schluesselVersion( chiffreOhnePraefix ) );
+        assertEquals( 1, AesHelfer.schluesselVersion( chiffreAlt         ) );
+        assertEquals( 2, AesHelfer.schluesselVersion( chiffreNeu         ) );
+
+        assertEquals( "Müller", neu.entschluesseln( chiffreText        ) );
+        assertEquals( "Müller", neu.entschluesseln( chiffreOhnePraefix ) );
+        assertEquals( "Müller", neu.entschluesseln( chiffreAlt         ) );
+        assertEquals( "Müller", neu.entschluesseln( chiffreNeu         ) );
+
+        assertFalse( alt.istAktuell( chiffreText ) ); // richtiger Schlüssel, aber altes Format
+        assertTrue( alt.istAktuell( chiffreAlt ) );
+        assertFalse( neu.istAktuell( chiffreAlt ) );
+        assertSame( chiffreNeu, neu.neuVerschluesseln( chiffreNeu ) );
+
+        for ( byte[] chiffre : new byte[][] { chiffreText, chiffreAlt } ) {
+
+            final byte[] chiffreRotiert = neu.neuVerschluesseln( chiffre );
+            assertFalse( Arrays.equals( chiffre, chiffreRotiert ) );
+            assertTrue( neu.istAktuell( chiffreRotiert ) );
+            assertEquals( "Müller", neu.entschluesseln( chiffreRotiert ) );
+        }
+
+        // alter Helfer kennt Schlüssel 2 nicht
+        assertThrows( GeneralSecurityException.class, () -> alt.entschluesseln( chiffreNeu ) );
+    }
+
+
+    @Test
+    void veraenderteChiffreWirdErkannt() throws GeneralSecurityException {
+
+        final AesHelfer aesHelfer = erzeugeAesHelfer( "2:" + SCHLUESSEL_2, 2 );
+
+        final byte[] chiffre = aesHelfer.verschluesseln( "Müller" );
+        assertNotEquals( Base64.getEncoder().encodeToString( chiffre ),
+                         Base64.getEncoder().encodeToString( aesHelfer.verschluesseln( "Müller" ) ) ); // zufällige Nonce
+
+        final byte[] chiffreVeraendert = chiffre.clone();
+        chiffreVeraendert[ chiffreVeraendert.length - 1 ] ^= 1;
+        assertThrows( GeneralSecurityException.class, () -> aesHelfer.entschluesseln( chiffreVeraendert ) );
+
+        final byte[] versionVeraendert = chiffre.clone();
+        versionVeraendert[ 1 ] = 1; // Version ist durch das Tag mit geschützt
+        assertThrows( GeneralSecurityException.class, () -> aesHelfer.entschluesseln( versionVeraendert ) );
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.eldecker.dhbw.spring.db.krypto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+/**
+ * Stresstest für {@link AesHelfer}: Mehrere Threads ver- und entschlüsseln gleichzeitig
+ * und prüfen, dass jeweils wieder der ursprüngliche Klartext herauskommt. Der Durchsatz
+ * wird nicht hier, sondern mit dem JMH-Benchmark {@code KryptoBenchmark} gemessen.
+ * <br><br>
+ *
+ * Für diesen Test wird kein Spring-Kontext benötigt, die Konfigurationswerte werden
+ * direkt gesetzt.
+ */
+class AesHelferStressTest {
+
+    /** Anzahl der Ver-/Entschlüsselungen pro Thread. */
+    private static final int ANZAHL_DURCHLAEUFE = 20_000;
+
+
+    /**
+     * Erzeugt eine {@link AesHelfer}-Instanz ohne Spring-Kontext.
+     *
+     * @param versalzung Konfigurationswert für Versalzung
+     *
+     * @return Initialisierte Instanz
+     */
+    private static AesHelfer erzeugeAesHelfer( boolean versalzung ) {
+
+        final AesHelfer aesHelfer = new AesHelfer();
+        ReflectionTestUtils.setField( aesHelfer, "_schluesselHex", "b69fefb74ccf4b7d90a9dedfed01b4cf" );
+        ReflectionTestUtils.setField( aesHelfer, "_versalzung"   , versalzung );
+        ReflectionTestUtils.invokeMethod( aesHelfer, "initialisierung" );
+
+        return aesHelfer;
+    }
+
+
+    @ParameterizedTest( name = "Versalzung: {0}" )
+    @ValueSource( booleans = { true, false } )
+    void verEntschluesselungParallel( boolean versalzung ) throws Exception {
+
+        final AesHelfer aesHelfer = erzeugeAesHelfer( versalzung );
+
+        final int anzahlThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+        final List<Callable<Integer>> aufgabenListe = new ArrayList<>( anzahlThreads );
+        for ( int t = 0; t < anzahlThreads; t++ ) {
+
+            final int threadNr = t;
+            aufgabenListe.add( () -> {
+
+                int anzahlFehler = 0;
+                for ( int i = 0; i < ANZAHL_DURCHLAEUFE; i++ ) {
+
+                    final String klartext       = "Thread " + threadNr + " Müller-Lüdenscheidt " + i;
+                    final byte[] chiffre        = aesHelfer.verschluesseln( klartext );
+                    final String entschluesselt = aesHelfer.entschluesseln( chiffre );
+
+                    if ( !klartext.equals( entschluesselt ) ) {
+
+                        anzahlFehler++;
+                    }
+                }
+                return anzahlFehler;
+            });
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool( anzahlThreads );
+        try {
+
+            int anzahlFehler = 0;
+            for ( Future<Integer> future : executor.invokeAll( aufgabenListe ) ) {
+
+                anzahlFehler += future.get();
+            }
+
+            assertEquals( 0, anzahlFehler, "Entschlüsselung ergab nicht den ursprünglichen Klartext" );
+        }
+        finally {
+
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package de.eldecker.dhbw.spring.logik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+
+/**
+ * Unit-Tests für {@link TestDatenGenerator} (ohne Spring-Kontext).
+ */
+public class TestDatenGeneratorTest {
+
+    private static final int ANZAHL = 20_000;
+
+    private static ValidatorFactory _validatorFactory;
+
+    private static Validator _validator;
+
+    private final TestDatenGenerator _cut = new TestDatenGenerator();
+
+
+    @BeforeAll
+    static void validatorErzeugen() {
+
+        _validatorFactory = Validation.buildDefaultValidatorFactory();
+        _validator        = _validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void validatorSchliessen() {
+
+        _validatorFactory.close();
+    }
+
+
+    @Test
+    void gleicherSeedLiefertGleicheDaten() {
+
+        final List<String> zeilen1 = csvZeilen( TestDatenGenerator.DEFAULT_SEED );
+        final List<String> zeilen2 = csvZeilen( TestDatenGenerator.DEFAULT_SEED );
+
+        assertEquals( zeilen1, zeilen2 );
+        assertNotEquals( zeilen1, csvZeilen( 4711 ) );
+    }
+
+
+    @Test
+    void datenSindGueltigUndEindeutig() {
+
+        final Set<String> kennzeichenSet = new HashSet<>();
+        final Map<FahrzeugHalterEntity, Integer> fahrzeugeProHalter = new IdentityHashMap<>();
+
+        final Iterator<KfzKennzeichenEntity> iterator = _cut.erzeugen( ANZAHL, TestDatenGenerator.DEFAULT_SEED );
+        while ( iterator.hasNext() ) {
+
+            final KfzKennzeichenEntity kennzeichen = iterator.next();
+
+            assertTrue( _validator.validate( kennzeichen                     ).isEmpty(), kennzeichen.toString() );
+            assertTrue( _validator.validate( kennzeichen.getFahrzeugDaten()  ).isEmpty(), kennzeichen.toString() );
+            assertTrue( _validator.validate( kennzeichen.getFahrzeugHalter() ).isEmpty(), kennzeichen.toString() );
+
+            assertTrue( kennzeichen.getKennzeichenCode() != null, kennzeichen.getKennzeichen() );
+            assertTrue( kennzeichenSet.add( kennzeichen.getKennzeichen() ), "Doppelt: " + kennzeichen.getKennzeichen() );
+
+            fahrzeugeProHalter.merge( kennzeichen.getFahrzeugHalter(), 1, Integer::sum );
+        }
+
+        assertEquals( ANZAHL, kennzeichenSet.size() );
+        assertTrue( fahrzeugeProHalter.size() < ANZAHL, "Kein Halter mit mehreren Fahrzeugen" );
+        assertTrue( fahrzeugeProHalter.values().stream().anyMatch( anzahl -> anzahl > 10 ), "Kein Flottenhalter" );
+    }
+
+
+    private List<String> csvZeilen( long seed ) {
+
+        final List<String> ergebnisListe = new ArrayList<>( ANZAHL );
+
+        final Iterator<KfzKennzeichenEntity> iterator = _cut.erzeugen( ANZAHL, seed );
+        while ( iterator.hasNext() ) {
+
+            ergebnisListe.add( TestDatenGenerator.csvZeile( iterator.next() ) );
+        }
+
+        return ergebnisListe;
+    }
+
+}
@@ -0,0 +1,174 @@
+package de.eldecker.dhbw.spring.logik;
+
+import static de.eldecker.dhbw.spring.model.KfzFarbeEnum.ROT;
+import static de.eldecker.dhbw.spring.model.KfzMarkeEnum.VW;
+import static de.eldecker.dhbw.spring.model.SchreibStatusEnum.GESPEICHERT;
+import static de.eldecker.dhbw.spring.model.SchreibStatusEnum.KONFLIKT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import de.eldecker.dhbw.spring.db.FahrzeugHalterRepo;
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.krypto.AesHelfer;
+import de.eldecker.dhbw.spring.db.krypto.BlindIndexHelfer;
+import de.eldecker.dhbw.spring.model.SchreibErgebnis;
+import de.eldecker.dhbw.spring.model.Zulassung;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+
+/**
+ * Test für {@link ZulassungsService}: Mit der Statistik von Hibernate wird geprüft, dass
+ * neue Zulassungen in JDBC-Batches geschrieben werden und dass ein Request ganz oder gar
+ * nicht gespeichert wird.
+ * <br><br>
+ *
+ * Der Service öffnet selbst eine Transaktion pro Request, deshalb wird hier (anders als
+ * sonst bei {@code DataJpaTest}) keine Transaktion um die Testmethoden gelegt. Die Daten
+ * bleiben so in der In-Memory-Datenbank, jede Testmethode verwendet deshalb eigene
+ * KFZ-Kennzeichen.
+ * <br><br>
+ *
+ * Das Repo ist ein Spy, damit die Prüfung auf vorhandene KFZ-Kennzeichen übersprungen
+ * werden kann (wie bei einem gleichzeitigen Request, der nach der Prüfung speichert).
+ */
+@DataJpaTest( properties = "spring.jpa.properties.hibernate.generate_statistics=true" )
+@Transactional( propagation = NOT_SUPPORTED )
+@Import( { ZulassungsService.class, HalterAbgleich.class, AesHelfer.class, BlindIndexHelfer.class,
+           LocalValidatorFactoryBean.class, SimpleMeterRegistry.class } )
+class ZulassungsServiceTest {
+
+    @Autowired
+    private ZulassungsService _zulassungsService;
+
+    @MockitoSpyBean
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    @Autowired
+    private FahrzeugHalterRepo _fahrzeugHalterRepo;
+
+    @Autowired
+    private BlindIndexHelfer _blindIndexHelfer;
+
+    @Autowired
+    private EntityManagerFactory _entityManagerFactory;
+
+
+    /**
+     * Gültige Zulassung mit festen Fahrzeug- und Halterdaten erzeugen.
+     *
+     * @param kennzeichen KFZ-Kennzeichen, z.B. "KA ZT 1"
+     *
+     * @return Neue Zulassung
+     */
+    private static Zulassung zulassung( String kennzeichen ) {
+
+        return new Zulassung( kennzeichen, false, VW, ROT, "WVWHG83A8VNUBRGCG", 2007,
+                              "Frau", "Pia", "Musterfrau", "Am Ring 42b", 68159, "Mannheim" );
+    }
+
+
+    @Test
+    void anlegenMitJdbcBatches() {
+
+        final int anzahl = 120;
+
+        final List<Zulassung> zulassungListe = new ArrayList<>( anzahl );
+        for ( int i = 1; i <= anzahl; i++ ) {
+
+            zulassungListe.add( zulassung( "KA ZT " + i ) );
+        }
+
+        final Statistics statistik = _entityManagerFactory.unwrap( SessionFactory.class ).getStatistics();
+        statistik.clear();
+
+        final SchreibErgebnis ergebnis = _zulassungsService.anlegen( zulassungListe );
+
+        assertEquals( GESPEICHERT, ergebnis.status() );
+        assertEquals( anzahl     , ergebnis.anzahlGespeichert() );
+        assertTrue( ergebnis.fehlerListe().isEmpty() );
+
+        // pro Tabelle 3 Batches mit je max. 50 INSERTs statt 120 einzelner Statements
+        assertTrue( statistik.getPrepareStatementCount() < 20,
+                    "Anzahl SQL-Statements für " + anzahl + " Zulassungen: " + statistik.getPrepareStatementCount() );
+
+        assertTrue( _kfzKennzeichenRepo.findByKennzeichen( "KA ZT 120" ).isPresent() );
+    }
+
+
+    @Test
+    void anlegenGanzOderGarNicht() {
+
+        assertEquals( GESPEICHERT, _zulassungsService.anlegen( List.of( zulassung( "MA ZT 1" ) ) ).status() );
+
+        final SchreibErgebnis ergebnis = _zulassungsService.anlegen( List.of( zulassung( "MA ZT 2" ),
+                                                                              zulassung( "MA ZT 1" ) ) );
+
+        assertEquals( KONFLIKT, ergebnis.status() );
+        assertEquals( 0       , ergebnis.anzahlGespeichert() );
+        assertEquals( 1       , ergebnis.fehlerListe().size() );
+
+        assertTrue( _kfzKennzeichenRepo.findByKennzeichen( "MA ZT 2" ).isEmpty(),
+                    "Gültige Zulassung aus abgelehntem Request darf nicht gespeichert sein" );
+    }
+
+
+
+    @Test
+    void anlegenGleichzeitigVerhindertDurchUniqueConstraint() {
+
+        assertEquals( GESPEICHERT, _zulassungsService.anlegen( List.of( zulassung( "HD ZT 1" ) ) ).status() );
+
+        // gleichzeitiger Request: KFZ-Kennzeichen existiert bei der Prüfung noch nicht
+        doReturn( List.of() ).when( _kfzKennzeichenRepo ).vorhandeneKennzeichenCodes( anyCollection() );
+
+        final SchreibErgebnis ergebnis = _zulassungsService.anlegen( List.of( zulassung( "HD ZT 2" ),
+                                                                              zulassung( "HD ZT 1" ) ) );
+
+        assertEquals( KONFLIKT, ergebnis.status() );
+        assertEquals( 0       , ergebnis.anzahlGespeichert() );
+
+        assertTrue( _kfzKennzeichenRepo.findByKennzeichen( "HD ZT 2" ).isEmpty(),
+                    "Gültige Zulassung aus abgelehntem Request darf nicht gespeichert sein" );
+    }
+
+
+
+    @Test
+    void anlegenVerwendetVorhandenenHalter() {
+
+        final Zulassung zulassung1 = new Zulassung( "FR ZT 1", false, VW, ROT, "WVWHG83A8VNUBRGCG", 2007,
+                                                    "Herr", "Max", "Einzelhalter", "Kaiser-Joseph-Str. 1", 79098, "Freiburg" );
+        final Zulassung zulassung2 = new Zulassung( "FR ZT 2", false, VW, ROT, "WVWHG83A8VNUBRGCG", 2012,
+                                                    "Herr", "Max", "Einzelhalter", "Kaiser-Joseph-Str. 1", 79098, "Freiburg" );
+
+        assertEquals( GESPEICHERT, _zulassungsService.anlegen( List.of( zulassung1 ) ).status() );
+        assertEquals( GESPEICHERT, _zulassungsService.anlegen( List.of( zulassung2 ) ).status() );
+
+        final List<FahrzeugHalterEntity> halterListe =
+                _fahrzeugHalterRepo.findByNachnameBlindIndexInAndPlzInOrderById( List.of( _blindIndexHelfer.berechnen( "Einzelhalter" ) ),
+                                                                                 List.of( 79098 ) );
+        assertEquals( 1, halterListe.size(), "Zweiter Request darf keinen weiteren Halter anlegen" );
+
+        assertEquals( 2, _kfzKennzeichenRepo.countByFahrzeugHalterId( halterListe.get( 0 ).getId() ) );
+    }
+
+}
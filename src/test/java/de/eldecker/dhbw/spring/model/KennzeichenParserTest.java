@@ -0,0 +1,61 @@
+package de.eldecker.dhbw.spring.model;
+
+import static de.eldecker.dhbw.spring.model.KennzeichenParser.UNGUELTIG;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Unit-Tests für {@link KennzeichenParser} (ohne Spring-Kontext).
+ */
+public class KennzeichenParserTest {
+
+    @Test
+    void normiertesKennzeichen() {
+
+        final String kennzeichen = "BAD X 0123";
+
+        assertTrue( KennzeichenParser.istNormiert( kennzeichen ) );
+        assertSame( kennzeichen, KennzeichenParser.normieren( kennzeichen ) );
+        assertEquals( KennzeichenKodierer.dekodieren( KennzeichenParser.parsen( kennzeichen ) ), kennzeichen );
+    }
+
+
+    @Test
+    void nichtNormiertesKennzeichen() {
+
+        final String kennzeichen = "  ka \t x   0123 ";
+
+        assertFalse( KennzeichenParser.istNormiert( kennzeichen ) );
+        assertEquals( "KA X 0123", KennzeichenParser.normieren( kennzeichen ) );
+        assertEquals( KennzeichenParser.parsen( "KA X 0123" ), KennzeichenParser.parsen( kennzeichen ) );
+        assertEquals( KennzeichenParser.parsen( "KA X 0123" ), KennzeichenParser.parsen( " ka", "x ", "0123" ) );
+    }
+
+
+    @Test
+    void ungueltigeKennzeichen() {
+
+        final String[] ungueltigArray = { null, "", "KA", "KA X", "KA X123", "KAXY X 1",
+                                          "KA XYZ 1", "KA X 12345", "KA X 12 Y", "KA-X-123",
+                                          "BAD XY 1234", "KA Ä 1", "KA X 1a" };
+
+        for ( String kennzeichen : ungueltigArray ) {
+
+            assertEquals( UNGUELTIG, KennzeichenParser.parsen( kennzeichen ), kennzeichen );
+            assertNull( KennzeichenParser.normieren( kennzeichen ), kennzeichen );
+            assertFalse( KennzeichenParser.istNormiert( kennzeichen ), kennzeichen );
+        }
+
+        assertEquals( UNGUELTIG, KennzeichenParser.parsen( "KA", "X", ""       ) );
+        assertEquals( UNGUELTIG, KennzeichenParser.parsen( "KA", "X", "1 2"    ) );
+        assertEquals( UNGUELTIG, KennzeichenParser.parsen( "KA", "X", "12345"  ) );
+        assertEquals( UNGUELTIG, KennzeichenParser.parsen( "KA", null, "1"     ) );
+    }
+
+}
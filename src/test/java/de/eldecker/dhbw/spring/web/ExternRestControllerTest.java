@@ -0,0 +1,108 @@
+package de.eldecker.dhbw.spring.web;
+
+import static de.eldecker.dhbw.spring.model.KfzFarbeEnum.ROT;
+import static de.eldecker.dhbw.spring.model.KfzMarkeEnum.VW;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import de.eldecker.dhbw.spring.db.FahrzeugHalterRepo;
+import de.eldecker.dhbw.spring.db.KfzKennzeichenRepo;
+import de.eldecker.dhbw.spring.db.cache.KennzeichenPraefixIndex;
+import de.eldecker.dhbw.spring.db.cache.KfzKennzeichenCache;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugDatenEntity;
+import de.eldecker.dhbw.spring.db.entities.FahrzeugHalterEntity;
+import de.eldecker.dhbw.spring.db.entities.KfzKennzeichenEntity;
+import de.eldecker.dhbw.spring.db.krypto.BlindIndexHelfer;
+
+
+/**
+ * Test für die Sammelabfrage {@code POST /api/v1/abfrage} in {@link ExternRestController}
+ * (nur Web-Schicht, der Cache für die KFZ-Kennzeichen wird durch einen Mock ersetzt).
+ */
+@WebMvcTest( ExternRestController.class )
+class ExternRestControllerTest {
+
+    @Autowired
+    private MockMvc _mockMvc;
+
+    @MockitoBean
+    private KfzKennzeichenCache _kfzKennzeichenCache;
+
+    @MockitoBean
+    private KennzeichenPraefixIndex _praefixIndex;
+
+    @MockitoBean
+    private AbfrageMetriken _abfrageMetriken;
+
+    @MockitoBean
+    private AntwortCache _antwortCache;
+
+    @MockitoBean
+    private FehlerSimulator _fehlerSimulator;
+
+    @MockitoBean
+    private KfzKennzeichenRepo _kfzKennzeichenRepo;
+
+    @MockitoBean
+    private BlindIndexHelfer _blindIndexHelfer;
+
+    @MockitoBean
+    private FahrzeugHalterRepo _fahrzeugHalterRepo;
+
+
+    @Test
+    void sammelabfrageMitGueltigenUndUngueltigenKennzeichen() throws Exception {
+
+        final FahrzeugHalterEntity halter =
+                new FahrzeugHalterEntity( "Herr", "Jan", "Mustermeyer", "Bahnhofstraße 5", 76532, "Baden-Baden" );
+        final KfzKennzeichenEntity kfzKennzeichen =
+                new KfzKennzeichenEntity( "BAD E 1234", new FahrzeugDatenEntity( VW, ROT, "WVWHG83A8VNUBRGCG", 2007 ), halter );
+
+        final Map<String, Optional<KfzKennzeichenEntity>> ergebnisMap = new LinkedHashMap<>();
+        ergebnisMap.put( "BAD E 1234", Optional.of( kfzKennzeichen ) );
+        ergebnisMap.put( "KA Q 1"    , Optional.empty() );
+        ergebnisMap.put( "KA 1234"   , Optional.empty() );
+        when( _kfzKennzeichenCache.findByKennzeichenIn( anyCollection() ) ).thenReturn( ergebnisMap );
+
+        _mockMvc.perform( post( "/api/v1/abfrage" ).contentType( APPLICATION_JSON )
+                                                   .content( "[ \"bad e 1234\", \"KA Q 1\", \"KA 1234\" ]" ) )
+                .andExpect( status().isOk() )
+                .andExpect( jsonPath( "$.length()"                   ).value( 3                ) )
+                .andExpect( jsonPath( "$[0].kennzeichen"             ).value( "BAD E 1234"     ) )
+                .andExpect( jsonPath( "$[0].status"                  ).value( "GEFUNDEN"       ) )
+                .andExpect( jsonPath( "$[0].fahrzeugHalter.nachname" ).value( "Mustermeyer"    ) )
+                .andExpect( jsonPath( "$[1].kennzeichen"             ).value( "KA Q 1"         ) )
+                .andExpect( jsonPath( "$[1].status"                  ).value( "NICHT_GEFUNDEN" ) )
+                .andExpect( jsonPath( "$[2].kennzeichen"             ).value( "KA 1234"        ) )
+                .andExpect( jsonPath( "$[2].status"                  ).value( "UNGUELTIG"      ) )
+                .andExpect( jsonPath( "$[2].fahrzeugHalter"          ).doesNotExist()          );
+    }
+
+
+    @Test
+    void sammelabfrageMitNullWirdAbgelehnt() throws Exception {
+
+        _mockMvc.perform( post( "/api/v1/abfrage" ).contentType( APPLICATION_JSON )
+                                                   .content( "[ \"BAD E 1234\", \"KA 1234\", null ]" ) )
+                .andExpect( status().isBadRequest() );
+
+        verify( _kfzKennzeichenCache, never() ).findByKennzeichenIn( anyCollection() );
+    }
+
+}
@@ -0,0 +1,70 @@
+package de.eldecker.dhbw.spring.web;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import de.eldecker.dhbw.spring.db.reaktiv.ReaktiveHalterAbfrage;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Test für {@link ReaktiverRestController} (nur Web-Schicht, die reaktive Abfrage wird
+ * durch einen Mock ersetzt).
+ */
+@WebMvcTest( ReaktiverRestController.class )
+class ReaktiverRestControllerTest {
+
+    @Autowired
+    private MockMvc _mockMvc;
+
+    @MockitoBean
+    private ReaktiveHalterAbfrage _reaktiveHalterAbfrage;
+
+    @MockitoBean
+    private FehlerSimulator _fehlerSimulator;
+
+    @MockitoBean
+    private AbfrageMetriken _abfrageMetriken;
+
+
+    @Test
+    void ungueltigesKennzeichenWirdAbgelehnt() throws Exception {
+
+        final MvcResult ergebnis = _mockMvc.perform( get( "/api/v1/reaktiv/abfrage/1234" ) ).andReturn();
+
+        _mockMvc.perform( asyncDispatch( ergebnis ) )
+                .andExpect( status().isBadRequest() )
+                .andExpect( header().string( "Cache-Control", "no-store" ) );
+
+        verify( _fehlerSimulator     , never() ).sporadischerFehler( anyString() );
+        verify( _reaktiveHalterAbfrage, never() ).findByKennzeichenCode( anyLong() );
+    }
+
+
+    @Test
+    void nichtGefundenMitCacheControlWieExternRestController() throws Exception {
+
+        when( _reaktiveHalterAbfrage.findByKennzeichenCode( anyLong() ) ).thenReturn( Mono.empty() );
+
+        final MvcResult ergebnis = _mockMvc.perform( get( "/api/v1/reaktiv/abfrage/KA Q 1" ) ).andReturn();
+
+        _mockMvc.perform( asyncDispatch( ergebnis ) )
+                .andExpect( status().isNotFound() )
+                .andExpect( header().string( "Cache-Control", "max-age=10, private" ) );
+    }
+
+}